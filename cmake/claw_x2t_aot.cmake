@@ -0,0 +1,91 @@
+# This file is released under terms of BSD license
+# See LICENSE file for more information
+
+# Build the ahead-of-time artifacts of the translator. This script is run with
+# cmake -P and expects the following variables:
+#
+#   JAVA          Java executable.
+#   JAVA_OPT      Options passed to the JVM by the driver.
+#   CDS_OPT       Extra options needed for application class-data sharing.
+#   CLASSPATH     Class path of the translator as used by the driver.
+#   CONFIG_PATH   Directory of the configuration files.
+#   CONFIG_FILES  Configuration and transformation set files separated by |.
+#   WORK_DIR      Directory for the intermediate files.
+#   CDS_ARCHIVE   Class-data-sharing archive to create. Skipped if empty.
+#   NATIVE_IMAGE  GraalVM native-image executable. Skipped if empty.
+#   NATIVE_OUTPUT Native image of the translator to create.
+
+set(CLASS_REGISTRY "claw.wani.x2t.configuration.ClassRegistry")
+set(BUILTIN_LIST "${WORK_DIR}/claw-x2t-builtin.lst")
+set(REFLECT_CONFIG "${WORK_DIR}/claw-x2t-reflect.json")
+set(LOADED_LIST "${WORK_DIR}/claw-x2t-loaded.lst")
+set(DRIVER_LIST "${WORK_DIR}/claw-x2t-driver.lst")
+set(CLASS_LIST "${WORK_DIR}/claw-x2t.lst")
+
+separate_arguments(JAVA_OPT)
+separate_arguments(CDS_OPT)
+string(REPLACE "|" ";" CONFIG_FILES "${CONFIG_FILES}")
+file(MAKE_DIRECTORY ${WORK_DIR})
+
+# Load all the built-in classes created by reflection and write the class
+# lists. Classes are recorded with their dependencies.
+execute_process(
+  COMMAND ${JAVA} ${JAVA_OPT} -Xshare:off
+  -XX:DumpLoadedClassList=${LOADED_LIST}
+  -cp ${CLASSPATH} ${CLASS_REGISTRY} ${BUILTIN_LIST} ${REFLECT_CONFIG}
+  ${CONFIG_FILES}
+  RESULT_VARIABLE status
+)
+if(NOT status EQUAL 0)
+  message(FATAL_ERROR "Cannot generate the class list of the translator")
+endif()
+
+if(CDS_ARCHIVE)
+  # Record the classes loaded by the command line and configuration handling
+  # as the driver runs them for every file.
+  execute_process(
+    COMMAND ${JAVA} ${JAVA_OPT} -Xshare:off
+    -XX:DumpLoadedClassList=${DRIVER_LIST}
+    -cp ${CLASSPATH} claw.ClawX2T --config-path=${CONFIG_PATH} --show-config
+    OUTPUT_QUIET
+    RESULT_VARIABLE status
+  )
+  if(NOT status EQUAL 0)
+    message(FATAL_ERROR "Cannot record the classes loaded by the translator")
+  endif()
+
+  file(READ ${LOADED_LIST} loaded_classes)
+  file(READ ${DRIVER_LIST} driver_classes)
+  file(READ ${BUILTIN_LIST} builtin_classes)
+  file(WRITE ${CLASS_LIST}
+    "${loaded_classes}${driver_classes}${builtin_classes}")
+
+  message(STATUS "Creating class-data-sharing archive ${CDS_ARCHIVE}")
+  execute_process(
+    COMMAND ${JAVA} ${JAVA_OPT} ${CDS_OPT} -Xshare:dump
+    -XX:SharedClassListFile=${CLASS_LIST}
+    -XX:SharedArchiveFile=${CDS_ARCHIVE}
+    -cp ${CLASSPATH}
+    OUTPUT_QUIET
+    RESULT_VARIABLE status
+  )
+  if(NOT status EQUAL 0)
+    message(FATAL_ERROR "Cannot create the class-data-sharing archive")
+  endif()
+endif()
+
+if(NATIVE_IMAGE)
+  get_filename_component(native_dir ${NATIVE_OUTPUT} DIRECTORY)
+  get_filename_component(native_name ${NATIVE_OUTPUT} NAME)
+  message(STATUS "Creating native image ${NATIVE_OUTPUT}")
+  execute_process(
+    COMMAND ${NATIVE_IMAGE} --no-fallback
+    -H:ReflectionConfigurationFiles=${REFLECT_CONFIG}
+    -cp ${CLASSPATH} claw.ClawX2T ${native_name}
+    WORKING_DIRECTORY ${native_dir}
+    RESULT_VARIABLE status
+  )
+  if(NOT status EQUAL 0)
+    message(FATAL_ERROR "Cannot create the native image of the translator")
+  endif()
+endif()
@@ -0,0 +1,247 @@
+/*
+ * This file is released under terms of BSD license
+ * See LICENSE file for more information
+ */
+package claw.benchmark;
+
+import claw.tatsu.xcodeml.xnode.XnodeUtil;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+import javax.xml.transform.OutputKeys;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Default input of the benchmarks. When no input is given, a large
+ * translation unit is built from a sample XcodeML/F file by repeating its
+ * functions under new names. The samples are files of the unit tests,
+ * located with the claw.benchmark.data system property set by the
+ * claw-benchmark target: basic.xml (loop-extract) by default and
+ * modeldata1.xml (SCA with the model.toml model configuration). The module
+ * file of a module sample is written next to the input. The configuration
+ * files default to the directory given by the claw.benchmark.config system
+ * property.
+ *
+ * @author clementval
+ */
+final class BenchmarkInput {
+
+  static final String SAMPLE = "basic.xml";
+  static final String SCA_SAMPLE = "modeldata1.xml";
+  private static final String SCA_MODEL = "model.toml";
+  private static final String XMOD_EXTENSION = ".xmod";
+  private static final int COPIES = 1000;
+  // Each SCA transformation walks the whole module (module procedure lookup)
+  private static final int SCA_COPIES = 100;
+  private static final String DATA_PROPERTY = "claw.benchmark.data";
+  private static final String CONFIG_PROPERTY = "claw.benchmark.config";
+
+  private BenchmarkInput() {
+  }
+
+  /**
+   * Get the XcodeML/F file to be used by a benchmark.
+   *
+   * @param input XcodeML/F file given to the benchmark. Empty for the default
+   *              input.
+   * @return Path of the XcodeML/F file.
+   * @throws Exception If the default input cannot be created.
+   */
+  static String resolve(String input) throws Exception {
+    return resolve(input, SAMPLE);
+  }
+
+  /**
+   * Get the XcodeML/F file to be used by a benchmark.
+   *
+   * @param input  XcodeML/F file given to the benchmark. Empty for the
+   *               default input.
+   * @param sample Sample replicated for the default input.
+   * @return Path of the XcodeML/F file.
+   * @throws Exception If the default input cannot be created.
+   */
+  static String resolve(String input, String sample) throws Exception {
+    if(!input.isEmpty()) {
+      return input;
+    }
+    Document doc = XnodeUtil.readXmlFile(
+        new File(property(DATA_PROPERTY), sample).getPath());
+    if(doc == null) {
+      throw new IllegalArgumentException("Cannot read " + sample);
+    }
+    replicate(doc, SCA_SAMPLE.equals(sample) ? SCA_COPIES : COPIES);
+    File dir = Files.createTempDirectory("claw-benchmark").toFile();
+    dir.deleteOnExit();
+    Element module = firstChild(firstChild(doc.getDocumentElement(),
+        "globalDeclarations"), "FmoduleDefinition");
+    if(module != null) {
+      String name = module.getAttribute("name");
+      write(createModuleFile(doc, module),
+          new File(dir, name + XMOD_EXTENSION));
+    }
+    File output = new File(dir, sample);
+    write(doc, output);
+    return output.getPath();
+  }
+
+  /**
+   * Get the directory of the configuration files to be used by a benchmark.
+   *
+   * @param config Directory given to the benchmark. Empty for the default
+   *               one.
+   * @return Directory of the configuration files.
+   */
+  static String resolveConfig(String config) {
+    return config.isEmpty() ? property(CONFIG_PROPERTY) : config;
+  }
+
+  /**
+   * Get the SCA model configuration to be used by a benchmark.
+   *
+   * @param model  Model configuration given to the benchmark. Empty if not
+   *               used.
+   * @param input  XcodeML/F file given to the benchmark. Empty for the
+   *               default input.
+   * @param sample Sample replicated for the default input.
+   * @return Path of the model configuration. Null if not used.
+   */
+  static String resolveModel(String model, String input, String sample) {
+    if(!model.isEmpty()) {
+      return model;
+    }
+    if(input.isEmpty() && SCA_SAMPLE.equals(sample)) {
+      return new File(property(DATA_PROPERTY), SCA_MODEL).getPath();
+    }
+    return null;
+  }
+
+  private static String property(String name) {
+    String value = System.getProperty(name);
+    if(value == null) {
+      throw new IllegalArgumentException("No value given and " + name
+          + " is not set");
+    }
+    return value;
+  }
+
+  /**
+   * Append copies of the functions of the translation unit. Each copy renames
+   * the functions it defines and calls so the copies are independent. The
+   * functions of a module are copied inside the module.
+   *
+   * @param doc    XcodeML/F document.
+   * @param copies Number of copies of each function.
+   */
+  private static void replicate(Document doc, int copies) {
+    Element root = doc.getDocumentElement();
+    Element symbols = firstChild(root, "globalSymbols");
+    Element declarations = firstChild(root, "globalDeclarations");
+    Element module = firstChild(declarations, "FmoduleDefinition");
+    if(module != null) {
+      symbols = firstChild(module, "symbols");
+      declarations = firstChild(module, "FcontainsStatement");
+    }
+    List<Element> functions = new ArrayList<>();
+    Set<String> names = new HashSet<>();
+    for(Node n = declarations.getFirstChild(); n != null;
+        n = n.getNextSibling())
+    {
+      if(n instanceof Element
+          && "FfunctionDefinition".equals(n.getNodeName()))
+      {
+        functions.add((Element) n);
+        names.add(firstChild((Element) n, "name").getTextContent());
+      }
+    }
+    List<Element> ids = new ArrayList<>();
+    for(Node n = symbols.getFirstChild(); n != null; n = n.getNextSibling()) {
+      if(n instanceof Element
+          && names.contains(firstChild((Element) n, "name").getTextContent()))
+      {
+        ids.add((Element) n);
+      }
+    }
+
+    for(int copy = 1; copy <= copies; ++copy) {
+      for(Element function : functions) {
+        declarations.appendChild(rename(function, names, copy));
+      }
+      for(Element id : ids) {
+        symbols.appendChild(rename(id, names, copy));
+      }
+    }
+  }
+
+  /**
+   * Create the module file the front-end would write for a module of the
+   * translation unit. It declares all the types of the translation unit and
+   * the functions of the module.
+   *
+   * @param doc    XcodeML/F document.
+   * @param module Module definition.
+   * @return Module file document.
+   */
+  private static Document createModuleFile(Document doc, Element module) {
+    Document xmod = doc.getImplementation().createDocument(null,
+        "OmniFortranModule", null);
+    Element root = xmod.getDocumentElement();
+    root.setAttribute("version", "1.0");
+    root.appendChild(xmod.createElement("name"))
+        .setTextContent(module.getAttribute("name"));
+    root.appendChild(xmod.createElement("depends"));
+    root.appendChild(xmod.importNode(
+        firstChild(doc.getDocumentElement(), "typeTable"), true));
+    Element identifiers = xmod.createElement("identifiers");
+    for(Node n = firstChild(module, "symbols").getFirstChild(); n != null;
+        n = n.getNextSibling())
+    {
+      if(n instanceof Element) {
+        identifiers.appendChild(xmod.importNode(n, true));
+      }
+    }
+    root.appendChild(identifiers);
+    root.appendChild(xmod.createElement("interfaceDecls"));
+    root.appendChild(xmod.createElement("aux_info"));
+    return xmod;
+  }
+
+  private static void write(Document doc, File file) throws Exception {
+    file.deleteOnExit();
+    Transformer transformer = TransformerFactory.newInstance().newTransformer();
+    transformer.setOutputProperty(OutputKeys.INDENT, "no");
+    transformer.transform(new DOMSource(doc), new StreamResult(file));
+  }
+
+  private static Element rename(Element element, Set<String> names, int copy)
+  {
+    Element clone = (Element) element.cloneNode(true);
+    NodeList nameElements = clone.getElementsByTagName("name");
+    for(int i = 0; i < nameElements.getLength(); ++i) {
+      Node name = nameElements.item(i);
+      if(names.contains(name.getTextContent())) {
+        name.setTextContent(name.getTextContent() + "_" + copy);
+      }
+    }
+    return clone;
+  }
+
+  private static Element firstChild(Element element, String tagName) {
+    for(Node n = element.getFirstChild(); n != null; n = n.getNextSibling()) {
+      if(n instanceof Element && tagName.equals(n.getNodeName())) {
+        return (Element) n;
+      }
+    }
+    return null;
+  }
+}
@@ -0,0 +1,91 @@
+/*
+ * This file is released under terms of BSD license
+ * See LICENSE file for more information
+ */
+package claw.benchmark;
+
+import claw.tatsu.common.CompilerDirective;
+import claw.tatsu.common.Context;
+import claw.tatsu.common.Target;
+import claw.tatsu.xcodeml.xnode.common.Xcode;
+import claw.tatsu.xcodeml.xnode.common.XcodeProgram;
+import claw.tatsu.xcodeml.xnode.common.Xnode;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measure the access to the children of every expression, array reference
+ * and index range of an XcodeML/F translation unit.
+ * listChild materializes the list of children as child(int) did before the
+ * cursor navigation. cursorChild uses child(int) and firstChild/nextSibling.
+ * representation measures constructRepresentation on the array references.
+ *
+ * @author clementval
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ChildNavigationBenchmark {
+
+  private static final int MAX_COLUMNS = 80;
+  private static final Xcode[] OPCODES = {
+      Xcode.PLUS_EXPR, Xcode.MINUS_EXPR, Xcode.MUL_EXPR, Xcode.DIV_EXPR,
+      Xcode.F_ARRAY_REF, Xcode.INDEX_RANGE, Xcode.F_ASSIGN_STATEMENT
+  };
+
+  // XcodeML/F file produced by the front-end (clawfc --stop-frontend).
+  // Empty for the default input.
+  @Param({""})
+  public String input;
+
+  private List<Xnode> _nodes;
+  private List<Xnode> _arrayRefs;
+
+  @Setup(Level.Trial)
+  public void setup() throws Exception {
+    Context context =
+        new Context(CompilerDirective.NONE, Target.NONE, null, MAX_COLUMNS);
+    XcodeProgram xcodeml = XcodeProgram.createFromFile(
+        BenchmarkInput.resolve(input), context);
+    if(xcodeml == null) {
+      throw new IllegalArgumentException("Cannot read " + input);
+    }
+    _nodes = new ArrayList<>();
+    for(Xcode opcode : OPCODES) {
+      _nodes.addAll(xcodeml.matchAll(opcode));
+    }
+    _arrayRefs = xcodeml.matchAll(Xcode.F_ARRAY_REF);
+  }
+
+  @Benchmark
+  public void listChild(Blackhole bh) {
+    for(Xnode node : _nodes) {
+      List<Xnode> children = node.children();
+      bh.consume(children.isEmpty() ? null : children.get(0));
+      bh.consume(children.size() < 2 ? null : children.get(1));
+    }
+  }
+
+  @Benchmark
+  public void cursorChild(Blackhole bh) {
+    for(Xnode node : _nodes) {
+      Xnode first = node.firstChild();
+      bh.consume(first);
+      bh.consume(node.child(1));
+    }
+  }
+
+  @Benchmark
+  public void representation(Blackhole bh) {
+    for(Xnode arrayRef : _arrayRefs) {
+      bh.consume(arrayRef.constructRepresentation(false, false));
+    }
+  }
+}
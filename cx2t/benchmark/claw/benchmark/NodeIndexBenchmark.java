@@ -0,0 +1,92 @@
+/*
+ * This file is released under terms of BSD license
+ * See LICENSE file for more information
+ */
+package claw.benchmark;
+
+import claw.tatsu.common.CompilerDirective;
+import claw.tatsu.common.Context;
+import claw.tatsu.common.Target;
+import claw.tatsu.xcodeml.xnode.common.Xcode;
+import claw.tatsu.xcodeml.xnode.common.XcodeProgram;
+import claw.tatsu.xcodeml.xnode.common.Xnode;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measure the opcode queries of an XcodeML/F translation unit with and
+ * without the node index (--node-index).
+ * matchAll queries the statements, variables and array references of every
+ * function definition and loop as done by the analyses of the
+ * transformations. update inserts a copy of every loop and deletes it
+ * again, each followed by a query, to include the cost of keeping the index
+ * up to date.
+ *
+ * @author clementval
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class NodeIndexBenchmark {
+
+  private static final int MAX_COLUMNS = 80;
+  private static final Xcode[] OPCODES = {
+      Xcode.F_ASSIGN_STATEMENT, Xcode.VAR, Xcode.F_ARRAY_REF,
+      Xcode.F_DO_STATEMENT, Xcode.F_PRAGMA_STATEMENT
+  };
+
+  // XcodeML/F file produced by the front-end (clawfc --stop-frontend).
+  // Empty for the default input.
+  @Param({""})
+  public String input;
+
+  @Param({"false", "true"})
+  public boolean index;
+
+  private XcodeProgram _xcodeml;
+  private List<Xnode> _roots;
+  private List<Xnode> _loops;
+
+  @Setup(Level.Trial)
+  public void setup() throws Exception {
+    Context context =
+        new Context(CompilerDirective.NONE, Target.NONE, null, MAX_COLUMNS);
+    _xcodeml = XcodeProgram.createFromFile(
+        BenchmarkInput.resolve(input), context);
+    if(_xcodeml == null) {
+      throw new IllegalArgumentException("Cannot read " + input);
+    }
+    if(index) {
+      _xcodeml.enableNodeIndex();
+    }
+    _roots = _xcodeml.matchAll(Xcode.F_FUNCTION_DEFINITION);
+    _loops = _xcodeml.matchAll(Xcode.F_DO_STATEMENT);
+    _roots.addAll(_loops);
+  }
+
+  @Benchmark
+  public void matchAll(Blackhole bh) {
+    for(Xnode root : _roots) {
+      for(Xcode opcode : OPCODES) {
+        bh.consume(root.matchAll(opcode));
+      }
+    }
+  }
+
+  @Benchmark
+  public void update(Blackhole bh) {
+    for(Xnode loop : _loops) {
+      Xnode copy = loop.cloneNode();
+      loop.insertAfter(copy);
+      bh.consume(_xcodeml.matchAll(Xcode.F_ASSIGN_STATEMENT));
+      copy.delete();
+      bh.consume(_xcodeml.matchAll(Xcode.F_ASSIGN_STATEMENT));
+    }
+  }
+}
@@ -0,0 +1,84 @@
+/*
+ * This file is released under terms of BSD license
+ * See LICENSE file for more information
+ */
+package claw.benchmark;
+
+import claw.tatsu.common.CompilerDirective;
+import claw.tatsu.common.Context;
+import claw.tatsu.common.Target;
+import claw.tatsu.xcodeml.xnode.common.Xcode;
+import claw.tatsu.xcodeml.xnode.common.XcodeProgram;
+import claw.tatsu.xcodeml.xnode.common.Xnode;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measure the resolution of the opcode of every element of an XcodeML/F
+ * translation unit.
+ * lowercaseLookup is the resolution done before the exact lookup of the
+ * element name (tagLookup). opcode is the resolution done by new Xnode
+ * objects.
+ *
+ * @author clementval
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class OpcodeBenchmark {
+
+  private static final int MAX_COLUMNS = 80;
+
+  // XcodeML/F file produced by the front-end (clawfc --stop-frontend).
+  // Empty for the default input.
+  @Param({""})
+  public String input;
+
+  private List<Element> _elements;
+
+  @Setup(Level.Trial)
+  public void setup() throws Exception {
+    Context context =
+        new Context(CompilerDirective.NONE, Target.NONE, null, MAX_COLUMNS);
+    XcodeProgram xcodeml = XcodeProgram.createFromFile(
+        BenchmarkInput.resolve(input), context);
+    if(xcodeml == null) {
+      throw new IllegalArgumentException("Cannot read " + input);
+    }
+    NodeList all = xcodeml.getDocument().getElementsByTagName("*");
+    _elements = new ArrayList<>(all.getLength());
+    for(int i = 0; i < all.getLength(); ++i) {
+      _elements.add((Element) all.item(i));
+    }
+  }
+
+  @Benchmark
+  public void lowercaseLookup(Blackhole bh) {
+    for(Element element : _elements) {
+      bh.consume(Xcode.fromString(element.getTagName().toLowerCase()));
+    }
+  }
+
+  @Benchmark
+  public void tagLookup(Blackhole bh) {
+    for(Element element : _elements) {
+      bh.consume(Xcode.fromTag(element.getTagName()));
+    }
+  }
+
+  @Benchmark
+  public void opcode(Blackhole bh) {
+    for(Element element : _elements) {
+      bh.consume(new Xnode(element).opcode());
+    }
+  }
+}
@@ -0,0 +1,82 @@
+/*
+ * This file is released under terms of BSD license
+ * See LICENSE file for more information
+ */
+package claw.benchmark;
+
+import claw.tatsu.xcodeml.xnode.common.XcodeProgram;
+import claw.wani.x2t.configuration.Configuration;
+import claw.wani.x2t.translator.ClawTranslatorDriver;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measure the transformation of an XcodeML/F translation unit. The input is
+ * read and analyzed before each invocation so only the application of the
+ * transformations (e.g. ScaForward and ScaCPUvectorizeGroup for SCA
+ * inputs) is measured. Nothing is written.
+ *
+ * @author clementval
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class TranslationBenchmark {
+
+  private static final int MAX_COLUMNS = 80;
+
+  // XcodeML/F file produced by the front-end (clawfc --stop-frontend).
+  // Empty for the default input.
+  @Param({""})
+  public String input;
+
+  // Directory of the configuration files. Empty for driver/etc.
+  @Param({""})
+  public String config;
+
+  // Sample replicated for the default input: basic.xml (loop-extract) or
+  // modeldata1.xml (SCA with the model.toml model configuration).
+  @Param({BenchmarkInput.SAMPLE, BenchmarkInput.SCA_SAMPLE})
+  public String sample;
+
+  // SCA model configuration. Empty if not used.
+  @Param({""})
+  public String model;
+
+  @Param({"cpu"})
+  public String target;
+
+  private String _input;
+  private String _config;
+  private String _model;
+  private ClawTranslatorDriver _driver;
+
+  @Setup(Level.Trial)
+  public void prepare() throws Exception {
+    _input = BenchmarkInput.resolve(input, sample);
+    _config = BenchmarkInput.resolveConfig(config);
+    _model = BenchmarkInput.resolveModel(model, input, sample);
+  }
+
+  @Setup(Level.Invocation)
+  public void setup() throws Exception {
+    Configuration cfg = new Configuration();
+    cfg.load(_config, null, _model, target, null, MAX_COLUMNS);
+    // Module files are searched next to the input
+    String inputDir = new File(_input).getAbsoluteFile().getParent();
+    cfg.context().getModuleCache().addSearchPath(inputDir);
+    _driver = new ClawTranslatorDriver(_input, null, cfg);
+    _driver.analyze();
+  }
+
+  @Benchmark
+  public XcodeProgram transform() throws Exception {
+    _driver.transform();
+    return _driver.getTranslationUnit();
+  }
+}
@@ -5,17 +5,29 @@
 package claw;
 
 import claw.tatsu.common.CompilerDirective;
-import claw.tatsu.common.Context;
 import claw.tatsu.common.Target;
 import claw.tatsu.xcodeml.backend.OmniBackendDriver;
+import claw.tatsu.xcodeml.module.ModuleCache;
+import claw.tatsu.xcodeml.xnode.XmlLoader;
 import claw.wani.ClawConstant;
 import claw.wani.report.ClawTransformationReport;
+import claw.wani.x2t.cache.TranslationCache;
+import claw.wani.x2t.cache.TranslationKey;
 import claw.wani.x2t.configuration.Configuration;
+import claw.wani.x2t.dependency.DependencyException;
+import claw.wani.x2t.dependency.ModuleDependencyResolver;
+import claw.wani.x2t.server.TranslationServer;
 import claw.wani.x2t.translator.ClawTranslatorDriver;
+import claw.wani.x2t.translator.TranslationAbortedException;
+import claw.wani.x2t.translator.TranslationBatch;
 import org.apache.commons.cli.*;
 import xcodeml.util.XmOption;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
 
 /**
  * ClawX2T is the entry point of any CLAW XcodeML/F translation.
@@ -25,17 +37,25 @@ import java.io.File;
 public class ClawX2T {
 
   private static final String ERR_INTERNAL = "internal";
+  private static final int EXIT_FAILURE = 1;
+  private static final long DEFAULT_CACHE_SIZE = 1024; // MB
+  private static final long MEGABYTE = 1024 * 1024;
+
+  // Options whose value is a file or directory path
+  private static final Set<String> PATH_OPTIONS = new HashSet<>(
+      Arrays.asList("cp", "c", "s", "f", "o", "M", "r", "m", "mf", "tc"));
 
   /**
-   * Print an error message an abort.
+   * Print an error message.
    *
    * @param filename   Filename in which error occurred.
    * @param lineNumber Line number of the error, if known.
    * @param charPos    Character position of the error, if known.
    * @param msg        Error message.
+   * @return Exit status of the failed translation.
    */
-  private static void error(String filename, int lineNumber, int charPos,
-                            String msg)
+  private static int error(String filename, int lineNumber, int charPos,
+                           String msg)
   {
     StringBuilder errorStr = new StringBuilder();
     errorStr.append(filename).append(":");
@@ -47,17 +67,19 @@ public class ClawX2T {
     }
     errorStr.append(msg);
     System.err.println(errorStr);
-    System.exit(1);
+    return EXIT_FAILURE;
   }
 
   /**
    * Print program usage.
+   *
+   * @return Exit status of the program.
    */
-  private static void usage() {
+  private static int usage() {
     Options options = prepareOptions();
     HelpFormatter formatter = new HelpFormatter();
     formatter.printHelp("clawfc", options);
-    System.exit(1);
+    return EXIT_FAILURE;
   }
 
   /**
@@ -85,7 +107,7 @@ public class ClawX2T {
    *
    * @return Options object.
    */
-  private static Options prepareOptions() {
+  public static Options prepareOptions() {
     Options options = new Options();
     options.addOption("h", "help", false,
         "display program usage.");
@@ -104,11 +126,13 @@ public class ClawX2T {
     options.addOption("d", "debug", false,
         "enable output debug message.");
     options.addOption("f", true,
-        "specify FORTRAN decompiled output file.");
+        "specify FORTRAN decompiled output file. Output directory if " +
+            "several input files are given.");
     options.addOption("w", true,
         "number of character per line in decompiled code.");
     options.addOption("o", true,
-        "specify XcodeML/F output file.");
+        "specify XcodeML/F output file. Output directory if several " +
+            "input files are given.");
     options.addOption("M", true,
         "specify where to search for .xmod files");
     options.addOption("tl", "target-list", false,
@@ -130,6 +154,50 @@ public class ClawX2T {
     options.addOption("ap", "add-paren", false,
         "Force backend to add parenthesis in binary mathematical binary " +
             "operation.");
+    options.addOption("mf", "manifest", true,
+        "translate all the files listed in the given manifest. Each line " +
+            "gives an input, a FORTRAN output and optionally an XcodeML " +
+            "output file.");
+    options.addOption("j", "jobs", true,
+        "number of files translated concurrently in batch mode.");
+    options.addOption("ro", "reload-output", false,
+        "decompile from the written XcodeML/F output file instead of the " +
+            "in-memory translation unit. The output file is then written " +
+            "before decompilation.");
+    options.addOption("tc", "translation-cache", true,
+        "reuse the results of previous translations stored in the given " +
+            "cache directory.");
+    options.addOption("tcs", "translation-cache-size", true,
+        "maximum size of the translation cache in MB (default: " +
+            DEFAULT_CACHE_SIZE + ").");
+    options.addOption("tcr", "translation-cache-report", false,
+        "display the hit rate and the size of the translation cache.");
+    options.addOption("rd", "resolve-dependencies", false,
+        "print the module source files needed by the input files that must " +
+            "be processed by the front-end, one per line with the index of " +
+            "its wave. Files of a wave can be processed concurrently. An " +
+            "input can be given as <file>=<preprocessed file>.");
+    options.addOption("xl", "xml-loader", true,
+        "parser used to read the XcodeML files: " +
+            String.join(", ", XmlLoader.availableLoaders()) + " (default: " +
+            XmlLoader.DOM + ").");
+    options.addOption("ni", "node-index", false,
+        "index the nodes of the translation unit by opcode and the " +
+            "variable uses of its functions.");
+    options.addOption("bm", "binary-module", false,
+        "write binary sidecars of the module files to speed up their next " +
+            "load.");
+    options.addOption("mcs", "module-cache-size", true,
+        "memory budget of the module cache in MB over which unmodified " +
+            "modules are evicted (default: " +
+            ModuleCache.DEFAULT_MAX_SIZE / MEGABYTE + ").");
+    options.addOption("sf", "skip-failed", false,
+        "roll back the failed transformations and skip them with a warning " +
+            "instead of aborting the translation, unless they already " +
+            "updated a module file.");
+    options.addOption("sv", "server", true,
+        "start a persistent translation server and write its connection " +
+            "information to the given file.");
     return options;
   }
 
@@ -137,7 +205,7 @@ public class ClawX2T {
    * Parse the arguments passed to the program.
    *
    * @param args Arguments passed to the program.
-   * @return Parsed command line object.
+   * @return Parsed command line object. Null if the arguments are not valid.
    */
   private static CommandLine processCommandArgs(String[] args)
   {
@@ -151,6 +219,117 @@ public class ClawX2T {
     }
   }
 
+  /**
+   * Rewrite all the relative paths given as option value or as input file
+   * so they are resolved against the given working directory.
+   *
+   * @param args       Arguments of the program.
+   * @param workingDir Directory relative paths refer to.
+   * @return New array of arguments with absolute paths.
+   */
+  public static String[] resolvePaths(String[] args, File workingDir) {
+    Options options = prepareOptions();
+    List<String> resolved = new ArrayList<>();
+    boolean valueExpected = false;
+    boolean pathExpected = false;
+    for(String arg : args) {
+      if(valueExpected) {
+        resolved.add(pathExpected ? resolvePath(arg, workingDir) : arg);
+        valueExpected = false;
+      } else if(arg.startsWith("--") && arg.length() > 2) {
+        int eq = arg.indexOf('=');
+        String name = arg.substring(2, eq < 0 ? arg.length() : eq);
+        Option opt = options.getOption(name);
+        boolean isPath = opt != null && PATH_OPTIONS.contains(opt.getOpt());
+        if(eq >= 0) {
+          String value = arg.substring(eq + 1);
+          resolved.add(arg.substring(0, eq + 1)
+              + (isPath ? resolvePath(value, workingDir) : value));
+        } else {
+          resolved.add(arg);
+          valueExpected = opt != null && opt.hasArg();
+          pathExpected = isPath;
+        }
+      } else if(arg.startsWith("-") && arg.length() > 1) {
+        String name = arg.substring(1);
+        Option opt = options.getOption(name);
+        if(opt != null) {
+          resolved.add(arg);
+          valueExpected = opt.hasArg();
+          pathExpected = PATH_OPTIONS.contains(opt.getOpt());
+        } else {
+          // Short option with its value attached (e.g. -M/path/to/dir)
+          Option prefix = options.getOption(name.substring(0, 1));
+          if(prefix != null && prefix.hasArg()
+              && PATH_OPTIONS.contains(prefix.getOpt()))
+          {
+            resolved.add("-" + prefix.getOpt()
+                + resolvePath(name.substring(1), workingDir));
+          } else {
+            resolved.add(arg);
+          }
+        }
+      } else {
+        resolved.add(resolvePath(arg, workingDir));
+      }
+    }
+    return resolved.toArray(new String[0]);
+  }
+
+  /**
+   * Resolve a single path against a working directory.
+   *
+   * @param path       Absolute or relative path.
+   * @param workingDir Directory relative paths refer to.
+   * @return Absolute path.
+   */
+  private static String resolvePath(String path, File workingDir) {
+    if(path.isEmpty() || Paths.get(path).isAbsolute()) {
+      return path;
+    }
+    return new File(workingDir, path).getPath();
+  }
+
+  /**
+   * Start the translation server. Each job received by the server is run as
+   * if the program was called with the job arguments.
+   *
+   * @param serverFile Path of the file holding the connection information.
+   * @return Exit status of the program.
+   */
+  private static int serve(String serverFile) {
+    TranslationServer server =
+        new TranslationServer(Paths.get(serverFile), ClawX2T::runJob);
+    try {
+      server.serve();
+    } catch(Exception ex) {
+      return error(ERR_INTERNAL, 0, 0,
+          "Translation server failed: " + ex.getMessage());
+    }
+    return 0;
+  }
+
+  /**
+   * Run a single translation job received by the translation server.
+   *
+   * @param args       Arguments of the job.
+   * @param workingDir Working directory of the client.
+   * @param env        Environment variables of the client.
+   * @return Exit status of the job.
+   * @throws Exception if translation failed.
+   */
+  private static int runJob(String[] args, File workingDir,
+                            Map<String, String> env)
+      throws Exception
+  {
+    CommandLine cmd = processCommandArgs(args);
+    if(cmd != null && cmd.hasOption("sv")) {
+      return error(ERR_INTERNAL, 0, 0,
+          "Server option is not allowed in a translation job.");
+    }
+    return run(resolvePaths(args, workingDir), env);
+  }
+
   /**
    * Main point of entry of the program.
    *
@@ -158,6 +337,38 @@ public class ClawX2T {
    * @throws Exception if translation failed.
    */
   public static void main(String[] args) throws Exception {
+    int status = run(args);
+    if(status != 0) {
+      System.exit(status);
+    }
+  }
+
+  /**
+   * Run a full translation with the given arguments. Errors are reported on
+   * the standard error and through the returned status.
+   *
+   * @param args Arguments of the program.
+   * @return Exit status of the translation. 0 if successful.
+   * @throws Exception if translation failed.
+   */
+  public static int run(String[] args) throws Exception {
+    return run(args, System.getenv());
+  }
+
+  /**
+   * Run a full translation with the given arguments and environment
+   * variables. Errors are reported on the standard error and through the
+   * returned status.
+   *
+   * @param args Arguments of the program.
+   * @param env  Environment variables used instead of the ones of the
+   *             process.
+   * @return Exit status of the translation. 0 if successful.
+   * @throws Exception if translation failed.
+   */
+  public static int run(String[] args, Map<String, String> env)
+      throws Exception
+  {
     String input;
     String xcmlOutput;
     String targetLangOutput;
@@ -172,20 +383,52 @@ public class ClawX2T {
 
     // Help option
     if(cmd == null || cmd.hasOption("h")) {
-      usage();
-      return;
+      return usage();
+    }
+
+    // Server option
+    if(cmd.hasOption("sv")) {
+      return serve(cmd.getOptionValue("sv"));
     }
 
     // Display target list option
     if(cmd.hasOption("tl")) {
       listTarget();
-      return;
+      return 0;
     }
 
     // Display directive list option
     if(cmd.hasOption("dl")) {
       listDirectiveLanguage();
-      return;
+      return 0;
+    }
+
+    // Module dependency resolution
+    if(cmd.hasOption("rd")) {
+      return resolveDependencies(cmd);
+    }
+
+    // Translation cache size option
+    if(cmd.hasOption("tcs") && readPositive(cmd, "tcs") == 0) {
+      return error(ERR_INTERNAL, 0, 0, "Invalid translation cache size (--"
+          + "translation-cache-size): " + cmd.getOptionValue("tcs"));
+    }
+
+    // Module cache size option
+    if(cmd.hasOption("mcs") && readPositive(cmd, "mcs") == 0) {
+      return error(ERR_INTERNAL, 0, 0, "Invalid module cache size (--"
+          + "module-cache-size): " + cmd.getOptionValue("mcs"));
+    }
+
+    // Display translation cache statistics
+    if(cmd.hasOption("tcr")) {
+      if(!cmd.hasOption("tc")) {
+        return error(ERR_INTERNAL, 0, 0, "Translation cache (--" +
+            "translation-cache) missing.");
+      }
+      System.out.println("Translation cache: "
+          + openCache(cmd).getStatistics());
+      return 0;
     }
 
     // Target option
@@ -194,15 +437,17 @@ public class ClawX2T {
     // Directive option
     directiveOption = cmd.getOptionValue("dir");
 
+    // OMNI options are global to the process. They are set once here, before
+    // any translation starts. The decompiler only turns the debug output off.
+
     // Suppressing line directive option
-    if(cmd.hasOption("l")) {
-      XmOption.setIsSuppressLineDirective(true);
-    }
+    XmOption.setIsSuppressLineDirective(cmd.hasOption("l"));
 
     // Debug option
-    if(cmd.hasOption("d")) {
-      XmOption.setDebugOutput(true);
-    }
+    XmOption.setDebugOutput(cmd.hasOption("d"));
+
+    // Add parenthesis option
+    XmOption.setAddPar(cmd.hasOption("ap"));
 
     // XcodeML/F output file option
     xcmlOutput = cmd.getOptionValue("o");
@@ -219,15 +464,14 @@ public class ClawX2T {
 
     // Check that configuration path exists
     if(configurationPath == null) {
-      error(ERR_INTERNAL, 0, 0, "Configuration path missing.");
-      return;
+      return error(ERR_INTERNAL, 0, 0, "Configuration path missing.");
     }
 
     // Check that configuration file exists
     if(configurationFile != null) {
       File configFile = new File(configurationFile);
       if(!configFile.exists()) {
-        error(ERR_INTERNAL, 0, 0, "Configuration file not found: "
+        return error(ERR_INTERNAL, 0, 0, "Configuration file not found: "
             + configurationFile);
       }
     }
@@ -237,17 +481,23 @@ public class ClawX2T {
       modelConfiguration = cmd.getOptionValue("m");
       File modelConfig = new File(modelConfiguration);
       if(!modelConfig.exists()) {
-        error(ClawConstant.ERROR_PREFIX_INTERNAL, 0, 0,
+        return error(ClawConstant.ERROR_PREFIX_INTERNAL, 0, 0,
             "Model configuration file not found: " + modelConfiguration);
       }
     }
 
     // --show-configuration option
     if(cmd.hasOption("sc")) {
-      Configuration.get().load(configurationPath, configurationFile,
-          modelConfiguration, targetOption, directiveOption, maxColumns);
-      Configuration.get().displayConfig();
-      return;
+      Configuration cfg = new Configuration(env);
+      cfg.load(configurationPath, configurationFile, modelConfiguration,
+          targetOption, directiveOption, maxColumns);
+      cfg.displayConfig();
+      return 0;
+    }
+
+    // Batch of XcodeML files to transform
+    if(cmd.hasOption("mf") || cmd.getArgs().length > 1) {
+      return translateBatch(cmd, env, xcmlOutput, targetLangOutput);
     }
 
     // Get the input XcodeML file to transform
@@ -257,19 +507,109 @@ public class ClawX2T {
       input = cmd.getArgs()[0];
     }
 
+    return translate(cmd, env, args, input, xcmlOutput, targetLangOutput);
+  }
+
+  /**
+   * Translate several independent XcodeML files concurrently. Each file is
+   * translated as if the program was called for this file only.
+   *
+   * @param cmd              Parsed command line.
+   * @param env              Environment variables of the translation.
+   * @param xcmlOutput       XcodeML output directory. Can be null.
+   * @param targetLangOutput Fortran output directory.
+   * @return Exit status of the batch. 0 if all translations succeeded.
+   * @throws Exception if translation failed.
+   */
+  private static int translateBatch(CommandLine cmd, Map<String, String> env,
+                                    String xcmlOutput, String targetLangOutput)
+      throws Exception
+  {
+    if(cmd.hasOption("r")) {
+      return error(ERR_INTERNAL, 0, 0,
+          "Report cannot be generated in batch mode.");
+    }
+
+    TranslationBatch batch;
+    if(cmd.hasOption("mf")) {
+      try {
+        batch = TranslationBatch.fromManifest(cmd.getOptionValue("mf"));
+      } catch(IOException ex) {
+        return error(ERR_INTERNAL, 0, 0, ex.getMessage());
+      }
+    } else {
+      if(targetLangOutput == null) {
+        return error(ERR_INTERNAL, 0, 0,
+            "Output directory (-f) missing for multiple input files.");
+      }
+      batch = TranslationBatch.fromInputs(Arrays.asList(cmd.getArgs()),
+          targetLangOutput, xcmlOutput);
+    }
+
+    int jobs = Runtime.getRuntime().availableProcessors();
+    if(cmd.hasOption("j")) {
+      jobs = readPositive(cmd, "j");
+      if(jobs == 0) {
+        return error(ERR_INTERNAL, 0, 0, "Invalid number of jobs (--jobs): "
+            + cmd.getOptionValue("j"));
+      }
+    }
+    return batch.run(jobs, unit -> translate(cmd, env, null, unit.getInput(),
+        unit.getXcodemlOutput(), unit.getFortranOutput()));
+  }
+
+  /**
+   * Read the value of an option as a positive integer.
+   *
+   * @param cmd    Parsed command line.
+   * @param option Short name of the option.
+   * @return Value of the option. 0 if the value is not a positive integer.
+   */
+  private static int readPositive(CommandLine cmd, String option) {
+    try {
+      return Math.max(0, Integer.parseInt(cmd.getOptionValue(option)));
+    } catch(NumberFormatException ex) {
+      return 0;
+    }
+  }
+
+  /**
+   * Translate a single XcodeML file and decompile it. The configuration is
+   * loaded for the calling thread.
+   *
+   * @param cmd              Parsed command line.
+   * @param env              Environment variables of the translation.
+   * @param args             Arguments of the program. Used for the report.
+   * @param input            XcodeML input file. Standard input if null.
+   * @param xcmlOutput       XcodeML output file. Can be null.
+   * @param targetLangOutput Fortran output file. Standard output if null.
+   * @return Exit status of the translation. 0 if successful.
+   * @throws Exception if translation failed.
+   */
+  private static int translate(CommandLine cmd, Map<String, String> env,
+                               String[] args, String input, String xcmlOutput,
+                               String targetLangOutput)
+      throws Exception
+  {
+    int maxColumns = 0;
+    if(cmd.hasOption("w")) {
+      maxColumns = Integer.parseInt(cmd.getOptionValue("w"));
+    }
+
     // Read the configuration file
+    Configuration cfg = new Configuration(env);
     try {
-      Configuration.get().load(configurationPath, configurationFile,
-          modelConfiguration, targetOption, directiveOption, maxColumns);
+      cfg.load(cmd.getOptionValue("cp"),
+          cmd.getOptionValue("c"), cmd.getOptionValue("m"),
+          cmd.getOptionValue("t"), cmd.getOptionValue("dir"), maxColumns);
     } catch(Exception ex) {
-      error(ERR_INTERNAL, 0, 0, ex.getMessage());
-      return;
+      return error(ERR_INTERNAL, 0, 0, ex.getMessage());
     }
 
     // Module search path options
     if(cmd.hasOption("M")) {
       for(String value : cmd.getOptionValues("M")) {
-        Context.get().getModuleCache().addSearchPath(value);
+        cfg.context().getModuleCache().addSearchPath(value);
       }
     }
 
@@ -278,25 +618,76 @@ public class ClawX2T {
       for(String keyValue : cmd.getOptionValues("x")) {
         String key = keyValue.substring(0, keyValue.indexOf(":"));
         String value = keyValue.substring(keyValue.indexOf(":")+1);
-        Configuration.get().overrideConfigurationParameter(key, value);
+        cfg.overrideConfigurationParameter(key, value);
       }
     }
 
     // Force pure option
     if(cmd.hasOption("fp")) {
-      Configuration.get().setForcePure();
+      cfg.setForcePure();
     }
 
-    // Add parenthesis option
-    if(cmd.hasOption("ap")) {
-      XmOption.setAddPar(true);
+    // XcodeML parser option
+    if(cmd.hasOption("xl")) {
+      XmlLoader loader = XmlLoader.fromString(cmd.getOptionValue("xl"));
+      if(loader == null) {
+        return error(ERR_INTERNAL, 0, 0, "Unknown XML loader: "
+            + cmd.getOptionValue("xl"));
+      }
+      cfg.context().setXmlLoader(loader);
+    }
+
+    // Opcode index option
+    cfg.context().setNodeIndex(cmd.hasOption("ni"));
+
+    // Binary module sidecar option
+    cfg.context().setBinaryModule(cmd.hasOption("bm"));
+
+    // Module cache budget option, validated in run()
+    if(cmd.hasOption("mcs")) {
+      cfg.context().getModuleCache().setMaxSize(
+          readPositive(cmd, "mcs") * MEGABYTE);
+    }
+
+    // Skip failed transformations option
+    cfg.context().setSkipFailedTransformation(cmd.hasOption("sf"));
+
+    // Reuse a previous translation if possible. Only translations writing
+    // nothing else than the Fortran output and the module files are cached.
+    TranslationCache cache = null;
+    String cacheKey = null;
+    if(cmd.hasOption("tc") && input != null && targetLangOutput != null
+        && xcmlOutput == null && !cmd.hasOption("r"))
+    {
+      try {
+        cache = openCache(cmd);
+        cacheKey = TranslationKey.forTranslation(input, cfg,
+            cmd.getOptionValue("m"))
+            .add("max-columns", String.valueOf(maxColumns))
+            .add("line-directive", String.valueOf(!cmd.hasOption("l")))
+            .add("add-paren", String.valueOf(cmd.hasOption("ap")))
+            .digest();
+        if(cache.restore(cacheKey, targetLangOutput,
+            cfg.context().getModuleCache().getSearchPaths()))
+        {
+          return 0;
+        }
+      } catch(IOException ex) {
+        System.err.println("Translation cache disabled: " + ex.getMessage());
+        cache = null;
+      }
     }
 
     ClawTranslatorDriver translatorDriver =
-        new ClawTranslatorDriver(input, xcmlOutput);
+        new ClawTranslatorDriver(input, xcmlOutput, cfg);
+    translatorDriver.setAsyncOutput(!cmd.hasOption("ro"));
 
-    translatorDriver.analyze();
-    translatorDriver.transform();
+    try {
+      translatorDriver.analyze();
+      translatorDriver.transform();
+    } catch(TranslationAbortedException ex) {
+      return EXIT_FAILURE;
+    }
     translatorDriver.flush();
 
     // Produce report (unless we've used the Python driver)
@@ -307,28 +698,101 @@ public class ClawX2T {
     }
 
     // Decompile XcodeML/F to target language
-    OmniBackendDriver backend;
-    if(Configuration.get().getCurrentTarget() == Target.FPGA) {
+    if(cfg.getCurrentTarget() == Target.FPGA) {
       // TODO remove when supported
-      error(xcmlOutput, 0, 0, "FPGA target is not supported yet");
-      backend = new OmniBackendDriver(OmniBackendDriver.Lang.C);
-    } else {
-      backend = new OmniBackendDriver(OmniBackendDriver.Lang.FORTRAN);
+      translatorDriver.awaitOutput();
+      return error(xcmlOutput, 0, 0, "FPGA target is not supported yet");
     }
-
-    if(xcmlOutput == null) { // XcodeML output not written to file. Use pipe.
-      if(!backend.decompile(targetLangOutput,
-          translatorDriver.getTranslationUnit(), maxColumns,
-          XmOption.isSuppressLineDirective()))
-      {
-        error(targetLangOutput, 0, 0, "Unable to decompile XcodeML to Fortran");
+    OmniBackendDriver backend =
+        new OmniBackendDriver(OmniBackendDriver.Lang.FORTRAN);
+
+    if(xcmlOutput == null || translatorDriver.isAsyncOutput()) {
+      // Decompile from the in-memory translation unit. The XcodeML output, if
+      // any, is written concurrently from a snapshot.
+      boolean decompiled = backend.decompile(targetLangOutput,
+          translatorDriver.getTranslationUnit(), maxColumns);
+      translatorDriver.awaitOutput();
+      if(!decompiled) {
+        return error(targetLangOutput, 0, 0,
+            "Unable to decompile XcodeML to Fortran");
       }
     } else {
-      if(!backend.decompileFromFile(targetLangOutput, xcmlOutput, maxColumns,
-          XmOption.isSuppressLineDirective()))
+      if(!backend.decompileFromFile(targetLangOutput, xcmlOutput,
+          maxColumns))
       {
-        error(xcmlOutput, 0, 0, "Unable to decompile XcodeML to Fortran");
+        return error(xcmlOutput, 0, 0,
+            "Unable to decompile XcodeML to Fortran");
+      }
+    }
+
+    if(cache != null) {
+      try {
+        cache.store(cacheKey, targetLangOutput,
+            cfg.context().getModuleCache().getModuleFiles(cfg.context()),
+            cfg.context().getModuleCache().getSearchPaths());
+      } catch(IOException ex) {
+        System.err.println("Translation cache not updated: "
+            + ex.getMessage());
       }
     }
+    return 0;
+  }
+
+  /**
+   * Resolve the module dependencies of the input files and print the module
+   * source files to process grouped in waves. Warnings of the resolution are
+   * printed on the standard error.
+   *
+   * @param cmd Parsed command line.
+   * @return Exit status of the resolution.
+   * @throws IOException If a file cannot be read.
+   */
+  private static int resolveDependencies(CommandLine cmd) throws IOException {
+    List<String> searchPaths = new ArrayList<>();
+    if(cmd.hasOption("M")) {
+      searchPaths.addAll(Arrays.asList(cmd.getOptionValues("M")));
+    }
+    Map<Path, Path> inputs = new LinkedHashMap<>();
+    for(String arg : cmd.getArgs()) {
+      int sep = arg.indexOf('=');
+      Path input = Paths.get(sep < 0 ? arg : arg.substring(0, sep));
+      inputs.put(input, sep < 0 ? input : Paths.get(arg.substring(sep + 1)));
+    }
+
+    ModuleDependencyResolver resolver =
+        new ModuleDependencyResolver(searchPaths);
+    List<List<Path>> waves;
+    try {
+      waves = resolver.resolve(inputs);
+    } catch(DependencyException ex) {
+      return error(ERR_INTERNAL, 0, 0, ex.getMessage());
+    } finally {
+      for(String warning : resolver.getWarnings()) {
+        System.err.println("warning: " + warning);
+      }
+    }
+    for(int i = 0; i < waves.size(); ++i) {
+      for(Path source : waves.get(i)) {
+        System.out.println(i + " " + source);
+      }
+    }
+    return 0;
+  }
+
+  /**
+   * Open the translation cache given on the command line.
+   *
+   * @param cmd Parsed command line.
+   * @return Translation cache.
+   * @throws IOException If the cache directory cannot be created.
+   */
+  private static TranslationCache openCache(CommandLine cmd)
+      throws IOException
+  {
+    long size = DEFAULT_CACHE_SIZE;
+    if(cmd.hasOption("tcs")) {
+      size = readPositive(cmd, "tcs");
+    }
+    return new TranslationCache(cmd.getOptionValue("tc"), size * MEGABYTE);
   }
 }
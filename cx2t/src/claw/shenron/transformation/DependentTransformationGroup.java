@@ -8,7 +8,7 @@ import claw.shenron.translator.Translator;
 import claw.tatsu.xcodeml.exception.IllegalTransformationException;
 import claw.tatsu.xcodeml.xnode.common.XcodeProgram;
 
-import java.util.List;
+import java.util.*;
 
 /**
  * An dependent transformation group check whether it can be transformed with
@@ -20,6 +20,11 @@ import java.util.List;
 
 public class DependentTransformationGroup extends TransformationGroup {
 
+  // Transformations by start line in adding order
+  private final TreeMap<Integer, List<Transformation>> _transformationsByLine =
+      new TreeMap<>();
+  private boolean _ordered = true;
+
   /**
    * DependentTransformationGroup ctor.
    *
@@ -30,31 +35,68 @@ public class DependentTransformationGroup extends TransformationGroup {
   }
 
   /**
+   * Each transformation is checked with the pending transformations after it
+   * that share its grouping key. Transformations without key are checked with
+   * all of them.
+   *
    * @see TransformationGroup#applyTransformations(XcodeProgram, Translator)
+   * @see Transformation#getGroupingKey()
    */
   public void applyTransformations(XcodeProgram xcodeml, Translator translator)
       throws Exception
   {
     List<Transformation> transformations = getTransformations();
+    // Indexes of the pending transformations, all of them and by grouping key
+    TreeSet<Integer> pending = new TreeSet<>();
+    Map<Object, TreeSet<Integer>> buckets = new HashMap<>();
+    TreeSet<Integer> unkeyed = new TreeSet<>();
+    Object[] keys = new Object[transformations.size()];
+    for(int i = 0; i < transformations.size(); ++i) {
+      keys[i] = transformations.get(i).getGroupingKey();
+      pending.add(i);
+      if(keys[i] == null) {
+        unkeyed.add(i);
+      } else {
+        buckets.computeIfAbsent(keys[i], k -> new TreeSet<>()).add(i);
+      }
+    }
+
     for(int i = 0; i < transformations.size(); ++i) {
       Transformation base = transformations.get(i);
-      for(int j = i + 1; j < transformations.size(); ++j) {
+      TreeSet<Integer> bucket = keys[i] == null ? null : buckets.get(keys[i]);
+      remove(i, keys, pending, buckets, unkeyed);
+      for(Integer j = next(i, pending, bucket, unkeyed); j != null;
+          j = next(j, pending, bucket, unkeyed))
+      {
         Transformation candidate = transformations.get(j);
         if(candidate.isTransformed()) {
+          // Never checked again
+          remove(j, keys, pending, buckets, unkeyed);
           continue;
         }
         if(base.canBeTransformedWith(xcodeml, candidate)) {
+          Speculation speculation = new Speculation(xcodeml);
           try {
             base.transform(xcodeml, translator, candidate);
+            speculation.commit();
             if(candidate.isTransformed()) {
               incrementAppliedTransformation();
+              remove(j, keys, pending, buckets, unkeyed);
             }
           } catch(IllegalTransformationException itex) {
             // Catch the exception to add line information and rethrow it
             if(itex.getStartLine() == 0) {
               itex.setStartLine(base.getStartLine());
             }
-            throw itex;
+            if(!speculation.skip(base, itex)) {
+              throw itex;
+            }
+          } catch(Exception ex) {
+            if(!speculation.skip(base, ex)) {
+              throw ex;
+            }
+          } finally {
+            invalidateAnalyses(xcodeml, base);
           }
         }
       }
@@ -64,10 +106,52 @@ public class DependentTransformationGroup extends TransformationGroup {
     }
   }
 
+  /**
+   * Get the next pending transformation to check with a base transformation.
+   *
+   * @param previous Index of the previous candidate or of the base.
+   * @param pending  All the pending transformations.
+   * @param bucket   Pending transformations sharing the key of the base. Null
+   *                 if the base has no key.
+   * @param unkeyed  Pending transformations without key.
+   * @return Index of the next candidate. Null if there is none.
+   */
+  private static Integer next(int previous, TreeSet<Integer> pending,
+                              TreeSet<Integer> bucket, TreeSet<Integer> unkeyed)
+  {
+    if(bucket == null) {
+      return pending.higher(previous);
+    }
+    Integer keyed = bucket.higher(previous);
+    Integer free = unkeyed.higher(previous);
+    if(keyed == null) {
+      return free;
+    }
+    return free == null || keyed < free ? keyed : free;
+  }
+
+  /**
+   * Remove a transformation from the pending sets.
+   *
+   * @param index   Index of the transformation.
+   * @param keys    Grouping keys of the transformations.
+   * @param pending All the pending transformations.
+   * @param buckets Pending transformations by key.
+   * @param unkeyed Pending transformations without key.
+   */
+  private static void remove(int index, Object[] keys, TreeSet<Integer> pending,
+                             Map<Object, TreeSet<Integer>> buckets,
+                             TreeSet<Integer> unkeyed)
+  {
+    pending.remove(index);
+    (keys[index] == null ? unkeyed : buckets.get(keys[index])).remove(index);
+  }
+
   /**
    * Add a new transformation in the group. As transformation are dependent
    * between each other, the position in the list is determined by the
-   * transformation's start line.
+   * transformation's start line. Transformations with the same start line
+   * keep their adding order.
    *
    * @see TransformationGroup#add(Transformation)
    */
@@ -76,14 +160,41 @@ public class DependentTransformationGroup extends TransformationGroup {
     if(transformation == null) {
       return;
     }
-    int linePosition = transformation.getStartLine();
-    int insertIndex = 0;
-    for(Transformation t : getTransformations()) {
-      if(t.getStartLine() > linePosition) {
-        break;
+    _transformationsByLine.computeIfAbsent(transformation.getStartLine(),
+        k -> new ArrayList<>()).add(transformation);
+    _ordered = false;
+  }
+
+  /**
+   * Return the transformations ordered by start line. The list is rebuilt
+   * from the transformations by line after new ones were added.
+   *
+   * @see TransformationGroup#getTransformations()
+   */
+  @Override
+  public List<Transformation> getTransformations() {
+    List<Transformation> transformations = super.getTransformations();
+    if(!_ordered) {
+      transformations.clear();
+      for(List<Transformation> line : _transformationsByLine.values()) {
+        transformations.addAll(line);
       }
-      ++insertIndex;
+      _ordered = true;
+    }
+    return transformations;
+  }
+
+  /**
+   * Set the transformations. They are ordered by start line.
+   *
+   * @see TransformationGroup#setTransformations(List)
+   */
+  @Override
+  public void setTransformations(List<Transformation> transformations) {
+    _transformationsByLine.clear();
+    super.setTransformations(new ArrayList<>());
+    for(Transformation transformation : transformations) {
+      add(transformation);
     }
-    getTransformations().add(insertIndex, transformation);
   }
 }
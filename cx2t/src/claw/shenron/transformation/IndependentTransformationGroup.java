@@ -33,18 +33,43 @@ public class IndependentTransformationGroup extends TransformationGroup {
       throws Exception
   {
     for(Transformation trans : getTransformations()) {
-      try {
-        trans.transform(xcodeml, translator, null);
-        if(trans.isTransformed()) {
-          incrementAppliedTransformation();
-        }
-      } catch(IllegalTransformationException itex) {
-        // Catch the exception to add line information and rethrow it
-        if(itex.getStartLine() == 0) {
-          itex.setStartLine(trans.getStartLine());
-        }
+      apply(trans, xcodeml, translator);
+    }
+  }
+
+  /**
+   * Apply a single transformation.
+   *
+   * @param trans      Transformation to apply.
+   * @param xcodeml    The XcodeML on which the transformations are applied.
+   * @param translator The translator used to applied the transformations.
+   * @throws Exception If the transformation fails and cannot be skipped.
+   */
+  private void apply(Transformation trans, XcodeProgram xcodeml,
+                     Translator translator)
+      throws Exception
+  {
+    Speculation speculation = new Speculation(xcodeml);
+    try {
+      trans.transform(xcodeml, translator, null);
+      speculation.commit();
+      if(trans.isTransformed()) {
+        incrementAppliedTransformation();
+      }
+    } catch(IllegalTransformationException itex) {
+      // Catch the exception to add line information and rethrow it
+      if(itex.getStartLine() == 0) {
+        itex.setStartLine(trans.getStartLine());
+      }
+      if(!speculation.skip(trans, itex)) {
         throw itex;
       }
+    } catch(Exception ex) {
+      if(!speculation.skip(trans, ex)) {
+        throw ex;
+      }
+    } finally {
+      invalidateAnalyses(xcodeml, trans);
     }
   }
 }
@@ -0,0 +1,95 @@
+/*
+ * This file is released under terms of BSD license
+ * See LICENSE file for more information
+ */
+package claw.shenron.transformation;
+
+import claw.tatsu.xcodeml.error.XanalysisError;
+import claw.tatsu.xcodeml.exception.IllegalTransformationException;
+import claw.tatsu.xcodeml.xnode.common.XcodeProgram;
+
+import java.util.List;
+
+/**
+ * Speculative application of a transformation. When the context skips failed
+ * transformations, a checkpoint of the translation unit is taken before the
+ * transformation is applied. A failed transformation is rolled back and its
+ * errors are reported as warnings.
+ *
+ * The checkpoint only covers the translation unit. A failed transformation
+ * that already modified a cached module cannot be rolled back and is not
+ * skipped, so a half-transformed module file is never written.
+ *
+ * @author clementval
+ */
+final class Speculation {
+
+  private final XcodeProgram _xcodeml;
+  private final int _checkpoint;
+  private final int _errors;
+  private final long _modules;
+
+  /**
+   * Start the speculative application of a transformation.
+   *
+   * @param xcodeml The XcodeML on which the transformation is applied. Can be
+   *                null.
+   */
+  Speculation(XcodeProgram xcodeml) {
+    _xcodeml = xcodeml;
+    if(xcodeml != null && xcodeml.context() != null
+        && xcodeml.context().isSkipFailedTransformationEnabled())
+    {
+      _checkpoint = xcodeml.checkpoint();
+      _errors = xcodeml.getErrors().size();
+      _modules = xcodeml.context().getModuleCache().getModificationCount();
+    } else {
+      _checkpoint = -1;
+      _errors = 0;
+      _modules = 0;
+    }
+  }
+
+  /**
+   * Keep the mutations of the applied transformation.
+   */
+  void commit() {
+    if(_checkpoint >= 0) {
+      _xcodeml.release(_checkpoint);
+    }
+  }
+
+  /**
+   * Roll back a failed transformation.
+   *
+   * @param trans Failed transformation.
+   * @param ex    Failure of the transformation.
+   * @return True if the transformation is rolled back and can be skipped.
+   * False if the failure must abort the translation, which is the case when
+   * the transformation modified a cached module.
+   */
+  boolean skip(Transformation trans, Exception ex) {
+    if(_checkpoint < 0) {
+      return false;
+    }
+    if(_modules != _xcodeml.context().getModuleCache().getModificationCount())
+    {
+      _xcodeml.release(_checkpoint);
+      return false;
+    }
+    if(!_xcodeml.rollback(_checkpoint)) {
+      return false;
+    }
+    List<XanalysisError> errors = _xcodeml.getErrors();
+    while(errors.size() > _errors) {
+      XanalysisError error = errors.remove(_errors);
+      _xcodeml.addWarning(error.getMessage(), error.getLines());
+    }
+    int line = ex instanceof IllegalTransformationException
+        && ((IllegalTransformationException) ex).getStartLine() != 0
+        ? ((IllegalTransformationException) ex).getStartLine()
+        : trans.getStartLine();
+    _xcodeml.addWarning("Transformation skipped: " + ex.getMessage(), line);
+    return true;
+  }
+}
@@ -6,9 +6,13 @@ package claw.shenron.transformation;
 
 import claw.shenron.translator.AnalyzedPragma;
 import claw.shenron.translator.Translator;
+import claw.tatsu.analysis.AnalysisManager;
 import claw.tatsu.xcodeml.exception.IllegalTransformationException;
 import claw.tatsu.xcodeml.xnode.common.XcodeProgram;
 
+import java.util.Collections;
+import java.util.Set;
+
 /**
  * A Transformation is an object capable of analyzing a possible code
  * transformation to be applied and the steps to apply it to the intermediate
@@ -69,6 +73,30 @@ public abstract class Transformation {
   public abstract boolean canBeTransformedWith(XcodeProgram xcodeml,
                                                Transformation other);
 
+  /**
+   * Get the key grouping the transformations that can be transformed together.
+   * A dependent group only checks pairs of transformations with equal keys or
+   * without key. The key must not change while the group is applied.
+   *
+   * @return Grouping key. Null if the transformation must be checked with
+   * every other transformation of the group.
+   * @see DependentTransformationGroup
+   */
+  public Object getGroupingKey() {
+    return null;
+  }
+
+  /**
+   * Get the kinds of analysis whose results are still valid once the
+   * transformation is applied. Default is none.
+   *
+   * @return Set of preserved analysis kinds.
+   * @see AnalysisManager#invalidate(Set)
+   */
+  public Set<AnalysisManager.Kind<?, ?>> preservedAnalyses() {
+    return Collections.emptySet();
+  }
+
   /**
    * Tells whether the transformation should abort the translation if the
    * analysis fails. Default behavior is to abort.
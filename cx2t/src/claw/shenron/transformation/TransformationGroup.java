@@ -41,7 +41,7 @@ public abstract class TransformationGroup {
    * @return The number of transformation in the group.
    */
   public int count() {
-    return _transformations.size();
+    return getTransformations().size();
   }
 
   /**
@@ -98,6 +98,22 @@ public abstract class TransformationGroup {
     ++_appliedTransformation;
   }
 
+  /**
+   * Invalidate the analyses of the translation unit not preserved by an
+   * applied transformation.
+   *
+   * @param xcodeml The XcodeML on which the transformation was applied. Can be
+   *                null.
+   * @param trans   Applied transformation.
+   */
+  protected static void invalidateAnalyses(XcodeProgram xcodeml,
+                                           Transformation trans)
+  {
+    if(xcodeml != null) {
+      xcodeml.getAnalysisManager().invalidate(trans.preservedAnalyses());
+    }
+  }
+
   /**
    * Apply all transformation stored in this group. Method transform from each
    * transformation is called.
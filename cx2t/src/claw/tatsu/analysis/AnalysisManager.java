@@ -0,0 +1,151 @@
+/*
+ * This file is released under terms of BSD license
+ * See LICENSE file for more information
+ */
+package claw.tatsu.analysis;
+
+import claw.tatsu.xcodeml.xnode.common.XcodeProgram;
+import claw.tatsu.xcodeml.xnode.common.Xnode;
+import claw.tatsu.xcodeml.xnode.fortran.FfunctionDefinition;
+import org.w3c.dom.Node;
+
+import java.util.*;
+import java.util.function.BiFunction;
+
+/**
+ * The analysis manager memoizes the results of analyses by analysis kind and
+ * IR node for a translation unit. Several transformations triggered in the
+ * same function share a single computation of its analyses.
+ *
+ * Results are kept until they are invalidated. Transformation groups
+ * invalidate all the analyses not preserved by a transformation after it is
+ * applied. Results are shared and must not be modified by the callers.
+ *
+ * @author clementval
+ */
+public class AnalysisManager {
+
+  /**
+   * Induction variables of the do statements of a function definition.
+   */
+  public static final Kind<FfunctionDefinition, Set<String>>
+      INDUCTION_VARIABLES = new Kind<>("induction-variables",
+      (xcodeml, fctDef) -> Collections.unmodifiableSet(
+          fctDef.detectInductionVariables()));
+
+  /**
+   * Local array variables of a function definition.
+   */
+  public static final Kind<FfunctionDefinition, List<String>>
+      LOCAL_ARRAYS = new Kind<>("local-arrays",
+      (xcodeml, fctDef) -> Collections.unmodifiableList(
+          fctDef.getLocalVariables(xcodeml, true)));
+
+  private final XcodeProgram _xcodeml;
+  private final Map<Kind<?, ?>, Map<Node, Object>> _results = new HashMap<>();
+  private long _hits = 0;
+  private long _misses = 0;
+
+  /**
+   * Kind of analysis with the function computing it for a node.
+   *
+   * @param <N> Type of the analyzed node.
+   * @param <R> Type of the analysis result.
+   */
+  public static final class Kind<N extends Xnode, R> {
+
+    private final String _name;
+    private final BiFunction<XcodeProgram, N, R> _analysis;
+
+    /**
+     * Constructs a new analysis kind.
+     *
+     * @param name     Name of the analysis.
+     * @param analysis Function computing the analysis of a node.
+     */
+    public Kind(String name, BiFunction<XcodeProgram, N, R> analysis) {
+      _name = name;
+      _analysis = analysis;
+    }
+
+    @Override
+    public String toString() {
+      return _name;
+    }
+  }
+
+  /**
+   * Constructs a new analysis manager for a translation unit.
+   *
+   * @param xcodeml Translation unit passed to the analyses.
+   */
+  public AnalysisManager(XcodeProgram xcodeml) {
+    _xcodeml = xcodeml;
+  }
+
+  /**
+   * Get the result of an analysis for a node. The analysis is computed on the
+   * first request and kept until it is invalidated.
+   *
+   * @param kind Kind of analysis.
+   * @param node Analyzed node.
+   * @param <N>  Type of the analyzed node.
+   * @param <R>  Type of the analysis result.
+   * @return Result of the analysis. Null if the node is null.
+   */
+  @SuppressWarnings("unchecked")
+  public synchronized <N extends Xnode, R> R get(Kind<N, R> kind, N node) {
+    if(node == null || node.element() == null) {
+      return null;
+    }
+    Map<Node, Object> results =
+        _results.computeIfAbsent(kind, k -> new HashMap<>());
+    if(results.containsKey(node.element())) {
+      ++_hits;
+      return (R) results.get(node.element());
+    }
+    ++_misses;
+    R result = kind._analysis.apply(_xcodeml, node);
+    results.put(node.element(), result);
+    return result;
+  }
+
+  /**
+   * Drop the results of all the analyses except the preserved ones.
+   *
+   * @param preserved Kinds of analysis whose results are kept.
+   */
+  public synchronized void invalidate(Set<Kind<?, ?>> preserved) {
+    _results.keySet().retainAll(preserved);
+  }
+
+  /**
+   * Drop the results of all the analyses.
+   */
+  public synchronized void invalidateAll() {
+    _results.clear();
+  }
+
+  /**
+   * Get the number of requests answered with a memoized result.
+   *
+   * @return Number of hits.
+   */
+  public synchronized long getHits() {
+    return _hits;
+  }
+
+  /**
+   * Get the number of requests that computed an analysis.
+   *
+   * @return Number of misses.
+   */
+  public synchronized long getMisses() {
+    return _misses;
+  }
+
+  @Override
+  public synchronized String toString() {
+    return String.format("%d hits, %d misses", _hits, _misses);
+  }
+}
@@ -9,7 +9,9 @@ import claw.tatsu.xcodeml.xnode.common.Xcode;
 import claw.tatsu.xcodeml.xnode.common.Xnode;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Represents the different do statements part of the iteration space in a
@@ -53,36 +55,25 @@ public class IterationSpace {
    */
   private void load(List<Xnode> doStatements) throws Exception {
     _levels.add(0, new ArrayList<>()); // Init the level 0
-    DependenceAnalysis baseLoopLevel0 = null;
+    Map<Xnode, Integer> loadedLevels = new HashMap<>();
     for(Xnode doStmt : doStatements) {
       if(!doStmt.is(Xcode.F_DO_STATEMENT)) {
         throw new Exception("Only do statements node can be part of an " +
             "iteration space");
       }
 
-      if(baseLoopLevel0 == null) {
-        baseLoopLevel0 = new DependenceAnalysis(doStmt);
-        _levels.get(0).add(baseLoopLevel0);
-      } else {
-        int crtLevel = 0;
-        int insertedLevel = -1;
-
-        while(_levels.size() > crtLevel) {
-          for(DependenceAnalysis dep : _levels.get(crtLevel)) {
-            if(doStmt.isNestedIn(dep.getDoStmt())) {
-              insertedLevel = crtLevel + 1;
-              break;
-            }
-          }
-          ++crtLevel;
-        }
-
-        if(insertedLevel != -1) {
-          addAtLevel(insertedLevel, new DependenceAnalysis(doStmt));
-        } else {
-          addAtLevel(0, new DependenceAnalysis(doStmt));
+      /* The do statement is one level below the deepest already loaded do
+       * statement it is nested in. Only its enclosing do statements are
+       * checked instead of all the loaded ones. */
+      int level = 0;
+      for(Xnode ancestor : doStmt.matchAllAncestor(Xcode.F_DO_STATEMENT)) {
+        Integer ancestorLevel = loadedLevels.get(ancestor);
+        if(ancestorLevel != null) {
+          level = Math.max(level, ancestorLevel + 1);
         }
       }
+      addAtLevel(level, new DependenceAnalysis(doStmt));
+      loadedLevels.merge(doStmt, level, Math::max);
     }
   }
 
@@ -8,47 +8,31 @@ import claw.tatsu.directive.generator.DirectiveGenerator;
 import claw.tatsu.directive.generator.DirectiveNone;
 import claw.tatsu.directive.generator.OpenAcc;
 import claw.tatsu.directive.generator.OpenMp;
+import claw.tatsu.xcodeml.xnode.XmlLoader;
 import claw.tatsu.xcodeml.module.ModuleCache;
 import claw.tatsu.directive.configuration.AcceleratorConfiguration;
 import claw.tatsu.directive.configuration.OpenAccConfiguration;
 import claw.tatsu.directive.configuration.OpenMpConfiguration;
 
 /**
- * Class holding all information needed during a translation.
+ * Class holding all information needed during a translation. Every
+ * translation unit is attached to its own context so several translations
+ * can run side by side.
  *
  * @author clementval
  */
 public class Context {
 
-  private int _maxColumns;
-  private DirectiveGenerator _directiveGenerator;
-  private AcceleratorConfiguration _acceleratorConfiguration;
-  private CompilerDirective _compilerDirective;
-  private Target _target;
-  private ModuleCache _moduleCache;
-
-  /**
-   * Lazy holder pattern.
-   */
-  private static class LazyHolder {
-
-    static final Context INSTANCE = new Context();
-  }
-
-  /**
-   * Private ctor to avoid external instantiation.
-   */
-  private Context() {
-  }
-
-  /**
-   * Get the unique context instance.
-   *
-   * @return Current context instance.
-   */
-  public static Context get() {
-    return LazyHolder.INSTANCE;
-  }
+  private final int _maxColumns;
+  private final DirectiveGenerator _directiveGenerator;
+  private final AcceleratorConfiguration _acceleratorConfiguration;
+  private final CompilerDirective _compilerDirective;
+  private final Target _target;
+  private final ModuleCache _moduleCache;
+  private XmlLoader _xmlLoader = XmlLoader.DOM;
+  private boolean _nodeIndex = false;
+  private boolean _binaryModule = false;
+  private boolean _skipFailedTransformation = false;
 
   /**
    * Create a new context.
@@ -59,9 +43,9 @@ public class Context {
    *                                 translation.
    * @param maxColumns               Max columns.
    */
-  public void init(CompilerDirective compilerDirective, Target target,
-                   AcceleratorConfiguration acceleratorConfiguration,
-                   int maxColumns)
+  public Context(CompilerDirective compilerDirective, Target target,
+                 AcceleratorConfiguration acceleratorConfiguration,
+                 int maxColumns)
   {
     if(compilerDirective != null) {
       _compilerDirective = compilerDirective;
@@ -73,7 +57,7 @@ public class Context {
               ((OpenAccConfiguration) acceleratorConfiguration).getMode());
         }
       } else if(compilerDirective == CompilerDirective.OPENMP) {
-        OpenMp gen = new OpenMp();
+        OpenMp gen = new OpenMp(this);
         _directiveGenerator = gen;
         if(acceleratorConfiguration != null) {
           gen.setExecutionMode(
@@ -122,13 +106,68 @@ public class Context {
     return _acceleratorConfiguration;
   }
 
+  public XmlLoader getXmlLoader() {
+    return _xmlLoader;
+  }
+
+  /**
+   * Set the parser used to read the XcodeML files of the translation.
+   *
+   * @param xmlLoader Parser to use. Null for the default one.
+   */
+  public void setXmlLoader(XmlLoader xmlLoader) {
+    _xmlLoader = xmlLoader == null ? XmlLoader.DOM : xmlLoader;
+  }
+
+  public boolean isNodeIndexEnabled() {
+    return _nodeIndex;
+  }
+
+  /**
+   * Enable the opcode index of the programs read in this context. The
+   * indexes of the variable uses are only used with the opcode index.
+   *
+   * @param nodeIndex True to index the programs.
+   */
+  public void setNodeIndex(boolean nodeIndex) {
+    _nodeIndex = nodeIndex;
+  }
+
+  public boolean isBinaryModuleEnabled() {
+    return _binaryModule;
+  }
+
+  /**
+   * Enable the writing of binary sidecars for the module files read or
+   * written in this context. Up to date sidecars are always read.
+   *
+   * @param binaryModule True to write the sidecars.
+   */
+  public void setBinaryModule(boolean binaryModule) {
+    _binaryModule = binaryModule;
+  }
+
+  public boolean isSkipFailedTransformationEnabled() {
+    return _skipFailedTransformation;
+  }
+
+  /**
+   * Roll back the transformations failing in this context and skip them with
+   * a warning instead of aborting the translation.
+   *
+   * @param skipFailedTransformation True to skip the failed transformations.
+   */
+  public void setSkipFailedTransformation(boolean skipFailedTransformation) {
+    _skipFailedTransformation = skipFailedTransformation;
+  }
+
   /**
    * Check is current target is corresponding to the given one.
    *
    * @param value Target value to check against.
    * @return True if the target is identical to the given one. False otherwise.
    */
-  public static boolean isTarget(Target value) {
-    return (get().getTarget() == value);
+  public boolean isTarget(Target value) {
+    return (_target == value);
   }
 }
@@ -57,7 +57,7 @@ public final class Directive {
                                     String noDependencyDirective)
   {
 
-    if(Context.get().getCompilerDirective() == CompilerDirective.NONE) {
+    if(xcodeml.context().getCompilerDirective() == CompilerDirective.NONE) {
       return 0;
     }
 
@@ -68,7 +68,7 @@ public final class Directive {
       Xnode noDependency = isDecoratedWith(doStmt, noDependencyDirective);
       if(noDependency == null) {
         addPragmasBefore(xcodeml,
-            Context.get().getGenerator().
+            xcodeml.context().getGenerator().
                 getStartLoopDirective(NO_COLLAPSE, true, true, ""), doStmt);
       } else {
         ++nodepCounter;
@@ -78,11 +78,11 @@ public final class Directive {
       // Debug logging
       Message.debug(String.format(
           "%s generated loop %s directive for loop at line: %d",
-          Context.get().getGenerator().getPrefix(),
+          xcodeml.context().getGenerator().getPrefix(),
           (noDependency == null) ? "seq" : "", doStmt.lineNo()));
     }
 
-    return Context.get().getAcceleratorConfig().hasCollapseStrategy()
+    return xcodeml.context().getAcceleratorConfig().hasCollapseStrategy()
         ? nodepCounter : 0;
   }
 
@@ -100,7 +100,7 @@ public final class Directive {
   public static Xnode generateUpdate(XcodeProgram xcodeml, Xnode hook,
                                      List<String> vars, DataMovement direction)
   {
-    if(Context.get().getGenerator().getDirectiveLanguage() ==
+    if(xcodeml.context().getGenerator().getDirectiveLanguage() ==
         CompilerDirective.NONE)
     {
       return null;
@@ -110,7 +110,7 @@ public final class Directive {
     if(direction == DataMovement.HOST_TO_DEVICE
         || direction == DataMovement.TWO_WAY)
     {
-      p = addPragmasBefore(xcodeml, Context.get().getGenerator().
+      p = addPragmasBefore(xcodeml, xcodeml.context().getGenerator().
           getUpdateClause(direction == DataMovement.TWO_WAY ?
               DataMovement.HOST_TO_DEVICE : direction, vars), hook);
 
@@ -119,7 +119,7 @@ public final class Directive {
     if(direction == DataMovement.DEVICE_TO_HOST
         || direction == DataMovement.TWO_WAY)
     {
-      p = addPragmaAfter(xcodeml, Context.get().getGenerator().
+      p = addPragmaAfter(xcodeml, xcodeml.context().getGenerator().
           getUpdateClause(direction == DataMovement.TWO_WAY ?
               DataMovement.DEVICE_TO_HOST : direction, vars), hook);
     }
@@ -162,8 +162,8 @@ public final class Directive {
                                              Xnode startStmt, Xnode endStmt)
   {
     return insertPragmas(xcodeml, startStmt, endStmt,
-        Context.get().getGenerator().getStartParallelDirective(NO_CLAUSES),
-        Context.get().getGenerator().getEndParallelDirective());
+        xcodeml.context().getGenerator().getStartParallelDirective(NO_CLAUSES),
+        xcodeml.context().getGenerator().getEndParallelDirective());
   }
 
   /**
@@ -188,13 +188,13 @@ public final class Directive {
                                                   String extraDirective,
                                                   int collapse)
   {
-    if(Context.get().getGenerator().getDirectiveLanguage()
+    if(xcodeml.context().getGenerator().getDirectiveLanguage()
         == CompilerDirective.NONE)
     {
       return null;
     }
 
-    DirectiveGenerator dg = Context.get().getGenerator();
+    DirectiveGenerator dg = xcodeml.context().getGenerator();
     Xnode startBlock = addPragmasBefore(xcodeml,
         dg.getStartParallelDirective(null), startStmt);
     addPragmasBefore(xcodeml, dg.getStartLoopDirective(collapse, false,
@@ -233,9 +233,9 @@ public final class Directive {
                                             Xnode startStmt, Xnode endStmt,
                                             int collapse)
   {
-    insertPragmas(xcodeml, startStmt, endStmt, Context.get().getGenerator().
+    insertPragmas(xcodeml, startStmt, endStmt, xcodeml.context().getGenerator().
             getStartLoopDirective(collapse, false, false, ""),
-        Context.get().getGenerator().getEndLoopDirective());
+        xcodeml.context().getGenerator().getEndLoopDirective());
   }
 
   /**
@@ -255,7 +255,7 @@ public final class Directive {
                                                 List<String> creates,
                                                 Xblock hook)
   {
-    DirectiveGenerator generator = Context.get().getGenerator();
+    DirectiveGenerator generator = xcodeml.context().getGenerator();
     List<String> clauses = new ArrayList<>(Arrays.asList(
         generator.getPresentClause(presents),
         generator.getCreateClause(creates)));
@@ -287,7 +287,7 @@ public final class Directive {
        OpenACC and OpenMP loop construct are pretty different ...
        have to look how to do that properly. See issue #22
      */
-    return addPragmasBefore(xcodeml, Context.get().getGenerator().
+    return addPragmasBefore(xcodeml, xcodeml.context().getGenerator().
         getSingleDirective(accClause), startStmt);
   }
 
@@ -303,7 +303,7 @@ public final class Directive {
   public static void generateRoutineDirectives(XcodeProgram xcodeml,
                                                FfunctionDefinition fctDef)
   {
-    DirectiveGenerator dirGen = Context.get().getGenerator();
+    DirectiveGenerator dirGen = xcodeml.context().getGenerator();
     if(dirGen.getDirectiveLanguage() == CompilerDirective.NONE) {
       return; // Do nothing if "none" is selected for directive
     }
@@ -352,14 +352,14 @@ public final class Directive {
                                            Xnode stmt,
                                            String var)
   {
-    if(Context.get().getGenerator().getDirectiveLanguage() ==
+    if(xcodeml.context().getGenerator().getDirectiveLanguage() ==
         CompilerDirective.NONE)
     {
       return;
     }
 
     Xnode hook = Pragma.findPrevious(stmt,
-        Context.get().getGenerator().getParallelKeyword());
+        xcodeml.context().getGenerator().getParallelKeyword());
     // TODO do it with loop as well if hook is null
 
     if(hook == null) {
@@ -367,7 +367,7 @@ public final class Directive {
           stmt.lineNo());
     } else {
       hook.setValue(hook.value() + " " +
-          Context.get().getGenerator().getPrivateClause(var));
+          xcodeml.context().getGenerator().getPrivateClause(var));
     }
   }
 
@@ -418,7 +418,7 @@ public final class Directive {
     Xnode retNode = null; // Returned node 1st for before/last for after
     for(String directive : directives) {
       List<Xnode> pragmas = xcodeml.createPragma(directive,
-          Context.get().getMaxColumns());
+          xcodeml.context().getMaxColumns());
       for(Xnode pragma : pragmas) {
         if(after) {
           ref.insertAfter(pragma);
@@ -452,7 +452,7 @@ public final class Directive {
                                      String[] startDirective,
                                      String[] endDirective)
   {
-    if(Context.get().getGenerator().getDirectiveLanguage()
+    if(xcodeml.context().getGenerator().getDirectiveLanguage()
         == CompilerDirective.NONE)
     {
       return null;
@@ -479,7 +479,7 @@ public final class Directive {
                                       String[] startDirective,
                                       String[] endDirective)
   {
-    if(Context.get().getGenerator().getDirectiveLanguage()
+    if(xcodeml.context().getGenerator().getDirectiveLanguage()
         == CompilerDirective.NONE)
     {
       return null;
@@ -493,15 +493,17 @@ public final class Directive {
    * Skip elements in preamble and find the first element that will be included
    * in the parallel region.
    *
+   * @param context            Current context.
    * @param functionDefinition Function definition in which body checked.
    * @param from               Optional element to start from. If null, starts
    *                           from first element in function's body.
    * @return First element for the parallel region.
    */
-  public static Xnode findParallelRegionStart(Xnode functionDefinition,
+  public static Xnode findParallelRegionStart(Context context,
+                                              Xnode functionDefinition,
                                               Xnode from)
   {
-    DirectiveGenerator dg = Context.get().getGenerator();
+    DirectiveGenerator dg = context.getGenerator();
     if(dg.getDirectiveLanguage() == CompilerDirective.NONE
         || !Xnode.isOfCode(functionDefinition, Xcode.F_FUNCTION_DEFINITION))
     {
@@ -562,15 +564,17 @@ public final class Directive {
    * Skip elements in epilogue and find the last element that will be included
    * in the parallel region.
    *
+   * @param context            Current context.
    * @param functionDefinition Function definition in which body checked.
    * @param from               Optional element to start from. If null, starts
    *                           from last element in function's body.
    * @return Last element for the parallel region.
    */
-  public static Xnode findParallelRegionEnd(Xnode functionDefinition,
+  public static Xnode findParallelRegionEnd(Context context,
+                                            Xnode functionDefinition,
                                             Xnode from)
   {
-    DirectiveGenerator dg = Context.get().getGenerator();
+    DirectiveGenerator dg = context.getGenerator();
 
     if(dg.getDirectiveLanguage() == CompilerDirective.NONE
         || !Xnode.isOfCode(functionDefinition, Xcode.F_FUNCTION_DEFINITION))
@@ -613,12 +617,15 @@ public final class Directive {
   /**
    * Check if the function definition has directives already.
    *
-   * @param fctDef Function definition to check
+   * @param context Current context.
+   * @param fctDef  Function definition to check
    * @return True if there is directive of the current chosen directive in the
    * function definition. False otherwise.
    */
-  public static boolean hasDirectives(FfunctionDefinition fctDef) {
-    String prefix = Context.get().getGenerator().getPrefix();
+  public static boolean hasDirectives(Context context,
+                                      FfunctionDefinition fctDef)
+  {
+    String prefix = context.getGenerator().getPrefix();
     return fctDef.body().matchAll(Xcode.F_PRAGMA_STATEMENT).stream()
         .map(Xnode::value).map(String::toLowerCase)
         .anyMatch(p -> p.startsWith(prefix));
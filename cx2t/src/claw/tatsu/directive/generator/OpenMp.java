@@ -46,13 +46,18 @@ public class OpenMp extends DirectiveGenerator {
   private static final String OPENMP_DO = "do";
   private static final String OPENMP_END = "end";
 
+  private final Context _context;
   private OpenMpExecutionMode _mode;
 
   /**
-   * Constructs a new object with the given target.
+   * Constructs a new object for the given context.
+   *
+   * @param context Context giving the target and the accelerator
+   *                configuration.
    */
-  public OpenMp() {
+  public OpenMp(Context context) {
     super();
+    _context = context;
   }
 
   /**
@@ -86,7 +91,7 @@ public class OpenMp extends DirectiveGenerator {
   @Override
   public String[] getStartParallelDirective(String clauses) {
     // TODO handle possible clauses
-    if(Context.isTarget(Target.GPU)) {
+    if(_context.isTarget(Target.GPU)) {
       //!$omp target
       //!$omp teams [num_teams(#)] [thread_limit(#)]
       if(clauses == null) {
@@ -96,7 +101,7 @@ public class OpenMp extends DirectiveGenerator {
       }
 
       OpenMpConfiguration ompConfig =
-          (OpenMpConfiguration) Context.get().getAcceleratorConfig();
+          (OpenMpConfiguration) _context.getAcceleratorConfig();
 
       int numThreads = ompConfig.getNumThreads();
       int numTeams = ompConfig.getNumTeams();
@@ -128,7 +133,7 @@ public class OpenMp extends DirectiveGenerator {
 
   @Override
   public String[] getEndParallelDirective() {
-    if(Context.isTarget(Target.GPU)) {
+    if(_context.isTarget(Target.GPU)) {
       //!$omp end teams
       //!$omp end target
       return new String[]{
@@ -153,7 +158,7 @@ public class OpenMp extends DirectiveGenerator {
 
   @Override
   public String getParallelKeyword() {
-    if(Context.isTarget(Target.GPU)) {
+    if(_context.isTarget(Target.GPU)) {
       return OPENMP_TEAMS;
     } else {
       return OPENMP_PARALLEL;
@@ -281,7 +286,7 @@ public class OpenMp extends DirectiveGenerator {
     }
 
     OpenMpConfiguration ompConfig =
-        (OpenMpConfiguration) Context.get().getAcceleratorConfig();
+        (OpenMpConfiguration) _context.getAcceleratorConfig();
     int chunkSize = ompConfig.getSchedulerChunkSize();
 
     String scheduler = "";
@@ -289,7 +294,7 @@ public class OpenMp extends DirectiveGenerator {
       scheduler = String.format("%s(%s, %d)", OPENMP_DIST_SCHEDULE,
           OPENMP_SCHEDULE_KIND, chunkSize);
     }
-    if(Context.isTarget(Target.GPU)) {
+    if(_context.isTarget(Target.GPU)) {
       //!$omp distribute [collapse(#)] [dist_schedule(static,#)]
       if(clauses.isEmpty()) {
         return new String[]{
@@ -317,7 +322,7 @@ public class OpenMp extends DirectiveGenerator {
 
   @Override
   public String[] getEndLoopDirective() {
-    if(Context.isTarget(Target.GPU)) {
+    if(_context.isTarget(Target.GPU)) {
       //!$omp end distribute
       return new String[]{
           String.format(FORMAT3, OPENMP_PREFIX, OPENMP_END, OPENMP_DISTRIBUTE),
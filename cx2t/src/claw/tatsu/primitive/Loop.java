@@ -353,9 +353,12 @@ public final class Loop {
       return;
     }
     Xnode refNode = ref;
-    for(Xnode child : body.children()) {
+    Xnode child = body.firstChild();
+    while(child != null) {
+      Xnode next = child.nextSibling();
       refNode.insertAfter(child);
       refNode = child;
+      child = next;
     }
   }
 
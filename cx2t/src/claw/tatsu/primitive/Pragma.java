@@ -121,11 +121,11 @@ public final class Pragma {
           IllegalTransformationException(TatsuConstant.ERROR_INCOMPATIBLE);
     }
     String allPragma = pragma.value().toLowerCase();
-    if(allPragma.length() > Context.get().getMaxColumns()) {
+    if(allPragma.length() > xcodeml.context().getMaxColumns()) {
       allPragma = Pragma.dropEndingComment(allPragma);
       Xnode newlyInserted = pragma;
       List<String> splittedPragmas = Pragma.split(allPragma,
-          Context.get().getMaxColumns(), prefix);
+          xcodeml.context().getMaxColumns(), prefix);
 
       for(int i = 0; i < splittedPragmas.size(); ++i) {
         // Create pragma with continuation symbol unless for the last item.
@@ -195,17 +195,18 @@ public final class Pragma {
    * Check if the pragma was already continued. Can happen when using the !$claw
    * primitive directive
    *
-   * @param pragma Pragma statement to be checked.
+   * @param context Current context.
+   * @param pragma  Pragma statement to be checked.
    * @return True if the pragma was previously continued.
    */
-  public static boolean fromClawPrimitive(Xnode pragma) {
+  public static boolean fromClawPrimitive(Context context, Xnode pragma) {
     if(!Xnode.isOfCode(pragma, Xcode.F_PRAGMA_STATEMENT)) {
       return false;
     }
     String allPragma = pragma.value().toLowerCase();
 
-    String prefixCont = Context.get().getGenerator().getPrefixCont();
-    String prefix = Context.get().getGenerator().getPrefix();
+    String prefixCont = context.getGenerator().getPrefixCont();
+    String prefix = context.getGenerator().getPrefix();
 
     return allPragma.contains(prefixCont) ||
         Utility.countOccurrences(allPragma, prefix + " ") > 1;
@@ -257,7 +258,7 @@ public final class Pragma {
       p.setLine(lineNo);
     }
 
-    String prefix = Context.get().getGenerator().getPrefix();
+    String prefix = xcodeml.context().getGenerator().getPrefix();
     value = value.trim().toLowerCase();
     boolean notStartWithPrefix = !value.startsWith(prefix);
 
@@ -7,12 +7,10 @@ package claw.tatsu.primitive;
 import claw.tatsu.common.Context;
 import claw.tatsu.xcodeml.abstraction.PromotionInfo;
 import claw.tatsu.xcodeml.exception.IllegalTransformationException;
-import claw.tatsu.xcodeml.xnode.XnodeUtil;
+import claw.tatsu.xcodeml.module.ModuleView;
 import claw.tatsu.xcodeml.xnode.common.*;
 import claw.tatsu.xcodeml.xnode.fortran.*;
-import org.w3c.dom.Document;
 
-import java.io.File;
 import java.util.Arrays;
 import java.util.List;
 
@@ -48,63 +46,89 @@ public final class Xmod {
   /**
    * Find module by name.
    *
+   * @param context      Current context.
    * @param moduleName   Name of the module.
    * @param moduleSuffix Suffix to the module name.
    * @return A FortranModule object representing the module if found.
    * Null otherwise.
    */
-  private static FortranModule find(String moduleName, String moduleSuffix) {
+  private static FortranModule find(Context context, String moduleName,
+                                    String moduleSuffix)
+  {
     if(moduleSuffix == null) {
       moduleSuffix = "";
     }
-    FortranModule clawModule = findModuleInPath(moduleName, moduleSuffix);
-    return clawModule != null ?
-        clawModule : findModuleInPath(moduleName, XMOD_FILE_EXTENSION);
+    ModuleView clawView = findViewInPath(context, moduleName, moduleSuffix);
+    FortranModule clawModule =
+        clawView != null ? clawView.load(context) : null;
+    if(clawModule != null) {
+      return clawModule;
+    }
+    ModuleView view =
+        findViewInPath(context, moduleName, XMOD_FILE_EXTENSION);
+    return view != null ? view.load(context) : null;
   }
 
   /**
-   * Find module by name.
+   * Find the view of a module by name.
    *
+   * @param context      Current context.
    * @param moduleName   Name of the module.
    * @param moduleSuffix Suffix to the module name.
-   * @return A FortranModule object representing the module if found.
-   * Null otherwise.
+   * @return A ModuleView object on the first module file found in the search
+   * paths. Null if no module file is found.
    */
-  private static FortranModule findModuleInPath(String moduleName,
-                                                String moduleSuffix)
+  private static ModuleView findViewInPath(Context context, String moduleName,
+                                           String moduleSuffix)
   {
-    for(String dir : Context.get().getModuleCache().getSearchPaths()) {
-      String path = dir + "/" + moduleName + moduleSuffix;
-      File f = new File(path);
-      if(f.exists()) {
-        Document doc = XnodeUtil.readXmlFile(path);
-        return doc != null ? new FortranModule(doc, moduleName, dir) : null;
-      }
-    }
-    return null;
+    String fileName = moduleName + moduleSuffix;
+    String dir = context.getModuleCache().locate(fileName);
+    return dir == null ? null : context.getModuleCache().view(moduleName,
+        dir, dir + "/" + fileName, context.getXmlLoader());
   }
 
   /**
    * Find module by name.
    *
+   * @param context    Current context.
    * @param moduleName Name of the module.
    * @return A FortranModule object representing the module if found.
    * Null otherwise.
    */
-  public static FortranModule find(String moduleName) {
-    return moduleName == null ? null : find(moduleName, XMOD_FILE_EXTENSION);
+  public static FortranModule find(Context context, String moduleName) {
+    return moduleName == null ? null :
+        find(context, moduleName, XMOD_FILE_EXTENSION);
   }
 
   /**
    * Locate a module file generated by CLAW translator.
    *
+   * @param context    Current context.
    * @param moduleName Name of the module.
    * @return A FortranModule object representing the module if found.
    * Null otherwise.
    */
-  public static FortranModule findClaw(String moduleName)
+  public static FortranModule findClaw(Context context, String moduleName)
   {
-    return find(moduleName, getSuffix());
+    return find(context, moduleName, getSuffix(context));
+  }
+
+  /**
+   * Locate the view of a module file generated by CLAW translator. The view
+   * answers identifier and type lookups without loading the module.
+   *
+   * @param context    Current context.
+   * @param moduleName Name of the module.
+   * @return A ModuleView object on the module file if found. Null otherwise.
+   */
+  public static ModuleView findClawView(Context context, String moduleName) {
+    if(moduleName == null) {
+      return null;
+    }
+    ModuleView clawView =
+        findViewInPath(context, moduleName, getSuffix(context));
+    return clawView != null && clawView.isReadable() ? clawView :
+        findViewInPath(context, moduleName, XMOD_FILE_EXTENSION);
   }
 
   /**
@@ -112,17 +136,18 @@ public final class Xmod {
    * and target of the current transformation.
    * .[directive].[target].claw
    *
+   * @param context Current context.
    * @return A formatted string for the CLAW module file name.
    */
-  public static String getSuffix()
+  public static String getSuffix(Context context)
   {
     StringBuilder str = new StringBuilder();
     str.append(".");
-    if(Context.get().getCompilerDirective() != null) {
-      str.append(Context.get().getCompilerDirective()).append(".");
+    if(context.getCompilerDirective() != null) {
+      str.append(context.getCompilerDirective()).append(".");
     }
-    if(Context.get().getTarget() != null) {
-      str.append(Context.get().getTarget()).append(".");
+    if(context.getTarget() != null) {
+      str.append(context.getTarget()).append(".");
     }
     str.append(CLAW_MOD_SUFFIX);
     str.append(XMOD_FILE_EXTENSION);
@@ -146,17 +171,17 @@ public final class Xmod {
                                      boolean importFctType)
       throws IllegalTransformationException
   {
-    FortranModule mod;
-    if(Context.get().getModuleCache().isModuleLoaded(moduleName)) {
-      mod = Context.get().getModuleCache().get(moduleName);
-    } else {
-      mod = fctDef.findContainingXmod();
+    Context context = xcodeml.context();
+    FortranModule mod = context.getModuleCache().get(moduleName);
+    if(mod == null) {
+      mod = fctDef.findContainingXmod(context);
       if(mod == null) {
         throw new IllegalTransformationException(
             "Unable to locate module file for: " + moduleName);
       }
-      Context.get().getModuleCache().add(moduleName, mod);
+      context.getModuleCache().add(moduleName, mod);
     }
+    mod.setDirty(true);
 
     FfunctionType fctTypeMod;
     if(importFctType) {
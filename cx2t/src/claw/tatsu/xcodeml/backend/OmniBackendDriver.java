@@ -58,19 +58,18 @@ public class OmniBackendDriver {
   }
 
   /**
-   * Decompile the XcodeML file into Fortran code.
+   * Decompile the XcodeML file into Fortran code. Line directives are
+   * suppressed according to the global OMNI option.
    *
    * @param outputFilepath Fortran output file path.
    * @param xcodeml        XcodeML translation unit.
    * @param maxColumns     Maximum number of column for the output file.
-   * @param lineDirectives If true, preprocessor line directives are added.
    * @return True if the decompilation succeeded. False otherwise.
    */
   public boolean decompile(String outputFilepath, XcodeML xcodeml,
-                           int maxColumns, boolean lineDirectives)
+                           int maxColumns)
   {
-    return decompile(outputFilepath, xcodeml.getDocument(), maxColumns,
-        lineDirectives);
+    return decompile(outputFilepath, xcodeml.getDocument(), maxColumns);
   }
 
   /**
@@ -79,29 +78,41 @@ public class OmniBackendDriver {
    * @param outputFilepath Fortran output file path.
    * @param xcodeml        XcodeML document.
    * @param maxColumns     Maximum number of column for the output file.
-   * @param lineDirectives If true, preprocessor line directives are added.
    * @return True if the decompilation succeeded. False otherwise.
    */
   private boolean decompile(String outputFilepath, Document xcodeml,
-                            int maxColumns, boolean lineDirectives)
+                            int maxColumns)
   {
-    if(!lineDirectives) {
-      XmOption.setIsSuppressLineDirective(true);
-    }
     XmOption.setDebugOutput(false);
 
-    PrintWriter writer = null;
-    try {
-      if(outputFilepath == null || outputFilepath.isEmpty()) {
-        writer = new PrintWriter(System.out);
-      } else {
-        writer = new PrintWriter(new BufferedWriter(new
-            FileWriter(outputFilepath)));
-      }
+    if(outputFilepath == null || outputFilepath.isEmpty()) {
+      // Standard output is flushed but stays open
+      PrintWriter writer = new PrintWriter(System.out);
+      boolean decompiled = decompile(writer, xcodeml, maxColumns);
+      writer.flush();
+      return decompiled;
+    }
+    try(PrintWriter writer = new PrintWriter(new BufferedWriter(
+        new FileWriter(outputFilepath))))
+    {
+      return decompile(writer, xcodeml, maxColumns);
     } catch(IOException e) {
       System.err.println(e.getMessage());
     }
+    return false;
+  }
 
+  /**
+   * Decompile the XcodeML document into a writer.
+   *
+   * @param writer     Writer receiving the Fortran code.
+   * @param xcodeml    XcodeML document.
+   * @param maxColumns Maximum number of column for the output file.
+   * @return True if the decompilation succeeded. False otherwise.
+   */
+  private boolean decompile(PrintWriter writer, Document xcodeml,
+                            int maxColumns)
+  {
     try {
       XmDecompiler decompiler = _toolFactory.createDecompiler();
       XmDecompilerContext context = _toolFactory.createDecompilerContext();
@@ -112,12 +123,6 @@ public class OmniBackendDriver {
       }
 
       decompiler.decompile(context, xcodeml, writer);
-
-      if(writer != null) {
-        writer.flush();
-      } else {
-        return false;
-      }
       return true;
     } catch(Exception ex) {
       if(_reader != null) {
@@ -126,25 +131,21 @@ public class OmniBackendDriver {
         } catch(IOException ignored) {
         }
       }
-
-      if(writer != null) {
-        writer.close();
-      }
     }
     return false;
   }
 
   /**
-   * Decompile the XcodeML file into Fortran code.
+   * Decompile the XcodeML file into Fortran code. Line directives are
+   * suppressed according to the global OMNI option.
    *
    * @param outputFilepath Fortran output file path.
    * @param inputFilepath  XcodeML input file path.
    * @param maxColumns     Maximum number of column for the output file.
-   * @param lineDirectives If true, preprocessor line directives are added.
    * @return True if the decompilation succeeded. False otherwise.
    */
   public boolean decompileFromFile(String outputFilepath, String inputFilepath,
-                                   int maxColumns, boolean lineDirectives)
+                                   int maxColumns)
   {
     if(!openXcodeMLFile(inputFilepath)) {
       return false;
@@ -154,7 +155,7 @@ public class OmniBackendDriver {
       DocumentBuilderFactory docFactory = DocumentBuilderFactory.newInstance();
       DocumentBuilder builder = docFactory.newDocumentBuilder();
       Document xcodeml = builder.parse(inputFilepath);
-      return decompile(outputFilepath, xcodeml, maxColumns, lineDirectives);
+      return decompile(outputFilepath, xcodeml, maxColumns);
     } catch(ParserConfigurationException | SAXException | IOException e) {
       return false;
     }
@@ -4,33 +4,117 @@
  */
 package claw.tatsu.xcodeml.module;
 
+import claw.tatsu.common.Context;
 import claw.tatsu.primitive.Xmod;
 import claw.tatsu.xcodeml.exception.IllegalTransformationException;
+import claw.tatsu.xcodeml.xnode.BinaryDocument;
+import claw.tatsu.xcodeml.xnode.XmlLoader;
+import claw.tatsu.xcodeml.xnode.XnodeUtil;
 import claw.tatsu.xcodeml.xnode.fortran.FortranModule;
+import org.w3c.dom.Document;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.lang.ref.SoftReference;
+import java.util.*;
+import java.util.concurrent.*;
 
 /**
- * Translator interface
+ * Cache of the modules modified by a translation and of the views of the
+ * module files found in the search paths.
  *
- * Translator stores all the transformation to be applied by a translator.
+ * Modules are added to the cache when a transformation updates them. The
+ * cache is thread-safe and only the modified (dirty) modules are written
+ * back to files. The modules are bounded by a memory budget. Dirty modules
+ * are always kept. Once the budget is exceeded, the least recently used
+ * clean modules, e.g. the modules already written back, are only kept
+ * through soft references and are read again from the file they were
+ * written to if the garbage collector reclaimed them.
+ *
+ * Views are read-only and are shared by the caches using the shared search
+ * path index, so the translation units of a batch or of a server do not
+ * index the same module file twice. Only the most recently used shared views
+ * are kept.
  *
  * @author clementval
  */
 public class ModuleCache {
 
-  private final Map<String, FortranModule> _moduleCache;
+  public static final long DEFAULT_MAX_SIZE = 256L * 1024 * 1024;
+  static final int MAX_VIEWS = 1024;
+  private static final Map<String, ModuleView> SHARED_VIEWS =
+      new ViewMap(MAX_VIEWS);
+
+  // Rough memory footprint of a DOM element with its attributes and text
+  private static final long ELEMENT_SIZE = 512;
+
+  private final Map<String, Entry> _moduleCache;
+  private final Map<String, ModuleView> _views;
   private final List<String> _searchPaths;
+  private final SearchPathIndex _searchPathIndex;
+  private long _maxSize = DEFAULT_MAX_SIZE;
+  private long _size = 0;
+  private long _hits = 0;
+  private long _misses = 0;
+  private long _evictions = 0;
+  private long _additions = 0;
+
+  /**
+   * Cached module. The module is either strongly held or softly held once
+   * evicted.
+   */
+  private static final class Entry {
+
+    private final String _name;
+    private final String _path;
+    private final long _size;
+    private FortranModule _module;
+    private SoftReference<FortranModule> _evicted = null;
+    private String _file = null;
+    // Modifications of the module instances dropped by the evictions
+    private long _modifications = 0;
+
+    private Entry(FortranModule module, long size) {
+      _name = module.getName();
+      _path = module.getPath();
+      _size = size;
+      _module = module;
+    }
+  }
 
   /**
-   * Constructs a new empty module cache.
+   * Constructs a new empty module cache using the shared search path index.
    */
   public ModuleCache() {
-    _moduleCache = new HashMap<>();
-    _searchPaths = new ArrayList<>();
+    this(SearchPathIndex.shared(), SHARED_VIEWS);
+  }
+
+  /**
+   * Constructs a new empty module cache with its own module views.
+   *
+   * @param searchPathIndex Index used to locate the module files.
+   */
+  public ModuleCache(SearchPathIndex searchPathIndex) {
+    this(searchPathIndex, new ViewMap(MAX_VIEWS));
+  }
+
+  private ModuleCache(SearchPathIndex searchPathIndex,
+                      Map<String, ModuleView> views)
+  {
+    // Access order for the least recently used eviction
+    _moduleCache = new LinkedHashMap<>(16, 0.75f, true);
+    _views = views;
+    _searchPaths = new CopyOnWriteArrayList<>();
+    _searchPathIndex = searchPathIndex;
+  }
+
+  /**
+   * Set the memory budget of the modules kept in the cache.
+   *
+   * @param maxSize Estimated size in bytes over which clean modules are
+   *                evicted.
+   */
+  public synchronized void setMaxSize(long maxSize) {
+    _maxSize = maxSize;
+    evict(null);
   }
 
   /**
@@ -39,7 +123,7 @@ public class ModuleCache {
    * @param moduleName Name of the module.
    * @return True if the module is in the cache. False otherwise.
    */
-  public boolean isModuleLoaded(String moduleName) {
+  public synchronized boolean isModuleLoaded(String moduleName) {
     return _moduleCache.containsKey(moduleName.toLowerCase());
   }
 
@@ -50,36 +134,171 @@ public class ModuleCache {
    * @param moduleName Name of the module.
    * @param module     Xmod object.
    */
-  public void add(String moduleName, FortranModule module) {
-    _moduleCache.remove(moduleName.toLowerCase());
-    _moduleCache.put(moduleName.toLowerCase(), module);
+  public synchronized void add(String moduleName, FortranModule module) {
+    Entry old = _moduleCache.remove(moduleName.toLowerCase());
+    if(old != null && old._module != null) {
+      _size -= old._size;
+    }
+    Entry entry = new Entry(module, sizeOf(module));
+    _moduleCache.put(moduleName.toLowerCase(), entry);
+    _size += entry._size;
+    ++_additions;
+    evict(entry);
+  }
+
+  /**
+   * Get a counter of the changes of the cached modules. The counter grows
+   * each time a module is added to the cache or a cached module is marked as
+   * modified.
+   *
+   * @return Modification counter of the cache.
+   */
+  public synchronized long getModificationCount() {
+    long count = _additions;
+    for(Entry entry : _moduleCache.values()) {
+      count += entry._modifications;
+      if(entry._module != null) {
+        count += entry._module.getModificationCount();
+      }
+    }
+    return count;
   }
 
   /**
    * Get a module in the cache by its name.
    *
    * @param moduleName Name of the module.
-   * @return The cached module.
+   * @return The cached module. Null if the module is not in the cache or if
+   * it has been evicted and cannot be read again.
    */
-  public FortranModule get(String moduleName) {
-    return _moduleCache.get(moduleName.toLowerCase());
+  public synchronized FortranModule get(String moduleName) {
+    String key = moduleName.toLowerCase();
+    Entry entry = _moduleCache.get(key);
+    if(entry == null) {
+      ++_misses;
+      return null;
+    }
+    if(entry._module != null) {
+      ++_hits;
+      return entry._module;
+    }
+    FortranModule module = entry._evicted.get();
+    if(module != null) {
+      ++_hits;
+    } else {
+      ++_misses;
+      module = reload(entry);
+      if(module == null) {
+        _moduleCache.remove(key);
+        return null;
+      }
+    }
+    entry._modifications -= module.getModificationCount();
+    entry._module = module;
+    entry._evicted = null;
+    _size += entry._size;
+    evict(entry);
+    return module;
+  }
+
+  /**
+   * Get the view of a module file. Views are kept until the module file
+   * changes or is read with another parser.
+   *
+   * @param moduleName Name of the module.
+   * @param directory  Directory of the module file.
+   * @param path       Path of the module file.
+   * @param loader     Parser used to read the XML module file.
+   * @return View of the module file.
+   */
+  public ModuleView view(String moduleName, String directory, String path,
+                         XmlLoader loader)
+  {
+    synchronized(_views) {
+      ModuleView view = _views.get(path);
+      if(view == null || view.isStale() || view.getLoader() != loader) {
+        view = new ModuleView(moduleName, directory, path, loader);
+        _views.put(path, view);
+      }
+      return view;
+    }
   }
 
   /**
-   * Write all modules in the cache to files.
+   * Write the modified modules in the cache to files. Modules are written
+   * concurrently and are clean afterwards.
    *
-   * @param ident Number of spaces used to indent the XML file.
+   * @param context Current context used to name the module files.
+   * @param ident   Number of spaces used to indent the XML file.
    * @throws IllegalTransformationException If module cannot be written.
    */
-  public void write(int ident)
+  public synchronized void write(Context context, int ident)
       throws IllegalTransformationException
   {
-    String suffix = Xmod.getSuffix();
-    for(Map.Entry<String, FortranModule> pair : _moduleCache.entrySet()) {
-      FortranModule module = pair.getValue();
-      String newModuleName = module.getPath() + module.getName() + suffix;
-      module.write(newModuleName, ident);
+    String suffix = Xmod.getSuffix(context);
+    List<Entry> dirty = new ArrayList<>();
+    for(Entry entry : _moduleCache.values()) {
+      if(entry._module != null && entry._module.isDirty()) {
+        dirty.add(entry);
+      }
+    }
+    if(dirty.isEmpty()) {
+      return;
+    }
+
+    ExecutorService pool = Executors.newFixedThreadPool(Math.min(
+        dirty.size(), Runtime.getRuntime().availableProcessors()));
+    try {
+      List<Future<Void>> results = new ArrayList<>();
+      for(Entry entry : dirty) {
+        results.add(pool.submit(() -> {
+          FortranModule module = entry._module;
+          String newModuleName = entry._path + entry._name + suffix;
+          module.write(newModuleName, ident);
+          if(context.isBinaryModuleEnabled()) {
+            BinaryDocument.writeSidecar(module.getDocument(), newModuleName);
+          }
+          return null;
+        }));
+      }
+      for(int i = 0; i < results.size(); ++i) {
+        try {
+          results.get(i).get();
+        } catch(ExecutionException ex) {
+          if(ex.getCause() instanceof IllegalTransformationException) {
+            throw (IllegalTransformationException) ex.getCause();
+          }
+          throw new IllegalTransformationException(
+              ex.getCause().getMessage(), ex.getCause());
+        } catch(InterruptedException ex) {
+          Thread.currentThread().interrupt();
+          throw new IllegalTransformationException(
+              "Interrupted while writing module files");
+        }
+        Entry entry = dirty.get(i);
+        entry._module.setDirty(false);
+        entry._file = entry._path + entry._name + suffix;
+      }
+    } finally {
+      pool.shutdownNow();
     }
+    evict(null);
+  }
+
+  /**
+   * Get the paths of the module files written by
+   * {@link #write(Context, int)}.
+   *
+   * @param context Current context used to name the module files.
+   * @return List of module file paths.
+   */
+  public synchronized List<String> getModuleFiles(Context context) {
+    String suffix = Xmod.getSuffix(context);
+    List<String> files = new ArrayList<>();
+    for(Entry entry : _moduleCache.values()) {
+      files.add(entry._path + entry._name + suffix);
+    }
+    return files;
   }
 
   /**
@@ -99,4 +318,141 @@ public class ModuleCache {
   public List<String> getSearchPaths() {
     return _searchPaths;
   }
+
+  /**
+   * Locate a module file in the search paths.
+   *
+   * @param fileName Name of the module file.
+   * @return First search path containing the file. Null if it is not found.
+   */
+  public String locate(String fileName) {
+    return _searchPathIndex.locate(_searchPaths, fileName);
+  }
+
+  /**
+   * Get the usage statistics of the cache.
+   *
+   * @return Current statistics.
+   */
+  public synchronized Statistics getStatistics() {
+    return new Statistics(_hits, _misses, _evictions, _moduleCache.size(),
+        _size);
+  }
+
+  /**
+   * Evict the least recently used clean modules until the cache fits in its
+   * memory budget.
+   *
+   * @param keep Entry that is not evicted. Can be null.
+   */
+  private void evict(Entry keep) {
+    Iterator<Entry> it = _moduleCache.values().iterator();
+    while(_size > _maxSize && it.hasNext()) {
+      Entry entry = it.next();
+      if(entry != keep && entry._module != null && !entry._module.isDirty()) {
+        entry._modifications += entry._module.getModificationCount();
+        entry._evicted = new SoftReference<>(entry._module);
+        entry._module = null;
+        _size -= entry._size;
+        ++_evictions;
+      }
+    }
+  }
+
+  /**
+   * Read again an evicted module from the file it was written to.
+   *
+   * @param entry Evicted entry.
+   * @return Module read from file. Null if it was never written or cannot be
+   * read.
+   */
+  private static FortranModule reload(Entry entry) {
+    if(entry._file == null) {
+      return null;
+    }
+    Document doc = BinaryDocument.readSidecar(entry._file);
+    if(doc == null) {
+      doc = XnodeUtil.readXmlFile(entry._file);
+    }
+    return doc != null ? new FortranModule(doc, entry._name, entry._path)
+        : null;
+  }
+
+  /**
+   * Estimate the memory footprint of a module.
+   *
+   * @param module Module.
+   * @return Estimated size in bytes.
+   */
+  private static long sizeOf(FortranModule module) {
+    return module.getDocument().getElementsByTagName("*").getLength()
+        * ELEMENT_SIZE;
+  }
+
+  /**
+   * Views of module files indexed by path. The least recently used view is
+   * dropped once the map holds more than its maximum number of views.
+   */
+  static class ViewMap extends LinkedHashMap<String, ModuleView> {
+
+    private final int _maxViews;
+
+    ViewMap(int maxViews) {
+      super(16, 0.75f, true);
+      _maxViews = maxViews;
+    }
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, ModuleView> eldest) {
+      return size() > _maxViews;
+    }
+  }
+
+  /**
+   * Hit, miss and eviction counters of the cache.
+   */
+  public static class Statistics {
+
+    private final long _hits;
+    private final long _misses;
+    private final long _evictions;
+    private final int _modules;
+    private final long _size;
+
+    Statistics(long hits, long misses, long evictions, int modules,
+               long size)
+    {
+      _hits = hits;
+      _misses = misses;
+      _evictions = evictions;
+      _modules = modules;
+      _size = size;
+    }
+
+    public long getHits() {
+      return _hits;
+    }
+
+    public long getMisses() {
+      return _misses;
+    }
+
+    public long getEvictions() {
+      return _evictions;
+    }
+
+    public int getModules() {
+      return _modules;
+    }
+
+    public long getSize() {
+      return _size;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("%d hits, %d misses, %d evictions, %d modules, " +
+          "%d bytes", _hits, _misses, _evictions, _modules, _size);
+    }
+  }
 }
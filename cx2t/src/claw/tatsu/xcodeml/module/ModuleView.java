@@ -0,0 +1,367 @@
+/*
+ * This file is released under terms of BSD license
+ * See LICENSE file for more information
+ */
+package claw.tatsu.xcodeml.module;
+
+import claw.tatsu.common.Context;
+import claw.tatsu.xcodeml.xnode.BinaryDocument;
+import claw.tatsu.xcodeml.xnode.XmlLoader;
+import claw.tatsu.xcodeml.xnode.XnodeUtil;
+import claw.tatsu.xcodeml.xnode.common.Xattr;
+import claw.tatsu.xcodeml.xnode.common.Xcode;
+import claw.tatsu.xcodeml.xnode.fortran.FortranModule;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+import java.io.File;
+import java.lang.ref.SoftReference;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Read-only view of a module file answering identifier and type lookups.
+ *
+ * The view indexes the identifiers and the type table of the module on the
+ * first lookup. When the binary sidecar of the module file is up to date, the
+ * index is built from a scan of the memory-mapped sidecar that stops as soon
+ * as the global type table and identifiers are read. Otherwise, the XML file
+ * is read once and the index is built from its DOM. This document is softly
+ * kept and handed over to the first {@link #load(Context)} so a module found
+ * through its view is not parsed twice.
+ *
+ * @author clementval
+ */
+public final class ModuleView {
+
+  private final String _name;
+  private final String _directory;
+  private final String _path;
+  private final XmlLoader _loader;
+  private final long _length;
+  private final long _modified;
+
+  // Identifier name to type hash and type hash to type element tag
+  private Map<String, String> _identifiers = null;
+  private Map<String, String> _types = null;
+  // Document read from the XML file to build the index
+  private SoftReference<Document> _document = null;
+
+  /**
+   * Constructs a new view of a module file.
+   *
+   * @param name      Name of the module.
+   * @param directory Directory of the module file.
+   * @param path      Path of the module file.
+   * @param loader    Parser used to read the XML file.
+   */
+  ModuleView(String name, String directory, String path, XmlLoader loader) {
+    _name = name;
+    _directory = directory;
+    _path = path;
+    _loader = loader;
+    File file = new File(path);
+    _length = file.length();
+    _modified = file.lastModified();
+  }
+
+  /**
+   * Get the name of the module.
+   *
+   * @return Module name.
+   */
+  public String getName() {
+    return _name;
+  }
+
+  /**
+   * Get the path of the module file.
+   *
+   * @return Path of the module file.
+   */
+  public String getPath() {
+    return _path;
+  }
+
+  /**
+   * Get the parser used to read the XML module file.
+   *
+   * @return Parser of the view.
+   */
+  XmlLoader getLoader() {
+    return _loader;
+  }
+
+  /**
+   * Check whether the module file changed since the view was created.
+   *
+   * @return True if the length or modification time of the file changed.
+   */
+  public boolean isStale() {
+    File file = new File(_path);
+    return file.length() != _length || file.lastModified() != _modified;
+  }
+
+  /**
+   * Check whether the module file could be indexed.
+   *
+   * @return True if the module file is readable. False otherwise.
+   */
+  public boolean isReadable() {
+    return index();
+  }
+
+  /**
+   * Check if an identifier is declared in the module.
+   *
+   * @param name Name of the identifier as in the symbol table of a
+   *             FortranModule.
+   * @return True if the identifier is declared. False otherwise.
+   */
+  public boolean hasIdentifier(String name) {
+    return index() && _identifiers.containsKey(name);
+  }
+
+  /**
+   * Get the type hash of an identifier declared in the module.
+   *
+   * @param name Name of the identifier.
+   * @return Type hash of the identifier. Null if there is no such identifier.
+   */
+  public String getIdentifierType(String name) {
+    return index() ? _identifiers.get(name) : null;
+  }
+
+  /**
+   * Check if the hash correspond to a FfunctionType in the type table of the
+   * module.
+   *
+   * @param hash Hash of type to check.
+   * @return True if the hash correspond to a FfunctionType.
+   */
+  public boolean isFunctionType(String hash) {
+    return hash != null && index()
+        && Xcode.F_FUNCTION_TYPE.code().equals(_types.get(hash));
+  }
+
+  /**
+   * Materialize the module. Each call returns a new FortranModule. The
+   * document read to build the index is used if it is still available.
+   * Otherwise, the module is read from the up to date sidecar or from the
+   * XML file. The sidecar is written when the XML file is read and binary
+   * modules are enabled.
+   *
+   * @param context Current context.
+   * @return New FortranModule. Null if the module file cannot be read.
+   */
+  public FortranModule load(Context context) {
+    // The document kept from the index is always read from the XML file
+    Document doc = takeDocument();
+    if(doc == null) {
+      doc = BinaryDocument.readSidecar(_path);
+      if(doc != null) {
+        return new FortranModule(doc, _name, _directory);
+      }
+      doc = XnodeUtil.readXmlFile(_path, context.getXmlLoader());
+    }
+    if(doc != null && context.isBinaryModuleEnabled()) {
+      BinaryDocument.writeSidecar(doc, _path);
+    }
+    return doc != null ? new FortranModule(doc, _name, _directory) : null;
+  }
+
+  /**
+   * Build the index on the first call.
+   *
+   * @return True if the index is available. False if the module file cannot
+   * be read.
+   */
+  private synchronized boolean index() {
+    if(_identifiers == null) {
+      IndexHandler handler = new IndexHandler();
+      if(scan(handler)) {
+        _identifiers = handler._identifiers;
+        _types = handler._types;
+        return true;
+      }
+      Document doc = XnodeUtil.readXmlFile(_path, _loader);
+      if(doc == null || doc.getDocumentElement() == null) {
+        return false;
+      }
+      _identifiers = new HashMap<>();
+      _types = new HashMap<>();
+      indexDocument(doc.getDocumentElement());
+      _document = new SoftReference<>(doc);
+    }
+    return true;
+  }
+
+  /**
+   * Take the document read to build the index. It is returned at most once.
+   *
+   * @return Document read from the XML file. Null if it was already taken or
+   * reclaimed by the garbage collector.
+   */
+  private synchronized Document takeDocument() {
+    Document doc = _document != null ? _document.get() : null;
+    _document = null;
+    return doc;
+  }
+
+  /**
+   * Index the global type table and identifiers of a module document.
+   *
+   * @param root Root element of the module document.
+   */
+  private void indexDocument(Element root) {
+    for(Element section = firstElement(root); section != null;
+        section = nextElement(section))
+    {
+      if(Xcode.TYPE_TABLE.code().equals(section.getTagName())) {
+        for(Element type = firstElement(section); type != null;
+            type = nextElement(type))
+        {
+          if(type.hasAttribute(Xattr.TYPE.toString())) {
+            _types.put(type.getAttribute(Xattr.TYPE.toString()),
+                type.getTagName());
+          }
+        }
+      } else if(Xcode.IDENTIFIERS.code().equals(section.getTagName())) {
+        for(Element id = firstElement(section); id != null;
+            id = nextElement(id))
+        {
+          String type = id.hasAttribute(Xattr.TYPE.toString()) ?
+              id.getAttribute(Xattr.TYPE.toString()) : null;
+          for(Element name = firstElement(id); name != null;
+              name = nextElement(name))
+          {
+            if(Xcode.NAME.code().equals(name.getTagName())) {
+              // Same key as XsymbolTable
+              _identifiers.put(name.getTextContent().trim().toLowerCase(),
+                  type);
+            }
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Get the first child element of an element.
+   *
+   * @param element Parent element.
+   * @return First child element. Null if there is none.
+   */
+  private static Element firstElement(Element element) {
+    Node child = element.getFirstChild();
+    while(child != null && child.getNodeType() != Node.ELEMENT_NODE) {
+      child = child.getNextSibling();
+    }
+    return (Element) child;
+  }
+
+  /**
+   * Get the next sibling element of an element.
+   *
+   * @param element Element.
+   * @return Next sibling element. Null if there is none.
+   */
+  private static Element nextElement(Element element) {
+    Node sibling = element.getNextSibling();
+    while(sibling != null && sibling.getNodeType() != Node.ELEMENT_NODE) {
+      sibling = sibling.getNextSibling();
+    }
+    return (Element) sibling;
+  }
+
+  /**
+   * Scan the sidecar of the module file.
+   *
+   * @param handler Handler building the index.
+   * @return True if the sidecar is up to date and valid.
+   */
+  private boolean scan(IndexHandler handler) {
+    try {
+      return BinaryDocument.scanSidecar(_path, handler) || handler._done;
+    } catch(SAXException ignored) {
+      return handler._done;
+    }
+  }
+
+  /**
+   * SAX handler indexing the global type table and identifiers of a module
+   * from its sidecar.
+   * The handler stops the scan by throwing an exception once both are read.
+   */
+  private static final class IndexHandler extends DefaultHandler {
+
+    private final Map<String, String> _identifiers = new HashMap<>();
+    private final Map<String, String> _types = new HashMap<>();
+    private final StringBuilder _text = new StringBuilder();
+    private int _depth = 0;
+    private String _section = null;
+    private String _idType = null;
+    private boolean _inName = false;
+    private boolean _typeTableRead = false;
+    private boolean _identifiersRead = false;
+    private boolean _done = false;
+
+    @Override
+    public void startElement(String uri, String localName, String qName,
+                             Attributes attributes)
+    {
+      ++_depth;
+      if(_depth == 2) {
+        _section = qName;
+      } else if(_depth == 3 && Xcode.TYPE_TABLE.code().equals(_section)) {
+        String hash = attributes.getValue(Xattr.TYPE.toString());
+        if(hash != null) {
+          _types.put(hash, qName);
+        }
+      } else if(_depth == 3 && Xcode.IDENTIFIERS.code().equals(_section)) {
+        _idType = attributes.getValue(Xattr.TYPE.toString());
+      } else if(_depth == 4 && Xcode.IDENTIFIERS.code().equals(_section)
+          && Xcode.NAME.code().equals(qName))
+      {
+        _inName = true;
+        _text.setLength(0);
+      }
+    }
+
+    @Override
+    public void characters(char[] ch, int start, int length) {
+      if(_inName) {
+        _text.append(ch, start, length);
+      }
+    }
+
+    @Override
+    public void endElement(String uri, String localName, String qName)
+        throws SAXException
+    {
+      if(_inName && _depth == 4) {
+        // Same key as XsymbolTable
+        _identifiers.put(_text.toString().trim().toLowerCase(), _idType);
+        _inName = false;
+      } else if(_depth == 2) {
+        if(Xcode.TYPE_TABLE.code().equals(_section)) {
+          _typeTableRead = true;
+        } else if(Xcode.IDENTIFIERS.code().equals(_section)) {
+          _identifiersRead = true;
+        }
+        _section = null;
+        if(_typeTableRead && _identifiersRead) {
+          _done = true;
+          throw new SAXException("Module index complete");
+        }
+      } else if(_depth == 1) {
+        _done = true;
+      }
+      --_depth;
+    }
+  }
+}
@@ -0,0 +1,124 @@
+/*
+ * This file is released under terms of BSD license
+ * See LICENSE file for more information
+ */
+package claw.tatsu.xcodeml.module;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Index of the files of the module search paths. Each directory is listed
+ * once and its listing is kept until the modification time of the directory
+ * changes, so a lookup costs a single status query per search path instead of
+ * one per candidate file. A listing taken while the modification time of its
+ * directory is too recent to tell later changes apart is not trusted. Until
+ * the modification time is old enough, lookups in that directory check the
+ * file itself. The directory is then listed once more.
+ *
+ * The index is thread-safe. The shared instance is used by default so the
+ * translation units of a batch or of a server reuse the same listings.
+ *
+ * @author clementval
+ */
+public class SearchPathIndex {
+
+  private static final SearchPathIndex SHARED = new SearchPathIndex();
+  // Coarsest modification time resolution of the supported file systems
+  private static final long MODIFIED_RESOLUTION = 2000; // ms
+
+  private final ConcurrentMap<String, Listing> _listings =
+      new ConcurrentHashMap<>();
+
+  /**
+   * File names of a directory at a given modification time.
+   */
+  private static final class Listing {
+
+    private final long _modified;
+    private final boolean _racy;
+    private final Set<String> _files;
+
+    private Listing(long modified, long listed, Set<String> files) {
+      _modified = modified;
+      _racy = listed - modified < MODIFIED_RESOLUTION;
+      _files = files;
+    }
+  }
+
+  /**
+   * Get the index shared by all the module caches.
+   *
+   * @return Shared index.
+   */
+  public static SearchPathIndex shared() {
+    return SHARED;
+  }
+
+  /**
+   * Check whether a directory contains a file. The directory is listed again
+   * if it changed since it was last listed.
+   *
+   * @param directory Directory.
+   * @param fileName  Name of the file.
+   * @return True if the file exists in the directory. False otherwise.
+   */
+  public boolean contains(String directory, String fileName) {
+    File dir = new File(directory);
+    long modified = dir.lastModified();
+    Listing listing = _listings.get(directory);
+    if(listing == null || listing._modified != modified) {
+      listing = list(directory, modified);
+    } else if(listing._racy) {
+      if(System.currentTimeMillis() - modified < MODIFIED_RESOLUTION) {
+        return new File(dir, fileName).exists();
+      }
+      listing = list(directory, modified);
+    }
+    return listing._files.contains(fileName);
+  }
+
+  /**
+   * List a directory and keep its listing.
+   *
+   * @param directory Directory.
+   * @param modified  Modification time of the directory before the listing.
+   * @return New listing of the directory.
+   */
+  private Listing list(String directory, long modified) {
+    long listed = System.currentTimeMillis();
+    String[] files = new File(directory).list();
+    Listing listing = new Listing(modified, listed, files == null
+        ? Collections.emptySet() : new HashSet<>(Arrays.asList(files)));
+    _listings.put(directory, listing);
+    return listing;
+  }
+
+  /**
+   * Locate a file in the search paths.
+   *
+   * @param searchPaths Directories searched in order.
+   * @param fileName    Name of the file.
+   * @return First directory containing the file. Null if none contains it.
+   */
+  public String locate(Iterable<String> searchPaths, String fileName) {
+    for(String dir : searchPaths) {
+      if(contains(dir, fileName)) {
+        return dir;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Drop all the listings.
+   */
+  public void clear() {
+    _listings.clear();
+  }
+}
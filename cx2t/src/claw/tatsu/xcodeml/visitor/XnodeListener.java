@@ -0,0 +1,32 @@
+/*
+ * This file is released under terms of BSD license
+ * See LICENSE file for more information
+ */
+package claw.tatsu.xcodeml.visitor;
+
+import claw.tatsu.xcodeml.xnode.common.Xnode;
+
+/**
+ * Listener notified by an XnodeWalker for the nodes of the opcodes it is
+ * registered for. A listener must not modify the tree while it is walked.
+ *
+ * @author clementval
+ */
+@FunctionalInterface
+public interface XnodeListener {
+
+  /**
+   * Called when the walker reaches a node, before its children.
+   *
+   * @param node Node reached by the walker.
+   */
+  void enter(Xnode node);
+
+  /**
+   * Called when the walker leaves a node, after its children.
+   *
+   * @param node Node left by the walker.
+   */
+  default void exit(Xnode node) {
+  }
+}
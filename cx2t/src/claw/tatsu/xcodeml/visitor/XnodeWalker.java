@@ -0,0 +1,143 @@
+/*
+ * This file is released under terms of BSD license
+ * See LICENSE file for more information
+ */
+package claw.tatsu.xcodeml.visitor;
+
+import claw.tatsu.xcodeml.xnode.common.Xcode;
+import claw.tatsu.xcodeml.xnode.common.Xnode;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Walk a subtree once and dispatch its nodes to the listeners registered for
+ * their opcode. Several analyses interested in the same subtree register
+ * their listeners on a single walker so the subtree is traversed once for
+ * all of them instead of once per matchAll query.
+ *
+ * Nodes are visited in document order, as returned by matchAll. Listeners
+ * registered for the same opcode are called in registration order.
+ *
+ * @author clementval
+ */
+public class XnodeWalker {
+
+  private final Map<Xcode, List<XnodeListener>> _listeners =
+      new EnumMap<>(Xcode.class);
+  private final List<XnodeListener> _anyListeners = new ArrayList<>();
+
+  /**
+   * Register a listener for the given opcodes.
+   *
+   * @param listener Listener to be notified.
+   * @param opcodes  Opcodes of the nodes the listener is interested in. If
+   *                 none is given, the listener is notified for every node.
+   * @return This walker.
+   */
+  public XnodeWalker register(XnodeListener listener, Xcode... opcodes) {
+    if(opcodes.length == 0) {
+      _anyListeners.add(listener);
+    }
+    for(Xcode opcode : opcodes) {
+      _listeners.computeIfAbsent(opcode, k -> new ArrayList<>()).add(listener);
+    }
+    return this;
+  }
+
+  /**
+   * Walk the descendants of a node. The node itself is not visited, like in
+   * matchAll.
+   *
+   * @param root Root of the subtree to walk.
+   */
+  public void walk(Xnode root) {
+    if(root == null || root.element() == null) {
+      return;
+    }
+    Node stop = root.element();
+    Node crt = stop.getFirstChild();
+    while(crt != null) {
+      enter(crt);
+      if(crt.getFirstChild() != null) {
+        crt = crt.getFirstChild();
+        continue;
+      }
+      // Leave the node and its ancestors until one has a next sibling
+      while(crt != stop) {
+        exit(crt);
+        if(crt.getNextSibling() != null) {
+          crt = crt.getNextSibling();
+          break;
+        }
+        crt = crt.getParentNode();
+      }
+      if(crt == stop) {
+        return;
+      }
+    }
+  }
+
+  /**
+   * Walk the descendants of the sibling nodes from a node to another one. As
+   * in walk(Xnode), the siblings themselves are not visited.
+   *
+   * @param from First sibling of the region.
+   * @param to   Last sibling of the region. If null, only the first sibling
+   *             is walked.
+   */
+  public void walk(Xnode from, Xnode to) {
+    Xnode crt = from;
+    while(crt != null) {
+      walk(crt);
+      if(to == null || crt.equals(to)) {
+        return;
+      }
+      crt = crt.nextSibling();
+    }
+  }
+
+  private void enter(Node node) {
+    if(node.getNodeType() != Node.ELEMENT_NODE) {
+      return;
+    }
+    List<XnodeListener> listeners =
+        _listeners.get(Xcode.fromTag(node.getNodeName()));
+    if(listeners == null && _anyListeners.isEmpty()) {
+      return;
+    }
+    Xnode xnode = new Xnode((Element) node);
+    for(XnodeListener listener : _anyListeners) {
+      listener.enter(xnode);
+    }
+    if(listeners != null) {
+      for(XnodeListener listener : listeners) {
+        listener.enter(xnode);
+      }
+    }
+  }
+
+  private void exit(Node node) {
+    if(node.getNodeType() != Node.ELEMENT_NODE) {
+      return;
+    }
+    List<XnodeListener> listeners =
+        _listeners.get(Xcode.fromTag(node.getNodeName()));
+    if(listeners == null && _anyListeners.isEmpty()) {
+      return;
+    }
+    Xnode xnode = new Xnode((Element) node);
+    if(listeners != null) {
+      for(int i = listeners.size() - 1; i >= 0; --i) {
+        listeners.get(i).exit(xnode);
+      }
+    }
+    for(int i = _anyListeners.size() - 1; i >= 0; --i) {
+      _anyListeners.get(i).exit(xnode);
+    }
+  }
+}
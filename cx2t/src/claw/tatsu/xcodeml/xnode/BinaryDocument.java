@@ -0,0 +1,617 @@
+/*
+ * This file is released under terms of BSD license
+ * See LICENSE file for more information
+ */
+package claw.tatsu.xcodeml.xnode;
+
+import org.w3c.dom.*;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.AttributesImpl;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.*;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * Compact binary form of an XcodeML document. The XML form stays the format
+ * exchanged with the OMNI Compiler. The binary form is written next to an XML
+ * file as a sidecar and is read instead of the XML file while it is up to
+ * date.
+ *
+ * The format is made of:
+ * <ul>
+ * <li>A header with a magic number, the format version and the length and
+ * modification time of the XML file the sidecar was written from.</li>
+ * <li>A table of all the distinct strings of the document: element and
+ * attribute names, attribute values and text.</li>
+ * <li>The stream of the nodes in document order. An element record holds
+ * the index of its name, its attributes as pairs of indexes and its children
+ * records followed by an end marker.</li>
+ * </ul>
+ * Integers are written as variable length unsigned integers. Sidecars are
+ * memory-mapped when read and strings are decoded on first use.
+ *
+ * @author clementval
+ */
+public final class BinaryDocument {
+
+  public static final String SIDECAR_SUFFIX = ".bin";
+
+  private static final int MAGIC = 0x434c5842; // CLXB
+  private static final int VERSION = 1;
+  private static final long NO_STAMP = -1;
+
+  private static final int END = 0;
+  private static final int ELEMENT = 1;
+  private static final int TEXT = 2;
+  private static final int COMMENT = 3;
+  private static final int CDATA = 4;
+  private static final int PROCESSING_INSTRUCTION = 5;
+
+  private static final DocumentBuilderFactory DOCUMENT_FACTORY =
+      DocumentBuilderFactory.newInstance();
+
+  // Avoid instantiation of this class
+  private BinaryDocument() {
+  }
+
+  /**
+   * Write a document in binary form.
+   *
+   * @param doc Document to be written.
+   * @param out Output stream. Not closed.
+   * @throws IOException If the stream cannot be written.
+   */
+  public static void write(Document doc, OutputStream out) throws IOException {
+    write(doc, out, NO_STAMP, NO_STAMP);
+  }
+
+  /**
+   * Read a document in binary form.
+   *
+   * @param in Input stream. Not closed.
+   * @return New document.
+   * @throws IOException If the stream is not a valid binary document.
+   */
+  public static Document read(InputStream in) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    byte[] chunk = new byte[8192];
+    int n;
+    while((n = in.read(chunk)) != -1) {
+      bytes.write(chunk, 0, n);
+    }
+    ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+    try {
+      readHeader(buffer);
+      DomSink sink = new DomSink();
+      new Decoder(buffer).decode(sink);
+      return sink._doc;
+    } catch(RuntimeException | SAXException e) {
+      throw new IOException("Invalid binary XcodeML document", e);
+    }
+  }
+
+  /**
+   * Get the path of the sidecar of an XML file.
+   *
+   * @param xmlPath Path of the XML file.
+   * @return Path of the binary sidecar.
+   */
+  public static String sidecarPath(String xmlPath) {
+    return xmlPath + SIDECAR_SUFFIX;
+  }
+
+  /**
+   * Read the sidecar of an XML file if it is up to date.
+   *
+   * @param xmlPath Path of the XML file.
+   * @return Document read from the sidecar. Null if there is no sidecar or if
+   * the XML file changed since the sidecar was written.
+   */
+  public static Document readSidecar(String xmlPath) {
+    try {
+      ByteBuffer buffer = mapSidecar(xmlPath);
+      if(buffer != null) {
+        DomSink sink = new DomSink();
+        new Decoder(buffer).decode(sink);
+        return sink._doc;
+      }
+    } catch(IOException | SAXException | RuntimeException ignored) {
+      // Unreadable sidecar, the XML file is read instead
+    }
+    return null;
+  }
+
+  /**
+   * Report the content of the sidecar of an XML file to a SAX handler if the
+   * sidecar is up to date. The sidecar is memory-mapped and only the part
+   * read before the handler stops the scan by throwing an exception is
+   * decoded. Comments are not reported.
+   *
+   * @param xmlPath Path of the XML file.
+   * @param handler Handler receiving the content.
+   * @return True if the sidecar has been scanned. False if there is no up to
+   * date sidecar.
+   * @throws SAXException If the handler stops the scan or if the sidecar is
+   *                      corrupted after the handler received some content.
+   */
+  public static boolean scanSidecar(String xmlPath, ContentHandler handler)
+      throws SAXException
+  {
+    Decoder decoder;
+    try {
+      ByteBuffer buffer = mapSidecar(xmlPath);
+      if(buffer == null) {
+        return false;
+      }
+      decoder = new Decoder(buffer);
+    } catch(IOException | RuntimeException ignored) {
+      return false;
+    }
+    try {
+      handler.startDocument();
+      decoder.decode(new SaxSink(handler));
+      handler.endDocument();
+    } catch(IOException | RuntimeException e) {
+      throw new SAXException("Invalid binary XcodeML document", e);
+    }
+    return true;
+  }
+
+  /**
+   * Write the sidecar of an XML file. The sidecar is written to a temporary
+   * file first and then moved so concurrent readers never see a partial
+   * file.
+   *
+   * @param doc     Document read from or written to the XML file.
+   * @param xmlPath Path of the XML file.
+   * @return True if the sidecar has been written. False otherwise.
+   */
+  public static boolean writeSidecar(Document doc, String xmlPath) {
+    File xml = new File(xmlPath);
+    if(doc == null || !xml.isFile()) {
+      return false;
+    }
+    File sidecar = new File(sidecarPath(xmlPath));
+    File tmp = null;
+    try {
+      tmp = File.createTempFile(sidecar.getName(), ".tmp",
+          sidecar.getAbsoluteFile().getParentFile());
+      try(OutputStream out =
+              new BufferedOutputStream(new FileOutputStream(tmp)))
+      {
+        write(doc, out, xml.length(), xml.lastModified());
+      }
+      Files.move(tmp.toPath(), sidecar.toPath(),
+          StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+      return true;
+    } catch(IOException ignored) {
+      if(tmp != null && !tmp.delete()) {
+        tmp.deleteOnExit();
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Write a document with the stamp of its XML file.
+   *
+   * @param doc      Document to be written.
+   * @param out      Output stream. Not closed.
+   * @param length   Length of the XML file.
+   * @param modified Modification time of the XML file.
+   * @throws IOException If the stream cannot be written.
+   */
+  private static void write(Document doc, OutputStream out, long length,
+                            long modified)
+      throws IOException
+  {
+    // Intern all the strings in document order
+    Map<String, Integer> strings = new HashMap<>();
+    List<String> table = new ArrayList<>();
+    for(Node n = doc.getFirstChild(); n != null; n = next(n, doc)) {
+      switch(n.getNodeType()) {
+        case Node.ELEMENT_NODE:
+          intern(n.getNodeName(), strings, table);
+          NamedNodeMap attributes = n.getAttributes();
+          for(int i = 0; i < attributes.getLength(); ++i) {
+            intern(attributes.item(i).getNodeName(), strings, table);
+            intern(attributes.item(i).getNodeValue(), strings, table);
+          }
+          break;
+        case Node.PROCESSING_INSTRUCTION_NODE:
+          intern(n.getNodeName(), strings, table);
+          intern(n.getNodeValue(), strings, table);
+          break;
+        case Node.TEXT_NODE:
+        case Node.CDATA_SECTION_NODE:
+        case Node.COMMENT_NODE:
+          intern(n.getNodeValue(), strings, table);
+          break;
+        default:
+          break;
+      }
+    }
+
+    DataOutputStream data = new DataOutputStream(out);
+    data.writeInt(MAGIC);
+    writeInt(data, VERSION);
+    data.writeLong(length);
+    data.writeLong(modified);
+    writeInt(data, table.size());
+    for(String s : table) {
+      byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+      writeInt(data, bytes.length);
+      data.write(bytes);
+    }
+
+    Node n = doc.getFirstChild();
+    while(n != null) {
+      writeNode(data, n, strings);
+      if(n.getNodeType() == Node.ELEMENT_NODE && n.getFirstChild() != null) {
+        n = n.getFirstChild();
+        continue;
+      }
+      if(n.getNodeType() == Node.ELEMENT_NODE) {
+        writeInt(data, END);
+      }
+      // Close the elements until one has a next sibling
+      while(n.getNextSibling() == null) {
+        n = n.getParentNode();
+        if(n == doc) {
+          writeInt(data, END);
+          data.flush();
+          return;
+        }
+        writeInt(data, END);
+      }
+      n = n.getNextSibling();
+    }
+    writeInt(data, END);
+    data.flush();
+  }
+
+  /**
+   * Write the record of a node without its children.
+   *
+   * @param data    Output stream.
+   * @param n       Node.
+   * @param strings Index of the interned strings.
+   * @throws IOException If the stream cannot be written.
+   */
+  private static void writeNode(DataOutputStream data, Node n,
+                                Map<String, Integer> strings)
+      throws IOException
+  {
+    switch(n.getNodeType()) {
+      case Node.ELEMENT_NODE:
+        writeInt(data, ELEMENT);
+        writeInt(data, strings.get(n.getNodeName()));
+        NamedNodeMap attributes = n.getAttributes();
+        writeInt(data, attributes.getLength());
+        for(int i = 0; i < attributes.getLength(); ++i) {
+          writeInt(data, strings.get(attributes.item(i).getNodeName()));
+          writeInt(data, strings.get(attributes.item(i).getNodeValue()));
+        }
+        break;
+      case Node.TEXT_NODE:
+        writeInt(data, TEXT);
+        writeInt(data, strings.get(n.getNodeValue()));
+        break;
+      case Node.CDATA_SECTION_NODE:
+        writeInt(data, CDATA);
+        writeInt(data, strings.get(n.getNodeValue()));
+        break;
+      case Node.COMMENT_NODE:
+        writeInt(data, COMMENT);
+        writeInt(data, strings.get(n.getNodeValue()));
+        break;
+      case Node.PROCESSING_INSTRUCTION_NODE:
+        writeInt(data, PROCESSING_INSTRUCTION);
+        writeInt(data, strings.get(n.getNodeName()));
+        writeInt(data, strings.get(n.getNodeValue()));
+        break;
+      default:
+        break;
+    }
+  }
+
+  /**
+   * Map the sidecar of an XML file if it is up to date.
+   *
+   * @param xmlPath Path of the XML file.
+   * @return Buffer positioned after the header. Null if there is no sidecar
+   * or if it is not up to date.
+   * @throws IOException If the sidecar cannot be mapped or is not valid.
+   */
+  private static ByteBuffer mapSidecar(String xmlPath) throws IOException {
+    File xml = new File(xmlPath);
+    File sidecar = new File(sidecarPath(xmlPath));
+    if(!sidecar.isFile()) {
+      return null;
+    }
+    try(FileChannel channel =
+            FileChannel.open(sidecar.toPath(), StandardOpenOption.READ))
+    {
+      ByteBuffer buffer =
+          channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      long[] stamp = readHeader(buffer);
+      if(stamp[0] != xml.length() || stamp[1] != xml.lastModified()) {
+        return null;
+      }
+      return buffer;
+    } catch(BufferUnderflowException e) {
+      throw new IOException("Truncated binary XcodeML document", e);
+    }
+  }
+
+  /**
+   * Read and check the header.
+   *
+   * @param buffer Buffer positioned at the start of the document.
+   * @return Length and modification time of the XML file.
+   * @throws IOException If the header is not valid.
+   */
+  private static long[] readHeader(ByteBuffer buffer) throws IOException {
+    if(buffer.remaining() < Integer.BYTES || buffer.getInt() != MAGIC) {
+      throw new IOException("Not a binary XcodeML document");
+    }
+    int version = readInt(buffer);
+    if(version != VERSION) {
+      throw new IOException("Unsupported binary XcodeML version " + version);
+    }
+    return new long[]{buffer.getLong(), buffer.getLong()};
+  }
+
+  /**
+   * Receiver of the nodes decoded from the node stream.
+   */
+  private interface Sink {
+
+    void startElement(String name, String[] attributes) throws SAXException;
+
+    void endElement(String name) throws SAXException;
+
+    void leaf(int kind, String value, String data) throws SAXException;
+  }
+
+  /**
+   * Decoder of the string table and node stream. Strings are decoded when
+   * they are first used.
+   */
+  private static final class Decoder {
+
+    private final ByteBuffer _buffer;
+    private final int[] _offsets;
+    private final String[] _strings;
+
+    /**
+     * Read the offsets of the string table.
+     *
+     * @param buffer Buffer positioned after the header.
+     * @throws IOException If the string table is not valid.
+     */
+    Decoder(ByteBuffer buffer) throws IOException {
+      _buffer = buffer;
+      int size = readInt(buffer);
+      if(size < 0 || size > buffer.remaining()) {
+        throw new IOException("Invalid string table size " + size);
+      }
+      _offsets = new int[size];
+      _strings = new String[size];
+      for(int i = 0; i < size; ++i) {
+        _offsets[i] = buffer.position();
+        int length = readInt(buffer);
+        buffer.position(buffer.position() + length);
+      }
+    }
+
+    /**
+     * Decode the node stream.
+     *
+     * @param sink Receiver of the nodes.
+     * @throws IOException  If the stream is not valid.
+     * @throws SAXException If the sink stops the decoding.
+     */
+    void decode(Sink sink) throws IOException, SAXException {
+      Deque<String> open = new ArrayDeque<>();
+      while(true) {
+        int kind = readInt(_buffer);
+        switch(kind) {
+          case END:
+            if(open.isEmpty()) {
+              return;
+            }
+            sink.endElement(open.pop());
+            break;
+          case ELEMENT:
+            String name = string(readInt(_buffer));
+            String[] attributes = new String[2 * readInt(_buffer)];
+            for(int i = 0; i < attributes.length; ++i) {
+              attributes[i] = string(readInt(_buffer));
+            }
+            sink.startElement(name, attributes);
+            open.push(name);
+            break;
+          case TEXT:
+          case CDATA:
+          case COMMENT:
+            sink.leaf(kind, string(readInt(_buffer)), null);
+            break;
+          case PROCESSING_INSTRUCTION:
+            String target = string(readInt(_buffer));
+            sink.leaf(kind, target, string(readInt(_buffer)));
+            break;
+          default:
+            throw new IOException("Invalid node kind " + kind);
+        }
+      }
+    }
+
+    private String string(int index) throws IOException {
+      if(index < 0 || index >= _strings.length) {
+        throw new IOException("Invalid string index " + index);
+      }
+      if(_strings[index] == null) {
+        ByteBuffer b = _buffer.duplicate();
+        b.position(_offsets[index]);
+        byte[] bytes = new byte[readInt(b)];
+        b.get(bytes);
+        _strings[index] = new String(bytes, StandardCharsets.UTF_8);
+      }
+      return _strings[index];
+    }
+  }
+
+  /**
+   * Build a DOM document from the decoded nodes.
+   */
+  private static final class DomSink implements Sink {
+
+    private final Document _doc;
+    private Node _current;
+
+    DomSink() throws IOException {
+      try {
+        // Factory is shared but not guaranteed to be thread-safe
+        synchronized(DOCUMENT_FACTORY) {
+          _doc = DOCUMENT_FACTORY.newDocumentBuilder().newDocument();
+        }
+      } catch(ParserConfigurationException e) {
+        throw new IOException(e);
+      }
+      _current = _doc;
+    }
+
+    @Override
+    public void startElement(String name, String[] attributes) {
+      Element element = _doc.createElement(name);
+      for(int i = 0; i < attributes.length; i += 2) {
+        element.setAttribute(attributes[i], attributes[i + 1]);
+      }
+      _current.appendChild(element);
+      _current = element;
+    }
+
+    @Override
+    public void endElement(String name) {
+      _current = _current.getParentNode();
+    }
+
+    @Override
+    public void leaf(int kind, String value, String data) {
+      switch(kind) {
+        case TEXT:
+          _current.appendChild(_doc.createTextNode(value));
+          break;
+        case CDATA:
+          _current.appendChild(_doc.createCDATASection(value));
+          break;
+        case COMMENT:
+          _current.appendChild(_doc.createComment(value));
+          break;
+        default:
+          _current.appendChild(_doc.createProcessingInstruction(value, data));
+          break;
+      }
+    }
+  }
+
+  /**
+   * Report the decoded nodes to a SAX handler.
+   */
+  private static final class SaxSink implements Sink {
+
+    private final ContentHandler _handler;
+
+    SaxSink(ContentHandler handler) {
+      _handler = handler;
+    }
+
+    @Override
+    public void startElement(String name, String[] attributes)
+        throws SAXException
+    {
+      AttributesImpl attrs = new AttributesImpl();
+      for(int i = 0; i < attributes.length; i += 2) {
+        attrs.addAttribute("", attributes[i], attributes[i], "CDATA",
+            attributes[i + 1]);
+      }
+      _handler.startElement("", name, name, attrs);
+    }
+
+    @Override
+    public void endElement(String name) throws SAXException {
+      _handler.endElement("", name, name);
+    }
+
+    @Override
+    public void leaf(int kind, String value, String data)
+        throws SAXException
+    {
+      if(kind == TEXT || kind == CDATA) {
+        _handler.characters(value.toCharArray(), 0, value.length());
+      } else if(kind == PROCESSING_INSTRUCTION) {
+        _handler.processingInstruction(value, data);
+      }
+    }
+  }
+
+  private static void intern(String s, Map<String, Integer> strings,
+                             List<String> table)
+  {
+    if(!strings.containsKey(s)) {
+      strings.put(s, table.size());
+      table.add(s);
+    }
+  }
+
+  /**
+   * Get the next node in document order without leaving the root.
+   *
+   * @param n    Current node.
+   * @param root Root of the walk.
+   * @return Next node. Null at the end of the walk.
+   */
+  private static Node next(Node n, Node root) {
+    if(n.getFirstChild() != null) {
+      return n.getFirstChild();
+    }
+    while(n != root && n.getNextSibling() == null) {
+      n = n.getParentNode();
+    }
+    return n == root ? null : n.getNextSibling();
+  }
+
+  private static void writeInt(DataOutputStream data, int value)
+      throws IOException
+  {
+    while((value & ~0x7f) != 0) {
+      data.writeByte((value & 0x7f) | 0x80);
+      value >>>= 7;
+    }
+    data.writeByte(value);
+  }
+
+  private static int readInt(ByteBuffer buffer) throws IOException {
+    int value = 0;
+    for(int shift = 0; shift < 32; shift += 7) {
+      int b = buffer.get() & 0xff;
+      value |= (b & 0x7f) << shift;
+      if((b & 0x80) == 0) {
+        return value;
+      }
+    }
+    throw new IOException("Invalid variable length integer");
+  }
+}
@@ -0,0 +1,180 @@
+/*
+ * This file is released under terms of BSD license
+ * See LICENSE file for more information
+ */
+package claw.tatsu.xcodeml.xnode;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Build an XML document from a pull parser. The document is equivalent to the
+ * one built by the DOM parser once cleaned for output:
+ * <ul>
+ * <li>Whitespace-only text is dropped when the element has element or
+ * comment children. It is kept in elements holding only text.</li>
+ * <li>Adjacent text is coalesced so the document does not need to be
+ * normalized.</li>
+ * <li>Element and attribute names are shared between all the nodes.</li>
+ * </ul>
+ *
+ * @author clementval
+ */
+final class StaxDocumentReader {
+
+  private static final XMLInputFactory INPUT_FACTORY = createInputFactory();
+  private static final DocumentBuilderFactory DOCUMENT_FACTORY =
+      DocumentBuilderFactory.newInstance();
+
+  private final Map<String, String> _names = new HashMap<>();
+
+  private StaxDocumentReader() {
+  }
+
+  /**
+   * Read a document from a stream.
+   *
+   * @param input XML input stream.
+   * @return New document.
+   * @throws XMLStreamException           If the input is not well-formed.
+   * @throws ParserConfigurationException If no document can be created.
+   */
+  static Document read(InputStream input)
+      throws XMLStreamException, ParserConfigurationException
+  {
+    // Factories are shared but not guaranteed to be thread-safe
+    Document doc;
+    synchronized(DOCUMENT_FACTORY) {
+      doc = DOCUMENT_FACTORY.newDocumentBuilder().newDocument();
+    }
+    XMLStreamReader reader;
+    synchronized(INPUT_FACTORY) {
+      reader = INPUT_FACTORY.createXMLStreamReader(input);
+    }
+    try {
+      new StaxDocumentReader().build(reader, doc);
+    } finally {
+      reader.close();
+    }
+    return doc;
+  }
+
+  /**
+   * Append the content of the stream to the document.
+   *
+   * @param reader Pull parser positioned at the start of the document.
+   * @param doc    Empty document.
+   * @throws XMLStreamException If the input is not well-formed.
+   */
+  private void build(XMLStreamReader reader, Document doc)
+      throws XMLStreamException
+  {
+    Node current = doc;
+    // True for each open element that has element or comment children
+    Deque<Boolean> structured = new ArrayDeque<>();
+    String pendingWhitespace = null;
+
+    while(reader.hasNext()) {
+      switch(reader.next()) {
+        case XMLStreamConstants.START_ELEMENT:
+          markStructured(structured);
+          pendingWhitespace = null;
+          Element element = doc.createElement(qualifiedName(
+              reader.getPrefix(), reader.getLocalName()));
+          for(int i = 0; i < reader.getAttributeCount(); ++i) {
+            element.setAttribute(qualifiedName(reader.getAttributePrefix(i),
+                reader.getAttributeLocalName(i)), reader.getAttributeValue(i));
+          }
+          current.appendChild(element);
+          current = element;
+          structured.push(false);
+          break;
+        case XMLStreamConstants.END_ELEMENT:
+          if(pendingWhitespace != null && !structured.peek()) {
+            current.appendChild(doc.createTextNode(pendingWhitespace));
+          }
+          pendingWhitespace = null;
+          structured.pop();
+          current = current.getParentNode();
+          break;
+        case XMLStreamConstants.CHARACTERS:
+        case XMLStreamConstants.CDATA:
+        case XMLStreamConstants.SPACE:
+          if(current == doc) {
+            break;
+          }
+          if(reader.isWhiteSpace()) {
+            if(!structured.peek()) {
+              pendingWhitespace = reader.getText();
+            }
+          } else {
+            current.appendChild(doc.createTextNode(reader.getText()));
+          }
+          break;
+        case XMLStreamConstants.COMMENT:
+          markStructured(structured);
+          pendingWhitespace = null;
+          current.appendChild(doc.createComment(reader.getText()));
+          break;
+        case XMLStreamConstants.PROCESSING_INSTRUCTION:
+          markStructured(structured);
+          pendingWhitespace = null;
+          current.appendChild(doc.createProcessingInstruction(
+              reader.getPITarget(), reader.getPIData()));
+          break;
+        default:
+          break;
+      }
+    }
+  }
+
+  /**
+   * Record that the innermost open element has element or comment children.
+   *
+   * @param structured Stack of the open elements.
+   */
+  private static void markStructured(Deque<Boolean> structured) {
+    if(!structured.isEmpty() && !structured.peek()) {
+      structured.pop();
+      structured.push(true);
+    }
+  }
+
+  /**
+   * Get the shared instance of a qualified name.
+   *
+   * @param prefix    Namespace prefix. Can be null or empty.
+   * @param localName Local part of the name.
+   * @return Qualified name shared by all the nodes of the document.
+   */
+  private String qualifiedName(String prefix, String localName) {
+    String name = prefix == null || prefix.isEmpty() ? localName :
+        prefix + ":" + localName;
+    String shared = _names.get(name);
+    if(shared == null) {
+      _names.put(name, name);
+      shared = name;
+    }
+    return shared;
+  }
+
+  private static XMLInputFactory createInputFactory() {
+    XMLInputFactory factory = XMLInputFactory.newInstance();
+    factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+    factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, false);
+    return factory;
+  }
+}
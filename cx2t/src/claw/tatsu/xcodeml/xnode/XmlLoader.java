@@ -0,0 +1,89 @@
+/*
+ * This file is released under terms of BSD license
+ * See LICENSE file for more information
+ */
+package claw.tatsu.xcodeml.xnode;
+
+import org.w3c.dom.Document;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Enumeration of the parsers used to load XcodeML files.
+ * DOM builds the document with the default DOM parser and normalizes it.
+ * STAX builds the document from a pull parser without whitespace-only text
+ * between elements.
+ *
+ * @author clementval
+ */
+public enum XmlLoader {
+  DOM("dom"),
+  STAX("stax");
+
+  private final String _code;
+
+  XmlLoader(String code) {
+    _code = code;
+  }
+
+  public static List<String> availableLoaders() {
+    List<String> codes = new ArrayList<>();
+    for(XmlLoader l : XmlLoader.values()) {
+      codes.add(l._code);
+    }
+    return codes;
+  }
+
+  /**
+   * Get enum value from a string.
+   *
+   * @param value Code value for the enumeration.
+   * @return The enumeration value if matches. Null otherwise.
+   */
+  public static XmlLoader fromString(String value) {
+    if(value == null) {
+      return null;
+    }
+    for(XmlLoader l : XmlLoader.values()) {
+      if(l._code.equals(value)) {
+        return l;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Read an XML document.
+   *
+   * @param input XML input stream.
+   * @return Document if the XML stream could be read. Null otherwise.
+   */
+  public Document read(InputStream input) {
+    if(input == null) {
+      return null;
+    }
+    try {
+      switch(this) {
+        case STAX:
+          return StaxDocumentReader.read(input);
+        case DOM:
+        default:
+          DocumentBuilderFactory dbFactory =
+              DocumentBuilderFactory.newInstance();
+          Document doc = dbFactory.newDocumentBuilder().parse(input);
+          doc.getDocumentElement().normalize();
+          return doc;
+      }
+    } catch(Exception ignored) {
+    }
+    return null;
+  }
+
+  @Override
+  public String toString() {
+    return _code;
+  }
+}
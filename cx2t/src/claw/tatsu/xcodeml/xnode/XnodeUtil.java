@@ -6,19 +6,23 @@ package claw.tatsu.xcodeml.xnode;
 
 import claw.tatsu.xcodeml.abstraction.AssignStatement;
 import claw.tatsu.xcodeml.abstraction.HoistedNestedDoStatement;
+import claw.tatsu.xcodeml.visitor.XnodeListener;
+import claw.tatsu.xcodeml.visitor.XnodeWalker;
 import claw.tatsu.xcodeml.xnode.common.*;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
 
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.xpath.XPathConstants;
 import javax.xml.xpath.XPathExpression;
 import javax.xml.xpath.XPathExpressionException;
 import javax.xml.xpath.XPathFactory;
+import java.io.BufferedInputStream;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -45,17 +49,15 @@ public class XnodeUtil {
   public static List<Xnode> getAllArrayReferences(Xnode parent,
                                                   String arrayName)
   {
+    SymbolUseIndex index = SymbolUseIndex.of(parent);
+    if(index != null) {
+      return index.getArrayReferences(parent, arrayName);
+    }
     List<Xnode> references = new ArrayList<>();
-    NodeList nList = parent.element().
-        getElementsByTagName(Xname.F_ARRAY_REF);
-    for(int i = 0; i < nList.getLength(); i++) {
-      Node n = nList.item(i);
-      if(n.getNodeType() == Node.ELEMENT_NODE) {
-        Xnode ref = new Xnode((Element) n);
-        Xnode var = ref.matchSeq(Xcode.VAR_REF, Xcode.VAR);
-        if(var != null && var.value().equalsIgnoreCase(arrayName)) {
-          references.add(ref);
-        }
+    for(Xnode ref : parent.matchAll(Xcode.F_ARRAY_REF)) {
+      Xnode var = ref.matchSeq(Xcode.VAR_REF, Xcode.VAR);
+      if(var != null && var.value().equalsIgnoreCase(arrayName)) {
+        references.add(ref);
       }
     }
     return references;
@@ -69,15 +71,14 @@ public class XnodeUtil {
    * @return A list of all references found.
    */
   public static List<Xnode> getAllVarReferences(Xnode parent, String varName) {
+    SymbolUseIndex index = SymbolUseIndex.of(parent);
+    if(index != null) {
+      return index.getUses(parent, varName);
+    }
     List<Xnode> references = new ArrayList<>();
-    NodeList nList = parent.element().getElementsByTagName(Xname.VAR);
-    for(int i = 0; i < nList.getLength(); i++) {
-      Node n = nList.item(i);
-      if(n.getNodeType() == Node.ELEMENT_NODE) {
-        Xnode var = new Xnode((Element) n);
-        if(var.value().equalsIgnoreCase(varName)) {
-          references.add(var);
-        }
+    for(Xnode var : parent.matchAll(Xcode.VAR)) {
+      if(var.value().equalsIgnoreCase(varName)) {
+        references.add(var);
       }
     }
     return references;
@@ -379,7 +380,10 @@ public class XnodeUtil {
    * @return A list of all var elements found.
    */
   public static List<Xnode> findAllReferences(Xnode parent, String id) {
-    return parent.matchAll(Xcode.VAR).stream()
+    SymbolUseIndex index = SymbolUseIndex.of(parent);
+    List<Xnode> vars = index == null ? parent.matchAll(Xcode.VAR) :
+        index.getUses(parent, id);
+    return vars.stream()
         .filter(Xnode::isNotArrayIndex)
         .filter(x -> x.value().equalsIgnoreCase(id))
         .collect(Collectors.toList());
@@ -500,23 +504,32 @@ public class XnodeUtil {
   }
 
   /**
-   * Read XML file.
+   * Read XML file with the DOM parser.
    *
    * @param input Xml file path.
    * @return Document if the XML file could be read. Null otherwise.
    */
   public static Document readXmlFile(String input) {
-    try {
-      File fXmlFile = new File(input);
-      if(!fXmlFile.exists()) {
-        return null;
-      }
-      DocumentBuilderFactory dbFactory = DocumentBuilderFactory.newInstance();
-      DocumentBuilder dBuilder = dbFactory.newDocumentBuilder();
-      Document doc = dBuilder.parse(fXmlFile);
-      doc.getDocumentElement().normalize();
-      return doc;
-    } catch(Exception ignored) {
+    return readXmlFile(input, XmlLoader.DOM);
+  }
+
+  /**
+   * Read XML file.
+   *
+   * @param input  Xml file path.
+   * @param loader Parser used to read the file.
+   * @return Document if the XML file could be read. Null otherwise.
+   */
+  public static Document readXmlFile(String input, XmlLoader loader) {
+    File fXmlFile = new File(input);
+    if(!fXmlFile.exists()) {
+      return null;
+    }
+    try(InputStream in =
+            new BufferedInputStream(new FileInputStream(fXmlFile)))
+    {
+      return loader.read(in);
+    } catch(IOException ignored) {
     }
     return null;
   }
@@ -634,24 +647,56 @@ public class XnodeUtil {
     } else {
       firstLevelNodesInRegion = getSiblingsBetween(from, to);
     }
+    XnodeWalker walker = new XnodeWalker()
+        .register(new ReadArrayCollector(readArrayIds),
+            Xcode.F_ARRAY_REF, Xcode.F_MEMBER_REF);
     for(Xnode node : firstLevelNodesInRegion) {
-      List<Xnode> arrayRefs = node.matchAll(Xcode.F_ARRAY_REF);
-      for(Xnode arrayRef : arrayRefs) {
-        if(arrayRef.ancestorIs(Xcode.F_ASSIGN_STATEMENT)
-            && arrayRef.ancestor().firstChild().equals(arrayRef)
-            || arrayRef.matchAncestor(Xcode.F_ARRAY_REF) != null)
-        {
-          continue;
-        }
+      walker.walk(node);
+    }
+    return new ArrayList<>(readArrayIds);
+  }
 
-        if(arrayRef.matchAncestor(Xcode.F_MEMBER_REF) != null) {
-          readArrayIds.add(arrayRef.matchAncestor(Xcode.F_MEMBER_REF).
-              constructRepresentation(false, false));
-        } else {
-          readArrayIds.add(arrayRef.constructRepresentation(false, false));
-        }
+  /**
+   * Collect the identifiers of the arrays read in the walked nodes. Array
+   * references nested in another array reference and left hand-side of
+   * assignments are skipped. Array references in a member reference are
+   * identified by the enclosing member reference.
+   */
+  private static class ReadArrayCollector implements XnodeListener {
+
+    private final Set<String> _ids;
+    private final Deque<Xnode> _memberRefs = new ArrayDeque<>();
+    private int _arrayRefDepth = 0;
+
+    ReadArrayCollector(Set<String> ids) {
+      _ids = ids;
+    }
+
+    @Override
+    public void enter(Xnode node) {
+      if(node.is(Xcode.F_MEMBER_REF)) {
+        _memberRefs.push(node);
+        return;
+      }
+      if(_arrayRefDepth++ > 0 || node.ancestorIs(Xcode.F_ASSIGN_STATEMENT)
+          && node.ancestor().firstChild().equals(node))
+      {
+        return;
+      }
+      if(_memberRefs.isEmpty()) {
+        _ids.add(node.constructRepresentation(false, false));
+      } else {
+        _ids.add(_memberRefs.peek().constructRepresentation(false, false));
+      }
+    }
+
+    @Override
+    public void exit(Xnode node) {
+      if(node.is(Xcode.F_MEMBER_REF)) {
+        _memberRefs.pop();
+      } else {
+        --_arrayRefDepth;
       }
     }
-    return new ArrayList<>(readArrayIds);
   }
 }
@@ -0,0 +1,168 @@
+/*
+ * This file is released under terms of BSD license
+ * See LICENSE file for more information
+ */
+package claw.tatsu.xcodeml.xnode.common;
+
+import org.w3c.dom.CharacterData;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.events.Event;
+import org.w3c.dom.events.EventListener;
+import org.w3c.dom.events.EventTarget;
+import org.w3c.dom.events.MutationEvent;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Log of the mutations of a document used to roll it back to a checkpoint.
+ * The log is attached to the document when the first checkpoint is taken and
+ * records the inverse of every insertion, removal, attribute change and text
+ * change reported by the DOM mutation events. It is detached once all the
+ * checkpoints are released so documents without checkpoint pay nothing.
+ *
+ * Mutations of detached subtrees are not reported. They are undone together
+ * with the insertion of the subtree.
+ *
+ * @author clementval
+ */
+final class ChangeLog implements EventListener {
+
+  private static final String USER_DATA_KEY = "claw.ChangeLog";
+  private static final String NODE_INSERTED = "DOMNodeInserted";
+  private static final String NODE_REMOVED = "DOMNodeRemoved";
+  private static final String ATTR_MODIFIED = "DOMAttrModified";
+  private static final String DATA_MODIFIED = "DOMCharacterDataModified";
+  private static final String[] EVENTS =
+      {NODE_INSERTED, NODE_REMOVED, ATTR_MODIFIED, DATA_MODIFIED};
+
+  private final List<Runnable> _undo = new ArrayList<>();
+  private int _checkpoints = 0;
+  private boolean _replaying = false;
+
+  /**
+   * Take a checkpoint of a document.
+   *
+   * @param document Document.
+   * @return Checkpoint to pass to rollback or release. -1 if the DOM
+   * implementation does not report mutations.
+   */
+  static int checkpoint(Document document) {
+    if(!(document instanceof EventTarget)) {
+      return -1;
+    }
+    ChangeLog log = (ChangeLog) document.getUserData(USER_DATA_KEY);
+    if(log == null) {
+      log = new ChangeLog();
+      for(String event : EVENTS) {
+        ((EventTarget) document).addEventListener(event, log, true);
+      }
+      document.setUserData(USER_DATA_KEY, log, null);
+    }
+    ++log._checkpoints;
+    return log._undo.size();
+  }
+
+  /**
+   * Undo all the mutations of a document since a checkpoint and release the
+   * checkpoint.
+   *
+   * @param document   Document.
+   * @param checkpoint Checkpoint returned by checkpoint.
+   * @return True if the document is rolled back. False if the checkpoint is
+   * not valid.
+   */
+  static boolean rollback(Document document, int checkpoint) {
+    ChangeLog log = of(document);
+    if(log == null || checkpoint < 0 || checkpoint > log._undo.size()) {
+      return false;
+    }
+    log._replaying = true;
+    try {
+      for(int i = log._undo.size() - 1; i >= checkpoint; --i) {
+        log._undo.remove(i).run();
+      }
+    } finally {
+      log._replaying = false;
+    }
+    release(document, checkpoint);
+    return true;
+  }
+
+  /**
+   * Release a checkpoint. The mutations are kept until the outermost
+   * checkpoint is released.
+   *
+   * @param document   Document.
+   * @param checkpoint Checkpoint returned by checkpoint.
+   */
+  static void release(Document document, int checkpoint) {
+    ChangeLog log = of(document);
+    if(log == null || checkpoint < 0 || --log._checkpoints > 0) {
+      return;
+    }
+    for(String event : EVENTS) {
+      ((EventTarget) document).removeEventListener(event, log, true);
+    }
+    document.setUserData(USER_DATA_KEY, null, null);
+  }
+
+  /**
+   * Get the number of mutations recorded for a document.
+   *
+   * @param document Document.
+   * @return Number of mutations. 0 if no checkpoint is taken.
+   */
+  static int size(Document document) {
+    ChangeLog log = of(document);
+    return log == null ? 0 : log._undo.size();
+  }
+
+  /**
+   * Get the log attached to a document.
+   *
+   * @param document Document. Can be null.
+   * @return Attached log. Null if no checkpoint is taken.
+   */
+  private static ChangeLog of(Document document) {
+    return document == null ? null
+        : (ChangeLog) document.getUserData(USER_DATA_KEY);
+  }
+
+  @Override
+  public void handleEvent(Event event) {
+    if(_replaying || !(event instanceof MutationEvent)) {
+      return;
+    }
+    MutationEvent mutation = (MutationEvent) event;
+    Node target = (Node) mutation.getTarget();
+    switch(mutation.getType()) {
+      case NODE_INSERTED:
+        _undo.add(() -> target.getParentNode().removeChild(target));
+        break;
+      case NODE_REMOVED:
+        Node parent = mutation.getRelatedNode();
+        Node next = target.getNextSibling();
+        _undo.add(() -> parent.insertBefore(target, next));
+        break;
+      case ATTR_MODIFIED:
+        Element element = (Element) target;
+        String name = mutation.getAttrName();
+        String value = mutation.getPrevValue();
+        if(mutation.getAttrChange() == MutationEvent.ADDITION) {
+          _undo.add(() -> element.removeAttribute(name));
+        } else {
+          _undo.add(() -> element.setAttribute(name, value));
+        }
+        break;
+      case DATA_MODIFIED:
+        String data = mutation.getPrevValue();
+        _undo.add(() -> ((CharacterData) target).setData(data));
+        break;
+      default:
+        break;
+    }
+  }
+}
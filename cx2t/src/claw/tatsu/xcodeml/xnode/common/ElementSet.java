@@ -0,0 +1,181 @@
+/*
+ * This file is released under terms of BSD license
+ * See LICENSE file for more information
+ */
+package claw.tatsu.xcodeml.xnode.common;
+
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Set of elements attached to a document and kept in document order.
+ * Additions and removals only update the members. The document order is
+ * restored on the next query by sorting the added elements and merging them
+ * with the ordered elements that are still members.
+ *
+ * @author clementval
+ */
+final class ElementSet {
+
+  private final Set<Element> _members = new HashSet<>();
+  private List<Element> _ordered = new ArrayList<>();
+  // Members added since the last query, not part of _ordered yet
+  private final Set<Element> _added = new LinkedHashSet<>();
+  // Elements of _ordered removed since the last query
+  private final Set<Element> _removed = new HashSet<>();
+
+  /**
+   * Add an element to the set.
+   *
+   * @param element Element attached to the document.
+   */
+  void add(Element element) {
+    if(_members.add(element)) {
+      _added.add(element);
+    }
+  }
+
+  /**
+   * Remove an element from the set.
+   *
+   * @param element Element to be removed. Still attached to the document.
+   */
+  void remove(Element element) {
+    if(_members.remove(element) && !_added.remove(element)) {
+      _removed.add(element);
+    }
+  }
+
+  /**
+   * Restore the document order after additions or removals. The added
+   * elements are sorted and merged with the remaining ordered elements.
+   */
+  private void update() {
+    if(_added.isEmpty() && _removed.isEmpty()) {
+      return;
+    }
+    List<Element> added = new ArrayList<>(_added);
+    added.sort((e1, e2) -> e1 == e2 ? 0 : precedes(e1, e2) ? -1 : 1);
+    List<Element> ordered = new ArrayList<>(_members.size());
+    int i = 0;
+    for(Element element : _ordered) {
+      if(_removed.contains(element)) {
+        continue;
+      }
+      while(i < added.size() && precedes(added.get(i), element)) {
+        ordered.add(added.get(i++));
+      }
+      ordered.add(element);
+    }
+    ordered.addAll(added.subList(i, added.size()));
+    _ordered = ordered;
+    _added.clear();
+    _removed.clear();
+  }
+
+  /**
+   * Check whether an element is part of the set.
+   *
+   * @param element Element.
+   * @return True if the element is in the set.
+   */
+  boolean contains(Element element) {
+    return _members.contains(element);
+  }
+
+  int size() {
+    return _members.size();
+  }
+
+  /**
+   * Get the elements of the set.
+   *
+   * @return Elements in document order. Must not be modified.
+   */
+  List<Element> ordered() {
+    update();
+    return _ordered;
+  }
+
+  /**
+   * Get the elements of the set in the subtree of an element. As a subtree is
+   * a contiguous range in document order, the range is found by a binary
+   * search. The root itself is not part of the result.
+   *
+   * @param root Root of the subtree.
+   * @return Elements in document order. Must not be modified.
+   */
+  List<Element> inSubtree(Node root) {
+    List<Element> ordered = ordered();
+    int low = 0;
+    int high = ordered.size();
+    while(low < high) {
+      int mid = (low + high) >>> 1;
+      if(precedes(root, ordered.get(mid))) {
+        high = mid;
+      } else {
+        low = mid + 1;
+      }
+    }
+    int end = low;
+    while(end < ordered.size() && isAncestor(root, ordered.get(end))) {
+      ++end;
+    }
+    return ordered.subList(low, end);
+  }
+
+  /**
+   * Check whether a node is before another one in document order.
+   *
+   * @param first  First node.
+   * @param second Second node.
+   * @return True if first is strictly before second.
+   */
+  static boolean precedes(Node first, Node second) {
+    return first != second && (first.compareDocumentPosition(second)
+        & Node.DOCUMENT_POSITION_FOLLOWING) != 0;
+  }
+
+  /**
+   * Check whether a node is a strict ancestor of another one.
+   *
+   * @param ancestor Possible ancestor.
+   * @param node     Node.
+   * @return True if ancestor contains the node.
+   */
+  static boolean isAncestor(Node ancestor, Node node) {
+    for(Node n = node.getParentNode(); n != null; n = n.getParentNode()) {
+      if(n == ancestor) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Get the next node of a subtree in document order.
+   *
+   * @param current Current node.
+   * @param root    Root of the subtree.
+   * @return Next node. Null if the subtree is completely visited.
+   */
+  static Node nextInSubtree(Node current, Node root) {
+    if(current.getFirstChild() != null) {
+      return current.getFirstChild();
+    }
+    Node n = current;
+    while(n != root) {
+      if(n.getNextSibling() != null) {
+        return n.getNextSibling();
+      }
+      n = n.getParentNode();
+    }
+    return null;
+  }
+}
@@ -0,0 +1,299 @@
+/*
+ * This file is released under terms of BSD license
+ * See LICENSE file for more information
+ */
+package claw.tatsu.xcodeml.xnode.common;
+
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.events.Event;
+import org.w3c.dom.events.EventListener;
+import org.w3c.dom.events.EventTarget;
+
+import java.util.*;
+
+/**
+ * Index of the variable uses and definitions in the body of a function
+ * definition. Var elements are indexed by their case-folded name and
+ * assignment statements by the case-folded name of their left hand-side. The
+ * index is built in one traversal of the body the first time it is requested
+ * and is attached to the body element. Like the opcode index, it is only used
+ * when the node index of the translation unit is enabled and it is detached
+ * with it.
+ *
+ * The index listens to the DOM mutation events of the body. Inserted and
+ * removed subtrees are added and removed incrementally. Var elements and
+ * assignment statements whose content changed are indexed again under their
+ * new name on the next query.
+ *
+ * @author clementval
+ */
+public final class SymbolUseIndex implements EventListener {
+
+  private static final String USER_DATA_KEY = "claw.SymbolUseIndex";
+  private static final String[] EVENTS = {
+      "DOMNodeInserted", "DOMNodeRemoved", "DOMCharacterDataModified"
+  };
+  private static final String NODE_INSERTED = EVENTS[0];
+  private static final String NODE_REMOVED = EVENTS[1];
+
+  private final Element _body;
+  private final Map<String, ElementSet> _uses = new HashMap<>();
+  private final Map<String, ElementSet> _definitions = new HashMap<>();
+  // Name under which each var or assignment is currently indexed
+  private final Map<Element, String> _keys = new HashMap<>();
+  // Var and assignment whose name might have changed
+  private final Set<Element> _changed = new HashSet<>();
+
+  private SymbolUseIndex(Element body) {
+    _body = body;
+  }
+
+  /**
+   * Get the index of the function body containing the given node. The index
+   * is built if it does not exist yet.
+   *
+   * @param node Function body or node nested in a function body.
+   * @return Index of the innermost function body containing the node. Null if
+   * the node is not part of a function body or if the node index of its
+   * document is not enabled.
+   */
+  public static SymbolUseIndex of(Xnode node) {
+    if(node == null || node.element() == null) {
+      return null;
+    }
+    XnodeIndex nodeIndex = XnodeIndex.of(node.element());
+    if(nodeIndex == null) {
+      return null;
+    }
+    Node body = node.element();
+    while(body != null && !isFunctionBody(body)) {
+      body = body.getParentNode();
+    }
+    if(!(body instanceof EventTarget)) {
+      return null;
+    }
+    SymbolUseIndex index = (SymbolUseIndex) body.getUserData(USER_DATA_KEY);
+    if(index == null) {
+      index = new SymbolUseIndex((Element) body);
+      index.add(body);
+      for(String event : EVENTS) {
+        ((EventTarget) body).addEventListener(event, index, true);
+      }
+      body.setUserData(USER_DATA_KEY, index, null);
+      nodeIndex.addDependent(index::detach);
+    }
+    return index;
+  }
+
+  /**
+   * Detach the index from its body.
+   */
+  private void detach() {
+    for(String event : EVENTS) {
+      ((EventTarget) _body).removeEventListener(event, this, true);
+    }
+    _body.setUserData(USER_DATA_KEY, null, null);
+  }
+
+  /**
+   * Get the var elements with the given name in a subtree of the body.
+   *
+   * @param parent Root of the subtree. Not part of the result.
+   * @param name   Name of the variable. Case insensitive.
+   * @return Var elements in document order.
+   */
+  public List<Xnode> getUses(Xnode parent, String name) {
+    return wrap(find(_uses, parent, name));
+  }
+
+  /**
+   * Get the array references of the given variable in a subtree of the body.
+   *
+   * @param parent Root of the subtree. Not part of the result.
+   * @param name   Name of the array. Case insensitive.
+   * @return FarrayRef elements in document order.
+   */
+  public List<Xnode> getArrayReferences(Xnode parent, String name) {
+    List<Xnode> references = new ArrayList<>();
+    for(Element var : find(_uses, parent, name)) {
+      Xnode varRef = new Xnode(var).ancestor();
+      Xnode ref = varRef.ancestor();
+      if(varRef.is(Xcode.VAR_REF) && ref != null && ref.is(Xcode.F_ARRAY_REF)
+          && varRef.equals(ref.matchDirectDescendant(Xcode.VAR_REF))
+          && var == varRef.matchDirectDescendant(Xcode.VAR).element()
+          && ElementSet.isAncestor(parent.element(), ref.element()))
+      {
+        references.add(ref);
+      }
+    }
+    return references;
+  }
+
+  /**
+   * Get the assignment statements of the body with the given left hand-side.
+   *
+   * @param name Name of the assigned variable. Case insensitive.
+   * @return FassignStatement elements in document order.
+   */
+  public List<Xnode> getDefinitions(String name) {
+    update();
+    ElementSet definitions = _definitions.get(name.toLowerCase());
+    return definitions == null ? Collections.emptyList() :
+        wrap(definitions.ordered());
+  }
+
+  @Override
+  public void handleEvent(Event event) {
+    Node target = (Node) event.getTarget();
+    if(NODE_INSERTED.equals(event.getType())) {
+      add(target);
+    } else if(NODE_REMOVED.equals(event.getType())) {
+      remove(target);
+    }
+    // The name of an enclosing var or assignment might have changed
+    boolean var = false;
+    boolean assign = false;
+    for(Node n = target.getParentNode(); n != null && n != _body && !assign;
+        n = n.getParentNode())
+    {
+      if(!var && isOfCode(n, Xcode.VAR)) {
+        var = true;
+        markChanged((Element) n);
+      } else if(isOfCode(n, Xcode.F_ASSIGN_STATEMENT)) {
+        assign = true;
+        markChanged((Element) n);
+      }
+    }
+  }
+
+  /**
+   * Find the indexed elements with the given name in a subtree of the body.
+   *
+   * @param index  Uses or definitions.
+   * @param parent Root of the subtree.
+   * @param name   Name. Case insensitive.
+   * @return Elements in document order.
+   */
+  private List<Element> find(Map<String, ElementSet> index, Xnode parent,
+                             String name)
+  {
+    update();
+    ElementSet elements = index.get(name.toLowerCase());
+    if(elements == null) {
+      return Collections.emptyList();
+    }
+    return parent.element() == _body ? elements.ordered() :
+        elements.inSubtree(parent.element());
+  }
+
+  /**
+   * Index again the elements whose name might have changed.
+   */
+  private void update() {
+    for(Element element : _changed) {
+      String key = _keys.get(element);
+      if(key == null) {
+        continue;
+      }
+      Map<String, ElementSet> index = isOfCode(element, Xcode.VAR) ?
+          _uses : _definitions;
+      String newKey = keyOf(element);
+      if(!key.equals(newKey)) {
+        index.get(key).remove(element);
+        index.computeIfAbsent(newKey, k -> new ElementSet()).add(element);
+        _keys.put(element, newKey);
+      }
+    }
+    _changed.clear();
+  }
+
+  private void markChanged(Element element) {
+    if(_keys.containsKey(element)) {
+      _changed.add(element);
+    }
+  }
+
+  /**
+   * Index the var elements and assignment statements of a subtree.
+   *
+   * @param root Root of the subtree.
+   */
+  private void add(Node root) {
+    for(Node n = root; n != null; n = ElementSet.nextInSubtree(n, root)) {
+      Map<String, ElementSet> index = indexOf(n);
+      if(index != null && !_keys.containsKey(n)) {
+        String key = keyOf((Element) n);
+        index.computeIfAbsent(key, k -> new ElementSet()).add((Element) n);
+        _keys.put((Element) n, key);
+      }
+    }
+  }
+
+  /**
+   * Remove the var elements and assignment statements of a subtree from the
+   * index.
+   *
+   * @param root Root of the subtree.
+   */
+  private void remove(Node root) {
+    for(Node n = root; n != null; n = ElementSet.nextInSubtree(n, root)) {
+      Map<String, ElementSet> index = indexOf(n);
+      String key = _keys.remove(n);
+      if(index != null && key != null) {
+        index.get(key).remove((Element) n);
+        _changed.remove(n);
+      }
+    }
+  }
+
+  /**
+   * Get the index holding a node.
+   *
+   * @param node Node.
+   * @return Uses for var elements, definitions for assignment statements. Null
+   * for any other node.
+   */
+  private Map<String, ElementSet> indexOf(Node node) {
+    if(isOfCode(node, Xcode.VAR)) {
+      return _uses;
+    }
+    return isOfCode(node, Xcode.F_ASSIGN_STATEMENT) ? _definitions : null;
+  }
+
+  /**
+   * Get the name under which an element is indexed.
+   *
+   * @param element Var element or assignment statement.
+   * @return Case-folded name of the variable or of the assigned variable.
+   */
+  private static String keyOf(Element element) {
+    Xnode node = new Xnode(element);
+    if(node.is(Xcode.VAR)) {
+      return node.value();
+    }
+    Xnode lhs = node.firstChild();
+    if(lhs != null && !lhs.is(Xcode.VAR)) {
+      lhs = lhs.matchSeq(Xcode.VAR_REF, Xcode.VAR);
+    }
+    return lhs == null ? "" : lhs.value();
+  }
+
+  private static boolean isFunctionBody(Node node) {
+    return isOfCode(node, Xcode.BODY)
+        && isOfCode(node.getParentNode(), Xcode.F_FUNCTION_DEFINITION);
+  }
+
+  private static boolean isOfCode(Node node, Xcode opcode) {
+    return node != null && node.getNodeType() == Node.ELEMENT_NODE
+        && opcode.code().equals(node.getNodeName());
+  }
+
+  private static List<Xnode> wrap(List<Element> elements) {
+    List<Xnode> nodes = new ArrayList<>(elements.size());
+    for(Element element : elements) {
+      nodes.add(new Xnode(element));
+    }
+    return nodes;
+  }
+}
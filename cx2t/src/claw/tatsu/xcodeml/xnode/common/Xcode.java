@@ -174,10 +174,13 @@ public enum Xcode {
   NONE(Xname.NONE);
 
   private static final Map<String, Xcode> _stringToEnum = new HashMap<>();
+  // Element names as written in XcodeML files
+  private static final Map<String, Xcode> _tagToEnum = new HashMap<>();
 
   static {
     for(Xcode code : values()) {
       _stringToEnum.put(code.toString().toLowerCase(), code);
+      _tagToEnum.put(code.code(), code);
     }
   }
 
@@ -210,6 +213,18 @@ public enum Xcode {
         NONE : _stringToEnum.get(value.toLowerCase());
   }
 
+  /**
+   * Get enum value from an element name. Names spelled as in the XcodeML
+   * specification are resolved without creating any string.
+   *
+   * @param tagName Element name.
+   * @return The enumeration value if matches. NONE otherwise.
+   */
+  public static Xcode fromTag(String tagName) {
+    Xcode code = tagName == null ? null : _tagToEnum.get(tagName);
+    return code != null ? code : fromString(tagName);
+  }
+
   @Override
   public String toString() {
     return _irValue;
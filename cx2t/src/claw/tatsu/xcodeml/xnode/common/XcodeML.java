@@ -9,6 +9,7 @@ import claw.tatsu.common.CompilerDirective;
 import claw.tatsu.primitive.Pragma;
 import claw.tatsu.xcodeml.abstraction.FunctionCall;
 import claw.tatsu.xcodeml.exception.IllegalTransformationException;
+import claw.tatsu.xcodeml.xnode.XmlLoader;
 import claw.tatsu.xcodeml.xnode.Xname;
 import claw.tatsu.xcodeml.xnode.fortran.*;
 import org.w3c.dom.Document;
@@ -16,8 +17,6 @@ import org.w3c.dom.Element;
 import org.w3c.dom.Node;
 
 import javax.xml.XMLConstants;
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.transform.OutputKeys;
 import javax.xml.transform.Transformer;
 import javax.xml.transform.TransformerFactory;
@@ -64,22 +63,12 @@ public class XcodeML extends Xnode {
   /**
    * Read XML from stream.
    *
-   * @param input Xml file path.
+   * @param input  Xml input stream.
+   * @param loader Parser used to read the stream.
    * @return Document if the XML stream could be read. Null otherwise.
    */
-  static Document readXmlStream(InputStream input) {
-    try {
-      if(input == null) {
-        return null;
-      }
-      DocumentBuilderFactory dbFactory = DocumentBuilderFactory.newInstance();
-      DocumentBuilder dBuilder = dbFactory.newDocumentBuilder();
-      Document doc = dBuilder.parse(input);
-      doc.getDocumentElement().normalize();
-      return doc;
-    } catch(Exception ignored) {
-    }
-    return null;
+  static Document readXmlStream(InputStream input, XmlLoader loader) {
+    return loader.read(input);
   }
 
   /**
@@ -281,6 +270,56 @@ public class XcodeML extends Xnode {
     return new Xnode((Element) getDocument().importNode(node.element(), true));
   }
 
+  /**
+   * Create an independent copy of the XcodeML document. The copy can be
+   * written or read on another thread while this translation unit keeps
+   * being used.
+   *
+   * @return New XcodeML object holding a deep copy of the document.
+   */
+  public XcodeML snapshot() {
+    return new XcodeML((Document) getDocument().cloneNode(true));
+  }
+
+  /**
+   * Take a checkpoint of the document. All the mutations of the document are
+   * recorded until the checkpoint is rolled back or released. Checkpoints can
+   * be nested.
+   *
+   * @return Checkpoint. -1 if the DOM implementation does not report
+   * mutations.
+   */
+  public int checkpoint() {
+    return ChangeLog.checkpoint(getDocument());
+  }
+
+  /**
+   * Undo all the mutations of the document since a checkpoint and release
+   * the checkpoint. Wrappers holding tables read from the document before the
+   * rollback must be created again.
+   *
+   * @param checkpoint Checkpoint returned by {@link #checkpoint()}.
+   * @return True if the document is rolled back. False if the checkpoint is
+   * not valid.
+   */
+  public boolean rollback(int checkpoint) {
+    if(!ChangeLog.rollback(getDocument(), checkpoint)) {
+      return false;
+    }
+    _typeTable.reload();
+    return true;
+  }
+
+  /**
+   * Keep the mutations of the document since a checkpoint and release the
+   * checkpoint.
+   *
+   * @param checkpoint Checkpoint returned by {@link #checkpoint()}.
+   */
+  public void release(int checkpoint) {
+    ChangeLog.release(getDocument(), checkpoint);
+  }
+
   /**
    * Write the XcodeML to file or std out
    *
@@ -4,7 +4,10 @@
  */
 package claw.tatsu.xcodeml.xnode.common;
 
+import claw.tatsu.analysis.AnalysisManager;
+import claw.tatsu.common.Context;
 import claw.tatsu.xcodeml.error.XanalysisError;
+import claw.tatsu.xcodeml.xnode.XmlLoader;
 import claw.tatsu.xcodeml.xnode.Xname;
 import claw.tatsu.xcodeml.xnode.XnodeUtil;
 import org.w3c.dom.Document;
@@ -35,59 +38,73 @@ public class XcodeProgram extends XcodeML {
 
   private final List<XanalysisError> _errors;
   private final List<XanalysisError> _warnings;
+  private final Context _context;
+  private final AnalysisManager _analyses;
   // XcodeProgram inner elements
   private XsymbolTable _globalSymbolsTable = null;
   private XglobalDeclTable _globalDeclarationsTable = null;
 
   /**
    * Default ctor used just to carry errors.
+   *
+   * @param context Context of the translation.
    */
-  private XcodeProgram() {
+  private XcodeProgram(Context context) {
     _errors = new ArrayList<>();
     _warnings = new ArrayList<>();
+    _context = context;
+    _analyses = new AnalysisManager(this);
   }
 
   /**
    * XcodeProgram base constructor.
    *
-   * @param doc The XcodeML document.
+   * @param doc     The XcodeML document.
+   * @param context Context of the translation.
    */
-  private XcodeProgram(Document doc) {
+  private XcodeProgram(Document doc, Context context) {
     super(doc);
     _errors = new ArrayList<>();
     _warnings = new ArrayList<>();
+    _context = context;
+    _analyses = new AnalysisManager(this);
   }
 
   /**
    * Create a XcodeProgram object from the standard input. Used when connected
    * through pipe.
    *
+   * @param context Context of the translation.
    * @return An XcodeProgram object loaded with the information from the std
    * input. Null if the std input couldn't be read.
    */
-  public static XcodeProgram createFromStdInput() {
+  public static XcodeProgram createFromStdInput(Context context) {
     BufferedInputStream bis = new BufferedInputStream(System.in);
-    Document doc = readXmlStream(bis);
-    return createFromDocument(doc);
+    Document doc = readXmlStream(bis, loaderOf(context));
+    return createFromDocument(doc, context);
   }
 
   /**
    * Create a XcodeProgram object from an XML document.
    *
-   * @param doc Input DOM document.
+   * @param doc     Input DOM document.
+   * @param context Context of the translation.
    * @return A XcodeProgram object loaded with the information from the file.
    * null if the file couldn't be read.
    */
-  public static XcodeProgram createFromDocument(Document doc) {
+  public static XcodeProgram createFromDocument(Document doc, Context context)
+  {
     if(doc == null) {
-      XcodeProgram program = new XcodeProgram();
+      XcodeProgram program = new XcodeProgram(context);
       program.addError("Unable to read input XcodeML/F");
       return program;
     }
-    XcodeProgram program = new XcodeProgram(doc);
+    XcodeProgram program = new XcodeProgram(doc, context);
     program.readDocumentInformation();
     if(!program.isXcodeMLvalid()) {
       program.addError("XcodeML file is not valid");
+    } else if(context != null && context.isNodeIndexEnabled()) {
+      program.enableNodeIndex();
     }
     return program;
   }
@@ -95,13 +112,81 @@ public class XcodeProgram extends XcodeML {
   /**
    * Create a XcodeProgram object from an XcodeML input file.
    *
-   * @param input XcodeML input filename or path
+   * @param input   XcodeML input filename or path
+   * @param context Context of the translation.
    * @return An XcodeProgram object loaded with the information from the file.
    * Null if the file couldn't be read.
    */
-  public static XcodeProgram createFromFile(String input) {
-    Document doc = XnodeUtil.readXmlFile(input);
-    return createFromDocument(doc);
+  public static XcodeProgram createFromFile(String input, Context context) {
+    Document doc = XnodeUtil.readXmlFile(input, loaderOf(context));
+    return createFromDocument(doc, context);
+  }
+
+  /**
+   * Get the parser used to read the XcodeML files of a translation.
+   *
+   * @param context Context of the translation. Can be null.
+   * @return Parser of the context. DOM parser if there is no context.
+   */
+  private static XmlLoader loaderOf(Context context) {
+    return context == null ? XmlLoader.DOM : context.getXmlLoader();
+  }
+
+  /**
+   * Get the context of the translation this program belongs to.
+   *
+   * @return Context of the translation.
+   */
+  public Context context() {
+    return _context;
+  }
+
+  /**
+   * Get the manager of the analyses computed on the program.
+   *
+   * @return Analysis manager of the program.
+   */
+  public AnalysisManager getAnalysisManager() {
+    return _analyses;
+  }
+
+  @Override
+  public boolean rollback(int checkpoint) {
+    if(!super.rollback(checkpoint)) {
+      return false;
+    }
+    readGlobalSymbolsTable();
+    readGlobalDeclarationsTable();
+    _analyses.invalidateAll();
+    return true;
+  }
+
+  /**
+   * Index the nodes of the program by opcode. Once enabled, matchAll and
+   * matchDescendant on nodes of the program are answered from the index. The
+   * index follows every insertion and removal in the document.
+   *
+   * @return True if the index is enabled. False if the DOM implementation
+   * does not report mutations.
+   */
+  public boolean enableNodeIndex() {
+    return XnodeIndex.attach(getDocument());
+  }
+
+  /**
+   * Drop the opcode index of the program. Queries walk the DOM again.
+   */
+  public void disableNodeIndex() {
+    XnodeIndex.detach(getDocument());
+  }
+
+  /**
+   * Check whether the nodes of the program are indexed by opcode.
+   *
+   * @return True if the index is enabled.
+   */
+  public boolean hasNodeIndex() {
+    return XnodeIndex.of(getDocument()) != null;
   }
 
   /**
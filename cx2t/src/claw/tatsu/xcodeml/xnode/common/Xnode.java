@@ -14,8 +14,8 @@ import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * XcodeML AST node.
@@ -61,10 +61,8 @@ public class Xnode {
    * @return Opcode.
    */
   public Xcode opcode() {
-    if(_baseElement == null) {
-      return Xcode.NONE;
-    }
-    return Xcode.fromString(_baseElement.getTagName().toLowerCase());
+    return _baseElement == null ? Xcode.NONE :
+        Xcode.fromTag(_baseElement.getTagName());
   }
 
   /**
@@ -239,15 +237,19 @@ public class Xnode {
    * @return Child at the corresponding position.
    */
   public Xnode child(int pos) {
-    List<Xnode> children = children();
-    if(pos < 0 || pos > children.size() - 1) {
+    if(_baseElement == null || pos < 0) {
       return null;
     }
-    return children.get(pos);
+    Element child = firstElement(_baseElement.getFirstChild());
+    for(int i = 0; i < pos && child != null; ++i) {
+      child = nextElement(child);
+    }
+    return child == null ? null : new Xnode(child);
   }
 
   /**
-   * Get the list of child elements.
+   * Get the list of child elements. Use firstChild and nextSibling, or
+   * forEachChild, when the list itself is not needed.
    *
    * @return List of children of the current element.
    */
@@ -256,24 +258,42 @@ public class Xnode {
     if(_baseElement == null) {
       return nodes;
     }
-    NodeList children = _baseElement.getChildNodes();
-    for(int i = 0; i < children.getLength(); ++i) {
-      Node child = children.item(i);
-      if(child.getNodeType() == Node.ELEMENT_NODE) {
-        nodes.add(new Xnode((Element) child));
-      }
+    for(Element child = firstElement(_baseElement.getFirstChild());
+        child != null; child = nextElement(child))
+    {
+      nodes.add(new Xnode(child));
     }
     return nodes;
   }
 
+  /**
+   * Apply an action to each child element in order. The next child is
+   * resolved before the action is applied so the action can move or delete
+   * the child it receives.
+   *
+   * @param action Action applied to each child.
+   */
+  public void forEachChild(Consumer<Xnode> action) {
+    if(_baseElement == null) {
+      return;
+    }
+    Element child = firstElement(_baseElement.getFirstChild());
+    while(child != null) {
+      Element next = nextElement(child);
+      action.accept(new Xnode(child));
+      child = next;
+    }
+  }
+
   /**
    * Get the first child node.
    *
    * @return First child or null if no child exists.
    */
   public Xnode firstChild() {
-    List<Xnode> children = this.children();
-    return children.isEmpty() ? null : children.get(0);
+    Element child = _baseElement == null ? null :
+        firstElement(_baseElement.getFirstChild());
+    return child == null ? null : new Xnode(child);
   }
 
   /**
@@ -282,8 +302,45 @@ public class Xnode {
    * @return Last child or null if no child exists.
    */
   public Xnode lastChild() {
-    List<Xnode> children = this.children();
-    return children.isEmpty() ? null : children.get(children.size() - 1);
+    Element child = _baseElement == null ? null :
+        previousElement(_baseElement.getLastChild());
+    return child == null ? null : new Xnode(child);
+  }
+
+  /**
+   * Get the first element starting from the given node and following its
+   * siblings.
+   *
+   * @param node Node to start from. Can be null.
+   * @return The node itself if it is an element, otherwise its first next
+   * sibling that is an element. Null if there is none.
+   */
+  private static Element firstElement(Node node) {
+    Node n = node;
+    while(n != null && n.getNodeType() != Node.ELEMENT_NODE) {
+      n = n.getNextSibling();
+    }
+    return (Element) n;
+  }
+
+  /**
+   * Get the first element starting from the given node and following its
+   * previous siblings.
+   *
+   * @param node Node to start from. Can be null.
+   * @return The node itself if it is an element, otherwise its first previous
+   * sibling that is an element. Null if there is none.
+   */
+  private static Element previousElement(Node node) {
+    Node n = node;
+    while(n != null && n.getNodeType() != Node.ELEMENT_NODE) {
+      n = n.getPreviousSibling();
+    }
+    return (Element) n;
+  }
+
+  private static Element nextElement(Element element) {
+    return firstElement(element.getNextSibling());
   }
 
   /**
@@ -443,17 +500,8 @@ public class Xnode {
    * @return Next sibling node.
    */
   public Xnode nextSibling() {
-    if(_baseElement == null) {
-      return null;
-    }
-    Node n = _baseElement.getNextSibling();
-    while(n != null) {
-      if(n.getNodeType() == Node.ELEMENT_NODE) {
-        return new Xnode((Element) n);
-      }
-      n = n.getNextSibling();
-    }
-    return null;
+    Element sibling = _baseElement == null ? null : nextElement(_baseElement);
+    return sibling == null ? null : new Xnode(sibling);
   }
 
   /**
@@ -480,17 +528,9 @@ public class Xnode {
    * @return Previous sibling node.
    */
   public Xnode prevSibling() {
-    if(_baseElement == null) {
-      return null;
-    }
-    Node n = _baseElement.getPreviousSibling();
-    while(n != null) {
-      if(n.getNodeType() == Node.ELEMENT_NODE) {
-        return new Xnode((Element) n);
-      }
-      n = n.getPreviousSibling();
-    }
-    return null;
+    Element sibling = _baseElement == null ? null :
+        previousElement(_baseElement.getPreviousSibling());
+    return sibling == null ? null : new Xnode(sibling);
   }
 
   /**
@@ -528,6 +568,12 @@ public class Xnode {
    * @return The matched node. Null if nothing matched.
    */
   public Xnode matchAncestor(Xcode opcode) {
+    if(_baseElement != null && XnodeStructure.tracks(opcode)
+        && XnodeStructure.isEnabled(_baseElement))
+    {
+      Element ancestor = XnodeStructure.of(_baseElement).ancestor(opcode);
+      return ancestor == null ? null : new Xnode(ancestor);
+    }
     return universalMatch(opcode, false);
   }
 
@@ -561,6 +607,25 @@ public class Xnode {
    */
   public List<Xnode> matchAllAncestor(Xcode opcode, Xcode stopCode) {
     List<Xnode> statements = new ArrayList<>();
+    if(_baseElement != null && XnodeStructure.tracks(opcode)
+        && (stopCode == null || XnodeStructure.tracks(stopCode))
+        && XnodeStructure.isEnabled(_baseElement))
+    {
+      // Follow the chain of cached ancestors down to the stop node depth
+      XnodeStructure.Entry entry = XnodeStructure.of(_baseElement);
+      Element stop = stopCode == null ? null : entry.ancestor(stopCode);
+      int stopDepth = stop == null ? 0 : XnodeStructure.of(stop).depth();
+      Element ancestor = entry.ancestor(opcode);
+      while(ancestor != null) {
+        XnodeStructure.Entry ancestorEntry = XnodeStructure.of(ancestor);
+        if(ancestorEntry.depth() < stopDepth) {
+          break;
+        }
+        statements.add(new Xnode(ancestor));
+        ancestor = ancestorEntry.ancestor(opcode);
+      }
+      return statements;
+    }
     Xnode crt = this;
     while(crt != null && crt.ancestor() != null) {
       if(crt.ancestor().opcode() == opcode) {
@@ -586,6 +651,12 @@ public class Xnode {
     if(_baseElement == null) {
       return null;
     }
+    XnodeIndex index = XnodeIndex.of(_baseElement);
+    List<Element> indexed =
+        index == null ? null : index.matchAll(_baseElement, opcode);
+    if(indexed != null) {
+      return indexed.isEmpty() ? null : new Xnode(indexed.get(0));
+    }
     NodeList elements = _baseElement.getElementsByTagName(opcode.code());
     if(elements.getLength() == 0) {
       return null;
@@ -601,7 +672,17 @@ public class Xnode {
    * @return The matched node. Null if nothing matched.
    */
   public Xnode matchDirectDescendant(Xcode opcode) {
-    return matchDirectDescendant(Collections.singletonList(opcode));
+    if(_baseElement == null) {
+      return null;
+    }
+    for(Element child = firstElement(_baseElement.getFirstChild());
+        child != null; child = nextElement(child))
+    {
+      if(Xcode.fromTag(child.getTagName()) == opcode) {
+        return new Xnode(child);
+      }
+    }
+    return null;
   }
 
   /**
@@ -612,10 +693,14 @@ public class Xnode {
    * @return The matched node. Null if no node found.
    */
   public Xnode matchDirectDescendant(List<Xcode> opcodes) {
-    List<Xnode> children = children();
-    for(Xnode child : children) {
-      if(opcodes.contains(child.opcode())) {
-        return child;
+    if(_baseElement == null) {
+      return null;
+    }
+    for(Element child = firstElement(_baseElement.getFirstChild());
+        child != null; child = nextElement(child))
+    {
+      if(opcodes.contains(Xcode.fromTag(child.getTagName()))) {
+        return new Xnode(child);
       }
     }
     return null;
@@ -649,6 +734,16 @@ public class Xnode {
     if(_baseElement == null) {
       return nodes;
     }
+    // Range lookup when the document is indexed
+    XnodeIndex index = XnodeIndex.of(_baseElement);
+    List<Element> indexed =
+        index == null ? null : index.matchAll(_baseElement, opcode);
+    if(indexed != null) {
+      for(Element element : indexed) {
+        nodes.add(new Xnode(element));
+      }
+      return nodes;
+    }
     NodeList rawNodes = _baseElement.getElementsByTagName(opcode.code());
     for(int i = 0; i < rawNodes.getLength(); i++) {
       Node n = rawNodes.item(i);
@@ -697,6 +792,9 @@ public class Xnode {
       return Xnode.UNDEF_DEPTH;
     }
 
+    if(XnodeStructure.isEnabled(_baseElement)) {
+      return XnodeStructure.of(_baseElement).depth();
+    }
     Node parent = _baseElement.getParentNode();
     int depth = 0;
     while(parent != null && parent.getNodeType() == Node.ELEMENT_NODE) {
@@ -834,17 +932,43 @@ public class Xnode {
    * otherwise.
    */
   public boolean isNestedIn(Xnode ancestor) {
-    if(ancestor == null || element() == null) {
+    if(ancestor == null || element() == null || ancestor.element() == null) {
       return false;
     }
-    Node possibleAncestor = element().getParentNode();
-    while(possibleAncestor != null) {
-      if(possibleAncestor == ancestor.element()) {
-        return true;
+    if(!XnodeStructure.isEnabled(element())) {
+      Node possibleAncestor = element().getParentNode();
+      while(possibleAncestor != null) {
+        if(possibleAncestor == ancestor.element()) {
+          return true;
+        }
+        possibleAncestor = possibleAncestor.getParentNode();
+      }
+      return false;
+    }
+    if(XnodeStructure.tracks(ancestor.opcode())) {
+      // Follow the chain of cached ancestors of the same kind
+      Element possibleAncestor =
+          XnodeStructure.of(element()).ancestor(ancestor.opcode());
+      while(possibleAncestor != null) {
+        if(possibleAncestor == ancestor.element()) {
+          return true;
+        }
+        possibleAncestor =
+            XnodeStructure.of(possibleAncestor).ancestor(ancestor.opcode());
       }
+      return false;
+    }
+    // The ancestor can only be the one at the depth difference
+    int distance = XnodeStructure.of(element()).depth()
+        - XnodeStructure.of(ancestor.element()).depth();
+    if(distance <= 0) {
+      return false;
+    }
+    Node possibleAncestor = element();
+    for(int i = 0; i < distance; ++i) {
       possibleAncestor = possibleAncestor.getParentNode();
     }
-    return false;
+    return possibleAncestor == ancestor.element();
   }
 
   /**
@@ -962,8 +1086,8 @@ public class Xnode {
   private String constructBinaryExprRepresentation(boolean withNamedValue,
                                                    boolean nameOnly)
   {
-    Xnode child0 = child(0);
-    Xnode child1 = child(1);
+    Xnode child0 = firstChild();
+    Xnode child1 = child0 == null ? null : child0.nextSibling();
     return ((child0 != null) ?
         child0.constructRepresentation(withNamedValue, nameOnly) : "") +
         getBinaryOpRepresentation()
@@ -1029,8 +1153,8 @@ public class Xnode {
     if(getBooleanAttribute(Xattr.IS_ASSUMED_SHAPE)) {
       return ":";
     }
-    Xnode child0 = child(0);
-    Xnode child1 = child(1);
+    Xnode child0 = firstChild();
+    Xnode child1 = child0 == null ? null : child0.nextSibling();
     return ((child0 != null) ?
         child0.constructRepresentation(withNamedValue, nameOnly) : "") + ":" +
         ((child1 != null) ?
@@ -1064,21 +1188,24 @@ public class Xnode {
   private String constructArrayRefRepresentation(boolean withNamedValue,
                                                  boolean nameOnly)
   {
-    List<Xnode> childs = children();
-    if(childs.size() == 1) {
-      return childs.get(0).constructRepresentation(withNamedValue, nameOnly);
+    Xnode child = firstChild();
+    if(child == null) {
+      return "";
+    }
+    Xnode next = child.nextSibling();
+    if(next == null) {
+      return child.constructRepresentation(withNamedValue, nameOnly);
     } else {
       StringBuilder str = new StringBuilder();
-      str.append(childs.get(0).constructRepresentation(withNamedValue,
-          nameOnly));
+      str.append(child.constructRepresentation(withNamedValue, nameOnly));
       if(nameOnly) {
         return str.toString();
       }
       str.append("(");
-      for(int i = 1; i < childs.size(); ++i) {
-        str.append(childs.get(i).constructRepresentation(withNamedValue,
-            nameOnly));
-        if(i != childs.size() - 1) {
+      for(child = next; child != null; child = next) {
+        str.append(child.constructRepresentation(withNamedValue, nameOnly));
+        next = child.nextSibling();
+        if(next != null) {
           str.append(",");
         }
       }
@@ -0,0 +1,218 @@
+/*
+ * This file is released under terms of BSD license
+ * See LICENSE file for more information
+ */
+package claw.tatsu.xcodeml.xnode.common;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.events.Event;
+import org.w3c.dom.events.EventListener;
+import org.w3c.dom.events.EventTarget;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Index of the elements of a document by opcode. Each opcode maps to its
+ * elements attached to the document in document order. As a subtree is a
+ * contiguous range in document order, the elements of a subtree are found by
+ * a binary search instead of a walk of the subtree.
+ *
+ * The index listens to the DOM mutation events of the document so every
+ * insertion or removal, through Xnode or directly on the DOM, is reflected.
+ * Elements in detached subtrees are not indexed until the subtree is inserted
+ * in the document.
+ *
+ * The other caches listening to the mutations of the document are only used
+ * while the document is indexed and are detached with the index.
+ *
+ * @author clementval
+ */
+final class XnodeIndex implements EventListener {
+
+  private static final String USER_DATA_KEY = "claw.XnodeIndex";
+  private static final String NODE_INSERTED = "DOMNodeInserted";
+  private static final String NODE_REMOVED = "DOMNodeRemoved";
+
+  private final Document _document;
+  private final Map<Xcode, ElementSet> _entries = new EnumMap<>(Xcode.class);
+  // Detach the caches depending on the index
+  private final List<Runnable> _dependents = new ArrayList<>();
+
+  private XnodeIndex(Document document) {
+    _document = document;
+  }
+
+  /**
+   * Attach a new index to the document. Does nothing if the document is
+   * already indexed.
+   *
+   * @param document Document to be indexed.
+   * @return True if the document is indexed. False if the DOM implementation
+   * does not support mutation events.
+   */
+  static boolean attach(Document document) {
+    if(document == null || !(document instanceof EventTarget)) {
+      return false;
+    }
+    if(of(document) != null) {
+      return true;
+    }
+    XnodeIndex index = new XnodeIndex(document);
+    index.add(document.getDocumentElement());
+    EventTarget target = (EventTarget) document;
+    target.addEventListener(NODE_INSERTED, index, true);
+    target.addEventListener(NODE_REMOVED, index, true);
+    document.setUserData(USER_DATA_KEY, index, null);
+    return true;
+  }
+
+  /**
+   * Detach the index of the document if any.
+   *
+   * @param document Indexed document.
+   */
+  static void detach(Document document) {
+    XnodeIndex index = of(document);
+    if(index != null) {
+      EventTarget target = (EventTarget) document;
+      target.removeEventListener(NODE_INSERTED, index, true);
+      target.removeEventListener(NODE_REMOVED, index, true);
+      document.setUserData(USER_DATA_KEY, null, null);
+      for(Runnable dependent : index._dependents) {
+        dependent.run();
+      }
+    }
+  }
+
+  /**
+   * Register a cache to be detached with the index.
+   *
+   * @param detach Action detaching the cache.
+   */
+  void addDependent(Runnable detach) {
+    _dependents.add(detach);
+  }
+
+  /**
+   * Get the index of a document.
+   *
+   * @param document Document.
+   * @return Index attached to the document. Null if not indexed.
+   */
+  static XnodeIndex of(Document document) {
+    return document == null ? null :
+        (XnodeIndex) document.getUserData(USER_DATA_KEY);
+  }
+
+  /**
+   * Get the index of the document owning an element.
+   *
+   * @param element Element.
+   * @return Index attached to the owner document. Null if not indexed.
+   */
+  static XnodeIndex of(Element element) {
+    return element == null ? null : of(element.getOwnerDocument());
+  }
+
+  @Override
+  public void handleEvent(Event event) {
+    if(!(event.getTarget() instanceof Element)) {
+      return;
+    }
+    Element element = (Element) event.getTarget();
+    if(NODE_INSERTED.equals(event.getType())) {
+      add(element);
+    } else if(NODE_REMOVED.equals(event.getType())) {
+      remove(element);
+    }
+  }
+
+  /**
+   * Get the elements with the given opcode in the subtree of an element. The
+   * element itself is not part of the result.
+   *
+   * @param root   Root of the subtree.
+   * @param opcode Opcode of the elements.
+   * @return Elements in document order. Null if the root is not attached to
+   * the indexed document.
+   */
+  List<Element> matchAll(Element root, Xcode opcode) {
+    if(!isAttached(root)) {
+      return null;
+    }
+    ElementSet elements = _entries.get(opcode);
+    if(elements == null) {
+      return Collections.emptyList();
+    }
+    if(root == _document.getDocumentElement()) {
+      List<Element> ordered = elements.ordered();
+      int start = !ordered.isEmpty() && ordered.get(0) == root ? 1 : 0;
+      return ordered.subList(start, ordered.size());
+    }
+    return elements.inSubtree(root);
+  }
+
+  /**
+   * Get the number of indexed elements with the given opcode.
+   *
+   * @param opcode Opcode of the elements.
+   * @return Number of elements attached to the document.
+   */
+  int count(Xcode opcode) {
+    ElementSet elements = _entries.get(opcode);
+    return elements == null ? 0 : elements.size();
+  }
+
+  /**
+   * Index an element attached to the document and its subtree.
+   *
+   * @param root Root of the inserted subtree.
+   */
+  private void add(Element root) {
+    Node n = root;
+    while(n != null) {
+      if(n.getNodeType() == Node.ELEMENT_NODE) {
+        Element element = (Element) n;
+        _entries.computeIfAbsent(Xcode.fromTag(element.getTagName()),
+            k -> new ElementSet()).add(element);
+      }
+      n = ElementSet.nextInSubtree(n, root);
+    }
+  }
+
+  /**
+   * Remove an element and its subtree from the index.
+   *
+   * @param root Root of the removed subtree.
+   */
+  private void remove(Element root) {
+    Node n = root;
+    while(n != null) {
+      if(n.getNodeType() == Node.ELEMENT_NODE) {
+        ElementSet elements =
+            _entries.get(Xcode.fromTag(((Element) n).getTagName()));
+        if(elements != null) {
+          elements.remove((Element) n);
+        }
+      }
+      n = ElementSet.nextInSubtree(n, root);
+    }
+  }
+
+  /**
+   * Check whether an element is part of the indexed document tree.
+   *
+   * @param element Element.
+   * @return True if the element is reachable from the document.
+   */
+  private boolean isAttached(Element element) {
+    return element.getOwnerDocument() == _document
+        && ElementSet.isAncestor(_document, element);
+  }
+}
@@ -0,0 +1,212 @@
+/*
+ * This file is released under terms of BSD license
+ * See LICENSE file for more information
+ */
+package claw.tatsu.xcodeml.xnode.common;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.events.Event;
+import org.w3c.dom.events.EventListener;
+import org.w3c.dom.events.EventTarget;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Cache of the structural information of the elements of a document: depth
+ * and closest enclosing function definition, module definition and do
+ * statement. The information of an element is computed from the one of its
+ * parent so a query climbs only up to the closest cached ancestor.
+ *
+ * The cache is only used when the node index of the document is enabled.
+ * It is attached to the document on the first query and listens to its DOM
+ * mutation events. Any insertion or removal drops the whole cache, which is
+ * rebuilt lazily by the next queries. The cache is detached with the node
+ * index. Elements in detached subtrees are computed on every query and never
+ * cached as their mutations are not reported.
+ *
+ * @author clementval
+ */
+final class XnodeStructure implements EventListener {
+
+  private static final String USER_DATA_KEY = "claw.XnodeStructure";
+  private static final String NODE_INSERTED = "DOMNodeInserted";
+  private static final String NODE_REMOVED = "DOMNodeRemoved";
+  private static final Entry ROOT = new Entry(0, null, null, null);
+
+  private Map<Node, Entry> _entries = new HashMap<>();
+
+  /**
+   * Structural information of an element.
+   */
+  static final class Entry {
+
+    private final int _depth;
+    private final Element _function;
+    private final Element _module;
+    private final Element _doStatement;
+
+    private Entry(int depth, Element function, Element module,
+                  Element doStatement)
+    {
+      _depth = depth;
+      _function = function;
+      _module = module;
+      _doStatement = doStatement;
+    }
+
+    /**
+     * Get the depth of the element. Same as Xnode.depth().
+     *
+     * @return Number of element ancestors.
+     */
+    int depth() {
+      return _depth;
+    }
+
+    /**
+     * Get the closest ancestor with the given opcode.
+     *
+     * @param opcode One of the tracked opcodes.
+     * @return Closest ancestor. Null if there is none.
+     */
+    Element ancestor(Xcode opcode) {
+      switch(opcode) {
+        case F_FUNCTION_DEFINITION:
+          return _function;
+        case F_MODULE_DEFINITION:
+          return _module;
+        case F_DO_STATEMENT:
+          return _doStatement;
+        default:
+          throw new IllegalArgumentException(opcode + " is not tracked");
+      }
+    }
+
+    /**
+     * Create the entry of an element from the one of its parent element.
+     *
+     * @param parent Parent element.
+     * @return Entry of the child elements of parent.
+     */
+    private Entry child(Element parent) {
+      switch(Xcode.fromTag(parent.getTagName())) {
+        case F_FUNCTION_DEFINITION:
+          return new Entry(_depth + 1, parent, _module, _doStatement);
+        case F_MODULE_DEFINITION:
+          return new Entry(_depth + 1, _function, parent, _doStatement);
+        case F_DO_STATEMENT:
+          return new Entry(_depth + 1, _function, _module, parent);
+        default:
+          return new Entry(_depth + 1, _function, _module, _doStatement);
+      }
+    }
+  }
+
+  /**
+   * Check whether the closest ancestor with the given opcode is cached.
+   *
+   * @param opcode Opcode.
+   * @return True for function definitions, module definitions and do
+   * statements.
+   */
+  static boolean tracks(Xcode opcode) {
+    return opcode == Xcode.F_FUNCTION_DEFINITION
+        || opcode == Xcode.F_MODULE_DEFINITION
+        || opcode == Xcode.F_DO_STATEMENT;
+  }
+
+  /**
+   * Check whether the structural information of the elements of a document
+   * is cached.
+   *
+   * @param element Element of the document.
+   * @return True if the node index of the document is enabled.
+   */
+  static boolean isEnabled(Element element) {
+    return XnodeIndex.of(element) != null;
+  }
+
+  /**
+   * Get the structural information of an element.
+   *
+   * @param element Element.
+   * @return Entry of the element.
+   */
+  static Entry of(Element element) {
+    XnodeStructure cache = cacheOf(element.getOwnerDocument());
+    // Climb up to the closest cached ancestor or to the top of the tree
+    Deque<Element> path = new ArrayDeque<>();
+    Entry entry = null;
+    Node crt = element;
+    while(crt != null && crt.getNodeType() == Node.ELEMENT_NODE) {
+      entry = cache == null ? null : cache._entries.get(crt);
+      if(entry != null) {
+        break;
+      }
+      path.push((Element) crt);
+      crt = crt.getParentNode();
+    }
+    boolean cached = cache != null && (entry != null
+        || crt != null && crt.getNodeType() == Node.DOCUMENT_NODE);
+    if(entry == null) {
+      Element top = path.pop();
+      entry = ROOT;
+      if(cached) {
+        cache._entries.put(top, entry);
+      }
+      crt = top;
+    }
+    // Compute the entries down to the element
+    while(!path.isEmpty()) {
+      Element child = path.pop();
+      entry = entry.child((Element) crt);
+      if(cached) {
+        cache._entries.put(child, entry);
+      }
+      crt = child;
+    }
+    return entry;
+  }
+
+  @Override
+  public void handleEvent(Event event) {
+    if(!_entries.isEmpty()) {
+      _entries = new HashMap<>();
+    }
+  }
+
+  /**
+   * Get the cache of a document. The cache is attached on the first call.
+   *
+   * @param document Document.
+   * @return Cache of the document. Null if the node index of the document is
+   * not enabled.
+   */
+  private static XnodeStructure cacheOf(Document document) {
+    XnodeIndex index = XnodeIndex.of(document);
+    if(index == null) {
+      return null;
+    }
+    XnodeStructure cache =
+        (XnodeStructure) document.getUserData(USER_DATA_KEY);
+    if(cache == null) {
+      cache = new XnodeStructure();
+      EventTarget target = (EventTarget) document;
+      target.addEventListener(NODE_INSERTED, cache, true);
+      target.addEventListener(NODE_REMOVED, cache, true);
+      document.setUserData(USER_DATA_KEY, cache, null);
+      XnodeStructure attached = cache;
+      index.addDependent(() -> {
+        target.removeEventListener(NODE_INSERTED, attached, true);
+        target.removeEventListener(NODE_REMOVED, attached, true);
+        document.setUserData(USER_DATA_KEY, null, null);
+      });
+    }
+    return cache;
+  }
+}
@@ -42,6 +42,14 @@ public class XtypeTable extends Xnode {
     readTable();
   }
 
+  /**
+   * Read the type table again from the document.
+   */
+  void reload() {
+    _table.clear();
+    readTable();
+  }
+
   /**
    * Read the type table.
    */
@@ -4,6 +4,7 @@
  */
 package claw.tatsu.xcodeml.xnode.fortran;
 
+import claw.tatsu.common.Context;
 import claw.tatsu.primitive.Body;
 import claw.tatsu.primitive.Loop;
 import claw.tatsu.primitive.Xmod;
@@ -110,15 +111,16 @@ public class FfunctionDefinition extends Xnode {
   /**
    * Find module containing the function and read its .xmod file.
    *
+   * @param context Current context.
    * @return FortranModule object if the module has been found and read.
    * Null otherwise.
    */
-  public FortranModule findContainingXmod() {
+  public FortranModule findContainingXmod(Context context) {
     FmoduleDefinition mod = findParentModule();
     if(mod == null) {
       return null;
     }
-    return Xmod.find(mod.getAttribute(Xattr.NAME));
+    return Xmod.find(context, mod.getAttribute(Xattr.NAME));
   }
 
   /**
@@ -177,6 +179,12 @@ public class FfunctionDefinition extends Xnode {
     if(body() == null) {
       return Collections.emptyList();
     }
+    SymbolUseIndex index = SymbolUseIndex.of(body());
+    if(index != null) {
+      return index.getDefinitions(var).stream()
+          .map(Xnode::element).map(AssignStatement::new)
+          .collect(Collectors.toList());
+    }
     return body().matchAll(Xcode.F_ASSIGN_STATEMENT).stream()
         .map(Xnode::element).map(AssignStatement::new)
         .filter(x -> x.getLhsName().equalsIgnoreCase(var))
@@ -4,6 +4,7 @@
  */
 package claw.tatsu.xcodeml.xnode.fortran;
 
+import claw.tatsu.common.Context;
 import claw.tatsu.primitive.Xmod;
 import claw.tatsu.xcodeml.abstraction.FunctionCall;
 import claw.tatsu.xcodeml.xnode.common.*;
@@ -26,6 +27,8 @@ public class FortranModule extends XcodeML {
   private final String _name;
 
   private final XsymbolTable _identifiers;
+  private boolean _dirty = false;
+  private long _modifications = 0;
 
   /**
    * Constructs a basic FortranModule object representing the XcodeML module
@@ -63,10 +66,47 @@ public class FortranModule extends XcodeML {
   /**
    * Get the full path of the module file.
    *
+   * @param context Current context.
    * @return Xmod file full path.
    */
-  public String getFullPath() {
-    return _path + _name + Xmod.getSuffix();
+  public String getFullPath(Context context) {
+    return _path + _name + Xmod.getSuffix(context);
+  }
+
+  /**
+   * Check whether the module has been modified since it was read or written.
+   *
+   * @return True if the module must be written back.
+   */
+  public boolean isDirty() {
+    return _dirty;
+  }
+
+  /**
+   * Set whether the module has been modified since it was read or written.
+   *
+   * @param dirty True if the module must be written back.
+   */
+  public void setDirty(boolean dirty) {
+    _dirty = dirty;
+    if(dirty) {
+      ++_modifications;
+    }
+  }
+
+  /**
+   * Get the number of times the module was marked as modified.
+   *
+   * @return Modification counter of the module.
+   */
+  public long getModificationCount() {
+    return _modifications;
+  }
+
+  @Override
+  public void importType(XcodeML src, String typeId) {
+    setDirty(true);
+    super.importType(src, typeId);
   }
 
   /**
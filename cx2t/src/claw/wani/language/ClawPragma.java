@@ -542,15 +542,19 @@ public class ClawPragma extends AnalyzedPragma {
    * Get the correct layout for a specific field if one is defined. Default
    * layout otherwise.
    *
+   * @param cfg    Current configuration holding the global model
+   *               configuration.
    * @param dataId Data identifier.
    * @return Layout for the given field id.
    */
-  public List<DimensionDefinition> getLayoutForData(String dataId) {
+  public List<DimensionDefinition> getLayoutForData(Configuration cfg,
+                                                    String dataId)
+  {
     if(_scaModelConfig) {
       if(getLocalModelConfig().hasLayout(dataId)) {
         return getLocalModelConfig().getLayout(dataId);
       }
-      return Configuration.get().getModelConfig().getDefaultLayout();
+      return cfg.getModelConfig().getDefaultLayout();
     } else {
       if(_localModelConfig.hasLayout(dataId)) {
         return _localModelConfig.getLayout(dataId);
@@ -562,10 +566,12 @@ public class ClawPragma extends AnalyzedPragma {
   /**
    * Return the default layout in reverse order.
    *
+   * @param cfg Current configuration holding the global model configuration.
    * @return Reversed list of dimensions from the default layout.
    */
-  public List<DimensionDefinition> getDefaultLayoutReversed() {
-    List<DimensionDefinition> tmp = new ArrayList<>(getDefaultLayout());
+  public List<DimensionDefinition> getDefaultLayoutReversed(Configuration cfg)
+  {
+    List<DimensionDefinition> tmp = new ArrayList<>(getDefaultLayout(cfg));
     Collections.reverse(tmp);
     return tmp;
   }
@@ -573,11 +579,12 @@ public class ClawPragma extends AnalyzedPragma {
   /**
    * Get the default layout dimensions from the local or global configuration.
    *
+   * @param cfg Current configuration holding the global model configuration.
    * @return List of dimensions from the default layout.
    */
-  public List<DimensionDefinition> getDefaultLayout() {
+  public List<DimensionDefinition> getDefaultLayout(Configuration cfg) {
     if(_scaModelConfig) {
-      return Configuration.get().getModelConfig().getDefaultLayout();
+      return cfg.getModelConfig().getDefaultLayout();
     } else {
       return _localModelConfig.getDefaultLayout();
     }
@@ -713,12 +720,13 @@ public class ClawPragma extends AnalyzedPragma {
    * Check if the current transformation target (defined by user) match with the
    * target defined in the clause.
    *
+   * @param context Current context.
    * @return True if the targets matches.
    */
-  public boolean isApplicableToCurrentTarget() {
+  public boolean isApplicableToCurrentTarget(Context context) {
     return _targetClauseValues == null
         || _targetClauseValues.isEmpty()
-        || _targetClauseValues.contains(Context.get().getTarget());
+        || _targetClauseValues.contains(context.getTarget());
   }
 
   /**
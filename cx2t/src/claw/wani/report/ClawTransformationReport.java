@@ -6,7 +6,6 @@ package claw.wani.report;
 
 import claw.ClawVersion;
 import claw.shenron.transformation.TransformationGroup;
-import claw.wani.x2t.configuration.Configuration;
 import claw.wani.x2t.translator.ClawTranslator;
 import claw.wani.x2t.translator.ClawTranslatorDriver;
 
@@ -100,11 +99,15 @@ public class ClawTransformationReport {
         translator.getTranslationUnit().getVersion()});
     infos.add(new String[]{"CLAW Compiler", ClawVersion.VERSION});
     infos.add(new String[]{"Target",
-        Configuration.get().getCurrentTarget().toString()});
+        translator.getConfiguration().getCurrentTarget().toString()});
     infos.add(new String[]{"Directive",
-        Configuration.get().getCurrentDirective().toString()});
+        translator.getConfiguration().getCurrentDirective().toString()});
     infos.add(new String[]{"Driver command", ""}); // TODO
     infos.add(new String[]{"Translator command", String.join(" ", args)});
+    infos.add(new String[]{"Module cache", translator.getConfiguration()
+        .context().getModuleCache().getStatistics().toString()});
+    infos.add(new String[]{"Analyses", translator.getTranslationUnit()
+        .getAnalysisManager().toString()});
 
     int indentCol = 0;
     for(String[] info : infos) {
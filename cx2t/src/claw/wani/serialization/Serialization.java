@@ -210,6 +210,7 @@ public class Serialization {
   /**
    * Create function calls to the serialization library to write a savepoint.
    *
+   * @param cfg           Current configuration.
    * @param xcodeml       Current XcodeML translation unit.
    * @param hook          Hook for node insertion.
    * @param metadata      Key=value information for metadata.
@@ -217,13 +218,14 @@ public class Serialization {
    * @param savepointName Name of the savepoint.
    * @return Last inserted node.
    */
-  public static Xnode generateWriteSavepoint(XcodeProgram xcodeml, Xnode hook,
+  public static Xnode generateWriteSavepoint(Configuration cfg,
+                                             XcodeProgram xcodeml, Xnode hook,
                                              Map<String, String> metadata,
                                              List<String> fields,
                                              String savepointName,
                                              SerializationStep step)
   {
-    return generateSavepoint(xcodeml, hook, metadata, fields,
+    return generateSavepoint(cfg, xcodeml, hook, metadata, fields,
         savepointName, step, SerializationMode.WRITE);
   }
 
@@ -231,6 +233,7 @@ public class Serialization {
    * Create function calls to the serialization library to read a
    * savepoint.
    *
+   * @param cfg           Current configuration.
    * @param xcodeml       Current XcodeML translation unit.
    * @param hook          Hook for node insertion.
    * @param metadata      Key=value information for metadata.
@@ -238,13 +241,14 @@ public class Serialization {
    * @param savepointName Name of the savepoint.
    * @return Last inserted node.
    */
-  public static Xnode generateReadSavepoint(XcodeProgram xcodeml, Xnode hook,
+  public static Xnode generateReadSavepoint(Configuration cfg,
+                                            XcodeProgram xcodeml, Xnode hook,
                                             Map<String, String> metadata,
                                             List<String> fields,
                                             String savepointName,
                                             SerializationStep step)
   {
-    return generateSavepoint(xcodeml, hook, metadata, fields,
+    return generateSavepoint(cfg, xcodeml, hook, metadata, fields,
         savepointName, step, SerializationMode.READ);
   }
 
@@ -252,6 +256,7 @@ public class Serialization {
    * Create function calls to the serialization library to write or read a
    * savepoint.
    *
+   * @param cfg           Current configuration.
    * @param xcodeml       Current XcodeML translation unit.
    * @param hook          Hook for node insertion.
    * @param metadata      Key=value information for metadata.
@@ -259,21 +264,20 @@ public class Serialization {
    * @param savepointName Name of the savepoint.
    * @return Last inserted node.
    */
-  private static Xnode generateSavepoint(XcodeProgram xcodeml, Xnode hook,
+  private static Xnode generateSavepoint(Configuration cfg,
+                                         XcodeProgram xcodeml, Xnode hook,
                                          Map<String, String> metadata,
                                          List<String> fields,
                                          String savepointName,
                                          SerializationStep step,
                                          SerializationMode mode)
   {
-    if(!Configuration.get().
-        getBooleanParameter(Configuration.SCA_SERIALIZATION_ENABLED))
-    {
+    if(!cfg.getBooleanParameter(Configuration.SCA_SERIALIZATION_ENABLED)) {
       return hook;
     }
 
-    if((Configuration.get().seriliazeRead() && mode != SerializationMode.READ)
-        || (Configuration.get().seriliazeWrite()
+    if((cfg.seriliazeRead() && mode != SerializationMode.READ)
+        || (cfg.seriliazeWrite()
         && mode != SerializationMode.WRITE))
     {
       return hook;
@@ -345,15 +349,14 @@ public class Serialization {
   /**
    * Insert the correct USE statements for using the serialization library.
    *
+   * @param cfg     Current configuration.
    * @param xcodeml Current XcodeML/F translation unit.
    * @param fctDef  Function definition.
    */
-  public static void insertImports(XcodeProgram xcodeml,
+  public static void insertImports(Configuration cfg, XcodeProgram xcodeml,
                                    FfunctionDefinition fctDef)
   {
-    if(!Configuration.get().
-        getBooleanParameter(Configuration.SCA_SERIALIZATION_ENABLED))
-    {
+    if(!cfg.getBooleanParameter(Configuration.SCA_SERIALIZATION_ENABLED)) {
       return;
     }
     fctDef.getDeclarationTable().insertUseDecl(xcodeml, SER_MODULE_M_SERIALIZE);
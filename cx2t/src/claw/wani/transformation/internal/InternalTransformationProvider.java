@@ -0,0 +1,25 @@
+/*
+ * This file is released under terms of BSD license
+ * See LICENSE file for more information
+ */
+package claw.wani.transformation.internal;
+
+import claw.wani.x2t.configuration.TransformationFactory;
+import claw.wani.x2t.configuration.TransformationProvider;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Provider of the factories of the internal transformation set.
+ *
+ * @author clementval
+ */
+public class InternalTransformationProvider implements TransformationProvider {
+
+  @Override
+  public Map<String, TransformationFactory> getFactories() {
+    return Collections.singletonMap(OpenAccContinuation.class.getName(),
+        OpenAccContinuation::new);
+  }
+}
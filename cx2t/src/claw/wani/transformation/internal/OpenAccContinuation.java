@@ -6,14 +6,18 @@ package claw.wani.transformation.internal;
 
 import claw.shenron.transformation.Transformation;
 import claw.shenron.translator.Translator;
+import claw.tatsu.analysis.AnalysisManager;
 import claw.tatsu.common.CompilerDirective;
-import claw.tatsu.common.Context;
 import claw.tatsu.primitive.Pragma;
 import claw.tatsu.xcodeml.exception.IllegalTransformationException;
 import claw.tatsu.xcodeml.xnode.common.XcodeProgram;
 import claw.wani.language.ClawPragma;
 import claw.wani.transformation.ClawTransformation;
 
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
 /**
  * <pre>
  * OpenACC line continuation transformation. The XcodeML/F pragma statement
@@ -90,10 +94,12 @@ public class OpenAccContinuation extends ClawTransformation {
                         Transformation transformation)
       throws IllegalTransformationException
   {
-    if(Pragma.fromClawPrimitive(getDirective().getPragma())) {
+    if(Pragma.fromClawPrimitive(xcodeml.context(),
+        getDirective().getPragma()))
+    {
       Pragma.splitByCont(getDirective().getPragma(),
           CompilerDirective.OPENACC.getPrefix(), xcodeml);
-    } else if(Context.get().getMaxColumns() > 0
+    } else if(xcodeml.context().getMaxColumns() > 0
         && !getDirective().getPragma().isDeleted())
     {
       Pragma.splitByLength(getDirective().getPragma(), xcodeml,
@@ -105,4 +111,15 @@ public class OpenAccContinuation extends ClawTransformation {
   public boolean abortOnFailedAnalysis() {
     return false;
   }
+
+  /**
+   * @return Analyses of the declarations and loops are not affected by the
+   * split of a pragma.
+   * @see Transformation#preservedAnalyses()
+   */
+  @Override
+  public Set<AnalysisManager.Kind<?, ?>> preservedAnalyses() {
+    return new HashSet<>(Arrays.asList(AnalysisManager.INDUCTION_VARIABLES,
+        AnalysisManager.LOCAL_ARRAYS));
+  }
 }
@@ -6,7 +6,6 @@ package claw.wani.transformation.ll.loop;
 
 import claw.shenron.transformation.Transformation;
 import claw.shenron.translator.Translator;
-import claw.tatsu.common.Context;
 import claw.tatsu.common.Target;
 import claw.tatsu.directive.common.DataMovement;
 import claw.tatsu.directive.common.Directive;
@@ -183,7 +182,7 @@ public class ExpandNotation extends ClawBlockTransformation {
     Xblock doStmtsBlock = null;
     Xblock dataRegionBlock = null;
 
-    if(Context.isTarget(Target.GPU)) {
+    if(xcodeml.context().isTarget(Target.GPU)) {
       Xblock crtBlock;
       for(int i = 0; i < _groupedAssignStmts.size(); ++i) {
         crtBlock = generateDoStmtNotation(xcodeml, ct, fctDef,
@@ -213,11 +212,11 @@ public class ExpandNotation extends ClawBlockTransformation {
             _groupedAssignStmts.size());
 
         if(_clawStart.hasClause(ClawClause.UPDATE)
-            && Configuration.get()
+            && ct.cfg()
             .getBooleanParameter(Configuration.SCA_FORWARD_UPDATE_ENABLED))
         {
-          updateRegionBlock = generateUpdateClause(xcodeml, parallelRegionBlock,
-              readArrays, writtenArrays);
+          updateRegionBlock = generateUpdateClause(ct.cfg(), xcodeml,
+              parallelRegionBlock, readArrays, writtenArrays);
         }
 
         if(updateRegionBlock == null) {
@@ -236,13 +235,14 @@ public class ExpandNotation extends ClawBlockTransformation {
       }
     }
 
-    if(_clawStart.hasClause(ClawClause.SAVEPOINT) && Configuration.get().
+    if(_clawStart.hasClause(ClawClause.SAVEPOINT) && ct.cfg().
         getBooleanParameter(Configuration.SCA_SERIALIZATION_ENABLED))
     {
       if(dataRegionBlock == null) {
         dataRegionBlock = doStmtsBlock;
       }
-      generateSavepoint(xcodeml, dataRegionBlock, readArrays, writtenArrays);
+      generateSavepoint(ct.cfg(), xcodeml, dataRegionBlock, readArrays,
+          writtenArrays);
     }
 
     removePragma();
@@ -368,11 +368,12 @@ public class ExpandNotation extends ClawBlockTransformation {
    * Generate update device/host directives to manage data before and after the
    * expand block.
    *
+   * @param cfg     Current configuration.
    * @param xcodeml Current XcodeML translation unit.
    * @param hook    Block around which directives are generated
    */
-  private Xblock generateUpdateClause(XcodeProgram xcodeml, Xblock hook,
-                                      List<String> readArrays,
+  private Xblock generateUpdateClause(Configuration cfg, XcodeProgram xcodeml,
+                                      Xblock hook, List<String> readArrays,
                                       List<String> writtenArrays)
   {
     Xnode startNode;
@@ -381,7 +382,7 @@ public class ExpandNotation extends ClawBlockTransformation {
     // Generate host to device movement
     if((_clawStart.getUpdateClauseValue() == DataMovement.TWO_WAY
         || _clawStart.getUpdateClauseValue() == DataMovement.HOST_TO_DEVICE)
-        && Configuration.get().updateAtInput())
+        && cfg.updateAtInput())
     {
       startNode = Directive.generateUpdate(xcodeml, hook.getStart(), readArrays,
           DataMovement.HOST_TO_DEVICE);
@@ -392,7 +393,7 @@ public class ExpandNotation extends ClawBlockTransformation {
     // Generate device to host movement
     if((_clawStart.getUpdateClauseValue() == DataMovement.TWO_WAY
         || _clawStart.getUpdateClauseValue() == DataMovement.DEVICE_TO_HOST)
-        && Configuration.get().updateAtOutput())
+        && cfg.updateAtOutput())
     {
       endNode = Directive.generateUpdate(xcodeml, hook.getEnd(), writtenArrays,
           DataMovement.DEVICE_TO_HOST);
@@ -405,32 +406,34 @@ public class ExpandNotation extends ClawBlockTransformation {
   /**
    * Generate serialization savepoints before and after the expand block.
    *
+   * @param cfg     Current configuration.
    * @param xcodeml Current XcodeML translation unit.
    * @param hook    Block around which serialization are generated
    */
-  private Xblock generateSavepoint(XcodeProgram xcodeml, Xblock hook,
-                                   List<String> readArrays,
+  private Xblock generateSavepoint(Configuration cfg, XcodeProgram xcodeml,
+                                   Xblock hook, List<String> readArrays,
                                    List<String> writtenArrays)
   {
-    Serialization.insertImports(xcodeml, hook.getStart().findParentFunction());
+    Serialization.insertImports(cfg, xcodeml,
+        hook.getStart().findParentFunction());
 
     Xnode start = null;
     Xnode end;
 
-    if(Context.isTarget(Target.GPU)) {
+    if(xcodeml.context().isTarget(Target.GPU)) {
       // Read inputs
-      start = Serialization.generateReadSavepoint(xcodeml, hook.getStart(),
+      start = Serialization.generateReadSavepoint(cfg, xcodeml, hook.getStart(),
           _clawStart.getMetadataMap(), readArrays,
           _clawStart.value(ClawClause.SAVEPOINT), SerializationStep.SER_IN);
-    } else if(Context.isTarget(Target.CPU)) {
+    } else if(xcodeml.context().isTarget(Target.CPU)) {
       // Write inputs
-      start = Serialization.generateWriteSavepoint(xcodeml, hook.getStart(),
-          _clawStart.getMetadataMap(), readArrays,
+      start = Serialization.generateWriteSavepoint(cfg, xcodeml,
+          hook.getStart(), _clawStart.getMetadataMap(), readArrays,
           _clawStart.value(ClawClause.SAVEPOINT), SerializationStep.SER_IN);
     }
 
     // Write outputs
-    end = Serialization.generateWriteSavepoint(xcodeml, hook.getEnd(),
+    end = Serialization.generateWriteSavepoint(cfg, xcodeml, hook.getEnd(),
         _clawStart.getMetadataMap(), writtenArrays,
         _clawStart.value(ClawClause.SAVEPOINT), SerializationStep.SER_OUT);
 
@@ -143,6 +143,21 @@ public class LoopFusion extends ClawTransformation {
     other.transformed();
   }
 
+  /**
+   * Loop fusion units can only be merged within the same group and the same
+   * function definition.
+   *
+   * @return Group clause label and enclosing function definition.
+   */
+  @Override
+  public Object getGroupingKey() {
+    if(_doStmt == null) {
+      return null;
+    }
+    return Arrays.asList(_groupClauseLabel,
+        _doStmt.getOuterStatement().matchAncestor(Xcode.F_FUNCTION_DEFINITION));
+  }
+
   /**
    * Check whether the loop fusion unit can be merged with the given loop fusion
    * unit. To be able to be transformed together, the loop fusion units must
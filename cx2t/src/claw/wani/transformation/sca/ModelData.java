@@ -13,7 +13,6 @@ import claw.tatsu.xcodeml.xnode.fortran.FfunctionDefinition;
 import claw.wani.language.ClawPragma;
 import claw.wani.language.ClawClause;
 import claw.wani.transformation.ClawBlockTransformation;
-import claw.wani.x2t.configuration.Configuration;
 import claw.wani.x2t.translator.ClawTranslator;
 
 import java.util.*;
@@ -34,14 +33,14 @@ public class ModelData extends ClawBlockTransformation {
     /* Discover variable part of the model configuration and the subroutine
      * holding them */
 
-    if(!Configuration.get().getModelConfig().isLoaded()) {
+    ClawTranslator trans = (ClawTranslator) translator;
+
+    if(!trans.cfg().getModelConfig().isLoaded()) {
       xcodeml.addError(
           "SCA model-data directive requires model configuration!",
           _clawStart.getPragma());
     }
 
-    ClawTranslator trans = (ClawTranslator) translator;
-
     // Locate the subroutine/function in which the directive is defined
     FfunctionDefinition sub = getDirective().getPragma().findParentFunction();
 
@@ -6,6 +6,7 @@ package claw.wani.transformation.sca;
 
 import claw.shenron.transformation.Transformation;
 import claw.shenron.translator.Translator;
+import claw.tatsu.analysis.AnalysisManager;
 import claw.tatsu.common.*;
 import claw.tatsu.primitive.*;
 import claw.tatsu.xcodeml.abstraction.DimensionDefinition;
@@ -135,21 +136,25 @@ public class Sca extends ClawTransformation {
 
   /**
    * Populate list of induction variables used in the function/subroutine body.
+   *
+   * @param xcodeml Current translation unit.
    */
-  void detectInductionVariables() {
-    _inductionVariables = _fctDef.detectInductionVariables();
+  void detectInductionVariables(XcodeProgram xcodeml) {
+    _inductionVariables = xcodeml.getAnalysisManager()
+        .get(AnalysisManager.INDUCTION_VARIABLES, _fctDef);
   }
 
   /**
    * Analyse the defined dimension.
    *
    * @param xcodeml Current XcodeML program unit to store the error message.
+   * @param cfg     Current configuration.
    * @return True if the analysis succeeded. False otherwise.
    */
-  boolean analyzeDimension(XcodeProgram xcodeml) {
+  boolean analyzeDimension(XcodeProgram xcodeml, Configuration cfg) {
     if(!_claw.hasClause(ClawClause.DIMENSION)
         && (_claw.isScaModelConfig()
-        && Configuration.get().getModelConfig().getNbDimensions() == 0))
+        && cfg.getModelConfig().getNbDimensions() == 0))
     {
       xcodeml.addError("No dimension defined for parallelization.",
           _claw.getPragma());
@@ -194,7 +199,7 @@ public class Sca extends ClawTransformation {
         _arrayFieldsInOut.add(dataInfo.getKey());
 
         String layoutName = dataInfo.getValue();
-        ModelConfig global = Configuration.get().getModelConfig();
+        ModelConfig global = trans.cfg().getModelConfig();
         ModelConfig local = _claw.getLocalModelConfig();
 
         if(layoutName != null && global.hasLayout(layoutName)) {
@@ -305,8 +310,10 @@ public class Sca extends ClawTransformation {
                         Transformation other)
       throws Exception
   {
+    Configuration cfg = ((ClawTranslator) translator).cfg();
+
     // Handle PURE function / subroutine
-    if(Configuration.get().isForcePure() && _fctType.isPure()) {
+    if(cfg.isForcePure() && _fctType.isPure()) {
       throw new IllegalTransformationException(
           "PURE specifier cannot be removed", _fctDef.lineNo());
     } else {
@@ -314,12 +321,12 @@ public class Sca extends ClawTransformation {
     }
 
     // Insert the declarations of variables to iterate over the new dimensions.
-    insertVariableToIterateOverDimension(xcodeml);
+    insertVariableToIterateOverDimension(xcodeml, cfg);
 
     // Promote all array fields with new dimensions.
-    promoteFields(xcodeml);
+    promoteFields(xcodeml, cfg);
 
-    boolean adaptedNakedArrayRef = Context.get().getTarget() == Target.GPU;
+    boolean adaptedNakedArrayRef = xcodeml.context().isTarget(Target.GPU);
 
     // Adapt array references.
     if(_claw.hasClause(ClawClause.DATA_OVER)) {
@@ -386,16 +393,17 @@ public class Sca extends ClawTransformation {
    *
    * @param xcodeml Current XcodeML program unit in which the element will be
    *                created.
+   * @param cfg     Current configuration.
    * @throws IllegalTransformationException if elements cannot be created or
    *                                        elements cannot be found.
    */
-  private void promoteFields(XcodeProgram xcodeml)
+  private void promoteFields(XcodeProgram xcodeml, Configuration cfg)
       throws IllegalTransformationException
   {
     if(_claw.hasClause(ClawClause.DATA_OVER)) {
       for(String fieldId : _claw.getDataOverClauseValues()) {
         PromotionInfo promotionInfo = new PromotionInfo(fieldId,
-            _claw.getLayoutForData(fieldId));
+            _claw.getLayoutForData(cfg, fieldId));
         Field.promote(promotionInfo, _fctDef, xcodeml);
         _promotions.put(fieldId, promotionInfo);
       }
@@ -403,7 +411,7 @@ public class Sca extends ClawTransformation {
       // Promote all arrays in a similar manner
       for(String fieldId : _arrayFieldsInOut) {
         PromotionInfo promotionInfo = new PromotionInfo(fieldId,
-            _claw.getLayoutForData(fieldId));
+            _claw.getLayoutForData(cfg, fieldId));
         if(forceAssumedShapedArrayPromotion) {
           promotionInfo.forceAssumedShape();
         }
@@ -419,14 +427,17 @@ public class Sca extends ClawTransformation {
    *
    * @param xcodeml Current XcodeML program unit in which element are
    *                created.
+   * @param cfg     Current configuration.
    */
-  private void insertVariableToIterateOverDimension(XcodeProgram xcodeml) {
+  private void insertVariableToIterateOverDimension(XcodeProgram xcodeml,
+                                                    Configuration cfg)
+  {
     // Create type and declaration for iterations over the new dimensions
     FbasicType bt = xcodeml.createBasicType(FortranType.INTEGER, Intent.IN);
     xcodeml.getTypeTable().add(bt);
 
     // For each dimension defined in the directive
-    for(DimensionDefinition dimension : _claw.getDefaultLayout()) {
+    for(DimensionDefinition dimension : _claw.getDefaultLayout(cfg)) {
       if(!forceAssumedShapedArrayPromotion) {
         // Create the parameter for the lower bound
         if(dimension.getLowerBound().isVar()) {
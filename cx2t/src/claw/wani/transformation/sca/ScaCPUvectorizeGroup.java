@@ -15,13 +15,15 @@ import claw.tatsu.xcodeml.abstraction.AssignStatement;
 import claw.tatsu.xcodeml.abstraction.NestedDoStatement;
 import claw.tatsu.xcodeml.abstraction.PromotionInfo;
 import claw.tatsu.xcodeml.exception.IllegalTransformationException;
-import claw.tatsu.xcodeml.xnode.XnodeUtil;
+import claw.tatsu.xcodeml.visitor.XnodeListener;
+import claw.tatsu.xcodeml.visitor.XnodeWalker;
 import claw.tatsu.xcodeml.xnode.common.Xcode;
 import claw.tatsu.xcodeml.xnode.common.XcodeProgram;
 import claw.tatsu.xcodeml.xnode.common.Xid;
 import claw.tatsu.xcodeml.xnode.common.Xnode;
 import claw.tatsu.xcodeml.xnode.fortran.FbasicType;
 import claw.wani.language.ClawPragma;
+import claw.wani.x2t.configuration.Configuration;
 import claw.wani.x2t.translator.ClawTranslator;
 
 import java.util.*;
@@ -38,6 +40,9 @@ public class ScaCPUvectorizeGroup extends Sca {
 
   private final boolean _applyFusion;
   private final Set<String> _temporaryFieldsToPromote = new HashSet<>();
+  private final List<Xnode> _conditions = new ArrayList<>();
+  private final AssignmentVariables _assignmentVariables =
+      new AssignmentVariables();
 
   /**
    * Constructs a new SCA transformation triggered from a specific
@@ -70,8 +75,9 @@ public class ScaCPUvectorizeGroup extends Sca {
 
     if(!_fctType.isElemental()) { // Only for non-elemental function/subroutine
       ClawTranslator trans = (ClawTranslator) translator;
-      detectInductionVariables();
-      return analyzeDimension(xcodeml) && analyzeData(xcodeml, trans);
+      detectInductionVariables(xcodeml);
+      return analyzeDimension(xcodeml, trans.cfg())
+          && analyzeData(xcodeml, trans);
     }
     return true;
   }
@@ -94,7 +100,7 @@ public class ScaCPUvectorizeGroup extends Sca {
     super.transform(xcodeml, translator, other);
 
     // Apply specific steps for CPU smart fusion
-    applySpecificTransformation(xcodeml);
+    applySpecificTransformation(xcodeml, ((ClawTranslator) translator).cfg());
 
     // Finalize the common steps
     super.finalizeTransformation(xcodeml);
@@ -105,9 +111,11 @@ public class ScaCPUvectorizeGroup extends Sca {
    * statement generation.
    *
    * @param xcodeml Current translation unit.
+   * @param cfg     Current configuration.
    * @throws IllegalTransformationException If any transformation fails.
    */
-  private void applySpecificTransformation(XcodeProgram xcodeml)
+  private void applySpecificTransformation(XcodeProgram xcodeml,
+                                           Configuration cfg)
       throws IllegalTransformationException
   {
     /* Create a group of nested loop with the newly defined dimension and wrap
@@ -115,7 +123,15 @@ public class ScaCPUvectorizeGroup extends Sca {
      * This is for the moment a really naive transformation idea but it is our
      * start point.
      * Use the first over clause to do it. */
-    List<AssignStatement> assignStatements = _fctDef.gatherAssignStatements();
+    List<AssignStatement> assignStatements = new ArrayList<>();
+    /* Gather the assignments, the conditions and the variables used by each
+     * assignment in a single walk of the body. */
+    new XnodeWalker()
+        .register(assign -> assignStatements.add(
+            new AssignStatement(assign.element())), Xcode.F_ASSIGN_STATEMENT)
+        .register(_conditions::add, Xcode.CONDITION)
+        .register(_assignmentVariables)
+        .walk(_fctDef.body());
 
     detectIndirectPromotion(assignStatements);
 
@@ -130,11 +146,11 @@ public class ScaCPUvectorizeGroup extends Sca {
     }
 
     for(String temporary : _temporaryFieldsToPromote) {
-      promote(xcodeml, temporary);
+      promote(xcodeml, cfg, temporary);
     }
 
     // Generate loops around statements flagged in previous stage
-    generateDoStatements(xcodeml, mergedBlocks);
+    generateDoStatements(xcodeml, cfg, mergedBlocks);
 
     // Generate the parallel region
     Directive.generateParallelRegion(xcodeml,
@@ -261,9 +277,7 @@ public class ScaCPUvectorizeGroup extends Sca {
    */
   private Set<VectorBlock> flagIfStatementWithPromotion() {
     Set<VectorBlock> blocks = new HashSet<>();
-    /*  */
-    List<Xnode> conditions = _fctDef.body().matchAll(Xcode.CONDITION);
-    for(Xnode condition : conditions) {
+    for(Xnode condition : _conditions) {
       if(Condition.dependsOn(condition, _arrayFieldsInOut)
           && !Condition.isAllocationRelated(condition))
       {
@@ -312,7 +326,8 @@ public class ScaCPUvectorizeGroup extends Sca {
 
         Xnode flaggedIfStmt = null;
 
-        Set<String> assignVars = assign.getVarNames();
+        Set<String> assignVars =
+            new HashSet<>(_assignmentVariables.getVarNames(assign));
         assignVars.retainAll(_arrayFieldsInOut);
 
         for(Xnode ifStmt : ifStatements) {
@@ -397,10 +412,11 @@ public class ScaCPUvectorizeGroup extends Sca {
    * Promote the given variable and adapt references.
    *
    * @param xcodeml Current translation unit.
+   * @param cfg     Current configuration.
    * @param var     Variable name to be promoted.
    * @throws IllegalTransformationException If promotion cannot be done.
    */
-  private void promote(XcodeProgram xcodeml, String var)
+  private void promote(XcodeProgram xcodeml, Configuration cfg, String var)
       throws IllegalTransformationException
   {
     PromotionInfo promotionInfo;
@@ -408,7 +424,7 @@ public class ScaCPUvectorizeGroup extends Sca {
     if(!_promotions.containsKey(var)) {
       Message.debug(String.format("%s promote variable %s",
           SCA_DEBUG_PREFIX, var));
-      promotionInfo = new PromotionInfo(var, _claw.getLayoutForData(var));
+      promotionInfo = new PromotionInfo(var, _claw.getLayoutForData(cfg, var));
       Field.promote(promotionInfo, _fctDef, xcodeml);
       _promotions.put(var, promotionInfo);
     } else {
@@ -419,7 +435,7 @@ public class ScaCPUvectorizeGroup extends Sca {
     FbasicType bType = xcodeml.getTypeTable().getBasicType(id);
     if(!bType.isArray()) {
       Field.adaptScalarRefToArrayRef(_promotions.get(var), _fctDef,
-          _claw.getDefaultLayout(), xcodeml);
+          _claw.getDefaultLayout(cfg), xcodeml);
     } else {
       Field.adaptArrayRef(_promotions.get(var), _fctDef.body(), false, xcodeml);
       Field.adaptAllocate(_promotions.get(var), _fctDef.body(), xcodeml);
@@ -431,15 +447,16 @@ public class ScaCPUvectorizeGroup extends Sca {
    * Generate new DO statement at flagged location.
    *
    * @param xcodeml Current translation unit.
+   * @param cfg     Current configuration.
    * @param blocks  List of vectorization friendly blocks.
    */
-  private void generateDoStatements(XcodeProgram xcodeml,
+  private void generateDoStatements(XcodeProgram xcodeml, Configuration cfg,
                                     List<VectorBlock> blocks)
       throws IllegalTransformationException
   {
     for(VectorBlock block : blocks) {
       NestedDoStatement loops =
-          new NestedDoStatement(_claw.getDefaultLayoutReversed(), xcodeml);
+          new NestedDoStatement(_claw.getDefaultLayoutReversed(cfg), xcodeml);
 
       if(block.isSingleStatement()) {
         block.getStartStmt().insertAfter(loops.getOuterStatement());
@@ -464,9 +481,63 @@ public class ScaCPUvectorizeGroup extends Sca {
    * @return True if the LHS variable should be promoted. False otherwise.
    */
   private boolean shouldBePromoted(AssignStatement assign) {
-    return (assign.getRhs() != null)
-        && XnodeUtil.findAllReferences(assign.getRhs()).stream().
-        anyMatch(_arrayFieldsInOut::contains);
+    return _assignmentVariables.getReadNames(assign).stream()
+        .anyMatch(_arrayFieldsInOut::contains);
+  }
+
+  /**
+   * Collect the variables used by each assignment statement of the walked
+   * nodes. Var elements in an arrayIndex element are excluded. The variables
+   * read are the ones of the right hand-side.
+   */
+  private static class AssignmentVariables implements XnodeListener {
+
+    private final Map<Xnode, Set<String>> _varNames = new HashMap<>();
+    private final Map<Xnode, Set<String>> _readNames = new HashMap<>();
+    private Xnode _assign = null;
+    private Xnode _rhs = null;
+    private int _rhsDepth = 0;
+
+    @Override
+    public void enter(Xnode node) {
+      if(node.is(Xcode.F_ASSIGN_STATEMENT)) {
+        _assign = node;
+        _rhs = node.child(Xnode.RHS);
+        _varNames.put(node, new HashSet<>());
+        _readNames.put(node, new HashSet<>());
+        return;
+      }
+      if(_assign == null) {
+        return;
+      }
+      if(node.equals(_rhs) || _rhsDepth > 0) {
+        ++_rhsDepth;
+      }
+      if(node.is(Xcode.VAR) && node.isNotArrayIndex()) {
+        _varNames.get(_assign).add(node.value());
+        if(_rhsDepth > 0) {
+          _readNames.get(_assign).add(node.value());
+        }
+      }
+    }
+
+    @Override
+    public void exit(Xnode node) {
+      if(node.equals(_assign)) {
+        _assign = null;
+        _rhs = null;
+      } else if(_rhsDepth > 0) {
+        --_rhsDepth;
+      }
+    }
+
+    Set<String> getVarNames(Xnode assign) {
+      return _varNames.getOrDefault(assign, Collections.emptySet());
+    }
+
+    Set<String> getReadNames(Xnode assign) {
+      return _readNames.getOrDefault(assign, Collections.emptySet());
+    }
   }
 
 }
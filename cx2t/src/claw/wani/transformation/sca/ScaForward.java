@@ -15,6 +15,7 @@ import claw.tatsu.directive.common.Directive;
 import claw.tatsu.primitive.*;
 import claw.tatsu.xcodeml.abstraction.*;
 import claw.tatsu.xcodeml.exception.IllegalTransformationException;
+import claw.tatsu.xcodeml.module.ModuleView;
 import claw.tatsu.xcodeml.xnode.XnodeUtil;
 import claw.tatsu.xcodeml.xnode.common.*;
 import claw.tatsu.xcodeml.xnode.fortran.*;
@@ -191,7 +192,7 @@ public class ScaForward extends ClawTransformation {
       if(id == null) {
         List<Xnode> uses = parentFctDef.getDeclarationTable().uses();
         uses.addAll(parentModule.getDeclarationTable().uses());
-        if(!findInModule(uses)) {
+        if(!findInModule(xcodeml.context(), uses)) {
           xcodeml.addError("Function definition not found in module ",
               _claw.getPragma());
           return false;
@@ -210,7 +211,7 @@ public class ScaForward extends ClawTransformation {
       }
     }
 
-    /*if(_fctType.isElemental() && Context.isTarget(Target.CPU)) {
+    /*if(_fctType.isElemental() && xcodeml.context().isTarget(Target.CPU)) {
       return true;
     }*/
 
@@ -232,7 +233,7 @@ public class ScaForward extends ClawTransformation {
         if(parentModule != null) {
           uses.addAll(parentModule.getDeclarationTable().uses());
         }
-        if(!findInModule(uses)) {
+        if(!findInModule(xcodeml.context(), uses)) {
           xcodeml.addError(
               String.format("Function definition %s not found in module.",
                   _calledFctName), _claw.getPragma());
@@ -267,7 +268,7 @@ public class ScaForward extends ClawTransformation {
       }
 
       // Try to locate the fct in the modules defined in use statements
-      if(findInModule(uses)) {
+      if(findInModule(xcodeml.context(), uses)) {
         return true;
       }
 
@@ -306,18 +307,22 @@ public class ScaForward extends ClawTransformation {
   /**
    * Find a function in modules.
    *
+   * @param context  Current context.
    * @param useDecls List of all USE statement declarations available for
    *                 search.
    * @return True if the function was found. False otherwise.
    */
-  private boolean findInModule(List<Xnode> useDecls) {
+  private boolean findInModule(Context context, List<Xnode> useDecls) {
     // TODO handle rename
     for(Xnode d : useDecls) {
-      // Check whether a CLAW module file is available.
-      _mod = Xmod.findClaw(d.getAttribute(Xattr.NAME));
-      if(_mod != null) {
-        Message.debug("Reading CLAW module file: " + _mod.getFullPath());
-        if(_mod.getIdentifiers().contains(_calledFctName)) {
+      // Check whether a CLAW module file declares the function before
+      // loading it.
+      ModuleView view = Xmod.findClawView(context, d.getAttribute(Xattr.NAME));
+      if(view != null && view.hasIdentifier(_calledFctName)) {
+        _mod = view.load(context);
+        if(_mod != null) {
+          Message.debug("Reading CLAW module file: "
+              + _mod.getFullPath(context));
           _fctType = _mod.findFunctionTypeFromCall(_fCall);
           if(_fctType != null) {
             return true;
@@ -573,7 +578,10 @@ public class ScaForward extends ClawTransformation {
       fctCallAncestor = _fCall.matchAncestor(Xcode.F_ASSIGN_STATEMENT);
     }
 
-    if(_claw.hasClause(ClawClause.CREATE) && Context.isTarget(Target.GPU)) {
+    Configuration cfg = ((ClawTranslator) translator).cfg();
+    Context context = xcodeml.context();
+
+    if(_claw.hasClause(ClawClause.CREATE) && context.isTarget(Target.GPU)) {
       List<String> creates = _fCall.gatherArguments(xcodeml, _fctType, _mod,
           Intent.INOUT, true, false);
 
@@ -593,13 +601,13 @@ public class ScaForward extends ClawTransformation {
     if(_claw.hasClause(ClawClause.SAVEPOINT)) {
       List<String> inFields = _fCall.gatherArguments(xcodeml, _fctType,
           _mod != null ? _mod : xcodeml, Intent.IN, true, false);
-      Serialization.insertImports(xcodeml, _fCall.findParentFunction());
-      if(Context.isTarget(Target.CPU)) {
-        Serialization.generateWriteSavepoint(xcodeml, fctCallAncestor,
+      Serialization.insertImports(cfg, xcodeml, _fCall.findParentFunction());
+      if(context.isTarget(Target.CPU)) {
+        Serialization.generateWriteSavepoint(cfg, xcodeml, fctCallAncestor,
             _claw.getMetadataMap(), inFields,
             _claw.value(ClawClause.SAVEPOINT), SerializationStep.SER_IN);
       } else {
-        Serialization.generateReadSavepoint(xcodeml, fctCallAncestor,
+        Serialization.generateReadSavepoint(cfg, xcodeml, fctCallAncestor,
             _claw.getMetadataMap(), inFields,
             _claw.value(ClawClause.SAVEPOINT), SerializationStep.SER_IN);
       }
@@ -608,13 +616,13 @@ public class ScaForward extends ClawTransformation {
     Xnode postHook = fctCallAncestor;
 
     if(_claw.hasClause(ClawClause.UPDATE)
-        && Context.isTarget(Target.GPU) && Configuration.get().
-        getBooleanParameter(Configuration.SCA_FORWARD_UPDATE_ENABLED))
+        && context.isTarget(Target.GPU)
+        && cfg.getBooleanParameter(Configuration.SCA_FORWARD_UPDATE_ENABLED))
     {
       // Generate update from HOST TO DEVICE
       if((_claw.getUpdateClauseValue() == DataMovement.TWO_WAY ||
           _claw.getUpdateClauseValue() == DataMovement.HOST_TO_DEVICE)
-          && Configuration.get().updateAtInput())
+          && cfg.updateAtInput())
       {
         List<String> in = _fCall.gatherArguments(xcodeml, _fctType,
             _mod != null ? _mod : xcodeml, Intent.IN, true, false);
@@ -626,7 +634,7 @@ public class ScaForward extends ClawTransformation {
       // Generate update from DEVICE to HOST
       if((_claw.getUpdateClauseValue() == DataMovement.TWO_WAY
           || _claw.getUpdateClauseValue() == DataMovement.DEVICE_TO_HOST)
-          && Configuration.get().updateAtOutput())
+          && cfg.updateAtOutput())
       {
         List<String> out = _fCall.gatherArguments(xcodeml, _fctType,
             _mod != null ? _mod : xcodeml, Intent.OUT, true, false);
@@ -643,7 +651,7 @@ public class ScaForward extends ClawTransformation {
       }
     }
 
-    if(_claw.hasClause(ClawClause.PARALLEL) && Context.isTarget(Target.GPU)) {
+    if(_claw.hasClause(ClawClause.PARALLEL) && context.isTarget(Target.GPU)) {
       Directive.generateParallelRegion(xcodeml, fctCallAncestor,
           fctCallAncestor);
     }
@@ -652,8 +660,8 @@ public class ScaForward extends ClawTransformation {
     if(_claw.hasClause(ClawClause.SAVEPOINT)) {
       List<String> outFields = _fCall.gatherArguments(xcodeml, _fctType,
           _mod != null ? _mod : xcodeml, Intent.OUT, true, false);
-      Serialization.insertImports(xcodeml, _fCall.findParentFunction());
-      Serialization.generateWriteSavepoint(xcodeml, postHook,
+      Serialization.insertImports(cfg, xcodeml, _fCall.findParentFunction());
+      Serialization.generateWriteSavepoint(cfg, xcodeml, postHook,
           _claw.getMetadataMap(), outFields,
           _claw.value(ClawClause.SAVEPOINT), SerializationStep.SER_OUT);
     }
@@ -6,8 +6,8 @@ package claw.wani.transformation.sca;
 
 import claw.shenron.transformation.Transformation;
 import claw.shenron.translator.Translator;
+import claw.tatsu.analysis.AnalysisManager;
 import claw.tatsu.common.CompilerDirective;
-import claw.tatsu.common.Context;
 import claw.tatsu.directive.common.Directive;
 import claw.tatsu.directive.generator.DirectiveGenerator;
 import claw.tatsu.primitive.Body;
@@ -113,16 +113,16 @@ public class ScaGPU extends Sca {
   private boolean analyzeStandard(XcodeProgram xcodeml,
                                   ClawTranslator translator)
   {
-    DirectiveGenerator dirGen = Context.get().getGenerator();
+    DirectiveGenerator dirGen = xcodeml.context().getGenerator();
 
     /* Check if unsupported statements are located in the future parallel
      * region. */
     if(dirGen.getDirectiveLanguage() != CompilerDirective.NONE) {
       Xnode contains = _fctDef.body().matchSeq(Xcode.F_CONTAINS_STATEMENT);
-      Xnode parallelRegionStart =
-          Directive.findParallelRegionStart(_fctDef, null);
-      Xnode parallelRegionEnd =
-          Directive.findParallelRegionEnd(_fctDef, contains);
+      Xnode parallelRegionStart = Directive.findParallelRegionStart(
+          xcodeml.context(), _fctDef, null);
+      Xnode parallelRegionEnd = Directive.findParallelRegionEnd(
+          xcodeml.context(), _fctDef, contains);
 
       List<Xnode> unsupportedStatements =
           XnodeUtil.getNodes(parallelRegionStart, parallelRegionEnd,
@@ -149,9 +149,10 @@ public class ScaGPU extends Sca {
       }
     }
 
-    detectInductionVariables();
+    detectInductionVariables(xcodeml);
 
-    return analyzeDimension(xcodeml) && analyzeData(xcodeml, translator);
+    return analyzeDimension(xcodeml, translator.cfg())
+        && analyzeData(xcodeml, translator);
   }
 
   /**
@@ -189,7 +190,7 @@ public class ScaGPU extends Sca {
   {
     // Elemental needs model-data directive
     if(!_claw.isScaModelConfig()
-        || !Configuration.get().getModelConfig().isLoaded())
+        || !translator.cfg().getModelConfig().isLoaded())
     {
       xcodeml.addError("SCA applied in ELEMENTAL function/subroutine " +
           "requires model configuration!", _claw.getPragma());
@@ -260,7 +261,7 @@ public class ScaGPU extends Sca {
     super.transform(xcodeml, translator, null);
 
     // Apply specific steps for GPU target
-    applySpecificTransformation(xcodeml);
+    applySpecificTransformation(xcodeml, ((ClawTranslator) translator).cfg());
 
     // Finalize the common steps
     super.finalizeTransformation(xcodeml);
@@ -287,7 +288,8 @@ public class ScaGPU extends Sca {
         _arrayFieldsInOut.add(_fctDef.getName());
       }
 
-      if(Configuration.get().getBooleanParameter(
+      Configuration cfg = ((ClawTranslator) translator).cfg();
+      if(cfg.getBooleanParameter(
           Configuration.SCA_ELEMENTAL_PROMOTION_ASSUMED))
       {
         forceAssumedShapedArrayPromotion = _fctType.isSubroutine()
@@ -312,7 +314,7 @@ public class ScaGPU extends Sca {
       removeAttributesWithWaring(xcodeml, _fctType, Xattr.IS_PURE);
 
       // Apply specific steps for GPU
-      applySpecificTransformation(xcodeml);
+      applySpecificTransformation(xcodeml, cfg);
 
       // Finalize the common steps
       super.finalizeTransformation(xcodeml);
@@ -323,12 +325,14 @@ public class ScaGPU extends Sca {
    * Apply specific transformation steps for GPU target.
    *
    * @param xcodeml Current translation unit.
+   * @param cfg     Current configuration.
    * @throws IllegalTransformationException If any transformation fails.
    */
-  private void applySpecificTransformation(XcodeProgram xcodeml)
+  private void applySpecificTransformation(XcodeProgram xcodeml,
+                                           Configuration cfg)
       throws IllegalTransformationException
   {
-    AcceleratorConfiguration config = Configuration.get().accelerator();
+    AcceleratorConfiguration config = cfg.accelerator();
 
     // TODO nodep passing!
     int collapse = Directive.generateLoopSeq(xcodeml, _fctDef,
@@ -350,10 +354,11 @@ public class ScaGPU extends Sca {
             _claw.getPragma().lineNo());
       }
       PromotionInfo pi = _promotions.entrySet().iterator().next().getValue();
-      loops =
-          new NestedDoStatement(_claw.getDefaultLayoutReversed(), pi, xcodeml);
+      loops = new NestedDoStatement(_claw.getDefaultLayoutReversed(cfg), pi,
+          xcodeml);
     } else {
-      loops = new NestedDoStatement(_claw.getDefaultLayoutReversed(), xcodeml);
+      loops =
+          new NestedDoStatement(_claw.getDefaultLayoutReversed(cfg), xcodeml);
     }
 
     /* Subroutine/function can have a contains section with inner subroutines
@@ -362,10 +367,10 @@ public class ScaGPU extends Sca {
     Xnode contains = _fctDef.body().matchSeq(Xcode.F_CONTAINS_STATEMENT);
     if(contains != null) {
 
-      Xnode parallelRegionStart =
-          Directive.findParallelRegionStart(_fctDef, null);
-      Xnode parallelRegionEnd =
-          Directive.findParallelRegionEnd(_fctDef, contains);
+      Xnode parallelRegionStart = Directive.findParallelRegionStart(
+          xcodeml.context(), _fctDef, null);
+      Xnode parallelRegionEnd = Directive.findParallelRegionEnd(
+          xcodeml.context(), _fctDef, contains);
 
       Body.shiftIn(parallelRegionStart, parallelRegionEnd,
           loops.getInnerStatement().body(), true);
@@ -373,10 +378,10 @@ public class ScaGPU extends Sca {
       contains.insertBefore(loops.getOuterStatement());
     } else {
       // No contains section, all the body is copied to the do statements.
-      Xnode parallelRegionStart =
-          Directive.findParallelRegionStart(_fctDef, null);
-      Xnode parallelRegionEnd =
-          Directive.findParallelRegionEnd(_fctDef, null);
+      Xnode parallelRegionStart = Directive.findParallelRegionStart(
+          xcodeml.context(), _fctDef, null);
+      Xnode parallelRegionEnd = Directive.findParallelRegionEnd(
+          xcodeml.context(), _fctDef, null);
 
       // Define a hook from where we can insert the new do statement
       Xnode hook = parallelRegionEnd != null
@@ -401,7 +406,7 @@ public class ScaGPU extends Sca {
     if(config.getLocalStrategy() == AcceleratorLocalStrategy.PRIVATE) {
       privateList = applyPrivateStrategy(xcodeml);
     } else if(config.getLocalStrategy() == AcceleratorLocalStrategy.PROMOTE) {
-      createList = applyPromoteStrategy(xcodeml);
+      createList = applyPromoteStrategy(xcodeml, cfg);
     }
 
     // Generate the data region
@@ -425,7 +430,8 @@ public class ScaGPU extends Sca {
    * @return List of private variables.
    */
   private List<String> applyPrivateStrategy(XcodeProgram xcodeml) {
-    List<String> privateList = _fctDef.getLocalVariables(xcodeml, true);
+    List<String> privateList = new ArrayList<>(xcodeml.getAnalysisManager()
+        .get(AnalysisManager.LOCAL_ARRAYS, _fctDef));
     // Iterate over a copy to be able to remove items
     for(String identifier : new ArrayList<>(privateList)) {
       if(_promotions.containsKey(identifier)) {
@@ -440,17 +446,20 @@ public class ScaGPU extends Sca {
    * local variable requiring a promotion and apply it.
    *
    * @param xcodeml Current translation unit.
+   * @param cfg     Current configuration.
    * @return List of promoted variable requiring an allocation.
    * @throws IllegalTransformationException If promotion of variable fails.
    */
-  private List<String> applyPromoteStrategy(XcodeProgram xcodeml)
+  private List<String> applyPromoteStrategy(XcodeProgram xcodeml,
+                                            Configuration cfg)
       throws IllegalTransformationException
   {
-    List<String> createList = _fctDef.getLocalVariables(xcodeml, true);
+    List<String> createList = new ArrayList<>(xcodeml.getAnalysisManager()
+        .get(AnalysisManager.LOCAL_ARRAYS, _fctDef));
     for(String arrayIdentifier : createList) {
       _arrayFieldsInOut.add(arrayIdentifier);
       PromotionInfo promotionInfo = new PromotionInfo(arrayIdentifier,
-          _claw.getLayoutForData(arrayIdentifier));
+          _claw.getLayoutForData(cfg, arrayIdentifier));
 
       Field.promote(promotionInfo, _fctDef, xcodeml);
       _promotions.put(arrayIdentifier, promotionInfo);
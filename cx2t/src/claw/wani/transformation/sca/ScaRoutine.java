@@ -6,7 +6,6 @@ package claw.wani.transformation.sca;
 
 import claw.shenron.transformation.Transformation;
 import claw.shenron.translator.Translator;
-import claw.tatsu.common.Context;
 import claw.tatsu.common.Target;
 import claw.tatsu.directive.common.Directive;
 import claw.tatsu.directive.generator.DirectiveGenerator;
@@ -46,16 +45,16 @@ public class ScaRoutine extends Sca {
   public void transform(XcodeProgram xcodeml, Translator translator,
                         Transformation other)
   {
-    if(Context.isTarget(Target.GPU)) {
+    if(xcodeml.context().isTarget(Target.GPU)) {
 
-      DirectiveGenerator dirGen = Context.get().getGenerator();
+      DirectiveGenerator dirGen = xcodeml.context().getGenerator();
 
       if(_fctType.isElemental()) {
         _fctType.removeAttribute(Xattr.IS_PURE);
         _fctType.removeAttribute(Xattr.IS_ELEMENTAL);
       }
 
-      if(Directive.hasDirectives(_fctDef)) {
+      if(Directive.hasDirectives(xcodeml.context(), _fctDef)) {
         xcodeml.addWarning(String.format("%s %s", SCA_DEBUG_PREFIX,
             "Function/subroutine has some directives! " +
                 "Cannot insert new directives without breaking existing ones!"),
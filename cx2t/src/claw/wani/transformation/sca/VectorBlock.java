@@ -5,11 +5,11 @@
 package claw.wani.transformation.sca;
 
 import claw.tatsu.xcodeml.abstraction.AssignStatement;
+import claw.tatsu.xcodeml.visitor.XnodeWalker;
 import claw.tatsu.xcodeml.xnode.common.Xcode;
 import claw.tatsu.xcodeml.xnode.common.Xnode;
 
 import java.util.*;
-import java.util.stream.Collectors;
 
 /**
  * Class representing a set of contiguous statements that can be wrapped in
@@ -73,65 +73,30 @@ public class VectorBlock {
   }
 
   /**
-   * Collect all variables names used within the block.
+   * Collect all variables names used and written within the block in a single
+   * walk of its statements.
    */
-  private void gatherUsedVariables() {
-
-    if(_readAndWrittenVariables == null) {
-      _readAndWrittenVariables = new HashSet<>();
-    }
-
-    if(isSingleStatement()) {
-      _readAndWrittenVariables.addAll(_startStmt.matchAll(Xcode.VAR).stream()
-          .map(Xnode::value).collect(Collectors.toList()));
-    } else {
-      Xnode crt = getStartStmt();
-      while(!crt.equals(getEndStmt())) {
-        _readAndWrittenVariables.addAll(crt.matchAll(Xcode.VAR).stream()
-            .map(Xnode::value).collect(Collectors.toList()));
-        crt = crt.nextSibling();
-      }
-      if(crt.equals(getEndStmt())) {
-        _readAndWrittenVariables.addAll(crt.matchAll(Xcode.VAR).stream()
-            .map(Xnode::value).collect(Collectors.toList()));
-      }
-    }
+  private void gatherVariables() {
+    Set<String> used = new HashSet<>();
+    Set<String> written = new HashSet<>();
+    new XnodeWalker()
+        .register(var -> used.add(var.value()), Xcode.VAR)
+        .register(assign -> written.add(
+            new AssignStatement(assign.element()).getLhsName()),
+            Xcode.F_ASSIGN_STATEMENT)
+        .walk(_startStmt, _endStmt);
+    _readAndWrittenVariables = used;
+    _writtenVariables = written;
   }
 
   /**
-   * Collect all variables written within the block.
+   * Get all variable names written within the block.
+   *
+   * @return Set containing variables names.
    */
-  private void gatherWrittenVariables() {
-    if(_writtenVariables == null) {
-      _writtenVariables = new HashSet<>();
-    }
-
-    if(isSingleStatement()) {
-      fillUpWrittenVariables(_startStmt);
-    } else {
-      Xnode crt = getStartStmt();
-      while(!crt.equals(getEndStmt())) {
-        fillUpWrittenVariables(crt);
-        crt = crt.nextSibling();
-      }
-
-      if(crt.equals(getEndStmt())) {
-        fillUpWrittenVariables(crt);
-      }
-    }
-  }
-
-  private void fillUpWrittenVariables(Xnode root) {
-    List<Xnode> assignStatements = root.matchAll(Xcode.F_ASSIGN_STATEMENT);
-    for(Xnode assign : assignStatements) {
-      AssignStatement as = new AssignStatement(assign.element());
-      _writtenVariables.add(as.getLhsName());
-    }
-  }
-
   public Set<String> getWrittenVariables() {
     if(_writtenVariables == null) {
-      gatherWrittenVariables();
+      gatherVariables();
     }
     return _writtenVariables;
   }
@@ -143,7 +108,7 @@ public class VectorBlock {
    */
   public Set<String> getReadAndWrittenVariables() {
     if(_readAndWrittenVariables == null) {
-      gatherUsedVariables();
+      gatherVariables();
     }
     return _readAndWrittenVariables;
   }
@@ -0,0 +1,442 @@
+/*
+ * This file is released under terms of BSD license
+ * See LICENSE file for more information
+ */
+package claw.wani.x2t.cache;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Persistent on-disk cache of translation results. An entry is identified by
+ * a {@link TranslationKey} and holds the Fortran output and the module files
+ * written by the translation. Module files are kept relative to their search
+ * path so an entry restores the files of the tree it is used in.
+ *
+ * The cache can be shared by several translator processes. Entries are
+ * created aside and moved in place so readers never see a partial entry. The
+ * size of the cache is kept in the statistics file. When it grows over the
+ * maximum size, the least recently used entries are removed until the cache
+ * is back under the eviction threshold.
+ *
+ * @author clementval
+ */
+public class TranslationCache {
+
+  private static final String FORTRAN_FILE = "output.f90";
+  private static final String MODULES_FILE = "modules";
+  private static final String MODULE_PREFIX = "module";
+  private static final String STATS_FILE = "stats";
+  private static final String TMP_PREFIX = ".tmp";
+  // Fraction of the maximum size kept after an eviction so a full cache is
+  // not listed again on every store
+  private static final double EVICTION_THRESHOLD = 0.9;
+
+  // FileLock only protects against other processes
+  private static final Object STATS_LOCK = new Object();
+
+  private final Path _dir;
+  private final long _maxSize;
+
+  /**
+   * Constructs a cache stored in the given directory. The directory is
+   * created if needed.
+   *
+   * @param dir     Directory of the cache.
+   * @param maxSize Maximum size of the cache in bytes.
+   * @throws IOException If the directory cannot be created.
+   */
+  public TranslationCache(String dir, long maxSize) throws IOException {
+    _dir = Files.createDirectories(Paths.get(dir));
+    _maxSize = maxSize;
+  }
+
+  /**
+   * Restore the result of a cached translation. The Fortran output and the
+   * module files are written as the translation would have written them.
+   * Module files are restored relative to the current search paths.
+   *
+   * @param key           Key of the translation.
+   * @param fortranOutput Fortran output file.
+   * @param searchPaths   Module search paths of the translation.
+   * @return True if the entry was found and restored. False otherwise.
+   * @throws IOException If the cache statistics cannot be updated.
+   */
+  public boolean restore(String key, String fortranOutput,
+                         List<String> searchPaths)
+      throws IOException
+  {
+    Path entry = _dir.resolve(key);
+    boolean hit = false;
+    if(Files.isDirectory(entry)) {
+      try {
+        List<Path> modules = new ArrayList<>();
+        for(String line : Files.readAllLines(entry.resolve(MODULES_FILE),
+            StandardCharsets.UTF_8))
+        {
+          modules.add(resolveModule(line, searchPaths));
+        }
+        if(!modules.contains(null)) {
+          for(int i = 0; i < modules.size(); ++i) {
+            Files.copy(entry.resolve(MODULE_PREFIX + i), modules.get(i),
+                StandardCopyOption.REPLACE_EXISTING);
+          }
+          Files.copy(entry.resolve(FORTRAN_FILE), Paths.get(fortranOutput),
+              StandardCopyOption.REPLACE_EXISTING);
+          Files.setLastModifiedTime(entry,
+              FileTime.fromMillis(System.currentTimeMillis()));
+          hit = true;
+        }
+      } catch(NoSuchFileException ignored) {
+        // Entry evicted by another process meanwhile
+      }
+    }
+    updateStatistics(hit, 0);
+    return hit;
+  }
+
+  /**
+   * Store the result of a translation in the cache. Module files are stored
+   * relative to the search path they were found in. Translations writing a
+   * module file outside of the search paths are not stored.
+   *
+   * @param key           Key of the translation.
+   * @param fortranOutput Fortran output file.
+   * @param moduleFiles   Module files written by the translation.
+   * @param searchPaths   Module search paths of the translation.
+   * @throws IOException If the entry cannot be written.
+   */
+  public void store(String key, String fortranOutput, List<String> moduleFiles,
+                    List<String> searchPaths)
+      throws IOException
+  {
+    Path entry = _dir.resolve(key);
+    if(Files.isDirectory(entry)) {
+      return;
+    }
+    List<String> modules = new ArrayList<>();
+    for(String moduleFile : moduleFiles) {
+      String module = relativizeModule(Paths.get(moduleFile), searchPaths);
+      if(module == null) {
+        return;
+      }
+      modules.add(module);
+    }
+    Path tmp = Files.createTempDirectory(_dir, TMP_PREFIX);
+    long entrySize = 0;
+    try {
+      for(int i = 0; i < moduleFiles.size(); ++i) {
+        Files.copy(Paths.get(moduleFiles.get(i)),
+            tmp.resolve(MODULE_PREFIX + i));
+      }
+      Files.write(tmp.resolve(MODULES_FILE), modules, StandardCharsets.UTF_8);
+      Files.copy(Paths.get(fortranOutput), tmp.resolve(FORTRAN_FILE));
+      long size = sizeOf(tmp);
+      Files.move(tmp, entry, StandardCopyOption.ATOMIC_MOVE);
+      entrySize = size;
+    } catch(FileAlreadyExistsException | DirectoryNotEmptyException ignored) {
+      // Same entry stored by another process meanwhile
+    } finally {
+      deleteEntry(tmp);
+    }
+    if(entrySize > 0) {
+      updateStatistics(null, entrySize);
+    }
+  }
+
+  /**
+   * Express a module file relative to the first search path containing it.
+   *
+   * @param module      Module file.
+   * @param searchPaths Module search paths.
+   * @return Index of the search path and relative path of the module
+   * separated by a tab. Null if the module is not in a search path.
+   */
+  static String relativizeModule(Path module, List<String> searchPaths) {
+    Path file = module.toAbsolutePath().normalize();
+    for(int i = 0; i < searchPaths.size(); ++i) {
+      Path dir = Paths.get(searchPaths.get(i)).toAbsolutePath().normalize();
+      if(file.startsWith(dir)) {
+        return i + "\t" + dir.relativize(file);
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Resolve a module file stored relative to a search path.
+   *
+   * @param module      Index of the search path and relative path of the
+   *                    module separated by a tab.
+   * @param searchPaths Module search paths.
+   * @return Module file. Null if the search path does not exist.
+   */
+  static Path resolveModule(String module, List<String> searchPaths) {
+    int separator = module.indexOf('\t');
+    if(separator < 0) {
+      return null;
+    }
+    try {
+      int index = Integer.parseInt(module.substring(0, separator));
+      if(index < 0 || index >= searchPaths.size()) {
+        return null;
+      }
+      return Paths.get(searchPaths.get(index),
+          module.substring(separator + 1));
+    } catch(NumberFormatException ex) {
+      return null;
+    }
+  }
+
+  /**
+   * Remove the least recently used entries until the cache fits under the
+   * eviction threshold. Must be called with the statistics lock held.
+   *
+   * @return Size of the cache measured after the eviction.
+   * @throws IOException If the content of the cache cannot be listed.
+   */
+  private long evict() throws IOException {
+    List<Path> entries = listEntries();
+    long size = 0;
+    for(Path entry : entries) {
+      size += sizeOf(entry);
+    }
+    entries.sort(Comparator.comparing(TranslationCache::lastUsed));
+    long threshold = (long) (_maxSize * EVICTION_THRESHOLD);
+    for(Path entry : entries) {
+      if(size <= threshold) {
+        break;
+      }
+      long entrySize = sizeOf(entry);
+      deleteEntry(entry);
+      size -= entrySize;
+    }
+    return size;
+  }
+
+  /**
+   * Get the hit and miss counts and the current occupation of the cache.
+   *
+   * @return Statistics of the cache.
+   * @throws IOException If the cache cannot be read.
+   */
+  public Statistics getStatistics() throws IOException {
+    long[] counts = updateStatistics(null, 0);
+    List<Path> entries = listEntries();
+    long size = 0;
+    for(Path entry : entries) {
+      size += sizeOf(entry);
+    }
+    return new Statistics(counts[0], counts[1], entries.size(), size);
+  }
+
+  /**
+   * Read and optionally update the hit and miss counters and the size of the
+   * cache shared by all the processes using the cache. Entries are evicted
+   * while the statistics file is locked, once the size exceeds the maximum.
+   *
+   * @param hit   True to count a hit, false to count a miss, null to count
+   *              no lookup.
+   * @param added Size in bytes of a new entry. 0 if no entry was added.
+   * @return Hit and miss counters and size of the cache after the update.
+   * @throws IOException If the statistics file cannot be accessed.
+   */
+  private long[] updateStatistics(Boolean hit, long added) throws IOException {
+    synchronized(STATS_LOCK) {
+      try(FileChannel channel = FileChannel.open(_dir.resolve(STATS_FILE),
+          StandardOpenOption.CREATE, StandardOpenOption.READ,
+          StandardOpenOption.WRITE))
+      {
+        FileLock lock = channel.lock();
+        try {
+          ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+          while(buffer.hasRemaining() && channel.read(buffer) >= 0) {
+            // Read the whole file
+          }
+          String[] fields = new String(buffer.array(), StandardCharsets.UTF_8)
+              .trim().split("\\s+");
+          // Size is unknown for a new cache or one written by a previous
+          // version. It is then measured at the next eviction.
+          long[] counts = {0, 0, -1};
+          if(fields.length >= 2) {
+            counts[0] = Long.parseLong(fields[0]);
+            counts[1] = Long.parseLong(fields[1]);
+          }
+          if(fields.length == 3) {
+            counts[2] = Long.parseLong(fields[2]);
+          }
+          if(hit == null && added == 0) {
+            return counts;
+          }
+          if(hit != null) {
+            ++counts[hit ? 0 : 1];
+          }
+          if(added > 0) {
+            counts[2] = counts[2] < 0 ? evict() : counts[2] + added;
+            if(counts[2] > _maxSize) {
+              counts[2] = evict();
+            }
+          }
+          channel.truncate(0);
+          channel.write(ByteBuffer.wrap(String.format("%d %d %d%n",
+              counts[0], counts[1], counts[2])
+              .getBytes(StandardCharsets.UTF_8)), 0);
+          return counts;
+        } finally {
+          lock.release();
+        }
+      }
+    }
+  }
+
+  /**
+   * List all the complete entries of the cache.
+   *
+   * @return List of entry directories.
+   * @throws IOException If the cache directory cannot be listed.
+   */
+  private List<Path> listEntries() throws IOException {
+    List<Path> entries = new ArrayList<>();
+    try(DirectoryStream<Path> stream = Files.newDirectoryStream(_dir)) {
+      for(Path p : stream) {
+        if(Files.isDirectory(p)
+            && !p.getFileName().toString().startsWith(TMP_PREFIX))
+        {
+          entries.add(p);
+        }
+      }
+    }
+    return entries;
+  }
+
+  /**
+   * Get the last time an entry was stored or restored.
+   *
+   * @param entry Entry directory.
+   * @return Last use time in milliseconds. 0 if the entry does not exist
+   * anymore.
+   */
+  private static long lastUsed(Path entry) {
+    try {
+      return Files.getLastModifiedTime(entry).toMillis();
+    } catch(IOException e) {
+      return 0;
+    }
+  }
+
+  /**
+   * Compute the size of an entry.
+   *
+   * @param entry Entry directory.
+   * @return Size of all the files of the entry in bytes.
+   */
+  private static long sizeOf(Path entry) {
+    try(Stream<Path> files = Files.list(entry)) {
+      return files.mapToLong(f -> {
+        try {
+          return Files.size(f);
+        } catch(IOException e) {
+          return 0;
+        }
+      }).sum();
+    } catch(IOException | UncheckedIOException e) {
+      return 0;
+    }
+  }
+
+  /**
+   * Delete an entry and its content. Entries already deleted are ignored.
+   *
+   * @param entry Entry directory.
+   * @throws IOException If the entry cannot be deleted.
+   */
+  private static void deleteEntry(Path entry) throws IOException {
+    if(!Files.exists(entry)) {
+      return;
+    }
+    Files.walkFileTree(entry, new SimpleFileVisitor<Path>() {
+      @Override
+      public FileVisitResult visitFile(Path file, BasicFileAttributes attrs)
+          throws IOException
+      {
+        Files.deleteIfExists(file);
+        return FileVisitResult.CONTINUE;
+      }
+
+      @Override
+      public FileVisitResult visitFileFailed(Path file, IOException exc) {
+        return FileVisitResult.CONTINUE;
+      }
+
+      @Override
+      public FileVisitResult postVisitDirectory(Path dir, IOException exc)
+          throws IOException
+      {
+        Files.deleteIfExists(dir);
+        return FileVisitResult.CONTINUE;
+      }
+    });
+  }
+
+  /**
+   * Hit and miss counts and occupation of the cache.
+   */
+  public static class Statistics {
+
+    private final long _hits;
+    private final long _misses;
+    private final int _entries;
+    private final long _size;
+
+    Statistics(long hits, long misses, int entries, long size) {
+      _hits = hits;
+      _misses = misses;
+      _entries = entries;
+      _size = size;
+    }
+
+    public long getHits() {
+      return _hits;
+    }
+
+    public long getMisses() {
+      return _misses;
+    }
+
+    public int getEntries() {
+      return _entries;
+    }
+
+    public long getSize() {
+      return _size;
+    }
+
+    /**
+     * Get the ratio of lookups that were found in the cache.
+     *
+     * @return Hit rate between 0 and 1. 0 if there was no lookup.
+     */
+    public double getHitRate() {
+      long lookups = _hits + _misses;
+      return lookups == 0 ? 0 : (double) _hits / lookups;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("%d hits, %d misses (%.1f%% hit rate), " +
+              "%d entries, %d bytes", _hits, _misses, getHitRate() * 100,
+          _entries, _size);
+    }
+  }
+}
@@ -0,0 +1,313 @@
+/*
+ * This file is released under terms of BSD license
+ * See LICENSE file for more information
+ */
+package claw.wani.x2t.cache;
+
+import claw.ClawVersion;
+import claw.shenron.transformation.Transformation;
+import claw.tatsu.primitive.Xmod;
+import claw.tatsu.xcodeml.xnode.common.XcodeProgram;
+import claw.wani.x2t.configuration.Configuration;
+import claw.wani.x2t.configuration.GroupConfiguration;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.CodeSource;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Content hash identifying a translation in the translation cache. Every
+ * input that can change the output of the translation must be added to the
+ * key.
+ *
+ * @author clementval
+ */
+public class TranslationKey {
+
+  private static final String HASH_ALGORITHM = "SHA-256";
+  private static final String MISSING = "<missing>";
+  private static final String XMOD_EXTENSION = ".xmod";
+
+  // Modules used or defined in an XcodeML translation unit
+  private static final Pattern MODULE_NAME = Pattern.compile(
+      "<(?:FuseDecl|FuseOnlyDecl|FmoduleDefinition)\\b[^>]*?"
+          + "\\bname=\"([^\"]+)\"");
+  // Time stamp of the front-end, different on every run
+  private static final Pattern TIME_ATTRIBUTE =
+      Pattern.compile("\\stime=\"[^\"]*\"");
+
+  // Digests of the jar files already read, by path, size and modification
+  private static final Map<String, String> JAR_DIGESTS =
+      new ConcurrentHashMap<>();
+
+  private final MessageDigest _digest;
+
+  /**
+   * Constructs an empty key.
+   */
+  public TranslationKey() {
+    try {
+      _digest = MessageDigest.getInstance(HASH_ALGORITHM);
+    } catch(NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * Create the key of a translation. The key covers the XcodeML input, the
+   * module files it can read, the code of the translator and of the
+   * transformations, the effective configuration and the model
+   * configuration.
+   *
+   * @param input       XcodeML input file.
+   * @param cfg         Configuration of the translation. Search paths must be
+   *                    set already.
+   * @param modelConfig Model configuration file. Can be null.
+   * @return New key. Options not held by the configuration can still be
+   * added.
+   * @throws IOException If one of the files cannot be read.
+   */
+  public static TranslationKey forTranslation(String input, Configuration cfg,
+                                              String modelConfig)
+      throws IOException
+  {
+    TranslationKey key = new TranslationKey();
+    key.add("version", ClawVersion.VERSION);
+
+    // Code of the translator and of the transformations. A rebuild at the
+    // same version or a new transformation set jar changes the output.
+    Set<String> code = new TreeSet<>();
+    code.add(codeDigest(ClawVersion.class));
+    code.add(codeDigest(Transformation.class));
+    code.add(codeDigest(XcodeProgram.class));
+    for(GroupConfiguration group : cfg.getGroups()) {
+      code.add(codeDigest(group.getTransformationClass()));
+    }
+    for(String digest : code) {
+      key.add("code", digest);
+    }
+
+    String xcodeml = readXcodeML(Paths.get(input));
+    key.add("input", xcodeml);
+
+    // Module files are searched as Xmod does. Missing files are part of the
+    // key as well since they change the file picked by the search.
+    String suffix = Xmod.getSuffix(cfg.context());
+    for(String module : findModules(xcodeml)) {
+      for(String dir : cfg.context().getModuleCache().getSearchPaths()) {
+        key.addXcodeMLFile("module", Paths.get(dir, module + suffix));
+        key.addXcodeMLFile("module", Paths.get(dir, module + XMOD_EXTENSION));
+      }
+    }
+
+    Map<String, String> parameters = new TreeMap<>(cfg.getParameters());
+    for(Map.Entry<String, String> parameter : parameters.entrySet()) {
+      key.add("parameter", parameter.getKey() + "=" + parameter.getValue());
+    }
+    for(GroupConfiguration group : cfg.getGroups()) {
+      key.add("group", group.getName() + ":" + group.getTriggerType() + ":"
+          + group.getDirective() + ":" + group.getTransformationClassName());
+    }
+    key.add("target", String.valueOf(cfg.getCurrentTarget()));
+    key.add("directive", String.valueOf(cfg.getCurrentDirective()));
+    key.add("force-pure", String.valueOf(cfg.isForcePure()));
+    key.add("skip-failed", String.valueOf(
+        cfg.context().isSkipFailedTransformationEnabled()));
+    if(modelConfig != null) {
+      key.addFile("model-config", Paths.get(modelConfig));
+    }
+    return key;
+  }
+
+  /**
+   * Add a labelled value to the key.
+   *
+   * @param label Label of the value.
+   * @param value Value. Can be null.
+   * @return This key.
+   */
+  public TranslationKey add(String label, String value) {
+    update(label);
+    update(value == null ? MISSING : value);
+    return this;
+  }
+
+  /**
+   * Add the path and the content of a file to the key.
+   *
+   * @param label Label of the file.
+   * @param file  Path to the file. The file does not have to exist.
+   * @return This key.
+   * @throws IOException If the file exists but cannot be read.
+   */
+  public TranslationKey addFile(String label, Path file) throws IOException {
+    add(label, file.toString());
+    if(Files.isRegularFile(file)) {
+      update(new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+    } else {
+      update(MISSING);
+    }
+    return this;
+  }
+
+  /**
+   * Add the path and the content of an XcodeML file to the key. The time
+   * stamp written by the front-end is not part of the key.
+   *
+   * @param label Label of the file.
+   * @param file  Path to the file. The file does not have to exist.
+   * @return This key.
+   * @throws IOException If the file exists but cannot be read.
+   */
+  public TranslationKey addXcodeMLFile(String label, Path file)
+      throws IOException
+  {
+    add(label, file.toString());
+    update(Files.isRegularFile(file) ? readXcodeML(file) : MISSING);
+    return this;
+  }
+
+  /**
+   * Get the hexadecimal representation of the key. No value can be added to
+   * the key afterwards.
+   *
+   * @return Hexadecimal hash of all the values added to the key.
+   */
+  public String digest() {
+    StringBuilder hex = new StringBuilder();
+    for(byte b : _digest.digest()) {
+      hex.append(String.format("%02x", b));
+    }
+    return hex.toString();
+  }
+
+  /**
+   * Add a string to the digest followed by a separator.
+   *
+   * @param value String to add.
+   */
+  private void update(String value) {
+    _digest.update(value.getBytes(StandardCharsets.UTF_8));
+    _digest.update((byte) 0);
+  }
+
+  /**
+   * Compute the digest of the code of a class. The whole jar file is hashed
+   * when the class is loaded from a jar. Otherwise, only the class file is
+   * hashed.
+   *
+   * @param c Class.
+   * @return Hexadecimal hash of the code.
+   * @throws IOException If the code cannot be read.
+   */
+  static String codeDigest(Class<?> c) throws IOException {
+    Path location = null;
+    CodeSource source = c.getProtectionDomain().getCodeSource();
+    if(source != null && source.getLocation() != null) {
+      try {
+        location = Paths.get(source.getLocation().toURI());
+      } catch(URISyntaxException | IllegalArgumentException ignored) {
+        // Not a local file
+      }
+    }
+    if(location != null && Files.isRegularFile(location)) {
+      return jarDigest(location);
+    }
+    String classFile = c.getName().substring(c.getName().lastIndexOf('.') + 1)
+        + ".class";
+    TranslationKey key = new TranslationKey();
+    key.add("class", c.getName());
+    try(InputStream in = c.getResourceAsStream(classFile)) {
+      if(in == null) {
+        key.update(MISSING);
+      } else {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        for(int n; (n = in.read(buffer)) > 0; ) {
+          bytes.write(buffer, 0, n);
+        }
+        key._digest.update(bytes.toByteArray());
+      }
+    }
+    return key.digest();
+  }
+
+  /**
+   * Compute the digest of the content of a jar file. Digests are computed
+   * once per jar file until it is modified.
+   *
+   * @param jar Path to the jar file.
+   * @return Hexadecimal hash of the content of the file.
+   * @throws IOException If the file cannot be read.
+   */
+  static String jarDigest(Path jar) throws IOException {
+    String id = jar.toAbsolutePath() + ":" + Files.size(jar) + ":"
+        + Files.getLastModifiedTime(jar).toMillis();
+    String digest = JAR_DIGESTS.get(id);
+    if(digest == null) {
+      TranslationKey key = new TranslationKey();
+      try(InputStream in = new DigestInputStream(Files.newInputStream(jar),
+          key._digest))
+      {
+        byte[] buffer = new byte[8192];
+        while(in.read(buffer) >= 0) {
+          // Digest the whole file
+        }
+      }
+      digest = key.digest();
+      JAR_DIGESTS.put(id, digest);
+    }
+    return digest;
+  }
+
+  /**
+   * Read an XcodeML file without the time stamp of its root element.
+   *
+   * @param file Path to the file.
+   * @return Content of the file.
+   * @throws IOException If the file cannot be read.
+   */
+  static String readXcodeML(Path file) throws IOException {
+    String content = new String(Files.readAllBytes(file),
+        StandardCharsets.UTF_8);
+    int prologEnd = content.startsWith("<?") ? content.indexOf("?>") + 2 : 0;
+    int rootEnd = content.indexOf('>', content.indexOf('<', prologEnd));
+    if(rootEnd < 0) {
+      return content;
+    }
+    return TIME_ATTRIBUTE.matcher(content.substring(0, rootEnd))
+        .replaceFirst("") + content.substring(rootEnd);
+  }
+
+  /**
+   * Find the names of the modules used or defined in an XcodeML translation
+   * unit.
+   *
+   * @param xcodeml Content of the XcodeML file.
+   * @return Sorted set of module names.
+   */
+  static Set<String> findModules(String xcodeml) {
+    Set<String> modules = new TreeSet<>();
+    Matcher m = MODULE_NAME.matcher(xcodeml);
+    while(m.find()) {
+      modules.add(m.group(1));
+    }
+    return modules;
+  }
+}
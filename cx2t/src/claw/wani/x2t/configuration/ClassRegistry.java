@@ -0,0 +1,363 @@
+/*
+ * This file is released under terms of BSD license
+ * See LICENSE file for more information
+ */
+package claw.wani.x2t.configuration;
+
+import claw.wani.language.ClawPragma;
+import claw.wani.transformation.ClawTransformation;
+import claw.wani.x2t.translator.ClawTranslator;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.File;
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registry of the classes created by reflection in the translator: the
+ * translator itself and the transformations listed in the transformation
+ * sets.
+ *
+ * Transformations are created through factories resolved once per class:
+ * the factory registered by a TransformationProvider if any, a factory
+ * invoking the public constructors through method handles otherwise.
+ *
+ * All reflective lookups of the translator go through this registry so the
+ * list of classes can be computed ahead of time. The main method extracts it
+ * from the configuration files to build the class-data-sharing archive and
+ * the reflection configuration of a native image.
+ *
+ * @author clementval
+ */
+public final class ClassRegistry {
+
+  private static final String TRANSFORMATION_ELEMENT = "transformation";
+  private static final String PARAMETER_ELEMENT = "parameter";
+  private static final String CLASS_ATTR = "class";
+  private static final String KEY_ATTR = "key";
+  private static final String VALUE_ATTR = "value";
+
+  // Classes of the translator class path already resolved
+  private static final Map<String, Class<?>> CLASSES =
+      new ConcurrentHashMap<>();
+  // Factories of the transformations of the translator class path
+  private static final Map<Class<?>, TransformationFactory> FACTORIES =
+      new ConcurrentHashMap<>();
+  // Constructors of the translators
+  private static final Map<Class<?>, MethodHandle> TRANSLATORS =
+      new ConcurrentHashMap<>();
+  // Factories registered by the providers visible from each class loader
+  private static final Map<ClassLoader, Map<String, TransformationFactory>>
+      PROVIDED = new WeakHashMap<>();
+
+  private ClassRegistry() {
+    // Static methods only
+  }
+
+  /**
+   * Get a class by its name. Classes from the translator class path are
+   * resolved once and then reused. Classes from an external loader are not
+   * registered as the same name can denote different classes in different
+   * loaders.
+   *
+   * @param className Fully qualified name of the class.
+   * @param loader    Class loader of an external jar. Null for the translator
+   *                  class path.
+   * @return The class.
+   * @throws ClassNotFoundException If the class cannot be found.
+   */
+  public static Class<?> forName(String className, ClassLoader loader)
+      throws ClassNotFoundException
+  {
+    if(loader != null) {
+      return Class.forName(className, true, loader);
+    }
+    Class<?> registered = CLASSES.get(className);
+    if(registered == null) {
+      registered = Class.forName(className);
+      CLASSES.put(className, registered);
+    }
+    return registered;
+  }
+
+  /**
+   * Check if a class has been resolved by the registry already.
+   *
+   * @param className Fully qualified name of the class.
+   * @return True if the class is registered. False otherwise.
+   */
+  public static boolean isRegistered(String className) {
+    return CLASSES.containsKey(className);
+  }
+
+  /**
+   * Get the factory of a transformation class. Factories of classes from the
+   * translator class path are resolved once and then reused. Providers are
+   * loaded once per class loader.
+   *
+   * @param transClass Class of the transformation.
+   * @param loader     Class loader of an external jar. Null for the
+   *                   translator class path.
+   * @return The factory of the transformation.
+   */
+  public static TransformationFactory getFactory(Class<?> transClass,
+                                                 ClassLoader loader)
+  {
+    if(loader != null) {
+      TransformationFactory provided =
+          providedFactories(loader).get(transClass.getName());
+      return provided != null ? provided : constructorFactory(transClass);
+    }
+    TransformationFactory factory = FACTORIES.get(transClass);
+    if(factory == null) {
+      factory = providedFactories(ClassRegistry.class.getClassLoader())
+          .get(transClass.getName());
+      if(factory == null) {
+        factory = constructorFactory(transClass);
+      }
+      FACTORIES.put(transClass, factory);
+    }
+    return factory;
+  }
+
+  /**
+   * Create a new translator. The constructor of the translator class is
+   * resolved once and then reused.
+   *
+   * @param translatorClass Class of the translator.
+   * @param cfg             Configuration passed to the translator.
+   * @return The new translator.
+   * @throws Exception If the translator cannot be created.
+   */
+  public static ClawTranslator newTranslator(Class<?> translatorClass,
+                                             Configuration cfg)
+      throws Exception
+  {
+    MethodHandle ctor = TRANSLATORS.get(translatorClass);
+    if(ctor == null) {
+      ctor = MethodHandles.publicLookup().findConstructor(translatorClass,
+          MethodType.methodType(void.class, Configuration.class))
+          .asType(MethodType.methodType(Object.class, Configuration.class));
+      TRANSLATORS.put(translatorClass, ctor);
+    }
+    try {
+      return (ClawTranslator) (Object) ctor.invokeExact(cfg);
+    } catch(Exception | Error e) {
+      throw e;
+    } catch(Throwable t) {
+      throw new Exception(t);
+    }
+  }
+
+  /**
+   * Get the factories registered by the providers visible from a class
+   * loader. Providers are loaded on the first call for this loader.
+   *
+   * @param loader Class loader.
+   * @return Map of the factories by fully qualified class name.
+   */
+  private static synchronized Map<String, TransformationFactory>
+  providedFactories(ClassLoader loader)
+  {
+    Map<String, TransformationFactory> provided = PROVIDED.get(loader);
+    if(provided == null) {
+      provided = loadProviders(loader);
+      PROVIDED.put(loader, provided);
+    }
+    return provided;
+  }
+
+  /**
+   * Load the transformation providers visible from a class loader.
+   *
+   * @param loader Class loader.
+   * @return Map of the provided factories by fully qualified class name.
+   */
+  private static Map<String, TransformationFactory> loadProviders(
+      ClassLoader loader)
+  {
+    Map<String, TransformationFactory> factories = new HashMap<>();
+    for(TransformationProvider provider :
+        ServiceLoader.load(TransformationProvider.class, loader))
+    {
+      factories.putAll(provider.getFactories());
+    }
+    return factories;
+  }
+
+  /**
+   * Create a factory invoking the public constructors of a transformation.
+   * The constructor taking the pragma is used for the directive trigger type
+   * and the default constructor for the translation unit trigger type. A
+   * missing constructor is only reported when the transformation is created.
+   *
+   * @param transClass Class of the transformation.
+   * @return The factory of the transformation.
+   */
+  private static TransformationFactory constructorFactory(Class<?> transClass)
+  {
+    MethodHandle withPragma = findConstructor(transClass,
+        MethodType.methodType(Object.class, ClawPragma.class));
+    MethodHandle withoutPragma = findConstructor(transClass,
+        MethodType.methodType(Object.class));
+    return pragma -> {
+      MethodHandle ctor = pragma != null ? withPragma : withoutPragma;
+      if(ctor == null) {
+        throw new NoSuchMethodException(transClass.getName() + ".<init>("
+            + (pragma != null ? ClawPragma.class.getName() : "") + ")");
+      }
+      try {
+        return (ClawTransformation) (pragma != null
+            ? (Object) ctor.invokeExact(pragma)
+            : (Object) ctor.invokeExact());
+      } catch(Exception | Error e) {
+        throw e;
+      } catch(Throwable t) {
+        throw new Exception(t);
+      }
+    };
+  }
+
+  /**
+   * Find a public constructor of a class.
+   *
+   * @param c    Class to construct.
+   * @param type Parameter types of the constructor with an Object return
+   *             type.
+   * @return Method handle of the constructor adapted to the type. Null if the
+   * constructor does not exist or is not accessible.
+   */
+  private static MethodHandle findConstructor(Class<?> c, MethodType type) {
+    try {
+      return MethodHandles.publicLookup()
+          .findConstructor(c, type.changeReturnType(void.class))
+          .asType(type);
+    } catch(NoSuchMethodException | IllegalAccessException ignored) {
+      return null;
+    }
+  }
+
+  /**
+   * Read the names of the classes created by reflection from configuration
+   * files. Transformation sets contribute the class of their transformations
+   * and configurations contribute their translator.
+   *
+   * @param files Transformation set and configuration files.
+   * @return Sorted set of fully qualified class names.
+   * @throws Exception If one of the files cannot be parsed.
+   */
+  public static Set<String> readClassNames(List<String> files)
+      throws Exception
+  {
+    Set<String> classNames = new TreeSet<>();
+    DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+    for(String file : files) {
+      Document doc = factory.newDocumentBuilder().parse(new File(file));
+      NodeList transformations =
+          doc.getElementsByTagName(TRANSFORMATION_ELEMENT);
+      for(int i = 0; i < transformations.getLength(); ++i) {
+        String className =
+            ((Element) transformations.item(i)).getAttribute(CLASS_ATTR);
+        if(!className.isEmpty()) {
+          classNames.add(className);
+        }
+      }
+      NodeList parameters = doc.getElementsByTagName(PARAMETER_ELEMENT);
+      for(int i = 0; i < parameters.getLength(); ++i) {
+        Element parameter = (Element) parameters.item(i);
+        if(Configuration.TRANSLATOR.equals(parameter.getAttribute(KEY_ATTR))) {
+          classNames.add(parameter.getAttribute(VALUE_ATTR));
+        }
+      }
+    }
+    return classNames;
+  }
+
+  /**
+   * Format a list of classes as a class list for the class-data-sharing
+   * archive.
+   *
+   * @param classNames Fully qualified class names.
+   * @return Lines of the class list.
+   */
+  static List<String> toClassList(Set<String> classNames) {
+    List<String> lines = new ArrayList<>();
+    for(String className : classNames) {
+      lines.add(className.replace('.', '/'));
+    }
+    return lines;
+  }
+
+  /**
+   * Format a list of classes as a reflection configuration for a native
+   * image. Public constructors of the classes are registered.
+   *
+   * @param classNames Fully qualified class names.
+   * @return Lines of the JSON reflection configuration.
+   */
+  static List<String> toReflectConfig(Set<String> classNames) {
+    List<String> lines = new ArrayList<>();
+    lines.add("[");
+    int i = 0;
+    for(String className : classNames) {
+      lines.add(String.format("  { \"name\": \"%s\", " +
+              "\"allPublicConstructors\": true }%s", className,
+          ++i < classNames.size() ? "," : ""));
+    }
+    lines.add("]");
+    return lines;
+  }
+
+  /**
+   * Generate the class lists used by the ahead-of-time build of the
+   * translator. All the classes are loaded so a run under
+   * -XX:DumpLoadedClassList records them with their dependencies.
+   *
+   * Arguments: class list output, reflection configuration output and the
+   * configuration files to read.
+   *
+   * @param args Command line arguments.
+   * @throws Exception If the files cannot be read or written, or if a class
+   *                   cannot be loaded.
+   */
+  public static void main(String[] args) throws Exception {
+    if(args.length < 3) {
+      System.err.println("usage: ClassRegistry <class list> " +
+          "<reflection config> <configuration files...>");
+      System.exit(1);
+    }
+    List<String> files = new ArrayList<>();
+    for(int i = 2; i < args.length; ++i) {
+      files.add(args[i]);
+    }
+    Set<String> classNames = readClassNames(files);
+    for(String className : classNames) {
+      forName(className, null);
+    }
+    write(args[0], toClassList(classNames));
+    write(args[1], toReflectConfig(classNames));
+  }
+
+  private static void write(String file, List<String> lines)
+      throws IOException
+  {
+    Files.write(Paths.get(file), lines, StandardCharsets.UTF_8);
+  }
+}
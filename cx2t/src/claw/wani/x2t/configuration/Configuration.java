@@ -38,6 +38,8 @@ import java.net.URLClassLoader;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -46,7 +48,9 @@ import java.util.regex.Pattern;
 
 /**
  * Configuration class is used to read the configuration file and expose its
- * information to the translator.
+ * information to the translator. A configuration is created for every
+ * translation and owns the tatsu Context built from it so nothing is shared
+ * between two translations.
  *
  * @author clementval
  */
@@ -109,6 +113,16 @@ public class Configuration {
   // env var
   private static final String CLAW_TRANS_SET_PATH = "CLAW_TRANS_SET_PATH";
 
+  /* Validated configuration documents, schemas and external class loaders are
+   * kept between successive loads so a long-lived translator only reads
+   * them again when the underlying files change. */
+  private static final Map<String, CachedFile<Document>> DOCUMENT_CACHE =
+      new HashMap<>();
+  private static final Map<String, CachedFile<Schema>> SCHEMA_CACHE =
+      new HashMap<>();
+  private static final Map<String, CachedFile<URLClassLoader>> LOADER_CACHE =
+      new HashMap<>();
+
   // Local objects
   private String _configuration_path;
   private Map<String, String> _parameters;
@@ -117,30 +131,36 @@ public class Configuration {
   private AcceleratorConfiguration _accelerator;
   private String[] _transSetPaths;
   private boolean _forcePure = false;
+  private final Map<String, String> _environment;
   private final ModelConfig _modelConfig;
+  private Context _context;
 
   /**
-   * Lazy holder pattern.
+   * Constructs an empty configuration. It must be initialized with init or
+   * load before being used.
    */
-  private static class LazyHolder {
-
-    static final Configuration INSTANCE = new Configuration();
+  public Configuration() {
+    this(System.getenv());
   }
 
   /**
-   * Private ctor to avoid external instantiation.
+   * Constructs an empty configuration reading its environment variables from
+   * the given map instead of the process environment.
+   *
+   * @param environment Environment variables of the translation.
    */
-  private Configuration() {
+  public Configuration(Map<String, String> environment) {
+    _environment = environment;
     _modelConfig = new ModelConfig();
   }
 
   /**
-   * Get the unique instance.
+   * Get the context of the translation created from this configuration.
    *
-   * @return Unique Configuration instance.
+   * @return Context of the translation.
    */
-  public static Configuration get() {
-    return LazyHolder.INSTANCE;
+  public Context context() {
+    return _context;
   }
 
   /**
@@ -177,6 +197,7 @@ public class Configuration {
     _groups = new ArrayList<>();
     _availableGroups = new HashMap<>();
     _configuration_path = null;
+    _context = new Context(directive, target, _accelerator, 0);
   }
 
   /**
@@ -200,36 +221,41 @@ public class Configuration {
     _parameters = new HashMap<>();
     _groups = new ArrayList<>();
     _availableGroups = new HashMap<>();
+    _forcePure = false;
     boolean readDefault = true;
     Document userConf = null;
 
     // Read the environment variable for external transformation sets
     _transSetPaths = new String[0];
 
-    if(System.getenv(CLAW_TRANS_SET_PATH) != null) {
-      _transSetPaths = System.getenv(CLAW_TRANS_SET_PATH).split(";");
+    if(_environment.get(CLAW_TRANS_SET_PATH) != null) {
+      _transSetPaths = _environment.get(CLAW_TRANS_SET_PATH).split(";");
     }
 
-    // Configuration has been given by the user. Read it first.
-    if(userConfigFile != null) {
-      File userConfiguration = Paths.get(userConfigFile).toFile();
-      userConf = validateConfiguration(userConfiguration);
-      readDefault = isExtension(userConf);
-    }
+    // Cached documents are shared between threads. DOM is not thread-safe,
+    // even for reading, so only one configuration is read at a time.
+    synchronized(DOCUMENT_CACHE) {
+      // Configuration has been given by the user. Read it first.
+      if(userConfigFile != null) {
+        File userConfiguration = Paths.get(userConfigFile).toFile();
+        userConf = validateConfiguration(userConfiguration);
+        readDefault = isExtension(userConf);
+      }
 
-    if(readDefault) {
-      // There is no user defined configuration or it is just an extension.
-      File defaultConfigFile =
-          Paths.get(_configuration_path, DEFAULT_CONFIG_FILE).toFile();
-      Document defaultConf = validateConfiguration(defaultConfigFile);
-      readConfiguration(defaultConf, false);
-      if(userConf != null) { // Read extension
-        readConfiguration(userConf, true);
+      if(readDefault) {
+        // There is no user defined configuration or it is just an extension.
+        File defaultConfigFile =
+            Paths.get(_configuration_path, DEFAULT_CONFIG_FILE).toFile();
+        Document defaultConf = validateConfiguration(defaultConfigFile);
+        readConfiguration(defaultConf, false);
+        if(userConf != null) { // Read extension
+          readConfiguration(userConf, true);
+        }
+      } else {
+        // User defined configuration is a full configuration.
+        // Then the default one is not read.
+        readConfiguration(userConf, false);
       }
-    } else {
-      // User defined configuration is a full configuration.
-      // Then the default one is not read.
-      readConfiguration(userConf, false);
     }
 
     setUserDefinedTarget(userDefinedTarget);
@@ -246,8 +272,8 @@ public class Configuration {
         _accelerator = new AcceleratorConfiguration(_parameters);
     }
 
-    Context.get().init(getCurrentDirective(), getCurrentTarget(), _accelerator,
-        userMaxColumns);
+    _context = new Context(getCurrentDirective(), getCurrentTarget(),
+        _accelerator, userMaxColumns);
 
     if(modelConfig != null) {
       getModelConfig().load(modelConfig);
@@ -353,6 +379,15 @@ public class Configuration {
   private Document parseAndValidate(File xmlFile, File xsdSchema)
       throws Exception
   {
+    String key = xmlFile.getCanonicalPath() + File.pathSeparator
+        + xsdSchema.getCanonicalPath();
+    synchronized(DOCUMENT_CACHE) {
+      CachedFile<Document> cached = DOCUMENT_CACHE.get(key);
+      if(cached != null && cached.isValid(xmlFile, xsdSchema)) {
+        return cached.getValue();
+      }
+    }
+
     DocumentBuilderFactory factory =
         DocumentBuilderFactory.newInstance();
     DocumentBuilder builder = factory.newDocumentBuilder();
@@ -364,6 +399,11 @@ public class Configuration {
       throw new Exception("Error: Configuration file " + xmlFile.getName()
           + " is not well formatted: " + e.getMessage());
     }
+
+    synchronized(DOCUMENT_CACHE) {
+      DOCUMENT_CACHE.put(key,
+          new CachedFile<>(document, xmlFile, xsdSchema));
+    }
     return document;
   }
 
@@ -378,14 +418,34 @@ public class Configuration {
   private void validate(Document document, File xsd)
       throws SAXException, IOException
   {
-    SchemaFactory factory =
-        SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI);
-    Source schemaFile = new StreamSource(xsd);
-    Schema schema = factory.newSchema(schemaFile);
-    Validator validator = schema.newValidator();
+    Validator validator = loadSchema(xsd).newValidator();
     validator.validate(new DOMSource(document));
   }
 
+  /**
+   * Load the XSD schema or get it from the cache if the file did not change.
+   *
+   * @param xsd File representing the XSD schema.
+   * @return Schema object.
+   * @throws SAXException If the schema cannot be parsed.
+   * @throws IOException  If schema is not found.
+   */
+  private Schema loadSchema(File xsd) throws SAXException, IOException {
+    String key = xsd.getCanonicalPath();
+    synchronized(SCHEMA_CACHE) {
+      CachedFile<Schema> cached = SCHEMA_CACHE.get(key);
+      if(cached != null && cached.isValid(xsd)) {
+        return cached.getValue();
+      }
+      SchemaFactory factory =
+          SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI);
+      Source schemaFile = new StreamSource(xsd);
+      Schema schema = factory.newSchema(schemaFile);
+      SCHEMA_CACHE.put(key, new CachedFile<>(schema, xsd));
+      return schema;
+    }
+  }
+
   /**
    * Get value of a parameter.
    *
@@ -396,6 +456,15 @@ public class Configuration {
     return _parameters.getOrDefault(key, null);
   }
 
+  /**
+   * Get all the parameters of the configuration.
+   *
+   * @return Unmodifiable view of the parameters.
+   */
+  public Map<String, String> getParameters() {
+    return Collections.unmodifiableMap(_parameters);
+  }
+
   /**
    * Get boolean value of a parameter.
    *
@@ -501,9 +570,18 @@ public class Configuration {
     for(String path : _transSetPaths) {
       Path jar = Paths.get(path, jarFile);
       if(jar.toFile().exists()) {
-        external = new URLClassLoader(new URL[]{
-            new URL("file://" + jar.toString())},
-            this.getClass().getClassLoader());
+        synchronized(LOADER_CACHE) {
+          CachedFile<URLClassLoader> cached =
+              LOADER_CACHE.get(jar.toString());
+          if(cached != null && cached.isValid(jar.toFile())) {
+            return cached.getValue();
+          }
+          external = new URLClassLoader(new URL[]{
+              new URL("file://" + jar.toString())},
+              this.getClass().getClassLoader());
+          LOADER_CACHE.put(jar.toString(),
+              new CachedFile<>(external, jar.toFile()));
+        }
         return external;
       }
     }
@@ -586,11 +664,7 @@ public class Configuration {
         Class transClass;
         try {
           // Check if class is there
-          if(loader != null) {
-            transClass = Class.forName(cPath, true, loader);
-          } else {
-            transClass = Class.forName(cPath);
-          }
+          transClass = ClassRegistry.forName(cPath, loader);
         } catch(ClassNotFoundException e) {
           throw new Exception("Transformation class " + cPath +
               " not available");
@@ -610,7 +684,8 @@ public class Configuration {
           throw new Exception("Transformation " + name + " has name conflict!");
         }
         _availableGroups.put(name, new GroupConfiguration(setName, name, gType,
-            triggerType, cPath, directive, transClass));
+            triggerType, cPath, directive, transClass,
+            ClassRegistry.getFactory(transClass, loader)));
       }
     }
   }
@@ -815,4 +890,45 @@ public class Configuration {
   public ModelConfig getModelConfig() {
     return _modelConfig;
   }
+
+  /**
+   * Value read from one or several files. The value stays valid as long as
+   * none of the files has been modified since it was read.
+   *
+   * @param <T> Type of the cached value.
+   */
+  private static class CachedFile<T> {
+
+    private final T _value;
+    private final long[] _stamps;
+
+    CachedFile(T value, File... files) {
+      _value = value;
+      _stamps = stamps(files);
+    }
+
+    /**
+     * Check whether the files are still identical to the ones the value has
+     * been read from.
+     *
+     * @param files Files in the same order as given at construction.
+     * @return True if the cached value can be reused. False otherwise.
+     */
+    boolean isValid(File... files) {
+      return Arrays.equals(_stamps, stamps(files));
+    }
+
+    T getValue() {
+      return _value;
+    }
+
+    private static long[] stamps(File... files) {
+      long[] stamps = new long[2 * files.length];
+      for(int i = 0; i < files.length; ++i) {
+        stamps[2 * i] = files[i].lastModified();
+        stamps[2 * i + 1] = files[i].length();
+      }
+      return stamps;
+    }
+  }
 }
@@ -18,6 +18,7 @@ public class GroupConfiguration {
   private final TriggerType _trigger;
   private final String _directivePrefix;
   private final Class _transformationClass;
+  private final TransformationFactory _factory;
 
   /**
    * Constructs a new GroupConfiguration element with all mandatory information.
@@ -29,10 +30,11 @@ public class GroupConfiguration {
    * @param cPath     Path to the transformation class.
    * @param directive If trigger is directive, directive prefix. Otherwise null.
    * @param c         Actual class of the transformation.
+   * @param factory   Factory creating the transformations.
    */
   public GroupConfiguration(String setName, String name, GroupType type,
                             TriggerType trigger, String cPath, String directive,
-                            Class c)
+                            Class c, TransformationFactory factory)
   {
     _setName = setName;
     _name = name;
@@ -40,6 +42,7 @@ public class GroupConfiguration {
     _type = type;
     _trigger = trigger;
     _transformationClass = c;
+    _factory = factory;
     _directivePrefix = directive;
   }
 
@@ -106,6 +109,15 @@ public class GroupConfiguration {
     return _transformationClass;
   }
 
+  /**
+   * Get the factory creating the transformations of the group.
+   *
+   * @return Transformation factory.
+   */
+  public TransformationFactory getTransformationFactory() {
+    return _factory;
+  }
+
   public enum GroupType {DEPENDENT, INDEPENDENT}
 
   public enum TriggerType {DIRECTIVE, TRANSLATION_UNIT}
@@ -0,0 +1,29 @@
+/*
+ * This file is released under terms of BSD license
+ * See LICENSE file for more information
+ */
+package claw.wani.x2t.configuration;
+
+import claw.wani.language.ClawPragma;
+import claw.wani.transformation.ClawTransformation;
+
+/**
+ * Factory creating the transformations of a transformation group. Factories
+ * are resolved once when the configuration is loaded so the creation of a
+ * transformation for a directive is a direct call.
+ *
+ * @author clementval
+ */
+@FunctionalInterface
+public interface TransformationFactory {
+
+  /**
+   * Create a new transformation.
+   *
+   * @param pragma Pragma triggering the transformation. Null for the
+   *               translation unit trigger type.
+   * @return The new transformation.
+   * @throws Exception If the transformation cannot be created.
+   */
+  ClawTransformation create(ClawPragma pragma) throws Exception;
+}
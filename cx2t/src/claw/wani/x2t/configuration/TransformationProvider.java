@@ -0,0 +1,27 @@
+/*
+ * This file is released under terms of BSD license
+ * See LICENSE file for more information
+ */
+package claw.wani.x2t.configuration;
+
+import java.util.Map;
+
+/**
+ * Provider of transformation factories discovered with the ServiceLoader.
+ * Transformation sets register their provider in
+ * META-INF/services/claw.wani.x2t.configuration.TransformationProvider of
+ * their jar. Transformations without a provided factory are created through
+ * their public constructor.
+ *
+ * @author clementval
+ */
+public interface TransformationProvider {
+
+  /**
+   * Get the factories of the provided transformations.
+   *
+   * @return Map of the factories by fully qualified class name of the
+   * transformation.
+   */
+  Map<String, TransformationFactory> getFactories();
+}
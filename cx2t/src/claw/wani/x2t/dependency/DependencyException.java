@@ -0,0 +1,23 @@
+/*
+ * This file is released under terms of BSD license
+ * See LICENSE file for more information
+ */
+package claw.wani.x2t.dependency;
+
+/**
+ * Exception thrown when the module dependencies of a set of Fortran files
+ * cannot be resolved.
+ *
+ * @author clementval
+ */
+public class DependencyException extends Exception {
+
+  /**
+   * Constructs a new exception with a specific detail message.
+   *
+   * @param message Specific exception message.
+   */
+  public DependencyException(String message) {
+    super(message);
+  }
+}
@@ -0,0 +1,86 @@
+/*
+ * This file is released under terms of BSD license
+ * See LICENSE file for more information
+ */
+package claw.wani.x2t.dependency;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Modules defined and used by a Fortran source file. The file is scanned
+ * line by line without preprocessing. Modules used with the intrinsic
+ * qualifier are provided by the compiler and are not reported as used.
+ *
+ * @author clementval
+ */
+public class FortranSource {
+
+  private static final Pattern MODULE_DEFINITION = Pattern.compile(
+      "^\\s*module\\s+(\\w+)\\s*(!.*)?$", Pattern.CASE_INSENSITIVE);
+  private static final Pattern MODULE_USE = Pattern.compile(
+      "^\\s*use(?:\\s*,\\s*(non_)?(intrinsic)\\s*::|\\s*::|\\s)\\s*(\\w+)",
+      Pattern.CASE_INSENSITIVE);
+  private static final String MODULE_PROCEDURE = "procedure";
+
+  private final Path _path;
+  private final Set<String> _definedModules;
+  private final Set<String> _usedModules;
+
+  private FortranSource(Path path, Set<String> definedModules,
+                        Set<String> usedModules)
+  {
+    _path = path;
+    _definedModules = Collections.unmodifiableSet(definedModules);
+    _usedModules = Collections.unmodifiableSet(usedModules);
+  }
+
+  /**
+   * Scan a Fortran source file.
+   *
+   * @param path Path to the file.
+   * @return Modules defined and used in the file. Module names are in lower
+   * case.
+   * @throws IOException If the file cannot be read.
+   */
+  public static FortranSource scan(Path path) throws IOException {
+    Set<String> defined = new LinkedHashSet<>();
+    Set<String> used = new LinkedHashSet<>();
+    // Any byte sequence is valid in ISO-8859-1
+    for(String line : Files.readAllLines(path, StandardCharsets.ISO_8859_1)) {
+      Matcher m = MODULE_DEFINITION.matcher(line);
+      if(m.find()) {
+        String name = m.group(1).toLowerCase();
+        if(!name.equals(MODULE_PROCEDURE)) {
+          defined.add(name);
+        }
+        continue;
+      }
+      m = MODULE_USE.matcher(line);
+      if(m.find() && (m.group(2) == null || m.group(1) != null)) {
+        used.add(m.group(3).toLowerCase());
+      }
+    }
+    used.removeAll(defined);
+    return new FortranSource(path, defined, used);
+  }
+
+  public Path getPath() {
+    return _path;
+  }
+
+  public Set<String> getDefinedModules() {
+    return _definedModules;
+  }
+
+  public Set<String> getUsedModules() {
+    return _usedModules;
+  }
+}
@@ -0,0 +1,334 @@
+/*
+ * This file is released under terms of BSD license
+ * See LICENSE file for more information
+ */
+package claw.wani.x2t.dependency;
+
+import claw.tatsu.analysis.topology.DirectedGraph;
+import claw.tatsu.analysis.topology.TopologicalSort;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+
+/**
+ * Resolve the module dependencies of a set of Fortran files and plan the
+ * processing of the module source files by the front-end.
+ *
+ * Every Fortran file is scanned at most once. Module source files are looked
+ * up in the directory of the file using the module and then in the search
+ * paths, first by file name and then by the modules defined in the files.
+ * A module source file must be processed when one of its .xmod files is
+ * missing or older than the source, or when one of its dependencies must be
+ * processed. The files to process are grouped in waves: files of a wave only
+ * depend on files of the previous waves and can be processed concurrently.
+ * Intrinsic modules without source file or .xmod file are provided by the
+ * compiler and need no resolution.
+ *
+ * @author clementval
+ */
+public class ModuleDependencyResolver {
+
+  private static final List<String> FORTRAN_EXTENSIONS =
+      Arrays.asList(".f90", ".F90", ".f", ".F", ".f95", ".f03");
+  private static final String XMOD_EXTENSION = ".xmod";
+  private static final String CLAW_INFIX = ".claw.";
+  private static final Set<String> INTRINSIC_MODULES = new HashSet<>(
+      Arrays.asList("omp_lib", "openacc", "iso_c_binding", "iso_fortran_env",
+          "ieee_features", "ieee_exceptions", "ieee_arithmetic"));
+
+  private final List<Path> _searchPaths = new ArrayList<>();
+  private final Map<Path, FortranSource> _sources = new HashMap<>();
+  private final Map<Path, Map<String, Path>> _directoryIndex = new HashMap<>();
+  private final List<String> _warnings = new ArrayList<>();
+
+  /**
+   * Constructs a new resolver.
+   *
+   * @param searchPaths Directories in which the module source and .xmod
+   *                    files are searched.
+   */
+  public ModuleDependencyResolver(List<String> searchPaths) {
+    for(String searchPath : searchPaths) {
+      _searchPaths.add(Paths.get(searchPath));
+    }
+  }
+
+  /**
+   * Resolve the dependencies of the given files.
+   *
+   * @param inputs Map from each input file to the file actually scanned for
+   *               its dependencies, typically its preprocessed version.
+   * @return Module source files to process, grouped in waves.
+   * @throws DependencyException If a module used by an input file cannot be
+   *                             found or if the dependencies are circular.
+   * @throws IOException         If a file cannot be read.
+   */
+  public List<List<Path>> resolve(Map<Path, Path> inputs)
+      throws DependencyException, IOException
+  {
+    DirectedGraph<Path> graph = new DirectedGraph<>();
+    Map<Path, Set<Path>> dependencies = new HashMap<>();
+    Deque<Path> toVisit = new ArrayDeque<>();
+
+    for(Map.Entry<Path, Path> input : inputs.entrySet()) {
+      FortranSource scanned = FortranSource.scan(input.getValue());
+      Path source = normalize(input.getKey());
+      for(String module : scanned.getUsedModules()) {
+        Path dep = findSource(module, source);
+        if(dep == null) {
+          if(!hasModuleFileOnly(module, source)
+              && !INTRINSIC_MODULES.contains(module))
+          {
+            throw new DependencyException(source + ": cannot locate any " +
+                "source file or module file for module: " + module);
+          }
+        } else if(!dep.equals(source) && graph.addNode(dep)) {
+          toVisit.add(dep);
+        }
+      }
+    }
+
+    // Module source files are scanned without preprocessing. A missing
+    // module may only be used in a disabled part of the file.
+    while(!toVisit.isEmpty()) {
+      Path source = toVisit.poll();
+      Set<Path> sourceDeps = new LinkedHashSet<>();
+      for(String module : scan(source).getUsedModules()) {
+        Path dep = findSource(module, source);
+        if(dep == null) {
+          if(!hasModuleFileOnly(module, source)
+              && !INTRINSIC_MODULES.contains(module))
+          {
+            _warnings.add(source + ": cannot locate any source file or " +
+                "module file for module: " + module);
+          }
+          continue;
+        }
+        if(dep.equals(source)) {
+          continue;
+        }
+        if(graph.addNode(dep)) {
+          toVisit.add(dep);
+        }
+        graph.addEdge(dep, source);
+        sourceDeps.add(dep);
+      }
+      dependencies.put(source, sourceDeps);
+    }
+
+    List<Path> order;
+    try {
+      order = TopologicalSort.sort(graph);
+    } catch(IllegalArgumentException e) {
+      throw new DependencyException("circular module dependency between " +
+          "module source files");
+    }
+
+    // Dependencies come first in the topological order.
+    Map<Path, Integer> waveIndex = new HashMap<>();
+    List<List<Path>> waves = new ArrayList<>();
+    for(Path source : order) {
+      int wave = -1;
+      for(Path dep : dependencies.get(source)) {
+        wave = Math.max(wave, waveIndex.getOrDefault(dep, -1));
+      }
+      if(wave >= 0 || !isUpToDate(source)) {
+        ++wave;
+        waveIndex.put(source, wave);
+        if(waves.size() == wave) {
+          waves.add(new ArrayList<>());
+        }
+        waves.get(wave).add(source);
+      }
+    }
+    for(List<Path> wave : waves) {
+      Collections.sort(wave);
+    }
+    return waves;
+  }
+
+  /**
+   * Get the warnings reported during the last resolution.
+   *
+   * @return List of warning messages.
+   */
+  public List<String> getWarnings() {
+    return _warnings;
+  }
+
+  /**
+   * Check whether all the .xmod files of a module source file are newer than
+   * the source file.
+   *
+   * @param source Module source file.
+   * @return True if the front-end does not need to process the file.
+   * @throws IOException If the files cannot be accessed.
+   */
+  private boolean isUpToDate(Path source) throws IOException {
+    long sourceTime = Files.getLastModifiedTime(source).toMillis();
+    for(String module : scan(source).getDefinedModules()) {
+      Path moduleFile = findModuleFile(module, source);
+      if(moduleFile == null
+          || Files.getLastModifiedTime(moduleFile).toMillis() <= sourceTime)
+      {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Locate the source file defining a module.
+   *
+   * @param module Module name in lower case.
+   * @param user   File using the module.
+   * @return Path to the source file. Null if not found.
+   * @throws IOException If a directory cannot be scanned.
+   */
+  private Path findSource(String module, Path user) throws IOException {
+    List<Path> dirs = searchDirectories(user);
+    for(Path dir : dirs) {
+      for(String ext : FORTRAN_EXTENSIONS) {
+        Path candidate = dir.resolve(module + ext);
+        if(Files.isRegularFile(candidate)) {
+          return normalize(candidate);
+        }
+      }
+    }
+    for(Path dir : dirs) {
+      Path candidate = index(dir).get(module);
+      if(candidate != null) {
+        return candidate;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Check whether a module without source file has an .xmod file. A warning
+   * is reported as the .xmod file cannot be updated.
+   *
+   * @param module Module name in lower case.
+   * @param user   File using the module.
+   * @return True if the .xmod file is found.
+   */
+  private boolean hasModuleFileOnly(String module, Path user) {
+    Path moduleFile = findModuleFile(module, user);
+    if(moduleFile != null && !INTRINSIC_MODULES.contains(module)) {
+      _warnings.add("only module file found for " + module + " ("
+          + moduleFile + "). Might be out-of-date...");
+    }
+    return moduleFile != null;
+  }
+
+  /**
+   * Locate the .xmod file of a module.
+   *
+   * @param module Module name in lower case.
+   * @param user   File using the module.
+   * @return Path to the .xmod file. Null if not found.
+   */
+  private Path findModuleFile(String module, Path user) {
+    for(Path dir : searchDirectories(user)) {
+      Path candidate = dir.resolve(module + XMOD_EXTENSION);
+      if(Files.isRegularFile(candidate)) {
+        return candidate;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Get the directories searched for the modules used by a file.
+   *
+   * @param user File using the modules.
+   * @return Directory of the file followed by the search paths.
+   */
+  private List<Path> searchDirectories(Path user) {
+    List<Path> dirs = new ArrayList<>();
+    Path parent = user.getParent();
+    dirs.add(parent == null ? Paths.get(".") : parent);
+    dirs.addAll(_searchPaths);
+    return dirs;
+  }
+
+  /**
+   * Get the modules defined by the Fortran files of a directory. Each
+   * directory is scanned once.
+   *
+   * @param dir Directory to scan.
+   * @return Map from module name to source file.
+   * @throws IOException If the directory cannot be listed.
+   */
+  private Map<String, Path> index(Path dir) throws IOException {
+    Path key = normalize(dir);
+    Map<String, Path> index = _directoryIndex.get(key);
+    if(index != null) {
+      return index;
+    }
+    index = new HashMap<>();
+    Set<String> ambiguous = new HashSet<>();
+    if(Files.isDirectory(key)) {
+      List<Path> files = new ArrayList<>();
+      try(DirectoryStream<Path> stream = Files.newDirectoryStream(key)) {
+        for(Path file : stream) {
+          String name = file.getFileName().toString();
+          if(!name.contains(CLAW_INFIX) && isFortranFile(name)
+              && Files.isRegularFile(file))
+          {
+            files.add(file);
+          }
+        }
+      }
+      Collections.sort(files);
+      for(Path file : files) {
+        for(String module : scan(file).getDefinedModules()) {
+          if(index.putIfAbsent(module, normalize(file)) != null) {
+            ambiguous.add(module);
+          }
+        }
+      }
+    }
+    for(String module : ambiguous) {
+      _warnings.add("found too many files with module definition for "
+          + module + " in " + key);
+      index.remove(module);
+    }
+    _directoryIndex.put(key, index);
+    return index;
+  }
+
+  /**
+   * Scan a file once.
+   *
+   * @param file Fortran source file.
+   * @return Scanned file.
+   * @throws IOException If the file cannot be read.
+   */
+  private FortranSource scan(Path file) throws IOException {
+    Path key = normalize(file);
+    FortranSource source = _sources.get(key);
+    if(source == null) {
+      source = FortranSource.scan(key);
+      _sources.put(key, source);
+    }
+    return source;
+  }
+
+  private static boolean isFortranFile(String name) {
+    for(String ext : FORTRAN_EXTENSIONS) {
+      if(name.endsWith(ext)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static Path normalize(Path path) {
+    return path.toAbsolutePath().normalize();
+  }
+}
@@ -0,0 +1,30 @@
+/*
+ * This file is released under terms of BSD license
+ * See LICENSE file for more information
+ */
+package claw.wani.x2t.server;
+
+import java.io.File;
+import java.util.Map;
+
+/**
+ * Translation job executed by the translation server for each request
+ * received from a client.
+ *
+ * @author clementval
+ */
+@FunctionalInterface
+public interface TranslationJob {
+
+  /**
+   * Run the job.
+   *
+   * @param args       Command line arguments sent by the client.
+   * @param workingDir Working directory of the client.
+   * @param env        Environment variables forwarded by the client.
+   * @return Exit status of the job. 0 if successful.
+   * @throws Exception If the job failed unexpectedly.
+   */
+  int run(String[] args, File workingDir, Map<String, String> env)
+      throws Exception;
+}
@@ -0,0 +1,326 @@
+/*
+ * This file is released under terms of BSD license
+ * See LICENSE file for more information
+ */
+package claw.wani.x2t.server;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The translation server keeps a translator process alive and runs the
+ * translation jobs sent by the driver. This avoids paying the JVM start-up,
+ * class loading and configuration parsing for every translated file.
+ *
+ * The server listens on the loopback interface only. Its port and a random
+ * token are written in the server file, readable by the owner only. Every
+ * request must start with this token.
+ *
+ * Request format (UTF-8, one item per line):<br>
+ * token<br>
+ * command (run, ping or stop)<br>
+ * working directory of the client<br>
+ * one NAME=value line per forwarded environment variable<br>
+ * empty line<br>
+ * one line per argument<br>
+ * empty line<br><br>
+ *
+ * Jobs only see the environment variables sent with their request, not the
+ * ones of the server process. A variable not sent is unset for the job.
+ *
+ * Reply format:<br>
+ * "status stdout_length stderr_length" line followed by the bytes written by
+ * the job on the standard error and then on the standard output. The
+ * connection is closed after the reply, so a client can read the standard
+ * output until the end of the stream.
+ *
+ * Jobs are executed one after the other. While serving, the standard
+ * streams of the process are replaced once by channels writing to the
+ * buffers of the running job, so everything written by a job, including
+ * its errors, is sent back to its own client.
+ *
+ * @author clementval
+ */
+public class TranslationServer {
+
+  public static final String CMD_RUN = "run";
+  public static final String CMD_PING = "ping";
+  public static final String CMD_STOP = "stop";
+
+  private static final int TOKEN_LENGTH = 16;
+  private static final int REQUEST_TIMEOUT = 60000; // ms
+  private static final int STATUS_ERROR = 1;
+
+  private final Path _serverFile;
+  private final TranslationJob _job;
+  private final String _token;
+  private final JobChannel _jobOut = new JobChannel();
+  private final JobChannel _jobErr = new JobChannel();
+  private volatile boolean _running = false;
+
+  /**
+   * Output stream forwarding to the buffer of the running job or, between
+   * jobs, to the original stream of the process.
+   */
+  private static final class JobChannel extends OutputStream {
+
+    private volatile OutputStream _fallback = null;
+    private volatile OutputStream _sink = null;
+
+    private OutputStream target() {
+      OutputStream sink = _sink;
+      return sink == null ? _fallback : sink;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      target().write(b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      target().write(b, off, len);
+    }
+
+    @Override
+    public void flush() throws IOException {
+      target().flush();
+    }
+  }
+
+  /**
+   * Constructs a new translation server.
+   *
+   * @param serverFile File in which the connection information is written.
+   * @param job        Job executed for every run request.
+   */
+  public TranslationServer(Path serverFile, TranslationJob job) {
+    _serverFile = serverFile;
+    _job = job;
+    _token = generateToken();
+  }
+
+  /**
+   * Listen and process requests until a stop request is received.
+   *
+   * @throws IOException If the server cannot be started.
+   */
+  public void serve() throws IOException {
+    PrintStream stdout = System.out;
+    PrintStream stderr = System.err;
+    InputStream stdin = System.in;
+    _jobOut._fallback = stdout;
+    _jobErr._fallback = stderr;
+    System.setOut(new PrintStream(_jobOut, true, "UTF-8"));
+    System.setErr(new PrintStream(_jobErr, true, "UTF-8"));
+    System.setIn(new ByteArrayInputStream(new byte[0]));
+    try(ServerSocket server =
+            new ServerSocket(0, 0, InetAddress.getLoopbackAddress()))
+    {
+      publish(server.getLocalPort());
+      _running = true;
+      while(_running) {
+        try(Socket client = server.accept()) {
+          client.setSoTimeout(REQUEST_TIMEOUT);
+          handle(client);
+        } catch(IOException ex) {
+          System.err.println("Translation server: " + ex.getMessage());
+        }
+      }
+    } finally {
+      _running = false;
+      System.setOut(stdout);
+      System.setErr(stderr);
+      System.setIn(stdin);
+      Files.deleteIfExists(_serverFile);
+    }
+  }
+
+  /**
+   * Check whether the server is accepting requests.
+   *
+   * @return True if the server is running. False otherwise.
+   */
+  public boolean isRunning() {
+    return _running;
+  }
+
+  /**
+   * Read a request from the client, execute it and send back the reply.
+   *
+   * @param client Socket connected to the client.
+   * @throws IOException If the communication with the client failed.
+   */
+  private void handle(Socket client) throws IOException {
+    BufferedReader in = new BufferedReader(new InputStreamReader(
+        client.getInputStream(), StandardCharsets.UTF_8));
+    String token = in.readLine();
+    if(token == null || !MessageDigest.isEqual(
+        token.getBytes(StandardCharsets.UTF_8),
+        _token.getBytes(StandardCharsets.UTF_8)))
+    {
+      throw new IOException("rejected request with invalid token");
+    }
+    String command = in.readLine();
+    String workingDir = in.readLine();
+    if(command == null || workingDir == null) {
+      throw new IOException("incomplete request");
+    }
+    Map<String, String> env = new HashMap<>();
+    String line;
+    while((line = in.readLine()) != null && !line.isEmpty()) {
+      int sep = line.indexOf('=');
+      if(sep <= 0) {
+        throw new IOException("malformed environment variable: " + line);
+      }
+      env.put(line.substring(0, sep), line.substring(sep + 1));
+    }
+    List<String> args = new ArrayList<>();
+    while((line = in.readLine()) != null && !line.isEmpty()) {
+      args.add(line);
+    }
+
+    OutputStream out = client.getOutputStream();
+    switch(command) {
+      case CMD_RUN:
+        runJob(args.toArray(new String[0]), new File(workingDir), env, out);
+        break;
+      case CMD_PING:
+        reply(out, 0, new byte[0], new byte[0]);
+        break;
+      case CMD_STOP:
+        _running = false;
+        reply(out, 0, new byte[0], new byte[0]);
+        break;
+      default:
+        reply(out, STATUS_ERROR, new byte[0], ("Unknown server command: "
+            + command + System.lineSeparator())
+            .getBytes(StandardCharsets.UTF_8));
+    }
+  }
+
+  /**
+   * Execute a job with its output sent to buffers sent back to the client.
+   * An unexpected failure of the job is reported on its standard error.
+   *
+   * @param args       Arguments of the job.
+   * @param workingDir Working directory of the client.
+   * @param env        Environment variables forwarded by the client.
+   * @param out        Stream to the client.
+   * @throws IOException If the reply cannot be sent.
+   */
+  private void runJob(String[] args, File workingDir, Map<String, String> env,
+                      OutputStream out)
+      throws IOException
+  {
+    ByteArrayOutputStream jobOut = new ByteArrayOutputStream();
+    ByteArrayOutputStream jobErr = new ByteArrayOutputStream();
+    int status;
+    _jobOut._sink = jobOut;
+    _jobErr._sink = jobErr;
+    try {
+      status = _job.run(args, workingDir, env);
+    } catch(Exception ex) {
+      PrintStream err = new PrintStream(jobErr, true, "UTF-8");
+      ex.printStackTrace(err);
+      err.flush();
+      status = STATUS_ERROR;
+    } finally {
+      System.out.flush();
+      System.err.flush();
+      _jobOut._sink = null;
+      _jobErr._sink = null;
+    }
+    reply(out, status, jobOut.toByteArray(), jobErr.toByteArray());
+  }
+
+  /**
+   * Send a reply to the client.
+   *
+   * @param out    Stream to the client.
+   * @param status Exit status of the request.
+   * @param stdout Bytes for the standard output of the client.
+   * @param stderr Bytes for the standard error of the client.
+   * @throws IOException If the reply cannot be sent.
+   */
+  private void reply(OutputStream out, int status, byte[] stdout,
+                     byte[] stderr)
+      throws IOException
+  {
+    String header = String.format("%d %d %d\n", status, stdout.length,
+        stderr.length);
+    out.write(header.getBytes(StandardCharsets.UTF_8));
+    out.write(stderr);
+    out.write(stdout);
+    out.flush();
+  }
+
+  /**
+   * Write the connection information in the server file. The file is first
+   * written aside and then moved so clients never read a partial file.
+   *
+   * @param port Port the server is listening on.
+   * @throws IOException If the file cannot be written.
+   */
+  private void publish(int port) throws IOException {
+    Path parent = _serverFile.toAbsolutePath().getParent();
+    Path tmp = Files.createTempFile(parent, ".cx2t", ".tmp");
+    try {
+      restrictToOwner(tmp);
+      Files.write(tmp, String.format("%d %s\n", port, _token)
+          .getBytes(StandardCharsets.UTF_8));
+      Files.move(tmp, _serverFile, StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+    } finally {
+      Files.deleteIfExists(tmp);
+    }
+  }
+
+  /**
+   * Make the file readable and writable by its owner only.
+   *
+   * @param file Path to the file.
+   * @throws IOException If the permission cannot be set.
+   */
+  private static void restrictToOwner(Path file) throws IOException {
+    try {
+      Files.setPosixFilePermissions(file,
+          PosixFilePermissions.fromString("rw-------"));
+    } catch(UnsupportedOperationException ex) {
+      File f = file.toFile();
+      if(!(f.setReadable(false, false) && f.setReadable(true, true)
+          && f.setWritable(false, false) && f.setWritable(true, true)))
+      {
+        throw new IOException("Cannot restrict access to " + file);
+      }
+    }
+  }
+
+  /**
+   * Generate a random token used to authenticate the clients.
+   *
+   * @return Hexadecimal representation of the token.
+   */
+  private static String generateToken() {
+    byte[] bytes = new byte[TOKEN_LENGTH];
+    new SecureRandom().nextBytes(bytes);
+    StringBuilder token = new StringBuilder();
+    for(byte b : bytes) {
+      token.append(String.format("%02x", b));
+    }
+    return token.toString();
+  }
+}
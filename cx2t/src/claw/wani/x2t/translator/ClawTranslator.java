@@ -11,7 +11,6 @@ import claw.shenron.transformation.TransformationGroup;
 import claw.shenron.translator.Translator;
 import claw.tatsu.analysis.topology.DirectedGraph;
 import claw.tatsu.analysis.topology.TopologicalSort;
-import claw.tatsu.common.Context;
 import claw.tatsu.common.Message;
 import claw.tatsu.common.Target;
 import claw.tatsu.xcodeml.exception.IllegalDirectiveException;
@@ -48,19 +47,23 @@ public class ClawTranslator implements Translator {
   // Hold cross-transformation elements
   private final Map<Element, Object> _crossTransformationTable;
   private final Map<ClawDirectiveKey, Deque<ClawPragma>> _blockDirectives;
+  private final Configuration _cfg;
   private int _transformationCounter = 0;
 
   /**
    * ClawTranslator ctor. Creates the transformation groups needed for the CLAW
    * transformation and order the accordingly to their interpretation order.
+   *
+   * @param cfg Configuration of the current translation.
    */
-  public ClawTranslator() {
+  public ClawTranslator(Configuration cfg) {
+    _cfg = cfg;
     /*
      * Use LinkedHashMap to be able to iterate through the map
      * entries with the insertion order.
      */
     _tGroups = new LinkedHashMap<>();
-    for(GroupConfiguration g : Configuration.get().getGroups()) {
+    for(GroupConfiguration g : _cfg.getGroups()) {
       if(g.getType() == GroupConfiguration.GroupType.DEPENDENT) {
         _tGroups.put(g.getTransformationClass(),
             new DependentTransformationGroup(g.getName()));
@@ -79,6 +82,15 @@ public class ClawTranslator implements Translator {
     _blockDirectives = new Hashtable<>();
   }
 
+  /**
+   * Get the configuration of the current translation.
+   *
+   * @return Configuration of the current translation.
+   */
+  public Configuration cfg() {
+    return _cfg;
+  }
+
   @Override
   public void generateTransformation(XcodeProgram xcodeml, Xnode pragma)
       throws IllegalTransformationException, IllegalDirectiveException
@@ -154,10 +166,10 @@ public class ClawTranslator implements Translator {
     } else if(analyzedPragma.hasClause(ClawClause.ROUTINE)) {
       addTransformation(xcodeml, new ScaRoutine(analyzedPragma));
     } else {
-      if(Context.get().getTarget() == Target.GPU) {
+      if(xcodeml.context().getTarget() == Target.GPU) {
         addTransformation(xcodeml, new ScaGPU(analyzedPragma));
       } else {
-        if(Configuration.get().getParameter(Configuration.CPU_STRATEGY).
+        if(_cfg.getParameter(Configuration.CPU_STRATEGY).
             equalsIgnoreCase(Configuration.CPU_STRATEGY_FUSION))
         {
           addTransformation(xcodeml,
@@ -265,7 +277,8 @@ public class ClawTranslator implements Translator {
                                                   ClawPragma end)
       throws IllegalTransformationException
   {
-    if(begin == null || !begin.isApplicableToCurrentTarget()) {
+    if(begin == null || !begin.isApplicableToCurrentTarget(xcodeml.context()))
+    {
       return;
     }
     switch(begin.getDirective()) {
@@ -297,7 +310,8 @@ public class ClawTranslator implements Translator {
       throws IllegalTransformationException
   {
     if(t.getDirective() instanceof ClawPragma
-        && !((ClawPragma) t.getDirective()).isApplicableToCurrentTarget())
+        && !((ClawPragma) t.getDirective())
+        .isApplicableToCurrentTarget(xcodeml.context()))
     {
       return;
     }
@@ -6,32 +6,39 @@ package claw.wani.x2t.translator;
 
 import claw.shenron.transformation.TransformationGroup;
 import claw.tatsu.common.CompilerDirective;
-import claw.tatsu.common.Context;
 import claw.tatsu.common.Message;
 import claw.tatsu.common.Target;
 import claw.tatsu.primitive.Pragma;
 import claw.tatsu.xcodeml.exception.IllegalDirectiveException;
 import claw.tatsu.xcodeml.exception.IllegalTransformationException;
 import claw.tatsu.xcodeml.xnode.common.Xcode;
+import claw.tatsu.xcodeml.xnode.common.XcodeML;
 import claw.tatsu.xcodeml.xnode.common.XcodeProgram;
 import claw.tatsu.xcodeml.xnode.common.Xnode;
 import claw.wani.ClawConstant;
 import claw.wani.language.ClawPragma;
 import claw.wani.transformation.ClawTransformation;
+import claw.wani.x2t.configuration.ClassRegistry;
 import claw.wani.x2t.configuration.Configuration;
 import claw.wani.x2t.configuration.GroupConfiguration;
 import xcodeml.util.XmOption;
 
 import java.io.PrintWriter;
 import java.io.StringWriter;
-import java.lang.reflect.Constructor;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * ClawTranslatorDriver is the class driving the translation. It creates the
  * translator and pass to it all the directives it can manage.
  * It is also in charge of decompiling the XcodeML/F after the translation took
  * place.
+ * When the XcodeML/F output is written asynchronously, a snapshot of the
+ * translation unit is written on a background thread so the decompilation can
+ * start from the in-memory translation unit right away.
  *
  * @author clementval
  */
@@ -39,35 +46,40 @@ public class ClawTranslatorDriver {
 
   private final String _xcodemlInputFile;
   private final String _xcodemlOutputFile;
+  private final Configuration _cfg;
   private boolean _canTransform = false;
   private ClawTranslator _translator;
   private XcodeProgram _translationUnit = null;
+  private boolean _asyncOutput = false;
+  private Future<?> _pendingOutput = null;
 
   /**
    * ClawTranslatorDriver ctor.
    *
    * @param xcodemlInputFile  The XcodeML input file path.
    * @param xcodemlOutputFile The XcodeML output file path.
+   * @param cfg               Configuration of the translation.
    * @throws Exception If translator cannot be created.
    */
-  public ClawTranslatorDriver(String xcodemlInputFile, String xcodemlOutputFile)
+  public ClawTranslatorDriver(String xcodemlInputFile, String xcodemlOutputFile,
+                              Configuration cfg)
       throws Exception
   {
     _xcodemlInputFile = xcodemlInputFile;
     _xcodemlOutputFile = xcodemlOutputFile;
+    _cfg = cfg;
 
     // Create translator
-    String translatorClassPath =
-        Configuration.get().getParameter(Configuration.TRANSLATOR);
+    String translatorClassPath = _cfg.getParameter(Configuration.TRANSLATOR);
     if(translatorClassPath == null || translatorClassPath.equals("")) {
       throw new Exception("Translator not set in configuration");
     }
 
     try {
       // Check if class is there
-      Class<?> translatorClass = Class.forName(translatorClassPath);
-      Constructor<?> ctor = translatorClass.getConstructor();
-      _translator = (ClawTranslator) ctor.newInstance();
+      Class<?> translatorClass =
+          ClassRegistry.forName(translatorClassPath, null);
+      _translator = ClassRegistry.newTranslator(translatorClass, _cfg);
     } catch(ClassNotFoundException e) {
       throw new Exception("Cannot create translator");
     }
@@ -76,18 +88,20 @@ public class ClawTranslatorDriver {
   /**
    * Analysis the XcodeML/F directives and categorized them in corresponding
    * transformation with the help of the translator.
+   *
+   * @throws TranslationAbortedException If the analysis reported errors.
    */
-  public void analyze() {
+  public void analyze() throws TranslationAbortedException {
     _translationUnit = (_xcodemlInputFile == null) ?
-        XcodeProgram.createFromStdInput() :
-        XcodeProgram.createFromFile(_xcodemlInputFile);
+        XcodeProgram.createFromStdInput(_cfg.context()) :
+        XcodeProgram.createFromFile(_xcodemlInputFile, _cfg.context());
 
     if(_translationUnit.hasErrors()) {
       abort();
     }
 
-    if(Configuration.get().getCurrentDirective() == CompilerDirective.OPENMP
-        && Configuration.get().getCurrentTarget() == Target.CPU)
+    if(_cfg.getCurrentDirective() == CompilerDirective.OPENMP
+        && _cfg.getCurrentTarget() == Target.CPU)
     {
       _translationUnit.addWarning("Fine grain OpenMP directive generation " +
           "is not advised for CPU target.", 0);
@@ -108,11 +122,11 @@ public class ClawTranslatorDriver {
           _translator.generateTransformation(_translationUnit, pragma);
         } else {
           // Check if the pragma is a compile guard
-          if(Context.get().getGenerator().isCompileGuard(pragma.value())) {
+          if(_cfg.context().getGenerator().isCompileGuard(pragma.value())) {
             pragma.delete();
           } else {
             // Handle special transformation of OpenACC line continuation
-            for(GroupConfiguration gc : Configuration.get().getGroups()) {
+            for(GroupConfiguration gc : _cfg.getGroups()) {
               if(gc.getTriggerType() == GroupConfiguration.TriggerType.DIRECTIVE
                   && Pragma.getPrefix(pragma).equals(gc.getDirective()))
               {
@@ -134,7 +148,7 @@ public class ClawTranslatorDriver {
     }
 
     // Generate transformation for translation_unit trigger type
-    for(GroupConfiguration gc : Configuration.get().getGroups()) {
+    for(GroupConfiguration gc : _cfg.getGroups()) {
       if(gc.getTriggerType() ==
           GroupConfiguration.TriggerType.TRANSLATION_UNIT)
       {
@@ -151,20 +165,16 @@ public class ClawTranslatorDriver {
    *
    * @param gc     Group configuration for the
    * @param pragma Pragma associated with the transformation.
+   * @throws TranslationAbortedException If the transformation cannot be
+   *                                     created.
    */
   private void generateTransformation(GroupConfiguration gc,
                                       ClawPragma pragma)
+      throws TranslationAbortedException
   {
     try {
-      Class<?> groupClass = gc.getTransformationClass();
-      ClawTransformation transformation;
-      if(pragma != null) {
-        Constructor<?> ctor = groupClass.getConstructor(ClawPragma.class);
-        transformation = (ClawTransformation) ctor.newInstance(pragma);
-      } else {
-        Constructor<?> ctor = groupClass.getConstructor();
-        transformation = (ClawTransformation) ctor.newInstance();
-      }
+      ClawTransformation transformation =
+          gc.getTransformationFactory().create(pragma);
       _translator.addTransformation(_translationUnit, transformation);
     } catch(Exception ex) {
       System.err.println("Cannot generate transformation " + gc.getName());
@@ -175,53 +185,122 @@ public class ClawTranslatorDriver {
 
   /**
    * Apply all the transformation in the pipeline.
+   *
+   * @throws TranslationAbortedException If a transformation failed.
    */
-  public void transform() {
-    try {
-      if(!_canTransform) {
-        _translationUnit.write(_xcodemlOutputFile, ClawConstant.INDENT_OUTPUT);
-        return;
-      }
+  public void transform() throws TranslationAbortedException {
+    if(!_canTransform) {
+      writeTranslationUnit();
+      return;
+    }
 
-      for(Map.Entry<Class, TransformationGroup> entry :
-          _translator.getGroups().entrySet()) {
-        Message.debug("Apply transformation: " +
-            entry.getValue().transformationName() + " - " +
-            entry.getValue().count()
-        );
-
-        try {
-          entry.getValue().applyTransformations(_translationUnit, _translator);
-          Message.warnings(_translationUnit);
-        } catch(IllegalTransformationException itex) {
-          _translationUnit.addError(itex.getMessage(), itex.getStartLine());
-          abort();
-        } catch(Exception ex) {
-          _translationUnit.addError("Unexpected error: " + ex.getMessage(), 0);
-          if(XmOption.isDebugOutput()) {
-            StringWriter errors = new StringWriter();
-            ex.printStackTrace(new PrintWriter(errors));
-            _translationUnit.addError(errors.toString(), 0);
-          }
-          abort();
+    for(Map.Entry<Class, TransformationGroup> entry :
+        _translator.getGroups().entrySet()) {
+      Message.debug("Apply transformation: " +
+          entry.getValue().transformationName() + " - " +
+          entry.getValue().count()
+      );
+
+      try {
+        entry.getValue().applyTransformations(_translationUnit, _translator);
+        Message.warnings(_translationUnit);
+      } catch(IllegalTransformationException itex) {
+        _translationUnit.addError(itex.getMessage(), itex.getStartLine());
+        abort();
+      } catch(Exception ex) {
+        _translationUnit.addError("Unexpected error: " + ex.getMessage(), 0);
+        if(XmOption.isDebugOutput()) {
+          StringWriter errors = new StringWriter();
+          ex.printStackTrace(new PrintWriter(errors));
+          _translationUnit.addError(errors.toString(), 0);
         }
+        abort();
       }
+    }
 
-      if(_xcodemlOutputFile != null) {
-        // Write transformed IR to file
-        _translationUnit.write(_xcodemlOutputFile, ClawConstant.INDENT_OUTPUT);
+    if(_xcodemlOutputFile != null) {
+      // Write transformed IR to file
+      if(_asyncOutput) {
+        writeTranslationUnitAsync();
+      } else {
+        writeTranslationUnit();
       }
+    }
+  }
+
+  /**
+   * Write a snapshot of the current translation unit to the XcodeML output
+   * file on a background thread.
+   */
+  private void writeTranslationUnitAsync() {
+    XcodeML snapshot = _translationUnit.snapshot();
+    ExecutorService writer = Executors.newSingleThreadExecutor();
+    _pendingOutput = writer.submit(() -> {
+      snapshot.write(_xcodemlOutputFile, ClawConstant.INDENT_OUTPUT);
+      return null;
+    });
+    writer.shutdown();
+  }
+
+  /**
+   * Wait until the XcodeML output file is completely written. Does nothing if
+   * the output is written synchronously.
+   *
+   * @throws InterruptedException If interrupted while waiting.
+   */
+  public void awaitOutput() throws InterruptedException {
+    if(_pendingOutput == null) {
+      return;
+    }
+    try {
+      _pendingOutput.get();
+    } catch(ExecutionException ex) {
+      System.err.println("Transformation exception: "
+          + ex.getCause().getMessage());
+    } finally {
+      _pendingOutput = null;
+    }
+  }
+
+  /**
+   * Enable or disable the asynchronous write of the XcodeML output file.
+   *
+   * @param asyncOutput If true, the XcodeML output file is written on a
+   *                    background thread. See {@link #awaitOutput()}.
+   */
+  public void setAsyncOutput(boolean asyncOutput) {
+    _asyncOutput = asyncOutput;
+  }
+
+  /**
+   * Check whether the XcodeML output file is written asynchronously.
+   *
+   * @return True if the output is written on a background thread.
+   */
+  public boolean isAsyncOutput() {
+    return _asyncOutput;
+  }
+
+  /**
+   * Write the current translation unit to the XcodeML output file.
+   */
+  private void writeTranslationUnit() {
+    try {
+      _translationUnit.write(_xcodemlOutputFile, ClawConstant.INDENT_OUTPUT);
     } catch(Exception ex) {
       System.err.println("Transformation exception: " + ex.getMessage());
     }
   }
 
   /**
-   * Print all the errors stored in the XcodeML object and abort the program.
+   * Print all the errors stored in the XcodeML object and abort the
+   * translation of the current translation unit.
+   *
+   * @throws TranslationAbortedException Always.
    */
-  private void abort() {
+  private void abort() throws TranslationAbortedException {
     Message.errors(_translationUnit);
-    System.exit(1);
+    throw new TranslationAbortedException("Translation aborted");
   }
 
   /**
@@ -232,7 +311,8 @@ public class ClawTranslatorDriver {
   public void flush()
       throws IllegalTransformationException
   {
-    Context.get().getModuleCache().write(ClawConstant.INDENT_OUTPUT);
+    _cfg.context().getModuleCache().write(_cfg.context(),
+        ClawConstant.INDENT_OUTPUT);
   }
 
   /**
@@ -244,6 +324,15 @@ public class ClawTranslatorDriver {
     return _translator;
   }
 
+  /**
+   * Get the configuration of the current translation.
+   *
+   * @return Configuration of the current translation.
+   */
+  public Configuration getConfiguration() {
+    return _cfg;
+  }
+
   /**
    * Get the XcodeProgram object representing the Fortran code translated.
    *
@@ -0,0 +1,24 @@
+/*
+ * This file is released under terms of BSD license
+ * See LICENSE file for more information
+ */
+package claw.wani.x2t.translator;
+
+/**
+ * Exception thrown by the translator driver when the translation of the
+ * current translation unit cannot go further. Errors have already been
+ * reported when this exception is thrown.
+ *
+ * @author clementval
+ */
+public class TranslationAbortedException extends Exception {
+
+  /**
+   * Constructs a new exception with a specific detail message.
+   *
+   * @param message Specific exception message.
+   */
+  public TranslationAbortedException(String message) {
+    super(message);
+  }
+}
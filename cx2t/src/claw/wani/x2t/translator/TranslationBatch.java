@@ -0,0 +1,208 @@
+/*
+ * This file is released under terms of BSD license
+ * See LICENSE file for more information
+ */
+package claw.wani.x2t.translator;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * A translation batch holds several independent translation units and
+ * translates them concurrently on a pool of worker threads. Each translation
+ * creates its own Configuration and Context so the translation units do not
+ * share any mutable state.
+ *
+ * @author clementval
+ */
+public class TranslationBatch {
+
+  private static final String XCODEML_EXT = ".xml";
+  private static final String FORTRAN_EXT = ".f90";
+  private static final String COMMENT = "#";
+
+  private final List<Unit> _units;
+
+  /**
+   * Constructs a new batch from a list of translation units.
+   *
+   * @param units Translation units of the batch.
+   */
+  public TranslationBatch(List<Unit> units) {
+    _units = Collections.unmodifiableList(new ArrayList<>(units));
+  }
+
+  /**
+   * Read a batch from a manifest file. Each non empty line describes one
+   * translation unit with the following whitespace separated fields:<br>
+   * XcodeML input file, Fortran output file and an optional XcodeML output
+   * file.<br>
+   * Relative paths are relative to the directory of the manifest. Lines
+   * starting with # are ignored.
+   *
+   * @param manifest Path to the manifest file.
+   * @return New batch with all the translation units of the manifest.
+   * @throws IOException If the manifest cannot be read or is malformed.
+   */
+  public static TranslationBatch fromManifest(String manifest)
+      throws IOException
+  {
+    List<Unit> units = new ArrayList<>();
+    Path baseDir = Paths.get(manifest).toAbsolutePath().getParent();
+    int lineNumber = 0;
+    for(String line : Files.readAllLines(Paths.get(manifest),
+        StandardCharsets.UTF_8))
+    {
+      ++lineNumber;
+      String entry = line.trim();
+      if(entry.isEmpty() || entry.startsWith(COMMENT)) {
+        continue;
+      }
+      String[] fields = entry.split("\\s+");
+      if(fields.length < 2 || fields.length > 3) {
+        throw new IOException(String.format(
+            "%s:%d: expected <input> <fortran output> [<xcodeml output>]",
+            manifest, lineNumber));
+      }
+      units.add(new Unit(baseDir.resolve(fields[0]).toString(),
+          baseDir.resolve(fields[1]).toString(),
+          fields.length == 3 ? baseDir.resolve(fields[2]).toString() : null));
+    }
+    return new TranslationBatch(units);
+  }
+
+  /**
+   * Create a batch from a list of XcodeML input files. Output files are
+   * named after the input file and placed in the given directories.
+   *
+   * @param inputs     XcodeML input files.
+   * @param fortranDir Output directory for the Fortran files.
+   * @param xcodemlDir Output directory for the XcodeML files. Can be null.
+   * @return New batch with one translation unit per input file.
+   */
+  public static TranslationBatch fromInputs(List<String> inputs,
+                                            String fortranDir,
+                                            String xcodemlDir)
+  {
+    List<Unit> units = new ArrayList<>();
+    for(String input : inputs) {
+      String baseName = new File(input).getName();
+      if(baseName.endsWith(XCODEML_EXT)) {
+        baseName = baseName.substring(0,
+            baseName.length() - XCODEML_EXT.length());
+      }
+      units.add(new Unit(input,
+          new File(fortranDir, baseName + FORTRAN_EXT).getPath(),
+          xcodemlDir == null ? null :
+              new File(xcodemlDir, baseName + XCODEML_EXT).getPath()));
+    }
+    return new TranslationBatch(units);
+  }
+
+  /**
+   * Get the translation units of the batch.
+   *
+   * @return Unmodifiable list of translation units.
+   */
+  public List<Unit> getUnits() {
+    return _units;
+  }
+
+  /**
+   * Translate all the units of the batch. The translation of a unit does not
+   * stop the other ones if it fails.
+   *
+   * @param jobs       Number of concurrent translations.
+   * @param translator Translation applied to every unit.
+   * @return 0 if all translations succeeded. Highest exit status otherwise.
+   * @throws InterruptedException If the batch is interrupted.
+   */
+  public int run(int jobs, UnitTranslator translator)
+      throws InterruptedException
+  {
+    ExecutorService pool =
+        Executors.newFixedThreadPool(Math.max(1, Math.min(jobs,
+            _units.size())));
+    try {
+      List<Future<Integer>> results = new ArrayList<>();
+      for(Unit unit : _units) {
+        results.add(pool.submit(() -> translator.translate(unit)));
+      }
+      int status = 0;
+      for(int i = 0; i < results.size(); ++i) {
+        try {
+          status = Math.max(status, results.get(i).get());
+        } catch(ExecutionException ex) {
+          System.err.println(_units.get(i).getInput() + ": "
+              + ex.getCause().getMessage());
+          status = Math.max(status, 1);
+        }
+      }
+      return status;
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+
+  /**
+   * Translation applied to each unit of the batch.
+   */
+  @FunctionalInterface
+  public interface UnitTranslator {
+
+    /**
+     * Translate a single unit.
+     *
+     * @param unit Translation unit.
+     * @return Exit status of the translation. 0 if successful.
+     * @throws Exception If the translation failed unexpectedly.
+     */
+    int translate(Unit unit) throws Exception;
+  }
+
+  /**
+   * Input and output files of a single translation unit.
+   */
+  public static class Unit {
+
+    private final String _input;
+    private final String _fortranOutput;
+    private final String _xcodemlOutput;
+
+    /**
+     * Constructs a new translation unit.
+     *
+     * @param input         XcodeML input file.
+     * @param fortranOutput Fortran output file.
+     * @param xcodemlOutput XcodeML output file. Can be null.
+     */
+    public Unit(String input, String fortranOutput, String xcodemlOutput) {
+      _input = input;
+      _fortranOutput = fortranOutput;
+      _xcodemlOutput = xcodemlOutput;
+    }
+
+    public String getInput() {
+      return _input;
+    }
+
+    public String getFortranOutput() {
+      return _fortranOutput;
+    }
+
+    public String getXcodemlOutput() {
+      return _xcodemlOutput;
+    }
+  }
+}
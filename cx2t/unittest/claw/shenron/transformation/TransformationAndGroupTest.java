@@ -6,14 +6,20 @@ package claw.shenron.transformation;
 
 import claw.shenron.translator.AnalyzedPragma;
 import claw.shenron.translator.Translator;
+import claw.tatsu.analysis.AnalysisManager;
+import claw.tatsu.xcodeml.exception.IllegalTransformationException;
 import claw.tatsu.xcodeml.xnode.common.Xcode;
 import claw.tatsu.xcodeml.xnode.common.XcodeProgram;
 import claw.tatsu.xcodeml.xnode.common.Xnode;
+import claw.tatsu.xcodeml.xnode.fortran.FortranModule;
 import helper.XmlHelper;
 import org.junit.Test;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Set;
 
 import static junit.framework.TestCase.*;
 
@@ -36,14 +42,52 @@ public class TransformationAndGroupTest {
     ig.add(t1);
     assertEquals(1, ig.count());
     assertFalse(t1.isTransformed());
+    try {
+      ig.applyTransformations(XmlHelper.getDummyXcodeProgram(), null);
+    } catch(Exception e) {
+      fail();
+    }
+    assertTrue(t1.isTransformed());
+  }
+
+  @Test
+  public void invalidateAnalysesTest() {
     XcodeProgram xcodeml = XmlHelper.getDummyXcodeProgram();
     assertNotNull(xcodeml);
+    AnalysisManager manager = xcodeml.getAnalysisManager();
+    AnalysisManager.Kind<Xnode, Integer> depth =
+        new AnalysisManager.Kind<>("depth", (program, node) -> node.depth());
+    Xnode fctDef = xcodeml.matchDescendant(Xcode.F_FUNCTION_DEFINITION);
+    manager.get(depth, fctDef);
+
+    // Analyses preserved by the transformation are kept
+    TransformationGroup ig = new IndependentTransformationGroup("ig");
+    ig.add(new T1() {
+      @Override
+      public Set<AnalysisManager.Kind<?, ?>> preservedAnalyses() {
+        return Collections.singleton(depth);
+      }
+    });
     try {
       ig.applyTransformations(xcodeml, null);
     } catch(Exception e) {
       fail();
     }
-    assertTrue(t1.isTransformed());
+    manager.get(depth, fctDef);
+    assertEquals(1, manager.getHits());
+    assertEquals(1, manager.getMisses());
+
+    // The others are invalidated
+    ig = new IndependentTransformationGroup("ig");
+    ig.add(new T1());
+    try {
+      ig.applyTransformations(xcodeml, null);
+    } catch(Exception e) {
+      fail();
+    }
+    manager.get(depth, fctDef);
+    assertEquals(1, manager.getHits());
+    assertEquals(2, manager.getMisses());
   }
 
   private void groupTest(TransformationGroup tg, String name) {
@@ -66,6 +110,115 @@ public class TransformationAndGroupTest {
     assertEquals(1, tg.getAppliedTransformationCount());
   }
 
+  @Test
+  public void independentGroupOrderTest() {
+    XcodeProgram xcodeml = XmlHelper.getDummyXcodeProgram();
+    List<Xnode> fctDefs = xcodeml.matchAll(Xcode.F_FUNCTION_DEFINITION);
+    assertEquals(2, fctDefs.size());
+
+    List<Transformation> applied = new ArrayList<>();
+    TransformationGroup ig = new IndependentTransformationGroup("ig");
+    T3 t1 = new T3(createPragma(xcodeml, fctDefs.get(0), 1), applied);
+    T3 t2 = new T3(createPragma(xcodeml, fctDefs.get(1), 2), applied);
+    T3 t3 = new T3(createPragma(xcodeml, fctDefs.get(0), 3), applied);
+    ig.add(t1);
+    ig.add(t2);
+    ig.add(t3);
+    try {
+      ig.applyTransformations(xcodeml, null);
+    } catch(Exception e) {
+      fail();
+    }
+    assertEquals(3, ig.getAppliedTransformationCount());
+    assertEquals(Arrays.asList(t1, t2, t3), applied);
+
+    // Failure is reported with the line of its directive
+    TransformationGroup failing = new IndependentTransformationGroup("fg");
+    failing.add(new T3(createPragma(xcodeml, fctDefs.get(0), 4), applied));
+    T3 t5 = new T3(createPragma(xcodeml, fctDefs.get(1), 5), applied);
+    t5._fail = true;
+    failing.add(t5);
+    try {
+      failing.applyTransformations(xcodeml, null);
+      fail();
+    } catch(IllegalTransformationException itex) {
+      assertEquals(5, itex.getStartLine());
+    } catch(Exception e) {
+      fail();
+    }
+  }
+
+  @Test
+  public void skipFailedTransformationTest() {
+    XcodeProgram xcodeml = XmlHelper.getDummyXcodeProgram();
+    xcodeml.context().setSkipFailedTransformation(true);
+    Xnode fctDef = xcodeml.matchDescendant(Xcode.F_FUNCTION_DEFINITION);
+
+    List<Transformation> applied = new ArrayList<>();
+    TransformationGroup ig = new IndependentTransformationGroup("ig");
+    T3 t1 = new T3(createPragma(xcodeml, fctDef, 1), applied);
+    t1._fail = true;
+    T3 t2 = new T3(createPragma(xcodeml, fctDef, 2), applied);
+    int pragmas = fctDef.matchAll(Xcode.F_PRAGMA_STATEMENT).size();
+    ig.add(t1);
+    ig.add(t2);
+    try {
+      ig.applyTransformations(xcodeml, null);
+    } catch(Exception e) {
+      fail();
+    }
+    // Failed transformation is rolled back and reported as a warning
+    assertEquals(Collections.singletonList(t2), applied);
+    assertEquals(pragmas, fctDef.matchAll(Xcode.F_PRAGMA_STATEMENT).size());
+    assertEquals(0, xcodeml.getErrors().size());
+    assertEquals(1, xcodeml.getWarnings().size());
+    assertTrue(xcodeml.getWarnings().get(0).getMessage()
+        .startsWith("Transformation skipped"));
+    assertEquals(1, (int) xcodeml.getWarnings().get(0).getLines().get(0));
+
+    // Failures after a cached module was modified are not skipped
+    FortranModule module = new FortranModule(xcodeml.getDocument(), "mod1",
+        "");
+    xcodeml.context().getModuleCache().add("mod1", module);
+    TransformationGroup moduleGroup = new IndependentTransformationGroup("mg");
+    T3 t4 = new T3(createPragma(xcodeml, fctDef, 4), applied);
+    t4._fail = true;
+    t4._module = module;
+    moduleGroup.add(t4);
+    try {
+      moduleGroup.applyTransformations(xcodeml, null);
+      fail();
+    } catch(IllegalTransformationException itex) {
+      assertTrue(module.isDirty());
+      assertEquals(1, xcodeml.getWarnings().size());
+    } catch(Exception e) {
+      fail();
+    }
+
+    // Failures abort the translation without the option
+    xcodeml.context().setSkipFailedTransformation(false);
+    TransformationGroup failing = new IndependentTransformationGroup("fg");
+    t1 = new T3(createPragma(xcodeml, fctDef, 3), applied);
+    t1._fail = true;
+    failing.add(t1);
+    try {
+      failing.applyTransformations(xcodeml, null);
+      fail();
+    } catch(IllegalTransformationException ignored) {
+    } catch(Exception e) {
+      fail();
+    }
+  }
+
+  private AnalyzedPragma createPragma(XcodeProgram xcodeml, Xnode fctDef,
+                                      int line)
+  {
+    Xnode pragma = xcodeml.createNode(Xcode.F_PRAGMA_STATEMENT);
+    pragma.setLine(line);
+    fctDef.matchDirectDescendant(Xcode.BODY).append(pragma);
+    return new AnalyzedPragma(pragma);
+  }
+
   @Test
   public void dependentTransformationAddingOrderTest() {
     Transformation t1 = new T1();
@@ -85,6 +238,47 @@ public class TransformationAndGroupTest {
     assertEquals(t1, tg.getTransformations().get(0));
     assertEquals(t2, tg.getTransformations().get(1));
     assertEquals(t3, tg.getTransformations().get(2));
+
+    // Transformations added after a lookup or set at once are ordered too
+    Transformation t4 = new T1();
+    t4.setStartLine(10);
+    tg.add(t4);
+    assertEquals(Arrays.asList(t1, t4, t2, t3), tg.getTransformations());
+    tg.setTransformations(Arrays.asList(t3, t1));
+    assertEquals(Arrays.asList(t1, t3), tg.getTransformations());
+  }
+
+  @Test
+  public void dependentGroupGroupingKeyTest() {
+    List<String> checks = new ArrayList<>();
+    T4 a1 = new T4("a1", "a", 1, checks);
+    T4 b1 = new T4("b1", "b", 2, checks);
+    T4 a2 = new T4("a2", "a", 3, checks);
+    T4 n1 = new T4("n1", null, 4, checks);
+    T4 b2 = new T4("b2", "b", 5, checks);
+    T4 a3 = new T4("a3", "a", 5, checks);
+
+    TransformationGroup dg = new DependentTransformationGroup("dg");
+    for(T4 t : new T4[]{a3, b2, n1, a2, b1, a1}) {
+      dg.add(t);
+    }
+    // Same line keeps the adding order
+    assertEquals(a3, dg.getTransformations().get(4));
+    assertEquals(b2, dg.getTransformations().get(5));
+
+    try {
+      dg.applyTransformations(null, null);
+    } catch(Exception e) {
+      fail();
+    }
+    // Only pairs sharing a key or involving a transformation without key are
+    // checked, and transformed candidates are skipped.
+    assertEquals(Arrays.asList("a1:a2", "a1:n1", "a1:a3", "b1:n1", "b1:b2",
+        "a2:n1"), checks);
+    assertTrue(a3.isTransformed());
+    assertTrue(b2.isTransformed());
+    assertFalse(n1.isTransformed());
+    assertEquals(8, dg.getAppliedTransformationCount());
   }
 
   @Test
@@ -163,6 +357,88 @@ public class TransformationAndGroupTest {
     }
   }
 
+  /**
+   * Only for testing purpose in claw.shenron
+   */
+  private class T3 extends Transformation {
+
+    private final List<Transformation> _applied;
+    private boolean _fail = false;
+    private FortranModule _module = null;
+
+    T3(AnalyzedPragma pragma, List<Transformation> applied) {
+      super(pragma);
+      _applied = applied;
+    }
+
+    @Override
+    public boolean analyze(XcodeProgram xcodeml, Translator translator) {
+      return true;
+    }
+
+    @Override
+    public boolean canBeTransformedWith(XcodeProgram xcodeml,
+                                        Transformation other)
+    {
+      return false;
+    }
+
+    @Override
+    public void transform(XcodeProgram xcodeml, Translator translator,
+                          Transformation other)
+        throws IllegalTransformationException
+    {
+      if(_fail) {
+        getDirective().getPragma().delete();
+        if(_module != null) {
+          _module.setDirty(true);
+        }
+        throw new IllegalTransformationException("failed");
+      }
+      _applied.add(this);
+      transformed();
+    }
+  }
+
+  /**
+   * Only for testing purpose in claw.shenron. Merges transformations with the
+   * same key.
+   */
+  private class T4 extends T1 {
+
+    private final String _name;
+    private final String _key;
+    private final List<String> _checks;
+
+    T4(String name, String key, int line, List<String> checks) {
+      _name = name;
+      _key = key;
+      _checks = checks;
+      setStartLine(line);
+    }
+
+    @Override
+    public Object getGroupingKey() {
+      return _key;
+    }
+
+    @Override
+    public boolean canBeTransformedWith(XcodeProgram xcodeml,
+                                        Transformation other)
+    {
+      _checks.add(_name + ":" + ((T4) other)._name);
+      return _key != null && _key.equals(((T4) other)._key);
+    }
+
+    @Override
+    public void transform(XcodeProgram xcodeml, Translator translator,
+                          Transformation other)
+    {
+      transformed();
+      ((T4) other).transformed();
+    }
+  }
+
   /**
    * Only for testing purpose in claw.shenron
    */
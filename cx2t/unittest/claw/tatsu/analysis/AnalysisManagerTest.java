@@ -0,0 +1,68 @@
+/*
+ * This file is released under terms of BSD license
+ * See LICENSE file for more information
+ */
+package claw.tatsu.analysis;
+
+import claw.tatsu.xcodeml.xnode.common.Xcode;
+import claw.tatsu.xcodeml.xnode.common.XcodeProgram;
+import claw.tatsu.xcodeml.xnode.common.Xnode;
+import claw.tatsu.xcodeml.xnode.fortran.FfunctionDefinition;
+import helper.TestConstant;
+import helper.TestContext;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test the features of the AnalysisManager class.
+ *
+ * @author clementval
+ */
+public class AnalysisManagerTest {
+
+  @Test
+  public void memoizeAndInvalidateTest() {
+    XcodeProgram xcodeml = XcodeProgram.createFromFile(
+        TestConstant.TEST_DEPENDENCE, new TestContext());
+    assertNotNull(xcodeml);
+    AnalysisManager manager = xcodeml.getAnalysisManager();
+    List<Xnode> functions = xcodeml.matchAll(Xcode.F_FUNCTION_DEFINITION);
+    FfunctionDefinition fctDef = new FfunctionDefinition(functions.get(0));
+
+    // Results are shared by every request on the same node
+    Set<String> inductions =
+        manager.get(AnalysisManager.INDUCTION_VARIABLES, fctDef);
+    assertEquals(fctDef.detectInductionVariables(), inductions);
+    assertSame(inductions, manager.get(AnalysisManager.INDUCTION_VARIABLES,
+        new FfunctionDefinition(functions.get(0))));
+    assertNotSame(inductions, manager.get(AnalysisManager.INDUCTION_VARIABLES,
+        new FfunctionDefinition(functions.get(1))));
+    assertEquals(1, manager.getHits());
+    assertEquals(2, manager.getMisses());
+    assertNull(manager.get(AnalysisManager.INDUCTION_VARIABLES, null));
+
+    List<String> arrays = manager.get(AnalysisManager.LOCAL_ARRAYS, fctDef);
+    assertNotNull(arrays);
+
+    // Only the preserved analyses are kept
+    manager.invalidate(Collections.singleton(AnalysisManager.LOCAL_ARRAYS));
+    assertSame(arrays, manager.get(AnalysisManager.LOCAL_ARRAYS, fctDef));
+    assertNotSame(inductions,
+        manager.get(AnalysisManager.INDUCTION_VARIABLES, fctDef));
+    manager.invalidateAll();
+    assertNotSame(arrays, manager.get(AnalysisManager.LOCAL_ARRAYS, fctDef));
+
+    // Custom analysis kind
+    AnalysisManager.Kind<Xnode, Integer> loops =
+        new AnalysisManager.Kind<>("loops",
+            (program, node) -> node.matchAll(Xcode.F_DO_STATEMENT).size());
+    assertEquals(Integer.valueOf(10), manager.get(loops, fctDef));
+    assertEquals("loops", loops.toString());
+    assertTrue(manager.toString().contains("hits"));
+  }
+}
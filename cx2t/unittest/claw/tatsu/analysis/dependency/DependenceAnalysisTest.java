@@ -4,14 +4,12 @@
  */
 package claw.tatsu.analysis.dependency;
 
-import claw.tatsu.common.CompilerDirective;
-import claw.tatsu.common.Context;
-import claw.tatsu.common.Target;
 import claw.tatsu.xcodeml.xnode.common.Xcode;
 import claw.tatsu.xcodeml.xnode.common.XcodeProgram;
 import claw.tatsu.xcodeml.xnode.common.Xnode;
 
 import helper.TestConstant;
+import helper.TestContext;
 import org.junit.Test;
 
 import java.io.File;
@@ -37,7 +35,8 @@ public class DependenceAnalysisTest {
     File f = new File(TestConstant.TEST_DEPENDENCE);
     assertTrue(f.exists());
     XcodeProgram xcodeml =
-        XcodeProgram.createFromFile(TestConstant.TEST_DEPENDENCE);
+        XcodeProgram.createFromFile(TestConstant.TEST_DEPENDENCE,
+            new TestContext());
     assertNotNull(xcodeml);
 
     // Match all the function definitions
@@ -103,7 +102,8 @@ public class DependenceAnalysisTest {
     File f = new File(TestConstant.TEST_DEPENDENCE_3D);
     assertTrue(f.exists());
     XcodeProgram xcodeml =
-        XcodeProgram.createFromFile(TestConstant.TEST_DEPENDENCE_3D);
+        XcodeProgram.createFromFile(TestConstant.TEST_DEPENDENCE_3D,
+            new TestContext());
     assertNotNull(xcodeml);
 
     // Match all the function definitions
@@ -114,9 +114,6 @@ public class DependenceAnalysisTest {
     List<Xnode> pragmas = xcodeml.matchAll(Xcode.F_PRAGMA_STATEMENT);
     assertEquals(1, pragmas.size());
 
-    // Analyze the pragma
-    Context.get().init(CompilerDirective.OPENACC, Target.GPU, null, 80);
-
     // Get the function definition that interests us
     Xnode fctDef = functions.get(0);
 
@@ -131,7 +128,7 @@ public class DependenceAnalysisTest {
     File f = new File(TestConstant.TEST_PERFECTLY_NESTED_NO_DEP);
     assertTrue(f.exists());
     XcodeProgram xcodeml =
-        XcodeProgram.createFromFile(f.getPath());
+        XcodeProgram.createFromFile(f.getPath(), new TestContext());
     assertNotNull(xcodeml);
 
     // Match all the function definitions
@@ -142,9 +139,6 @@ public class DependenceAnalysisTest {
     List<Xnode> pragmas = xcodeml.matchAll(Xcode.F_PRAGMA_STATEMENT);
     assertEquals(1, pragmas.size());
 
-    // Analyze the pragma
-    Context.get().init(CompilerDirective.OPENACC, Target.GPU, null, 80);
-
     // Get the function definition that interests us
     Xnode fctDef = functions.get(0);
 
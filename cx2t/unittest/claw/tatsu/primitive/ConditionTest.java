@@ -8,6 +8,7 @@ import claw.tatsu.xcodeml.xnode.common.Xcode;
 import claw.tatsu.xcodeml.xnode.common.XcodeProgram;
 import claw.tatsu.xcodeml.xnode.common.Xnode;
 import helper.TestConstant;
+import helper.TestContext;
 import org.junit.Test;
 
 import java.util.Collections;
@@ -25,7 +26,8 @@ public class ConditionTest {
   @Test
   public void dependsOnTest() {
     XcodeProgram xcodeml =
-        XcodeProgram.createFromFile(TestConstant.TEST_ASSIGN_STMT);
+        XcodeProgram.createFromFile(TestConstant.TEST_ASSIGN_STMT,
+            new TestContext());
     assertNotNull(xcodeml);
 
     List<Xnode> nodes = xcodeml.matchAll(Xcode.F_IF_STATEMENT);
@@ -15,6 +15,7 @@ import claw.tatsu.xcodeml.xnode.fortran.FortranType;
 import claw.tatsu.xcodeml.xnode.fortran.FfunctionDefinition;
 
 import helper.TestConstant;
+import helper.TestContext;
 import org.junit.Test;
 
 import java.util.Arrays;
@@ -169,7 +170,8 @@ public class FieldTest {
     List<DimensionDefinition> dimensions2 = Arrays.asList(dim1, dim2);
 
     XcodeProgram xcodeml =
-        XcodeProgram.createFromFile(TestConstant.TEST_PROMOTION);
+        XcodeProgram.createFromFile(TestConstant.TEST_PROMOTION,
+            new TestContext());
     assertNotNull(xcodeml);
 
     List<FfunctionDefinition> fctDefs = xcodeml.getAllFctDef();
@@ -5,13 +5,13 @@
 package claw.tatsu.primitive;
 
 import claw.tatsu.common.CompilerDirective;
-import claw.tatsu.common.Context;
 import claw.tatsu.common.Target;
 import claw.tatsu.xcodeml.exception.IllegalTransformationException;
 import claw.tatsu.xcodeml.xnode.common.Xcode;
 import claw.tatsu.xcodeml.xnode.common.XcodeProgram;
 import claw.tatsu.xcodeml.xnode.fortran.FfunctionDefinition;
 import claw.tatsu.xcodeml.xnode.common.Xnode;
+import helper.TestContext;
 import helper.XmlHelper;
 import org.junit.Assert;
 import org.junit.Test;
@@ -64,7 +64,6 @@ public class PragmaTest {
 
   @Test
   public void splitTest() {
-    Context.get().init(CompilerDirective.OPENACC, Target.GPU, null, 80);
     String p1 = "acc data present(var1,var2,var3,var4,var5,var6,var7,var8," +
         "var10,var11,var12,var13,var14,var15,var16)";
     int maxCol = 40;
@@ -122,9 +121,8 @@ public class PragmaTest {
 
   @Test
   public void splitByContTest() {
-    Context.get().init(CompilerDirective.OPENACC, Target.GPU, null, 80);
-
-    XcodeProgram xcodeml = XmlHelper.getDummyXcodeProgram();
+    XcodeProgram xcodeml = XmlHelper.getDummyXcodeProgram(
+        new TestContext(CompilerDirective.OPENACC, Target.GPU));
     List<FfunctionDefinition> fctDefs = xcodeml.getAllFctDef();
     assertFalse(fctDefs.isEmpty());
     FfunctionDefinition fd = fctDefs.get(0);
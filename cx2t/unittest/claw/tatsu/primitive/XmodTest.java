@@ -20,22 +20,26 @@ public class XmodTest {
 
   @Test
   public void getSuffixTest() {
-    Context.get().init(CompilerDirective.OPENACC, Target.GPU, null, 80);
     // .[directive].[target].claw
-    assertEquals(".openacc.gpu.claw.xmod", Xmod.getSuffix());
-    Context.get().init(CompilerDirective.OPENMP, Target.CPU, null, 80);
-    assertEquals(".openmp.cpu.claw.xmod", Xmod.getSuffix());
-    Context.get().init(CompilerDirective.NONE, Target.CPU, null, 80);
-    assertEquals(".none.cpu.claw.xmod", Xmod.getSuffix());
-    Context.get().init(CompilerDirective.OPENMP, Target.MIC, null, 80);
-    assertEquals(".openmp.mic.claw.xmod", Xmod.getSuffix());
-    Context.get().init(CompilerDirective.NONE, Target.FPGA, null, 80);
-    assertEquals(".none.fpga.claw.xmod", Xmod.getSuffix());
-    Context.get().init(CompilerDirective.OPENACC, null, null, 80);
-    assertEquals(".openacc.none.claw.xmod", Xmod.getSuffix());
-    Context.get().init(null, null, null, 80);
-    assertEquals(".none.none.claw.xmod", Xmod.getSuffix());
-    Context.get().init(CompilerDirective.NONE, Target.GPU, null, 80);
-    assertEquals(".none.gpu.claw.xmod", Xmod.getSuffix());
+    assertEquals(".openacc.gpu.claw.xmod",
+        suffix(CompilerDirective.OPENACC, Target.GPU));
+    assertEquals(".openmp.cpu.claw.xmod",
+        suffix(CompilerDirective.OPENMP, Target.CPU));
+    assertEquals(".none.cpu.claw.xmod",
+        suffix(CompilerDirective.NONE, Target.CPU));
+    assertEquals(".openmp.mic.claw.xmod",
+        suffix(CompilerDirective.OPENMP, Target.MIC));
+    assertEquals(".none.fpga.claw.xmod",
+        suffix(CompilerDirective.NONE, Target.FPGA));
+    assertEquals(".openacc.none.claw.xmod",
+        suffix(CompilerDirective.OPENACC, null));
+    assertEquals(".none.none.claw.xmod",
+        suffix(null, null));
+    assertEquals(".none.gpu.claw.xmod",
+        suffix(CompilerDirective.NONE, Target.GPU));
+  }
+
+  private String suffix(CompilerDirective directive, Target target) {
+    return Xmod.getSuffix(new Context(directive, target, null, 80));
   }
 }
@@ -9,6 +9,7 @@ import claw.tatsu.xcodeml.xnode.common.XcodeProgram;
 import claw.tatsu.xcodeml.xnode.common.Xnode;
 import claw.tatsu.xcodeml.xnode.fortran.FfunctionDefinition;
 import helper.TestConstant;
+import helper.TestContext;
 import org.junit.Test;
 
 import java.util.List;
@@ -26,7 +27,8 @@ public class AssignStatementTest {
   @Test
   public void gatherAssignmentTest1() {
     XcodeProgram xcodeml =
-        XcodeProgram.createFromFile(TestConstant.TEST_ASSIGN_STMT);
+        XcodeProgram.createFromFile(TestConstant.TEST_ASSIGN_STMT,
+            new TestContext());
     assertNotNull(xcodeml);
 
     List<Xnode> nodes = xcodeml.matchAll(Xcode.F_FUNCTION_DEFINITION);
@@ -51,7 +53,8 @@ public class AssignStatementTest {
   @Test
   public void gatherAssignmentTest2() {
     XcodeProgram xcodeml =
-        XcodeProgram.createFromFile(TestConstant.TEST_ASSIGN_STMT2);
+        XcodeProgram.createFromFile(TestConstant.TEST_ASSIGN_STMT2,
+            new TestContext());
     assertNotNull(xcodeml);
 
     List<Xnode> nodes = xcodeml.matchAll(Xcode.F_FUNCTION_DEFINITION);
@@ -0,0 +1,153 @@
+/*
+ * This file is released under terms of BSD license
+ * See LICENSE file for more information
+ */
+package claw.tatsu.xcodeml.module;
+
+import claw.tatsu.common.Context;
+import claw.tatsu.primitive.Xmod;
+import claw.tatsu.xcodeml.xnode.fortran.FortranModule;
+import helper.TestContext;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test the features of the ModuleCache class.
+ *
+ * @author clementval
+ */
+public class ModuleCacheTest {
+
+  private static final String MODULE = "<OmniFortranModule version=\"1.0\">\n"
+      + "  <name>%s</name>\n"
+      + "  <typeTable/>\n"
+      + "  <identifiers/>\n"
+      + "</OmniFortranModule>\n";
+
+  @Test
+  public void writeTest() throws Exception {
+    Path dir = Files.createTempDirectory("claw-cache");
+    try {
+      Context context = new TestContext();
+      ModuleCache cache = context.getModuleCache();
+      cache.addSearchPath(dir.toString());
+      for(String name : new String[]{"mod1", "mod2", "mod3"}) {
+        Files.write(dir.resolve(name + ".xmod"), String.format(MODULE, name)
+            .getBytes(StandardCharsets.UTF_8));
+      }
+      FortranModule mod1 = Xmod.find(context, "mod1");
+      FortranModule mod2 = Xmod.find(context, "mod2");
+      FortranModule mod3 = Xmod.find(context, "mod3");
+      assertNotNull(mod1);
+      assertFalse(mod1.isDirty());
+      mod2.setDirty(true);
+      cache.add("mod1", mod1);
+      cache.add("MOD2", mod2);
+      cache.add("mod3", mod3);
+      assertTrue(cache.isModuleLoaded("mod1"));
+      assertTrue(cache.isModuleLoaded("mod2"));
+
+      // Lookups
+      assertSame(mod2, cache.get("mod2"));
+      assertSame(mod1, cache.get("MOD1"));
+      assertNull(cache.get("mod4"));
+      ModuleCache.Statistics stats = cache.getStatistics();
+      assertEquals(3, stats.getModules());
+      assertEquals(2, stats.getHits());
+      assertEquals(1, stats.getMisses());
+      assertTrue(stats.toString().contains("misses"));
+
+      // Only dirty modules are written
+      cache.write(context, 2);
+      String suffix = Xmod.getSuffix(context);
+      assertTrue(new File(mod2.getFullPath(context)).exists());
+      assertFalse(new File(dir.toString(), "mod1" + suffix).exists());
+      assertFalse(new File(dir.toString(), "mod3" + suffix).exists());
+      assertFalse(mod2.isDirty());
+      assertEquals(3, cache.getModuleFiles(context).size());
+
+      // Imported types make a module dirty
+      mod3.importType(mod1, "A1");
+      assertTrue(mod3.isDirty());
+    } finally {
+      for(File f : dir.toFile().listFiles()) {
+        assertTrue(f.delete());
+      }
+      Files.delete(dir);
+    }
+  }
+
+  @Test
+  public void evictionTest() throws Exception {
+    Path dir = Files.createTempDirectory("claw-cache");
+    try {
+      Context context = new TestContext();
+      ModuleCache cache = context.getModuleCache();
+      cache.addSearchPath(dir.toString());
+      for(String name : new String[]{"mod1", "mod2", "mod3"}) {
+        Files.write(dir.resolve(name + ".xmod"), String.format(MODULE, name)
+            .getBytes(StandardCharsets.UTF_8));
+      }
+      FortranModule mod1 = Xmod.find(context, "mod1");
+      FortranModule mod2 = Xmod.find(context, "mod2");
+      FortranModule mod3 = Xmod.find(context, "mod3");
+      mod2.setDirty(true);
+
+      // Budget of a single module: clean modules are evicted, not dirty ones
+      cache.add("mod1", mod1);
+      long moduleSize = cache.getStatistics().getSize();
+      cache.setMaxSize(moduleSize);
+      cache.add("mod2", mod2);
+      cache.add("mod3", mod3);
+      ModuleCache.Statistics stats = cache.getStatistics();
+      assertEquals(3, stats.getModules());
+      assertEquals(1, stats.getEvictions());
+      assertEquals(2 * moduleSize, stats.getSize());
+      assertTrue(cache.isModuleLoaded("mod1"));
+      assertTrue(stats.toString().contains("evictions"));
+
+      // Dirty modules stay in the cache
+      assertSame(mod2, cache.get("MOD2"));
+      assertEquals(1, cache.getStatistics().getEvictions());
+
+      // Written modules are clean and are evicted over the budget. They are
+      // read again from the written file if they were reclaimed.
+      long modifications = cache.getModificationCount();
+      cache.write(context, 2);
+      assertFalse(mod2.isDirty());
+      cache.setMaxSize(0);
+      stats = cache.getStatistics();
+      assertEquals(0, stats.getSize());
+      assertTrue(stats.getEvictions() >= 3);
+      assertEquals(modifications, cache.getModificationCount());
+      FortranModule written = cache.get("mod2");
+      assertNotNull(written);
+      assertEquals("mod2", written.getName());
+      assertEquals(modifications, cache.getModificationCount());
+    } finally {
+      for(File f : dir.toFile().listFiles()) {
+        assertTrue(f.delete());
+      }
+      Files.delete(dir);
+    }
+  }
+
+  @Test
+  public void viewMapTest() {
+    ModuleCache.ViewMap views = new ModuleCache.ViewMap(2);
+    views.put("a", null);
+    views.put("b", null);
+    views.get("a");
+    views.put("c", null);
+    assertEquals(2, views.size());
+    assertTrue(views.containsKey("a"));
+    assertFalse(views.containsKey("b"));
+    assertTrue(views.containsKey("c"));
+  }
+}
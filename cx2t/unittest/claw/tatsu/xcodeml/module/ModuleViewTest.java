@@ -0,0 +1,137 @@
+/*
+ * This file is released under terms of BSD license
+ * See LICENSE file for more information
+ */
+package claw.tatsu.xcodeml.module;
+
+import claw.tatsu.common.Context;
+import claw.tatsu.primitive.Xmod;
+import claw.tatsu.xcodeml.xnode.BinaryDocument;
+import claw.tatsu.xcodeml.xnode.XmlLoader;
+import claw.tatsu.xcodeml.xnode.fortran.FortranModule;
+import helper.TestContext;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test the features of the ModuleView class.
+ *
+ * @author clementval
+ */
+public class ModuleViewTest {
+
+  private static final String MODULE = "<OmniFortranModule version=\"1.0\">\n"
+      + "  <name>mod1</name>\n"
+      + "  <typeTable>\n"
+      + "    <FbasicType type=\"R1\" ref=\"Freal\"/>\n"
+      + "    <FfunctionType type=\"F1\" return_type=\"Fvoid\"/>\n"
+      + "  </typeTable>\n"
+      + "  <identifiers>\n"
+      + "    <id type=\"F1\" sclass=\"ffunc\"><name> Sub1 </name></id>\n"
+      + "    <id type=\"R1\" sclass=\"flocal\"><name>x</name></id>\n"
+      + "  </identifiers>\n"
+      + "  <declarations/>\n"
+      + "</OmniFortranModule>\n";
+
+  @Test
+  public void viewTest() throws Exception {
+    Path dir = Files.createTempDirectory("claw-view");
+    try {
+      Context context = new TestContext();
+      context.getModuleCache().addSearchPath(dir.toString());
+      Path xmod = dir.resolve("mod1.xmod");
+      Files.write(xmod, MODULE.getBytes(StandardCharsets.UTF_8));
+
+      // Index built from the XML file
+      ModuleView view = Xmod.findClawView(context, "mod1");
+      assertNotNull(view);
+      assertEquals(xmod.toString(), view.getPath());
+      assertViewContent(view);
+      assertNull(Xmod.findClawView(context, "mod2"));
+      assertNull(Xmod.findClawView(context, null));
+
+      // Index built from the sidecar written on load
+      context.setBinaryModule(true);
+      FortranModule mod = view.load(context);
+      assertNotNull(mod);
+      assertEquals("mod1", mod.getName());
+      assertTrue(mod.getIdentifiers().contains("sub1"));
+      assertTrue(new File(BinaryDocument.sidecarPath(view.getPath())).exists());
+      assertNotSame(mod, view.load(context));
+      ModuleView binaryView =
+          new ModuleView("mod1", dir.toString(), xmod.toString(),
+              XmlLoader.STAX);
+      assertViewContent(binaryView);
+
+      // View shared by the contexts of the following translations
+      assertSame(view, Xmod.findClawView(context, "mod1"));
+      Context next = new TestContext();
+      next.getModuleCache().addSearchPath(dir.toString());
+      assertSame(view, Xmod.findClawView(next, "mod1"));
+
+      // View replaced once the module file changed
+      Files.write(xmod, MODULE.replace("x</name>", "yy</name>")
+          .getBytes(StandardCharsets.UTF_8));
+      assertTrue(view.isStale());
+      ModuleView updated = Xmod.findClawView(context, "mod1");
+      assertNotSame(view, updated);
+      assertFalse(updated.hasIdentifier("x"));
+      assertTrue(updated.hasIdentifier("yy"));
+
+      // Unreadable CLAW module file falls back to the XcodeML/F module file
+      Path claw = dir.resolve("mod1" + Xmod.getSuffix(context));
+      Files.write(claw, "<OmniFortranModule".getBytes(StandardCharsets.UTF_8));
+      assertEquals(xmod.toString(),
+          Xmod.findClawView(context, "mod1").getPath());
+    } finally {
+      for(File f : dir.toFile().listFiles()) {
+        assertTrue(f.delete());
+      }
+      Files.delete(dir);
+    }
+  }
+
+  @Test
+  public void loadFromIndexTest() throws Exception {
+    Path dir = Files.createTempDirectory("claw-view");
+    try {
+      Context context = new TestContext();
+      Path xmod = dir.resolve("mod1.xmod");
+      Files.write(xmod, MODULE.getBytes(StandardCharsets.UTF_8));
+      ModuleView view = new ModuleView("mod1", dir.toString(),
+          xmod.toString(), XmlLoader.STAX);
+      assertViewContent(view);
+
+      // Document read for the index is used by the first load only
+      Files.delete(xmod);
+      FortranModule mod = view.load(context);
+      assertNotNull(mod);
+      assertTrue(mod.getIdentifiers().contains("sub1"));
+      assertNull(view.load(context));
+      assertTrue(view.hasIdentifier("sub1"));
+    } finally {
+      for(File f : dir.toFile().listFiles()) {
+        assertTrue(f.delete());
+      }
+      Files.delete(dir);
+    }
+  }
+
+  private void assertViewContent(ModuleView view) {
+    assertTrue(view.isReadable());
+    assertTrue(view.hasIdentifier("sub1"));
+    assertTrue(view.hasIdentifier("x"));
+    assertFalse(view.hasIdentifier("Sub1"));
+    assertEquals("F1", view.getIdentifierType("sub1"));
+    assertTrue(view.isFunctionType("F1"));
+    assertFalse(view.isFunctionType("R1"));
+    assertFalse(view.isFunctionType(null));
+    assertNull(view.getIdentifierType("y"));
+  }
+}
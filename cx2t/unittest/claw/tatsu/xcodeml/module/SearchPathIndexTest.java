@@ -0,0 +1,78 @@
+/*
+ * This file is released under terms of BSD license
+ * See LICENSE file for more information
+ */
+package claw.tatsu.xcodeml.module;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test the features of the SearchPathIndex class.
+ *
+ * @author clementval
+ */
+public class SearchPathIndexTest {
+
+  @Test
+  public void locateTest() throws Exception {
+    Path dir1 = Files.createTempDirectory("claw-index");
+    Path dir2 = Files.createTempDirectory("claw-index");
+    try {
+      SearchPathIndex index = new SearchPathIndex();
+      Files.createFile(dir1.resolve("mod1.xmod"));
+      Files.createFile(dir2.resolve("mod1.xmod"));
+      Files.createFile(dir2.resolve("mod2.xmod"));
+      long old = System.currentTimeMillis() - 60000;
+      assertTrue(dir1.toFile().setLastModified(old));
+      assertTrue(dir2.toFile().setLastModified(old));
+
+      String missing = dir1.resolve("missing").toString();
+      Iterable<String> paths =
+          Arrays.asList(missing, dir1.toString(), dir2.toString());
+      assertEquals(dir1.toString(), index.locate(paths, "mod1.xmod"));
+      assertEquals(dir2.toString(), index.locate(paths, "mod2.xmod"));
+      assertNull(index.locate(paths, "mod3.xmod"));
+
+      // Listing kept while the directory modification time is unchanged
+      Files.createFile(dir1.resolve("mod3.xmod"));
+      assertTrue(dir1.toFile().setLastModified(old));
+      assertNull(index.locate(paths, "mod3.xmod"));
+      assertTrue(dir1.toFile().setLastModified(old + 1000));
+      assertEquals(dir1.toString(), index.locate(paths, "mod3.xmod"));
+
+      // Files of recently modified directories are checked one by one
+      long recent = System.currentTimeMillis() / 1000 * 1000;
+      Files.delete(dir1.resolve("mod1.xmod"));
+      assertTrue(dir1.toFile().setLastModified(recent));
+      assertEquals(dir2.toString(), index.locate(paths, "mod1.xmod"));
+      Files.createFile(dir1.resolve("mod4.xmod"));
+      assertTrue(dir1.toFile().setLastModified(recent));
+      assertEquals(dir1.toString(), index.locate(paths, "mod4.xmod"));
+      Files.delete(dir1.resolve("mod4.xmod"));
+      assertTrue(dir1.toFile().setLastModified(recent));
+      assertNull(index.locate(paths, "mod4.xmod"));
+
+      // Module cache lookups
+      ModuleCache cache = new ModuleCache(index);
+      cache.addSearchPath(dir2.toString());
+      assertEquals(dir2.toString(), cache.locate("mod2.xmod"));
+      assertNull(cache.locate("mod4.xmod"));
+      index.clear();
+      assertEquals(dir2.toString(), cache.locate("mod1.xmod"));
+    } finally {
+      for(Path dir : Arrays.asList(dir1, dir2)) {
+        for(File f : dir.toFile().listFiles()) {
+          assertTrue(f.delete());
+        }
+        Files.delete(dir);
+      }
+    }
+  }
+}
@@ -0,0 +1,99 @@
+/*
+ * This file is released under terms of BSD license
+ * See LICENSE file for more information
+ */
+package claw.tatsu.xcodeml.visitor;
+
+import claw.tatsu.xcodeml.xnode.common.Xcode;
+import claw.tatsu.xcodeml.xnode.common.XcodeProgram;
+import claw.tatsu.xcodeml.xnode.common.Xnode;
+import claw.tatsu.xcodeml.xnode.fortran.FfunctionDefinition;
+import helper.TestConstant;
+import helper.TestContext;
+import org.junit.Test;
+import org.w3c.dom.Node;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test the features of the XnodeWalker class.
+ *
+ * @author clementval
+ */
+public class XnodeWalkerTest {
+
+  @Test
+  public void walkTest() {
+    XcodeProgram xcodeml = XcodeProgram.createFromFile(
+        TestConstant.TEST_PROGRAM, new TestContext());
+    assertNotNull(xcodeml);
+    FfunctionDefinition fctDef =
+        xcodeml.matchDescendant(Xcode.F_DO_STATEMENT).findParentFunction();
+    assertNotNull(fctDef);
+    Xnode body = fctDef.body();
+
+    List<Xnode> doStmts = new ArrayList<>();
+    List<Xnode> vars = new ArrayList<>();
+    List<Xnode> varsAndAssigns = new ArrayList<>();
+    List<Xnode> all = new ArrayList<>();
+    Deque<Xnode> path = new ArrayDeque<>();
+    XnodeListener nesting = new XnodeListener() {
+      @Override
+      public void enter(Xnode node) {
+        assertTrue(path.isEmpty() || node.ancestor().equals(path.peek()));
+        path.push(node);
+      }
+
+      @Override
+      public void exit(Xnode node) {
+        assertEquals(path.pop(), node);
+      }
+    };
+
+    new XnodeWalker()
+        .register(doStmts::add, Xcode.F_DO_STATEMENT)
+        .register(vars::add, Xcode.VAR)
+        .register(varsAndAssigns::add, Xcode.VAR, Xcode.F_ASSIGN_STATEMENT)
+        .register(all::add)
+        .register(nesting)
+        .walk(body);
+
+    assertTrue(path.isEmpty());
+    assertFalse(doStmts.isEmpty());
+    assertEquals(body.matchAll(Xcode.F_DO_STATEMENT), doStmts);
+    assertEquals(body.matchAll(Xcode.VAR), vars);
+    assertEquals(body.matchAll(Xcode.VAR).size()
+            + body.matchAll(Xcode.F_ASSIGN_STATEMENT).size(),
+        varsAndAssigns.size());
+    assertEquals(body.element().getElementsByTagName("*").getLength(),
+        all.size());
+    for(int i = 1; i < all.size(); ++i) {
+      assertTrue((all.get(i - 1).element()
+          .compareDocumentPosition(all.get(i).element())
+          & Node.DOCUMENT_POSITION_FOLLOWING) != 0);
+    }
+    assertFalse(all.contains(body));
+
+    // Walk a region of siblings
+    Xnode first = body.firstChild();
+    Xnode last = body.lastChild();
+    List<Xnode> regionVars = new ArrayList<>();
+    XnodeWalker walker = new XnodeWalker().register(regionVars::add, Xcode.VAR);
+    walker.walk(first, last);
+    assertEquals(vars.size(), regionVars.size());
+    regionVars.clear();
+    walker.walk(first, null);
+    assertEquals(first.matchAll(Xcode.VAR), regionVars);
+
+    // Nothing to walk
+    regionVars.clear();
+    walker.walk(null);
+    walker.walk(xcodeml.createNode(Xcode.F_DO_STATEMENT));
+    assertTrue(regionVars.isEmpty());
+  }
+}
@@ -0,0 +1,107 @@
+/*
+ * This file is released under terms of BSD license
+ * See LICENSE file for more information
+ */
+package claw.tatsu.xcodeml.xnode;
+
+import claw.tatsu.common.Context;
+import claw.tatsu.primitive.Xmod;
+import claw.tatsu.xcodeml.xnode.fortran.FortranModule;
+import helper.TestConstant;
+import helper.TestContext;
+import org.junit.Test;
+import org.w3c.dom.Document;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test the features of the BinaryDocument class.
+ *
+ * @author clementval
+ */
+public class BinaryDocumentTest {
+
+  @Test
+  public void roundTripTest() throws IOException {
+    for(XmlLoader loader : XmlLoader.values()) {
+      Document doc = XnodeUtil.readXmlFile(TestConstant.TEST_PROGRAM, loader);
+      assertNotNull(doc);
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      BinaryDocument.write(doc, out);
+      assertTrue(out.size() < new File(TestConstant.TEST_PROGRAM).length());
+      Document read =
+          BinaryDocument.read(new ByteArrayInputStream(out.toByteArray()));
+      assertTrue(doc.isEqualNode(read));
+    }
+
+    try {
+      BinaryDocument.read(new ByteArrayInputStream(
+          "<XcodeProgram/>".getBytes(StandardCharsets.UTF_8)));
+      fail();
+    } catch(IOException ignored) {
+    }
+  }
+
+  @Test
+  public void sidecarTest() throws Exception {
+    Path dir = Files.createTempDirectory("claw-binary");
+    try {
+      String xml = "<OmniFortranModule version=\"1.0\">\n"
+          + "  <name>mod1</name>\n"
+          + "  <typeTable/>\n"
+          + "  <identifiers>\n"
+          + "    <id sclass=\"ffunc\"><name>sub1</name></id>\n"
+          + "  </identifiers>\n"
+          + "</OmniFortranModule>\n";
+      Path xmod = dir.resolve("mod1.xmod");
+      Files.write(xmod, xml.getBytes(StandardCharsets.UTF_8));
+      String path = xmod.toString();
+      File sidecar = new File(BinaryDocument.sidecarPath(path));
+
+      // No sidecar written by default
+      Context context = new TestContext();
+      context.getModuleCache().addSearchPath(dir.toString());
+      FortranModule mod = Xmod.find(context, "mod1");
+      assertNotNull(mod);
+      assertFalse(sidecar.exists());
+      assertNull(BinaryDocument.readSidecar(path));
+
+      // Sidecar written on first load and read afterwards
+      context.setBinaryModule(true);
+      mod = Xmod.find(context, "mod1");
+      assertNotNull(mod);
+      assertTrue(sidecar.exists());
+      Document doc = BinaryDocument.readSidecar(path);
+      assertNotNull(doc);
+      assertTrue(mod.getDocument().isEqualNode(doc));
+      FortranModule cached = Xmod.find(context, "mod1");
+      assertNotNull(cached);
+      assertEquals("mod1", cached.getName());
+      assertEquals(1, cached.getIdentifiers().size());
+
+      // Sidecar is stale once the XML file changed
+      Files.write(xmod, xml.replace("sub1", "sub22")
+          .getBytes(StandardCharsets.UTF_8));
+      assertNull(BinaryDocument.readSidecar(path));
+      assertNotNull(Xmod.find(context, "mod1").getIdentifiers().get("sub22"));
+      assertNotNull(BinaryDocument.readSidecar(path));
+
+      // Corrupted sidecar is ignored
+      Files.write(sidecar.toPath(), new byte[]{1, 2, 3});
+      assertNull(BinaryDocument.readSidecar(path));
+      assertFalse(BinaryDocument.writeSidecar(null, path));
+      assertFalse(BinaryDocument.writeSidecar(doc,
+          dir.resolve("missing.xmod").toString()));
+    } finally {
+      for(File f : dir.toFile().listFiles()) {
+        assertTrue(f.delete());
+      }
+      Files.delete(dir);
+    }
+  }
+}
@@ -0,0 +1,105 @@
+/*
+ * This file is released under terms of BSD license
+ * See LICENSE file for more information
+ */
+package claw.tatsu.xcodeml.xnode;
+
+import helper.TestConstant;
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test the features of the XmlLoader enum.
+ *
+ * @author clementval
+ */
+public class XmlLoaderTest {
+
+  @Test
+  public void fromStringTest() {
+    assertEquals(XmlLoader.DOM, XmlLoader.fromString("dom"));
+    assertEquals(XmlLoader.STAX, XmlLoader.fromString("stax"));
+    assertNull(XmlLoader.fromString("sax"));
+    assertNull(XmlLoader.fromString(null));
+    assertEquals(2, XmlLoader.availableLoaders().size());
+    assertEquals("stax", XmlLoader.STAX.toString());
+  }
+
+  @Test
+  public void whitespaceTest() {
+    String xml = "<?xml version=\"1.0\" encoding=\"ISO-8859-1\"?>\n"
+        + "<XcodeProgram>\n"
+        + "  <name type=\"Fint\">  </name>\n"
+        + "  <value>a<![CDATA[ < b]]> </value>\n"
+        + "  <!-- comment -->\n"
+        + "  <body/>\n"
+        + "</XcodeProgram>\n";
+    Document doc = XmlLoader.STAX.read(new ByteArrayInputStream(
+        xml.getBytes(StandardCharsets.ISO_8859_1)));
+    assertNotNull(doc);
+    Element root = doc.getDocumentElement();
+    assertEquals("XcodeProgram", root.getNodeName());
+    // Whitespace between elements is dropped
+    assertEquals(4, root.getChildNodes().getLength());
+    Element name = (Element) root.getFirstChild();
+    assertEquals("Fint", name.getAttribute("type"));
+    assertEquals("  ", name.getTextContent());
+    Node value = name.getNextSibling();
+    assertEquals(1, value.getChildNodes().getLength());
+    assertEquals("a < b ", value.getTextContent());
+    assertEquals(Node.COMMENT_NODE, value.getNextSibling().getNodeType());
+
+    assertNull(XmlLoader.STAX.read(new ByteArrayInputStream(
+        "<a><b></a>".getBytes(StandardCharsets.UTF_8))));
+    assertNull(XmlLoader.STAX.read(null));
+  }
+
+  @Test
+  public void equivalenceTest() {
+    File[] files = new File(TestConstant.TEST_DATA).getParentFile()
+        .listFiles((dir, name) -> name.endsWith(".xml"));
+    assertNotNull(files);
+    assertTrue(files.length > 0);
+    for(File file : files) {
+      Document dom = XnodeUtil.readXmlFile(file.getPath(), XmlLoader.DOM);
+      Document stax = XnodeUtil.readXmlFile(file.getPath(), XmlLoader.STAX);
+      assertNotNull(dom);
+      assertNotNull(stax);
+      removeWhitespace(dom.getDocumentElement());
+      assertTrue(file.getName(), dom.getDocumentElement()
+          .isEqualNode(stax.getDocumentElement()));
+    }
+  }
+
+  /**
+   * Remove the whitespace-only text nodes of elements with element or
+   * comment children.
+   */
+  private void removeWhitespace(Node parent) {
+    boolean structured = false;
+    for(Node n = parent.getFirstChild(); n != null; n = n.getNextSibling()) {
+      structured |= n.getNodeType() == Node.ELEMENT_NODE
+          || n.getNodeType() == Node.COMMENT_NODE;
+    }
+    Node n = parent.getFirstChild();
+    while(n != null) {
+      Node next = n.getNextSibling();
+      if(n.getNodeType() == Node.TEXT_NODE && structured
+          && n.getNodeValue().trim().isEmpty())
+      {
+        parent.removeChild(n);
+      } else if(n.getNodeType() == Node.ELEMENT_NODE) {
+        removeWhitespace(n);
+      }
+      n = next;
+    }
+  }
+}
@@ -0,0 +1,80 @@
+/*
+ * This file is released under terms of BSD license
+ * See LICENSE file for more information
+ */
+package claw.tatsu.xcodeml.xnode.common;
+
+import claw.tatsu.xcodeml.xnode.Xname;
+import claw.tatsu.xcodeml.xnode.fortran.FbasicType;
+import claw.tatsu.xcodeml.xnode.fortran.FortranType;
+import claw.tatsu.xcodeml.xnode.fortran.Intent;
+import helper.TestConstant;
+import helper.TestContext;
+import org.junit.Test;
+import org.w3c.dom.Text;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test the checkpoint and rollback of XcodeML documents backed by the
+ * ChangeLog class.
+ *
+ * @author clementval
+ */
+public class ChangeLogTest {
+
+  @Test
+  public void rollbackTest() {
+    XcodeProgram xcodeml = XcodeProgram.createFromFile(
+        TestConstant.TEST_PROGRAM, new TestContext());
+    assertNotNull(xcodeml);
+    XcodeML original = xcodeml.snapshot();
+    assertEquals(0, ChangeLog.size(xcodeml.getDocument()));
+
+    int checkpoint = xcodeml.checkpoint();
+    assertEquals(0, checkpoint);
+
+    // Node moves, insertions and removals
+    Xnode doStmt = xcodeml.matchDescendant(Xcode.F_DO_STATEMENT);
+    Xnode inner = doStmt.body().matchDescendant(Xcode.F_DO_STATEMENT);
+    doStmt.insertBefore(inner);
+    Xnode pragma = xcodeml.createNode(Xcode.F_PRAGMA_STATEMENT);
+    pragma.setValue("acc loop");
+    doStmt.body().append(pragma);
+    xcodeml.matchDescendant(Xcode.F_ASSIGN_STATEMENT).delete();
+
+    // Attributes and text
+    doStmt.setLine(999);
+    doStmt.setAttribute(Xattr.IS_PURE, Xname.TRUE);
+    doStmt.removeAttribute(Xattr.FILE);
+    Xnode name = xcodeml.matchDescendant(Xcode.NAME);
+    name.setValue("renamed");
+    ((Text) name.element().getFirstChild()).setData("changed");
+
+    // Type table and nested checkpoint
+    int nested = xcodeml.checkpoint();
+    FbasicType type = xcodeml.createBasicType(FortranType.INTEGER, Intent.IN);
+    xcodeml.getTypeTable().add(type);
+    assertTrue(xcodeml.getTypeTable().hasType(type.getType()));
+    xcodeml.release(nested);
+    assertTrue(ChangeLog.size(xcodeml.getDocument()) > 0);
+
+    assertFalse(xcodeml.getDocument().getDocumentElement()
+        .isEqualNode(original.getDocument().getDocumentElement()));
+    assertTrue(xcodeml.rollback(checkpoint));
+    assertTrue(xcodeml.getDocument().getDocumentElement()
+        .isEqualNode(original.getDocument().getDocumentElement()));
+    assertFalse(xcodeml.getTypeTable().hasType(type.getType()));
+    assertEquals(0, ChangeLog.size(xcodeml.getDocument()));
+    assertFalse(xcodeml.rollback(checkpoint));
+
+    // Released mutations are kept and no longer recorded
+    checkpoint = xcodeml.checkpoint();
+    pragma = xcodeml.createNode(Xcode.F_PRAGMA_STATEMENT);
+    xcodeml.matchDescendant(Xcode.BODY).append(pragma);
+    xcodeml.release(checkpoint);
+    assertEquals(0, ChangeLog.size(xcodeml.getDocument()));
+    assertFalse(xcodeml.getDocument().getDocumentElement()
+        .isEqualNode(original.getDocument().getDocumentElement()));
+  }
+}
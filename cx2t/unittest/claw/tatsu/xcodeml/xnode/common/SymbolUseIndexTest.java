@@ -0,0 +1,127 @@
+/*
+ * This file is released under terms of BSD license
+ * See LICENSE file for more information
+ */
+package claw.tatsu.xcodeml.xnode.common;
+
+import claw.tatsu.xcodeml.abstraction.AssignStatement;
+import claw.tatsu.xcodeml.xnode.fortran.FfunctionDefinition;
+import helper.TestConstant;
+import helper.TestContext;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test the features of the SymbolUseIndex class.
+ *
+ * @author clementval
+ */
+public class SymbolUseIndexTest {
+
+  @Test
+  public void indexTest() {
+    XcodeProgram xcodeml = XcodeProgram.createFromFile(
+        TestConstant.TEST_PROGRAM, new TestContext());
+    assertNotNull(xcodeml);
+    Xnode doStmt = xcodeml.matchDescendant(Xcode.F_DO_STATEMENT);
+    assertNotNull(doStmt);
+    FfunctionDefinition fctDef = doStmt.findParentFunction();
+    assertNotNull(fctDef);
+    Xnode body = fctDef.body();
+
+    // Only used with the node index
+    assertNull(SymbolUseIndex.of(body));
+    assertTrue(xcodeml.enableNodeIndex());
+
+    assertNull(SymbolUseIndex.of(null));
+    assertNull(SymbolUseIndex.of(xcodeml));
+    assertNull(SymbolUseIndex.of(fctDef));
+    SymbolUseIndex index = SymbolUseIndex.of(body);
+    assertNotNull(index);
+    assertSame(index, SymbolUseIndex.of(body));
+    assertSame(index, SymbolUseIndex.of(doStmt));
+    assertIndexed(fctDef, index);
+
+    // Rename a variable
+    Xnode var = body.matchDescendant(Xcode.VAR);
+    String name = var.value();
+    var.setValue("renamed");
+    assertIndexed(fctDef, index);
+    assertTrue(index.getUses(body, name).stream()
+        .noneMatch(x -> x.equals(var)));
+    assertTrue(index.getUses(body, "RENAMED").contains(var));
+
+    // Wrap a variable in an array reference as done by promotion
+    Xnode other = body.matchAll(Xcode.VAR).stream()
+        .filter(x -> x.ancestorIs(Xcode.F_ASSIGN_STATEMENT))
+        .findFirst().orElse(null);
+    assertNotNull(other);
+    Xnode arrayRef = xcodeml.createNode(Xcode.F_ARRAY_REF);
+    Xnode varRef = xcodeml.createNode(Xcode.VAR_REF);
+    other.insertAfter(arrayRef);
+    arrayRef.append(varRef);
+    varRef.append(other);
+    arrayRef.append(xcodeml.createNode(Xcode.ARRAY_INDEX)
+        .append(xcodeml.createVar("Fint", "idx", Xscope.LOCAL)));
+    assertIndexed(fctDef, index);
+    assertEquals(1, index.getArrayReferences(body, other.value()).size());
+    assertEquals(1, index.getUses(body, "idx").size());
+
+    // Insert a copy of a loop and delete the original
+    Xnode clone = doStmt.cloneNode();
+    doStmt.insertBefore(clone);
+    assertIndexed(fctDef, index);
+    doStmt.delete();
+    assertIndexed(fctDef, index);
+
+    // Detached with the node index
+    xcodeml.disableNodeIndex();
+    assertNull(SymbolUseIndex.of(body));
+    assertTrue(xcodeml.enableNodeIndex());
+    assertNotSame(index, SymbolUseIndex.of(body));
+  }
+
+  /**
+   * Check that the index gives the same nodes as a walk of the body for all
+   * the names used in the function.
+   *
+   * @param fctDef Function definition.
+   * @param index  Index of its body.
+   */
+  private void assertIndexed(FfunctionDefinition fctDef, SymbolUseIndex index)
+  {
+    Xnode body = fctDef.body();
+    Set<String> names = body.matchAll(Xcode.VAR).stream().map(Xnode::value)
+        .collect(Collectors.toSet());
+    assertFalse(names.isEmpty());
+    List<Xnode> roots = new ArrayList<>();
+    roots.add(body);
+    roots.addAll(body.matchAll(Xcode.F_DO_STATEMENT));
+    roots.addAll(body.matchAll(Xcode.F_ASSIGN_STATEMENT));
+    for(String name : names) {
+      for(Xnode root : roots) {
+        assertEquals(root.matchAll(Xcode.VAR).stream()
+                .filter(x -> x.value().equalsIgnoreCase(name))
+                .collect(Collectors.toList()),
+            index.getUses(root, name.toUpperCase()));
+        assertEquals(root.matchAll(Xcode.F_ARRAY_REF).stream()
+                .filter(x -> x.matchSeq(Xcode.VAR_REF, Xcode.VAR) != null
+                    && x.matchSeq(Xcode.VAR_REF, Xcode.VAR).value()
+                    .equalsIgnoreCase(name))
+                .collect(Collectors.toList()),
+            index.getArrayReferences(root, name));
+      }
+      assertEquals(body.matchAll(Xcode.F_ASSIGN_STATEMENT).stream()
+              .filter(x -> new AssignStatement(x.element()).getLhsName()
+                  .equalsIgnoreCase(name))
+              .collect(Collectors.toList()),
+          index.getDefinitions(name));
+      assertEquals(index.getDefinitions(name).size(),
+          fctDef.gatherAssignStatementsByLhsName(name).size());
+    }
+  }
+}
@@ -4,9 +4,14 @@
  */
 package claw.tatsu.xcodeml.xnode.common;
 
+import helper.TestConstant;
+import helper.TestContext;
 import helper.XmlHelper;
 import org.junit.Test;
 
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.List;
 
 import static org.junit.Assert.*;
@@ -52,4 +57,42 @@ public class XcodeMLTest {
     assertEquals("acc ,var24,var25,var26,var27,var28,var29,var30)",
         p4.get(3).value());
   }
+
+  @Test
+  public void snapshotTest() throws Exception {
+    XcodeProgram xcodeml = XcodeProgram.createFromFile(TestConstant.TEST_DATA,
+        new TestContext());
+    assertNotNull(xcodeml);
+    XcodeML snapshot = xcodeml.snapshot();
+    assertNotNull(snapshot);
+    assertNotSame(xcodeml.getDocument(), snapshot.getDocument());
+    assertEquals(xcodeml.getTypeTable().size(),
+        snapshot.getTypeTable().size());
+
+    // Modification of the translation unit is not seen by the snapshot.
+    int nbPragmas = snapshot.matchAll(Xcode.F_PRAGMA_STATEMENT).size();
+    xcodeml.matchAll(Xcode.F_PRAGMA_STATEMENT).get(0).delete();
+    assertEquals(nbPragmas - 1,
+        xcodeml.matchAll(Xcode.F_PRAGMA_STATEMENT).size());
+    assertEquals(nbPragmas,
+        snapshot.matchAll(Xcode.F_PRAGMA_STATEMENT).size());
+
+    // Snapshot written on another thread gives a valid XcodeML file.
+    Path out = Files.createTempFile("snapshot", ".xml");
+    Thread writer = new Thread(() -> {
+      try {
+        snapshot.write(out.toString(), 2);
+      } catch(Exception ignored) {
+      }
+    });
+    writer.start();
+    writer.join();
+    XcodeProgram reloaded =
+        XcodeProgram.createFromFile(out.toString(), new TestContext());
+    assertNotNull(reloaded);
+    assertFalse(reloaded.hasErrors());
+    assertEquals(nbPragmas,
+        reloaded.matchAll(Xcode.F_PRAGMA_STATEMENT).size());
+    assertTrue(new File(out.toString()).delete());
+  }
 }
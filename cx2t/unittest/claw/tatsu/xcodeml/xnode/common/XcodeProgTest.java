@@ -5,6 +5,7 @@
 package claw.tatsu.xcodeml.xnode.common;
 
 import helper.TestConstant;
+import helper.TestContext;
 import org.junit.Test;
 
 import java.io.ByteArrayInputStream;
@@ -25,7 +26,8 @@ public class XcodeProgTest {
   public void basicXcodeProgTest() {
     File f = new File(TestConstant.TEST_DATA);
     assertTrue(f.exists());
-    XcodeProgram xcodeml = XcodeProgram.createFromFile(TestConstant.TEST_DATA);
+    XcodeProgram xcodeml = XcodeProgram.createFromFile(TestConstant.TEST_DATA,
+        new TestContext());
     assertNotNull(xcodeml);
     assertNotNull(xcodeml.getTime());
     assertNotNull(xcodeml.getCompilerInfo());
@@ -81,7 +83,7 @@ public class XcodeProgTest {
     System.setIn(in);
 
     // Version not valid
-    XcodeProgram xc1 = XcodeProgram.createFromStdInput();
+    XcodeProgram xc1 = XcodeProgram.createFromStdInput(new TestContext());
     assertNotNull(xc1);
     assertTrue(xc1.hasErrors());
 
@@ -89,14 +91,14 @@ public class XcodeProgTest {
     System.setIn(in);
 
     // Language not valid
-    XcodeProgram xc2 = XcodeProgram.createFromStdInput();
+    XcodeProgram xc2 = XcodeProgram.createFromStdInput(new TestContext());
     assertNotNull(xc2);
     assertTrue(xc2.hasErrors());
   }
 
   @Test
   public void creationFailingTest() {
-    XcodeProgram xc1 = XcodeProgram.createFromDocument(null);
+    XcodeProgram xc1 = XcodeProgram.createFromDocument(null, new TestContext());
     assertNotNull(xc1);
     assertTrue(xc1.hasErrors());
 
@@ -105,7 +107,7 @@ public class XcodeProgTest {
         new ByteArrayInputStream("<dummy></dummy>".getBytes());
     System.setIn(in);
 
-    XcodeProgram xc2 = XcodeProgram.createFromStdInput();
+    XcodeProgram xc2 = XcodeProgram.createFromStdInput(new TestContext());
     assertNotNull(xc2);
     assertTrue(xc2.hasErrors());
   }
@@ -8,6 +8,7 @@ import claw.tatsu.xcodeml.xnode.fortran.FfunctionDefinition;
 import claw.tatsu.xcodeml.xnode.fortran.FmoduleDefinition;
 import claw.tatsu.xcodeml.xnode.fortran.FortranType;
 import helper.TestConstant;
+import helper.TestContext;
 import helper.XmlHelper;
 import org.junit.Test;
 
@@ -67,7 +68,8 @@ public class XdeclTableTest {
     File f = new File(TestConstant.TEST_PROGRAM);
     assertTrue(f.exists());
     XcodeProgram xcodeml =
-        XcodeProgram.createFromFile(TestConstant.TEST_DECLARATIONS);
+        XcodeProgram.createFromFile(TestConstant.TEST_DECLARATIONS,
+            new TestContext());
     assertNotNull(xcodeml);
     return xcodeml;
   }
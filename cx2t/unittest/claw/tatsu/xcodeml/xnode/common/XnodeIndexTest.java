@@ -0,0 +1,130 @@
+/*
+ * This file is released under terms of BSD license
+ * See LICENSE file for more information
+ */
+package claw.tatsu.xcodeml.xnode.common;
+
+import claw.tatsu.xcodeml.xnode.fortran.FortranType;
+import helper.TestConstant;
+import helper.TestContext;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test the opcode index of XcodeProgram.
+ *
+ * @author clementval
+ */
+public class XnodeIndexTest {
+
+  private static final Xcode[] OPCODES = {
+      Xcode.F_DO_STATEMENT, Xcode.VAR, Xcode.F_ASSIGN_STATEMENT,
+      Xcode.F_ARRAY_REF, Xcode.F_FUNCTION_DEFINITION, Xcode.NAME,
+      Xcode.F_PRAGMA_STATEMENT, Xcode.BODY
+  };
+
+  @Test
+  public void matchAllTest() {
+    XcodeProgram xcodeml = XcodeProgram.createFromFile(
+        TestConstant.TEST_PROGRAM, new TestContext());
+    assertNotNull(xcodeml);
+    assertFalse(xcodeml.hasNodeIndex());
+    assertTrue(xcodeml.enableNodeIndex());
+    assertTrue(xcodeml.hasNodeIndex());
+    assertTrue(xcodeml.enableNodeIndex());
+    assertIndexed(xcodeml);
+
+    // Insert a clone after the first loop and remove the second one
+    List<Xnode> loops = xcodeml.matchAll(Xcode.F_DO_STATEMENT);
+    assertTrue(loops.size() > 1);
+    Xnode clone = loops.get(0).cloneNode();
+    assertEquals(loops.size(), xcodeml.matchAll(Xcode.F_DO_STATEMENT).size());
+    loops.get(0).insertAfter(clone);
+    assertIndexed(xcodeml);
+    loops.get(1).delete();
+    assertIndexed(xcodeml);
+
+    // Subtree built before being attached
+    Xnode body = xcodeml.createNode(Xcode.BODY);
+    Xnode assign = xcodeml.createNode(Xcode.F_ASSIGN_STATEMENT);
+    body.append(assign);
+    assign.append(xcodeml.createVar(FortranType.INTEGER, "i", Xscope.LOCAL));
+    assertEquals(1, body.matchAll(Xcode.VAR).size());
+    clone.body().insert(body);
+    assertIndexed(xcodeml);
+
+    // Move a node and modify the DOM directly
+    clone.body().append(loops.get(0).body().firstChild());
+    assertIndexed(xcodeml);
+    clone.element().setTextContent("");
+    assertIndexed(xcodeml);
+
+    xcodeml.disableNodeIndex();
+    assertFalse(xcodeml.hasNodeIndex());
+  }
+
+  @Test
+  public void insertInPositionTest() {
+    XcodeProgram xcodeml = XcodeProgram.createFromFile(
+        TestConstant.TEST_PROGRAM, new TestContext());
+    assertNotNull(xcodeml);
+    assertTrue(xcodeml.enableNodeIndex());
+
+    // Mid-document insertions and removals without rebuilding the index
+    List<Xnode> loops = xcodeml.matchAll(Xcode.F_DO_STATEMENT);
+    for(int i = loops.size() - 1; i >= 0; --i) {
+      loops.get(i).insertBefore(loops.get(i).cloneNode());
+    }
+    loops.get(loops.size() / 2).delete();
+    loops.get(loops.size() - 1).insertAfter(loops.get(1));
+    Xnode first = xcodeml.matchDescendant(Xcode.F_FUNCTION_DEFINITION);
+    first.body().insert(xcodeml.createNode(Xcode.F_PRAGMA_STATEMENT));
+    List<Xnode> indexed = xcodeml.matchAll(Xcode.F_DO_STATEMENT);
+    List<Xnode> pragmas = xcodeml.matchAll(Xcode.F_PRAGMA_STATEMENT);
+    assertTrue(indexed.size() > loops.size());
+
+    xcodeml.disableNodeIndex();
+    assertEquals(xcodeml.matchAll(Xcode.F_DO_STATEMENT), indexed);
+    assertEquals(xcodeml.matchAll(Xcode.F_PRAGMA_STATEMENT), pragmas);
+  }
+
+  @Test
+  public void contextTest() {
+    TestContext context = new TestContext();
+    context.setNodeIndex(true);
+    XcodeProgram xcodeml =
+        XcodeProgram.createFromFile(TestConstant.TEST_PROGRAM, context);
+    assertNotNull(xcodeml);
+    assertTrue(xcodeml.hasNodeIndex());
+    // Copies of the document are not indexed
+    assertNull(XnodeIndex.of(xcodeml.snapshot().getDocument()));
+  }
+
+  /**
+   * Check that the indexed queries return the same nodes as DOM walks from
+   * every node of the program.
+   *
+   * @param xcodeml Indexed program.
+   */
+  private void assertIndexed(XcodeProgram xcodeml) {
+    List<Xnode> roots = new ArrayList<>();
+    roots.add(xcodeml);
+    roots.addAll(xcodeml.matchAll(Xcode.F_FUNCTION_DEFINITION));
+    roots.addAll(xcodeml.matchAll(Xcode.F_DO_STATEMENT));
+    roots.addAll(xcodeml.matchAll(Xcode.F_ASSIGN_STATEMENT));
+    for(Xcode opcode : OPCODES) {
+      for(Xnode root : roots) {
+        List<Xnode> indexed = root.matchAll(opcode);
+        Xnode first = root.matchDescendant(opcode);
+        xcodeml.disableNodeIndex();
+        assertEquals(root.matchAll(opcode), indexed);
+        assertEquals(root.matchDescendant(opcode), first);
+        assertTrue(xcodeml.enableNodeIndex());
+      }
+    }
+  }
+}
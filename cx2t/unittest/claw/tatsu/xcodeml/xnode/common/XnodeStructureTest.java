@@ -0,0 +1,149 @@
+/*
+ * This file is released under terms of BSD license
+ * See LICENSE file for more information
+ */
+package claw.tatsu.xcodeml.xnode.common;
+
+import helper.TestConstant;
+import helper.TestContext;
+import org.junit.Test;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test the structural queries of Xnode backed by the XnodeStructure cache.
+ *
+ * @author clementval
+ */
+public class XnodeStructureTest {
+
+  private static final Xcode[] TRACKED = {
+      Xcode.F_FUNCTION_DEFINITION, Xcode.F_MODULE_DEFINITION,
+      Xcode.F_DO_STATEMENT
+  };
+
+  private static final String CACHE_KEY = "claw.XnodeStructure";
+
+  @Test
+  public void structureTest() {
+    structureTest(false);
+    structureTest(true);
+  }
+
+  @Test
+  public void optInTest() {
+    XcodeProgram xcodeml = XcodeProgram.createFromFile(
+        TestConstant.TEST_PROGRAM, new TestContext());
+    assertNotNull(xcodeml);
+    Xnode doStmt = xcodeml.matchDescendant(Xcode.F_DO_STATEMENT);
+    assertTrue(doStmt.depth() > 0);
+    assertNull(xcodeml.getDocument().getUserData(CACHE_KEY));
+
+    // Cache attached and detached with the node index
+    assertTrue(xcodeml.enableNodeIndex());
+    assertTrue(doStmt.depth() > 0);
+    assertNotNull(xcodeml.getDocument().getUserData(CACHE_KEY));
+    xcodeml.disableNodeIndex();
+    assertNull(xcodeml.getDocument().getUserData(CACHE_KEY));
+  }
+
+  /**
+   * Check the structural queries through a series of mutations.
+   *
+   * @param nodeIndex True to enable the node index and the cache.
+   */
+  private void structureTest(boolean nodeIndex) {
+    XcodeProgram xcodeml = XcodeProgram.createFromFile(
+        TestConstant.TEST_PROGRAM, new TestContext());
+    assertNotNull(xcodeml);
+    if(nodeIndex) {
+      assertTrue(xcodeml.enableNodeIndex());
+    }
+    Xnode root = new Xnode(xcodeml.getDocument().getDocumentElement());
+    assertEquals(0, root.depth());
+    assertStructure(root);
+
+    // Move the innermost loop of a nest before its parent loop
+    Xnode doStmt = xcodeml.matchDescendant(Xcode.F_DO_STATEMENT);
+    Xnode inner = doStmt.body().matchDescendant(Xcode.F_DO_STATEMENT);
+    assertNotNull(inner);
+    assertTrue(inner.isNestedIn(doStmt));
+    int depth = inner.depth();
+    doStmt.insertBefore(inner);
+    assertFalse(inner.isNestedIn(doStmt));
+    assertEquals(doStmt.depth(), inner.depth());
+    assertNotEquals(depth, inner.depth());
+    assertStructure(root);
+
+    // Wrap a loop in a new loop
+    Xnode wrapper = xcodeml.createNode(Xcode.F_DO_STATEMENT);
+    Xnode body = xcodeml.createNode(Xcode.BODY);
+    wrapper.append(body);
+    doStmt.insertAfter(wrapper);
+    body.append(doStmt);
+    assertTrue(doStmt.isNestedIn(wrapper));
+    assertEquals(wrapper, doStmt.matchAncestor(Xcode.F_DO_STATEMENT));
+    assertStructure(root);
+
+    // Detached subtree
+    wrapper.delete();
+    assertEquals(Xnode.UNDEF_DEPTH, wrapper.depth());
+    assertEquals(2, doStmt.depth());
+    assertTrue(doStmt.isNestedIn(wrapper));
+    assertNull(doStmt.findParentFunction());
+    assertStructure(root);
+    assertStructure(body);
+  }
+
+  /**
+   * Check the cached structural queries against a walk of the ancestors for
+   * all the elements of a subtree.
+   *
+   * @param root Root of the subtree.
+   */
+  private void assertStructure(Xnode root) {
+    List<Element> elements = new ArrayList<>();
+    elements.add(root.element());
+    NodeList list = root.element().getElementsByTagName("*");
+    for(int i = 0; i < list.getLength(); ++i) {
+      elements.add((Element) list.item(i));
+    }
+    for(Element element : elements) {
+      Xnode node = new Xnode(element);
+      List<Element> ancestors = new ArrayList<>();
+      for(Node p = element.getParentNode();
+          p != null && p.getNodeType() == Node.ELEMENT_NODE;
+          p = p.getParentNode())
+      {
+        ancestors.add((Element) p);
+      }
+      assertEquals(ancestors.size(), node.depth());
+      for(Xcode opcode : TRACKED) {
+        List<Xnode> expected = new ArrayList<>();
+        for(Element ancestor : ancestors) {
+          if(opcode.code().equals(ancestor.getTagName())) {
+            expected.add(new Xnode(ancestor));
+          }
+        }
+        assertEquals(expected, node.matchAllAncestor(opcode));
+        assertEquals(expected.isEmpty() ? null : expected.get(0),
+            node.matchAncestor(opcode));
+        for(Xnode ancestor : expected) {
+          assertTrue(node.isNestedIn(ancestor));
+          assertFalse(ancestor.isNestedIn(node));
+        }
+      }
+      if(!ancestors.isEmpty()) {
+        Xnode top = new Xnode(ancestors.get(ancestors.size() - 1));
+        assertTrue(node.isNestedIn(top));
+        assertFalse(node.isNestedIn(node));
+      }
+    }
+  }
+}
@@ -6,6 +6,7 @@ package claw.tatsu.xcodeml.xnode.common;
 
 import claw.tatsu.xcodeml.xnode.fortran.FfunctionDefinition;
 import helper.TestConstant;
+import helper.TestContext;
 import helper.XmlHelper;
 import org.junit.Test;
 
@@ -305,7 +306,8 @@ public class XnodeTest {
   @Test
   public void matchAllAncestorTest() {
     XcodeProgram xcodeml =
-        XcodeProgram.createFromFile(TestConstant.TEST_ASSIGN_STMT2);
+        XcodeProgram.createFromFile(TestConstant.TEST_ASSIGN_STMT2,
+            new TestContext());
     assertNotNull(xcodeml);
 
     List<Xnode> nodes = xcodeml.matchAll(Xcode.F_ASSIGN_STATEMENT);
@@ -382,6 +384,60 @@ public class XnodeTest {
     assertNotEquals(node, null);
   }
 
+  @Test
+  public void childNavigationTest() {
+    Xnode node = XmlHelper.createXnode("<FarrayRef> <varRef/> <!-- c -->" +
+        "<arrayIndex/>\n<indexRange/> text <arrayIndex/> </FarrayRef>");
+    assertNotNull(node);
+    List<Xnode> children = node.children();
+    assertEquals(4, children.size());
+    for(int i = 0; i < children.size(); ++i) {
+      assertEquals(children.get(i), node.child(i));
+    }
+    assertNull(node.child(4));
+    assertNull(node.child(-1));
+    assertEquals(children.get(0), node.firstChild());
+    assertEquals(children.get(3), node.lastChild());
+    assertEquals(children.get(1), node.firstChild().nextSibling());
+    assertEquals(children.get(2), node.lastChild().prevSibling());
+    assertNull(node.lastChild().nextSibling());
+    assertNull(node.firstChild().prevSibling());
+    assertEquals(children.get(2),
+        node.matchDirectDescendant(Xcode.INDEX_RANGE));
+    assertEquals(children.get(1), node.matchDirectDescendant(
+        Arrays.asList(Xcode.INDEX_RANGE, Xcode.ARRAY_INDEX)));
+    assertNull(node.matchDirectDescendant(Xcode.VAR));
+
+    // Children can be removed while visited
+    List<Xnode> visited = new ArrayList<>();
+    node.forEachChild(child -> {
+      visited.add(child);
+      child.delete();
+    });
+    assertEquals(children, visited);
+    assertNull(node.firstChild());
+    assertNull(node.lastChild());
+    assertNull(node.child(0));
+    assertEquals("", node.constructRepresentation(false, false));
+  }
+
+  @Test
+  public void opcodeTest() {
+    XcodeProgram xcodeml = XmlHelper.getDummyXcodeProgram();
+    for(Xcode opcode : Xcode.values()) {
+      assertEquals(opcode, Xcode.fromTag(opcode.code()));
+      if(opcode != Xcode.NONE) {
+        Xnode node = xcodeml.createNode(opcode);
+        assertEquals(opcode, node.opcode());
+        assertEquals(opcode, new Xnode(node.element()).opcode());
+      }
+    }
+    // Names not spelled as in the specification are still resolved
+    assertEquals(Xcode.F_DO_STATEMENT, Xcode.fromTag("fdostatement"));
+    assertEquals(Xcode.NONE, Xcode.fromTag("unknownElement"));
+    assertEquals(Xcode.NONE, Xcode.fromTag(null));
+  }
+
   @Test
   public void isConstantTest() {
     XcodeProgram xcodeml = XmlHelper.getDummyXcodeProgram();
@@ -10,6 +10,7 @@ import claw.tatsu.xcodeml.xnode.fortran.Intent;
 import claw.tatsu.xcodeml.abstraction.HoistedNestedDoStatement;
 import claw.tatsu.xcodeml.xnode.XnodeUtil;
 import helper.TestConstant;
+import helper.TestContext;
 import org.junit.Test;
 
 import java.io.File;
@@ -30,7 +31,8 @@ public class XnodeUtilTest {
     File f = new File(TestConstant.TEST_PROGRAM);
     assertTrue(f.exists());
     XcodeProgram xcodeml =
-        XcodeProgram.createFromFile(TestConstant.TEST_PROGRAM);
+        XcodeProgram.createFromFile(TestConstant.TEST_PROGRAM,
+            new TestContext());
     assertNotNull(xcodeml);
 
     List<Xnode> pragmas = xcodeml.matchAll(Xcode.F_PRAGMA_STATEMENT);
@@ -61,7 +63,8 @@ public class XnodeUtilTest {
     File f = new File(TestConstant.TEST_ARGUMENTS);
     assertTrue(f.exists());
     XcodeProgram xcodeml =
-        XcodeProgram.createFromFile(TestConstant.TEST_ARGUMENTS);
+        XcodeProgram.createFromFile(TestConstant.TEST_ARGUMENTS,
+            new TestContext());
     assertNotNull(xcodeml);
 
     List<Xnode> functionCalls = xcodeml.matchAll(Xcode.FUNCTION_CALL);
@@ -9,6 +9,7 @@ import claw.tatsu.common.Context;
 import claw.tatsu.common.Target;
 import claw.tatsu.xcodeml.xnode.common.XcodeProgram;
 import helper.TestConstant;
+import helper.TestContext;
 import helper.XmlHelper;
 import org.junit.Test;
 
@@ -45,7 +46,7 @@ public class FfunctionDefinitionTest {
 
   @Test
   public void basicFunctionDefinitionTest() {
-    Context.get().init(CompilerDirective.OPENACC, Target.GPU, null, 80);
+    Context context = new TestContext(CompilerDirective.OPENACC, Target.GPU);
     FfunctionDefinition fctDef =
         XmlHelper.createXfunctionDefinitionFromString(basicFDef);
     assertNotNull(fctDef);
@@ -60,7 +61,7 @@ public class FfunctionDefinitionTest {
     assertEquals(1, fctDef.lineNo());
     assertEquals("original_code.f90", fctDef.filename());
 
-    assertNull(fctDef.findContainingXmod());
+    assertNull(fctDef.findContainingXmod(context));
 
     FfunctionDefinition clone = fctDef.cloneNode();
     assertNotNull(clone);
@@ -70,16 +71,16 @@ public class FfunctionDefinitionTest {
 
   @Test
   public void findContainingXmodTest() {
-    Context.get().init(CompilerDirective.OPENACC, Target.GPU, null, 80);
+    Context context = new TestContext(CompilerDirective.OPENACC, Target.GPU);
     File f = new File(TestConstant.TEST_DECLARATIONS);
     assertTrue(f.exists());
     XcodeProgram xcodeml =
-        XcodeProgram.createFromFile(TestConstant.TEST_DECLARATIONS);
+        XcodeProgram.createFromFile(TestConstant.TEST_DECLARATIONS, context);
     assertNotNull(xcodeml);
     List<FfunctionDefinition> fctDefs = xcodeml.getAllFctDef();
     for(FfunctionDefinition fctDef : fctDefs) {
       // Search paths is not set so module cannot be found.
-      assertNull(fctDef.findContainingXmod());
+      assertNull(fctDef.findContainingXmod(context));
     }
   }
 }
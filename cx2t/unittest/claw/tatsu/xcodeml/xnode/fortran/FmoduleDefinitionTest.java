@@ -8,6 +8,7 @@ import claw.tatsu.xcodeml.xnode.common.Xcode;
 import claw.tatsu.xcodeml.xnode.common.XcodeProgram;
 import claw.tatsu.xcodeml.xnode.common.Xnode;
 import helper.TestConstant;
+import helper.TestContext;
 import helper.XmlHelper;
 import org.junit.Test;
 
@@ -37,7 +38,8 @@ public class FmoduleDefinitionTest {
     assertNull(mod.getDeclarationTable());
 
     XcodeProgram xcodeml =
-        XcodeProgram.createFromFile(TestConstant.TEST_DECLARATIONS);
+        XcodeProgram.createFromFile(TestConstant.TEST_DECLARATIONS,
+            new TestContext());
     assertNotNull(xcodeml);
     List<Xnode> nodes = xcodeml.matchAll(Xcode.F_MODULE_DEFINITION);
     assertFalse(nodes.isEmpty());
@@ -5,7 +5,6 @@
 package claw.wani.language.language;
 
 import claw.tatsu.common.CompilerDirective;
-import claw.tatsu.common.Context;
 import claw.tatsu.common.Target;
 import claw.tatsu.directive.common.DataMovement;
 import claw.tatsu.xcodeml.abstraction.ReshapeInfo;
@@ -132,8 +131,6 @@ public class ClawPragmaTest {
     try {
       Xnode p = XmlHelper.createXpragma();
       p.setValue(raw);
-      Configuration.get().init(CompilerDirective.OPENACC, Target.GPU);
-      Context.get().init(CompilerDirective.OPENACC, Target.GPU, null, 80);
       ClawPragma.analyze(p);
       fail();
     } catch(IllegalDirectiveException pex) {
@@ -285,8 +282,6 @@ public class ClawPragmaTest {
     try {
       Xnode p = XmlHelper.createXpragma();
       p.setValue(raw);
-      Configuration.get().init(CompilerDirective.OPENACC, Target.GPU);
-      Context.get().init(CompilerDirective.OPENACC, Target.GPU, null, 80);
       ClawPragma l = ClawPragma.analyze(p);
       assertEquals(directive, l.getDirective());
       return l;
@@ -1144,6 +1139,8 @@ public class ClawPragmaTest {
   {
     ClawPragma l = analyze(raw, ClawDirective.SCA);
     assertNotNull(l);
+    Configuration cfg = new Configuration();
+    cfg.init(CompilerDirective.OPENACC, Target.GPU);
     if(datas != null) {
       assertEquals(datas.size(), dimensions.size());
       assertTrue(l.hasClause(ClawClause.DATA_OVER));
@@ -1153,8 +1150,8 @@ public class ClawPragmaTest {
         List<DimensionDefinition> dimension = dimensions.get(j);
 
         for(String id : data) {
-          assertNotNull(l.getLayoutForData(id));
-          List<DimensionDefinition> dims = l.getLayoutForData(id);
+          assertNotNull(l.getLayoutForData(cfg, id));
+          List<DimensionDefinition> dims = l.getLayoutForData(cfg, id);
           assertEquals(dimension.size(), dims.size());
           for(int i = 0; i < dimension.size(); ++i) {
             assertEquals(dimension.get(i).getIdentifier(),
@@ -1525,8 +1522,6 @@ public class ClawPragmaTest {
     Xnode p = XmlHelper.createXpragma();
     p.setValue(pragma);
     p.setLine(1);
-    Configuration.get().init(CompilerDirective.OPENACC, Target.GPU);
-    Context.get().init(CompilerDirective.OPENACC, Target.GPU, null, 80);
     try {
       ClawPragma.analyze(p);
     } catch(IllegalDirectiveException e) {
@@ -9,6 +9,7 @@ import claw.tatsu.xcodeml.xnode.common.Xcode;
 import claw.tatsu.xcodeml.xnode.common.XcodeProgram;
 import claw.tatsu.xcodeml.xnode.common.Xnode;
 import helper.TestConstant;
+import helper.TestContext;
 import org.junit.Test;
 
 import java.util.List;
@@ -32,7 +33,8 @@ public class ModelDataTest {
   @Test
   public void gatherVariableTest() {
     XcodeProgram xcodeml =
-        XcodeProgram.createFromFile(TestConstant.TEST_MODEL_DATA1);
+        XcodeProgram.createFromFile(TestConstant.TEST_MODEL_DATA1,
+            new TestContext());
     assertNotNull(xcodeml);
 
     List<Xnode> nodes = xcodeml.matchAll(Xcode.F_PRAGMA_STATEMENT);
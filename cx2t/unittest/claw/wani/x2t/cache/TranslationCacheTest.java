@@ -0,0 +1,141 @@
+/*
+ * This file is released under terms of BSD license
+ * See LICENSE file for more information
+ */
+package claw.wani.x2t.cache;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test the features of the TranslationCache class.
+ *
+ * @author clementval
+ */
+public class TranslationCacheTest {
+
+  @Test
+  public void storeAndRestoreTest() throws IOException {
+    Path dir = Files.createTempDirectory("cx2t-cache");
+    Path fortran = dir.resolve("out.f90");
+    Path module = dir.resolve("mod1.claw.xmod");
+    List<String> searchPaths = Collections.singletonList(dir.toString());
+    write(fortran, "program p\nend program p\n");
+    write(module, "<OmniFortranModule/>");
+
+    TranslationCache cache =
+        new TranslationCache(dir.resolve("cache").toString(), 1024);
+    assertFalse(cache.restore("key1", fortran.toString(), searchPaths));
+    cache.store("key1", fortran.toString(),
+        Collections.singletonList(module.toString()), searchPaths);
+
+    write(fortran, "modified");
+    write(module, "modified");
+    assertTrue(cache.restore("key1", fortran.toString(), searchPaths));
+    assertEquals("program p\nend program p\n", read(fortran));
+    assertEquals("<OmniFortranModule/>", read(module));
+
+    TranslationCache.Statistics stats = cache.getStatistics();
+    assertEquals(1, stats.getHits());
+    assertEquals(1, stats.getMisses());
+    assertEquals(1, stats.getEntries());
+    assertEquals(0.5, stats.getHitRate(), 0);
+    delete(dir);
+  }
+
+  @Test
+  public void evictionTest() throws IOException {
+    Path dir = Files.createTempDirectory("cx2t-cache");
+    Path fortran = dir.resolve("out.f90");
+    write(fortran, new String(new char[100]).replace('\0', 'x'));
+
+    // Room for two entries only
+    TranslationCache cache =
+        new TranslationCache(dir.resolve("cache").toString(), 250);
+    cache.store("key1", fortran.toString(), Collections.emptyList(),
+        Collections.emptyList());
+    cache.store("key2", fortran.toString(), Collections.emptyList(),
+        Collections.emptyList());
+    Files.setLastModifiedTime(dir.resolve("cache").resolve("key1"),
+        FileTime.fromMillis(1000));
+    Files.setLastModifiedTime(dir.resolve("cache").resolve("key2"),
+        FileTime.fromMillis(2000));
+
+    // key1 is used again so key2 is the least recently used entry.
+    assertTrue(cache.restore("key1", fortran.toString(),
+        Collections.emptyList()));
+    cache.store("key3", fortran.toString(), Collections.emptyList(),
+        Collections.emptyList());
+    assertEquals(2, cache.getStatistics().getEntries());
+    assertEquals(200, cache.getStatistics().getSize());
+    assertTrue(cache.restore("key1", fortran.toString(),
+        Collections.emptyList()));
+    assertFalse(cache.restore("key2", fortran.toString(),
+        Collections.emptyList()));
+    assertTrue(cache.restore("key3", fortran.toString(),
+        Collections.emptyList()));
+    delete(dir);
+  }
+
+  @Test
+  public void relocatedModulesTest() throws IOException {
+    Path dir = Files.createTempDirectory("cx2t-cache");
+    Path tree1 = Files.createDirectories(dir.resolve("tree1").resolve("mod"));
+    Path tree2 = Files.createDirectories(dir.resolve("tree2").resolve("mod"));
+    Path fortran = dir.resolve("out.f90");
+    write(fortran, "program p\nend program p\n");
+    write(tree1.resolve("mod1.claw.xmod"), "<OmniFortranModule/>");
+
+    // Modules are restored in the search paths of the restoring tree
+    TranslationCache cache =
+        new TranslationCache(dir.resolve("cache").toString(), 1024);
+    cache.store("key1", fortran.toString(),
+        Collections.singletonList(tree1.resolve("mod1.claw.xmod").toString()),
+        Collections.singletonList(tree1.toString()));
+    Files.delete(tree1.resolve("mod1.claw.xmod"));
+    assertTrue(cache.restore("key1", fortran.toString(),
+        Collections.singletonList(tree2.toString())));
+    assertEquals("<OmniFortranModule/>",
+        read(tree2.resolve("mod1.claw.xmod")));
+    assertFalse(Files.exists(tree1.resolve("mod1.claw.xmod")));
+    assertFalse(cache.restore("key1", fortran.toString(),
+        Collections.emptyList()));
+
+    // Modules outside of the search paths cannot be relocated
+    assertNull(TranslationCache.relativizeModule(
+        tree2.resolve("mod1.claw.xmod"), Collections.singletonList(
+            tree1.toString())));
+    cache.store("key2", fortran.toString(),
+        Collections.singletonList(tree2.resolve("mod1.claw.xmod").toString()),
+        Collections.singletonList(tree1.toString()));
+    assertEquals(1, cache.getStatistics().getEntries());
+    assertNull(TranslationCache.resolveModule("mod1.claw.xmod",
+        Collections.singletonList(tree1.toString())));
+    delete(dir);
+  }
+
+  private static void write(Path file, String content) throws IOException {
+    Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static String read(Path file) throws IOException {
+    return new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+  }
+
+  private static void delete(Path dir) throws IOException {
+    try(Stream<Path> files = Files.walk(dir)) {
+      files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+    }
+  }
+}
@@ -0,0 +1,82 @@
+/*
+ * This file is released under terms of BSD license
+ * See LICENSE file for more information
+ */
+package claw.wani.x2t.cache;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.TreeSet;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test the features of the TranslationKey class.
+ *
+ * @author clementval
+ */
+public class TranslationKeyTest {
+
+  @Test
+  public void digestTest() {
+    String k1 = new TranslationKey().add("a", "1").add("b", "2").digest();
+    String k2 = new TranslationKey().add("a", "1").add("b", "2").digest();
+    String k3 = new TranslationKey().add("a", "12").add("b", "").digest();
+    assertEquals(64, k1.length());
+    assertEquals(k1, k2);
+    assertNotEquals(k1, k3);
+  }
+
+  @Test
+  public void xcodemlFileTest() throws IOException {
+    Path f1 = Files.createTempFile("key", ".xml");
+    Path f2 = Files.createTempFile("key", ".xml");
+    String xcodeml = "<?xml version=\"1.0\"?>\n<XcodeProgram source=\"a.f90\"" +
+        " time=\"%s\">\n<FuseDecl name=\"mod2\"/><FuseOnlyDecl " +
+        "name=\"mod1\"/>\n<FmoduleDefinition name=\"mod3\" lineno=\"1\">" +
+        "<Var time=\"1\"/></FmoduleDefinition></XcodeProgram>";
+    Files.write(f1, String.format(xcodeml, "2019-01-01 10:00:00")
+        .getBytes(StandardCharsets.UTF_8));
+    Files.write(f2, String.format(xcodeml, "2019-01-02 11:00:00")
+        .getBytes(StandardCharsets.UTF_8));
+
+    // Only the time stamp of the root element is ignored.
+    String content = TranslationKey.readXcodeML(f1);
+    assertFalse(content.contains("2019"));
+    assertTrue(content.contains("<Var time=\"1\"/>"));
+    assertEquals(content, TranslationKey.readXcodeML(f2));
+    assertEquals(new TreeSet<>(Arrays.asList("mod1", "mod2", "mod3")),
+        TranslationKey.findModules(content));
+
+    Files.delete(f2);
+    String k1 = new TranslationKey().addXcodeMLFile("f", f1).digest();
+    String k2 = new TranslationKey().addXcodeMLFile("f", f2).digest();
+    assertNotEquals(k1, k2);
+    Files.delete(f1);
+  }
+
+  @Test
+  public void codeDigestTest() throws IOException {
+    // Classes loaded from a directory are hashed by class file
+    String d1 = TranslationKey.codeDigest(TranslationKey.class);
+    assertEquals(d1, TranslationKey.codeDigest(TranslationKey.class));
+    assertNotEquals(d1, TranslationKey.codeDigest(TranslationCache.class));
+
+    // Jar files are hashed by content
+    Path jar = Files.createTempFile("code", ".jar");
+    Files.write(jar, "content1".getBytes(StandardCharsets.UTF_8));
+    String j1 = TranslationKey.jarDigest(jar);
+    assertEquals(j1, TranslationKey.jarDigest(jar));
+    Files.write(jar, "content2".getBytes(StandardCharsets.UTF_8));
+    Files.setLastModifiedTime(jar, FileTime.fromMillis(
+        Files.getLastModifiedTime(jar).toMillis() + 1000));
+    assertNotEquals(j1, TranslationKey.jarDigest(jar));
+    Files.delete(jar);
+  }
+}
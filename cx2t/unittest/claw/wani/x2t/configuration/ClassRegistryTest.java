@@ -0,0 +1,174 @@
+/*
+ * This file is released under terms of BSD license
+ * See LICENSE file for more information
+ */
+package claw.wani.x2t.configuration;
+
+import claw.tatsu.xcodeml.xnode.common.Xcode;
+import claw.tatsu.xcodeml.xnode.common.XcodeProgram;
+import claw.wani.language.ClawPragma;
+import claw.wani.transformation.ClawTransformation;
+import claw.wani.transformation.internal.InternalTransformationProvider;
+import claw.wani.transformation.internal.OpenAccContinuation;
+import claw.wani.transformation.ll.loop.LoopFusion;
+import claw.wani.transformation.sca.Sca;
+import claw.wani.x2t.translator.ClawTranslator;
+import external.transformation.AddPrint;
+import helper.TestConstant;
+import helper.XmlHelper;
+import org.junit.Test;
+
+import java.io.File;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test the features of the ClassRegistry class.
+ *
+ * @author clementval
+ */
+public class ClassRegistryTest {
+
+  @Test
+  public void forNameTest() throws ClassNotFoundException {
+    String className = LoopFusion.class.getName();
+    assertSame(LoopFusion.class, ClassRegistry.forName(className, null));
+    assertTrue(ClassRegistry.isRegistered(className));
+    assertSame(LoopFusion.class, ClassRegistry.forName(className, null));
+
+    try {
+      ClassRegistry.forName("claw.NotAClass", null);
+      fail();
+    } catch(ClassNotFoundException ignored) {
+    }
+    assertFalse(ClassRegistry.isRegistered("claw.NotAClass"));
+  }
+
+  @Test
+  public void builtinClassesTest() throws Exception {
+    List<String> files = Arrays.asList(
+        new File(TestConstant.TEST_CONFIG_PATH, "claw-default.xml").getPath(),
+        new File(TestConstant.TEST_CONFIG_PATH,
+            "claw-internal-set.xml").getPath(),
+        new File(TestConstant.TEST_CONFIG_PATH,
+            "claw-low-level-set.xml").getPath(),
+        new File(TestConstant.TEST_CONFIG_PATH,
+            "claw-high-level-set.xml").getPath());
+    Set<String> classNames = ClassRegistry.readClassNames(files);
+    assertTrue(classNames.contains(ClawTranslator.class.getName()));
+    assertTrue(classNames.contains(LoopFusion.class.getName()));
+
+    // Every built-in class must be available to the translator.
+    for(String className : classNames) {
+      assertNotNull(ClassRegistry.forName(className, null));
+    }
+
+    List<String> classList = ClassRegistry.toClassList(classNames);
+    assertEquals(classNames.size(), classList.size());
+    assertTrue(classList.contains("claw/wani/transformation/ll/loop/" +
+        "LoopFusion"));
+
+    List<String> reflectConfig = ClassRegistry.toReflectConfig(classNames);
+    assertEquals(classNames.size() + 2, reflectConfig.size());
+    assertEquals("[", reflectConfig.get(0));
+    assertEquals("]", reflectConfig.get(reflectConfig.size() - 1));
+    assertTrue(reflectConfig.get(1).endsWith(","));
+    assertFalse(reflectConfig.get(reflectConfig.size() - 2).endsWith(","));
+  }
+
+  @Test
+  public void factoryTest() throws Exception {
+    XcodeProgram xcodeml = XmlHelper.getDummyXcodeProgram();
+    ClawPragma pragma =
+        new ClawPragma(xcodeml.createNode(Xcode.F_PRAGMA_STATEMENT));
+
+    // Factories of the translator class path are resolved once
+    TransformationFactory factory =
+        ClassRegistry.getFactory(OpenAccContinuation.class, null);
+    assertSame(factory,
+        ClassRegistry.getFactory(OpenAccContinuation.class, null));
+    ClawTransformation transformation = factory.create(pragma);
+    assertTrue(transformation instanceof OpenAccContinuation);
+    assertSame(pragma, transformation.getDirective());
+
+    // Translation unit transformations use the default constructor
+    factory = ClassRegistry.getFactory(AddPrint.class, null);
+    assertTrue(factory.create(null) instanceof AddPrint);
+    try {
+      factory.create(pragma);
+      fail();
+    } catch(NoSuchMethodException ignored) {
+    }
+
+    // Missing public constructors are reported on creation only
+    factory = ClassRegistry.getFactory(Sca.class, null);
+    try {
+      factory.create(pragma);
+      fail();
+    } catch(NoSuchMethodException ignored) {
+    }
+
+    Map<String, TransformationFactory> provided =
+        new InternalTransformationProvider().getFactories();
+    assertTrue(provided.get(OpenAccContinuation.class.getName())
+        .create(pragma) instanceof OpenAccContinuation);
+  }
+
+  @Test
+  public void providerTest() throws Exception {
+    Path dir = Files.createTempDirectory("cx2t-provider");
+    Path services = dir.resolve("META-INF").resolve("services");
+    Files.createDirectories(services);
+    Files.write(services.resolve(TransformationProvider.class.getName()),
+        Collections.singletonList(TestProvider.class.getName()));
+    TestProvider.loads = 0;
+    try(URLClassLoader loader = new URLClassLoader(
+        new URL[]{dir.toUri().toURL()}, getClass().getClassLoader()))
+    {
+      assertSame(TestProvider.FACTORY,
+          ClassRegistry.getFactory(AddPrint.class, loader));
+      assertNotSame(TestProvider.FACTORY,
+          ClassRegistry.getFactory(OpenAccContinuation.class, loader));
+      // Providers are only loaded once per class loader.
+      assertEquals(1, TestProvider.loads);
+    }
+  }
+
+  @Test
+  public void translatorTest() throws Exception {
+    Configuration cfg = new Configuration();
+    cfg.load(TestConstant.TEST_CONFIG_PATH, null, null, null, null, 80);
+    for(GroupConfiguration gc : cfg.getGroups()) {
+      assertNotNull(gc.getTransformationFactory());
+    }
+    ClawTranslator translator =
+        ClassRegistry.newTranslator(ClawTranslator.class, cfg);
+    assertSame(cfg, translator.cfg());
+    assertNotSame(translator,
+        ClassRegistry.newTranslator(ClawTranslator.class, cfg));
+  }
+
+  /**
+   * Provider registered through the ServiceLoader in providerTest.
+   */
+  public static class TestProvider implements TransformationProvider {
+
+    static final TransformationFactory FACTORY = pragma -> new AddPrint();
+    static int loads = 0;
+
+    @Override
+    public Map<String, TransformationFactory> getFactories() {
+      ++loads;
+      return Collections.singletonMap(AddPrint.class.getName(), FACTORY);
+    }
+  }
+}
@@ -34,15 +34,17 @@ public class ConfigurationTest {
   public void readConfigTest() {
     try {
 
-      Configuration conf = Configuration.get();
-      assertNotNull(conf);
+      Configuration conf = new Configuration();
+      assertNull(conf.context());
       conf.load(TestConstant.TEST_CONFIG_PATH,
           null, null, null, null, MAX_COLUMN);
-      assertNotNull(Context.get());
+      Context context = conf.context();
+      assertNotNull(context);
 
-      assertNotNull(Context.get().getGenerator());
+      assertNotNull(context.getGenerator());
       assertNotNull(conf.accelerator());
-      assertEquals(MAX_COLUMN, Context.get().getMaxColumns());
+      assertSame(conf.accelerator(), context.getAcceleratorConfig());
+      assertEquals(MAX_COLUMN, context.getMaxColumns());
 
       assertFalse(conf.isForcePure());
       conf.setForcePure();
@@ -71,24 +73,24 @@ public class ConfigurationTest {
       }
 
       assertTrue(conf.accelerator() instanceof OpenAccConfiguration);
-      assertTrue(Context.get().getGenerator() instanceof OpenAcc);
+      assertTrue(context.getGenerator() instanceof OpenAcc);
+      assertSame(Target.GPU, context.getTarget());
 
       assertSame(Target.GPU, conf.getCurrentTarget());
       assertSame(CompilerDirective.OPENACC, conf.getCurrentDirective());
 
       assertEquals(Configuration.CPU_STRATEGY_FUSION,
-          Configuration.get().getParameter(Configuration.CPU_STRATEGY));
+          conf.getParameter(Configuration.CPU_STRATEGY));
 
-      Configuration.get().overrideConfigurationParameter(
+      conf.overrideConfigurationParameter(
           Configuration.CPU_STRATEGY, Configuration.CPU_STRATEGY_SINGLE);
 
       assertEquals(Configuration.CPU_STRATEGY_SINGLE,
-          Configuration.get().getParameter(Configuration.CPU_STRATEGY));
+          conf.getParameter(Configuration.CPU_STRATEGY));
 
-      assertNull(Configuration.get().getParameter(DUMMY_KEY));
-      Configuration.get().
-          overrideConfigurationParameter(DUMMY_KEY, DUMMY_VALUE);
-      assertEquals(DUMMY_VALUE, Configuration.get().getParameter(DUMMY_KEY));
+      assertNull(conf.getParameter(DUMMY_KEY));
+      conf.overrideConfigurationParameter(DUMMY_KEY, DUMMY_VALUE);
+      assertEquals(DUMMY_VALUE, conf.getParameter(DUMMY_KEY));
     } catch(Exception e) {
       fail();
     }
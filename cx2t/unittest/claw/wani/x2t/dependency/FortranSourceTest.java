@@ -0,0 +1,50 @@
+/*
+ * This file is released under terms of BSD license
+ * See LICENSE file for more information
+ */
+package claw.wani.x2t.dependency;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test the features of the FortranSource class.
+ *
+ * @author clementval
+ */
+public class FortranSourceTest {
+
+  @Test
+  public void scanTest() throws IOException {
+    Path file = Files.createTempFile("source", ".f90");
+    Files.write(file, Arrays.asList(
+        "MODULE mod1 ! comment",
+        "  USE mod2, ONLY: a",
+        "  use, intrinsic :: iso_c_binding",
+        "  use :: Mod3",
+        "  USE, NON_INTRINSIC :: mod4",
+        "  use mod1",
+        "  useful = 1",
+        "  INTERFACE gen",
+        "    MODULE PROCEDURE sub1",
+        "  END INTERFACE gen",
+        "END MODULE mod1"
+    ), StandardCharsets.UTF_8);
+
+    FortranSource source = FortranSource.scan(file);
+    assertEquals(file, source.getPath());
+    assertEquals(Collections.singleton("mod1"), source.getDefinedModules());
+    assertEquals(new LinkedHashSet<>(Arrays.asList("mod2", "mod3", "mod4")),
+        source.getUsedModules());
+    Files.delete(file);
+  }
+}
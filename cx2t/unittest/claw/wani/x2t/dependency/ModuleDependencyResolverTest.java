@@ -0,0 +1,139 @@
+/*
+ * This file is released under terms of BSD license
+ * See LICENSE file for more information
+ */
+package claw.wani.x2t.dependency;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.*;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test the features of the ModuleDependencyResolver class.
+ *
+ * @author clementval
+ */
+public class ModuleDependencyResolverTest {
+
+  @Test
+  public void resolveTest() throws Exception {
+    Path src = Files.createTempDirectory("cx2t-dep");
+    Path lib = Files.createDirectory(src.resolve("lib"));
+    Path xmod = Files.createDirectory(src.resolve("xmod"));
+    Path a = write(src.resolve("mod_a.f90"), "module mod_a", "use mod_c");
+    Path b = write(lib.resolve("mod_b.f90"), "module mod_b");
+    Path d = write(lib.resolve("mod_d.f90"), "module mod_d");
+    // Module without file name convention found by scanning the directory
+    Path c = write(lib.resolve("other.F90"), "MODULE mod_c", "USE mod_b",
+        "use mod_disabled");
+    write(xmod.resolve("iso_c_binding.xmod"), "<OmniFortranModule/>");
+    Path main = write(src.resolve("main.f90"), "program main", "use mod_a",
+        "use mod_d", "use, intrinsic :: iso_c_binding", "end program");
+    // Preprocessed input disables one of the dependencies.
+    Path mainPp = write(src.resolve("main.pp.f90"), "program main",
+        "use mod_a", "use, intrinsic :: iso_c_binding", "end program");
+
+    List<String> searchPaths =
+        Arrays.asList(lib.toString(), xmod.toString());
+    ModuleDependencyResolver resolver =
+        new ModuleDependencyResolver(searchPaths);
+    List<List<Path>> waves =
+        resolver.resolve(Collections.singletonMap(main, main));
+    assertEquals(3, waves.size());
+    assertEquals(Arrays.asList(b, d), waves.get(0));
+    assertEquals(Collections.singletonList(c), waves.get(1));
+    assertEquals(Collections.singletonList(a), waves.get(2));
+    assertEquals(1, resolver.getWarnings().size());
+    assertTrue(resolver.getWarnings().get(0).contains("mod_disabled"));
+
+    waves = new ModuleDependencyResolver(searchPaths)
+        .resolve(Collections.singletonMap(main, mainPp));
+    assertEquals(3, waves.size());
+    assertEquals(Collections.singletonList(b), waves.get(0));
+
+    // Up-to-date .xmod file for mod_b only
+    Path xmodB = write(lib.resolve("mod_b.xmod"), "<OmniFortranModule/>");
+    Files.setLastModifiedTime(b, FileTime.fromMillis(1000));
+    Files.setLastModifiedTime(xmodB, FileTime.fromMillis(2000));
+    waves = new ModuleDependencyResolver(searchPaths)
+        .resolve(Collections.singletonMap(main, main));
+    assertEquals(2, waves.size());
+    assertEquals(Arrays.asList(d, c), waves.get(0));
+    assertEquals(Collections.singletonList(a), waves.get(1));
+
+    // Out-of-date .xmod file
+    Files.setLastModifiedTime(b, FileTime.fromMillis(3000));
+    waves = new ModuleDependencyResolver(searchPaths)
+        .resolve(Collections.singletonMap(main, main));
+    assertEquals(3, waves.size());
+
+    delete(src);
+  }
+
+  @Test
+  public void intrinsicTest() throws Exception {
+    Path src = Files.createTempDirectory("cx2t-dep");
+    Path main = write(src.resolve("main.f90"), "program main",
+        "use, intrinsic :: iso_c_binding", "USE , INTRINSIC :: vendor_mod",
+        "use iso_fortran_env, only: real64", "end program");
+    Path mod = write(src.resolve("mod_a.f90"), "module mod_a",
+        "use, intrinsic :: ieee_arithmetic", "use omp_lib");
+    Path user = write(src.resolve("user.f90"), "program user", "use mod_a",
+        "end program");
+
+    ModuleDependencyResolver resolver =
+        new ModuleDependencyResolver(Collections.emptyList());
+    assertTrue(resolver.resolve(Collections.singletonMap(main, main))
+        .isEmpty());
+    assertTrue(resolver.getWarnings().isEmpty());
+
+    resolver = new ModuleDependencyResolver(Collections.emptyList());
+    List<List<Path>> waves =
+        resolver.resolve(Collections.singletonMap(user, user));
+    assertEquals(1, waves.size());
+    assertEquals(Collections.singletonList(mod), waves.get(0));
+    assertTrue(resolver.getWarnings().isEmpty());
+    delete(src);
+  }
+
+  @Test
+  public void errorTest() throws Exception {
+    Path src = Files.createTempDirectory("cx2t-dep");
+    Path main = write(src.resolve("main.f90"), "program main", "use mod_x");
+    try {
+      new ModuleDependencyResolver(Collections.emptyList())
+          .resolve(Collections.singletonMap(main, main));
+      fail();
+    } catch(DependencyException ignored) {
+    }
+
+    write(src.resolve("mod_x.f90"), "module mod_x", "use mod_y");
+    write(src.resolve("mod_y.f90"), "module mod_y", "use mod_x");
+    try {
+      new ModuleDependencyResolver(Collections.emptyList())
+          .resolve(Collections.singletonMap(main, main));
+      fail();
+    } catch(DependencyException ignored) {
+    }
+    delete(src);
+  }
+
+  private static Path write(Path file, String... lines) throws IOException {
+    Files.write(file, Arrays.asList(lines), StandardCharsets.UTF_8);
+    return file.toAbsolutePath().normalize();
+  }
+
+  private static void delete(Path dir) throws IOException {
+    try(Stream<Path> files = Files.walk(dir)) {
+      files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+    }
+  }
+}
@@ -0,0 +1,180 @@
+/*
+ * This file is released under terms of BSD license
+ * See LICENSE file for more information
+ */
+package claw.wani.x2t.server;
+
+import claw.ClawX2T;
+import org.junit.Test;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test the translation server request/reply protocol and the argument
+ * rewriting used for the jobs.
+ *
+ * @author clementval
+ */
+public class TranslationServerTest {
+
+  private static final int WAIT_STEP = 50; // ms
+  private static final int MAX_WAIT = 200;
+
+  @Test
+  public void runAndStopTest() throws Exception {
+    Path dir = Files.createTempDirectory("cx2t-server");
+    Path serverFile = dir.resolve("server");
+    final File[] jobDir = new File[1];
+    final List<Map<String, String>> jobEnv = new ArrayList<>();
+
+    TranslationServer server = new TranslationServer(serverFile,
+        (args, workingDir, env) -> {
+          if(args.length == 1 && args[0].equals("fail")) {
+            throw new IllegalStateException("job failure");
+          }
+          jobDir[0] = workingDir;
+          jobEnv.add(env);
+          System.out.print(String.join(",", args));
+          System.err.print("err");
+          return args.length;
+        });
+    Thread thread = new Thread(() -> {
+      try {
+        server.serve();
+      } catch(IOException e) {
+        fail();
+      }
+    });
+    thread.start();
+
+    for(int i = 0; i < MAX_WAIT && !Files.exists(serverFile); ++i) {
+      Thread.sleep(WAIT_STEP);
+    }
+    assertTrue(Files.exists(serverFile));
+    String[] info = new String(Files.readAllBytes(serverFile),
+        StandardCharsets.UTF_8).trim().split(" ");
+    assertEquals(2, info.length);
+    int port = Integer.parseInt(info[0]);
+
+    String[] reply = send(port, info[1], TranslationServer.CMD_RUN,
+        "/work", new String[]{"CLAW_TRANS_SET_PATH=/a;/b", "EMPTY="},
+        "-f", "out.f90", "in.xml");
+    assertEquals("3 17 3", reply[0]);
+    assertEquals("-f,out.f90,in.xml", reply[1]);
+    assertEquals("err", reply[2]);
+    assertEquals(new File("/work"), jobDir[0]);
+    assertEquals(2, jobEnv.get(0).size());
+    assertEquals("/a;/b", jobEnv.get(0).get("CLAW_TRANS_SET_PATH"));
+    assertEquals("", jobEnv.get(0).get("EMPTY"));
+
+    // Variables not sent by the client are unset for the job.
+    reply = send(port, info[1], TranslationServer.CMD_RUN, "/work",
+        new String[0], "in.xml");
+    assertEquals("1 6 3", reply[0]);
+    assertTrue(jobEnv.get(1).isEmpty());
+
+    // Request with a malformed environment is rejected.
+    assertNull(send(port, info[1], TranslationServer.CMD_RUN, "/work",
+        new String[]{"=value"}, "in.xml")[0]);
+
+    // Unexpected failure of a job is reported on its own standard error.
+    reply = send(port, info[1], TranslationServer.CMD_RUN, "/work",
+        new String[0], "fail");
+    assertTrue(reply[0].startsWith("1 0 "));
+    assertTrue(reply[2].contains("job failure"));
+
+    // Request with a wrong token is rejected.
+    assertNull(send(port, "bad", TranslationServer.CMD_RUN, "/work",
+        new String[0])[0]);
+    assertTrue(server.isRunning());
+
+    reply = send(port, info[1], TranslationServer.CMD_PING, "/work",
+        new String[0]);
+    assertEquals("0 0 0", reply[0]);
+
+    reply = send(port, info[1], TranslationServer.CMD_STOP, "/work",
+        new String[0]);
+    assertEquals("0 0 0", reply[0]);
+    thread.join();
+    assertFalse(server.isRunning());
+    assertFalse(Files.exists(serverFile));
+    Files.delete(dir);
+  }
+
+  @Test
+  public void resolvePathsTest() {
+    File cwd = new File("/home/user/model");
+    String[] args = ClawX2T.resolvePaths(new String[]{
+        "--config-path=/opt/claw/etc", "--config=my.xml", "-t", "gpu",
+        "-M", "mods", "-Minclude", "-M/abs/mods", "-w", "80", "-l",
+        "-x", "key:value", "-f", "out/file.f90", "--report=file.lst",
+        "in.xml"
+    }, cwd);
+    assertArrayEquals(new String[]{
+        "--config-path=/opt/claw/etc",
+        "--config=" + new File(cwd, "my.xml").getPath(), "-t", "gpu",
+        "-M", new File(cwd, "mods").getPath(),
+        "-M" + new File(cwd, "include").getPath(), "-M/abs/mods",
+        "-w", "80", "-l", "-x", "key:value",
+        "-f", new File(cwd, "out/file.f90").getPath(),
+        "--report=" + new File(cwd, "file.lst").getPath(),
+        new File(cwd, "in.xml").getPath()
+    }, args);
+  }
+
+  /**
+   * Send a request to the server and read its reply.
+   *
+   * @return Array with the status line, the standard output and the standard
+   * error of the reply.
+   */
+  private String[] send(int port, String token, String command,
+                        String workingDir, String[] env, String... args)
+      throws IOException
+  {
+    try(Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+      Writer w = new OutputStreamWriter(socket.getOutputStream(),
+          StandardCharsets.UTF_8);
+      w.write(token + "\n" + command + "\n" + workingDir + "\n");
+      for(String var : env) {
+        w.write(var + "\n");
+      }
+      w.write("\n");
+      for(String arg : args) {
+        w.write(arg + "\n");
+      }
+      w.write("\n");
+      w.flush();
+
+      DataInputStream in = new DataInputStream(socket.getInputStream());
+      ByteArrayOutputStream header = new ByteArrayOutputStream();
+      int c;
+      while((c = in.read()) != -1 && c != '\n') {
+        header.write(c);
+      }
+      if(c == -1) {
+        return new String[]{null, null, null};
+      }
+      String status = new String(header.toByteArray(), StandardCharsets.UTF_8);
+      int[] lengths = Arrays.stream(status.split(" ")).skip(1)
+          .mapToInt(Integer::parseInt).toArray();
+      byte[] out = new byte[lengths[0]];
+      byte[] err = new byte[lengths[1]];
+      in.readFully(err);
+      in.readFully(out);
+      return new String[]{status, new String(out, StandardCharsets.UTF_8),
+          new String(err, StandardCharsets.UTF_8)};
+    }
+  }
+}
@@ -0,0 +1,116 @@
+/*
+ * This file is released under terms of BSD license
+ * See LICENSE file for more information
+ */
+package claw.wani.x2t.translator;
+
+import claw.tatsu.common.CompilerDirective;
+import claw.tatsu.common.Context;
+import claw.tatsu.common.Target;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test the features of the TranslationBatch class.
+ *
+ * @author clementval
+ */
+public class TranslationBatchTest {
+
+  @Test
+  public void manifestTest() throws IOException {
+    Path dir = Files.createTempDirectory("cx2t-batch");
+    Path manifest = dir.resolve("batch.txt");
+    Files.write(manifest, Arrays.asList(
+        "# comment",
+        "a.xml  out/a.f90",
+        "",
+        "/abs/b.xml /abs/b.f90 /abs/b_out.xml"
+    ), StandardCharsets.UTF_8);
+
+    List<TranslationBatch.Unit> units =
+        TranslationBatch.fromManifest(manifest.toString()).getUnits();
+    assertEquals(2, units.size());
+    assertEquals(dir.resolve("a.xml").toString(), units.get(0).getInput());
+    assertEquals(dir.resolve("out/a.f90").toString(),
+        units.get(0).getFortranOutput());
+    assertNull(units.get(0).getXcodemlOutput());
+    assertEquals("/abs/b.xml", units.get(1).getInput());
+    assertEquals("/abs/b.f90", units.get(1).getFortranOutput());
+    assertEquals("/abs/b_out.xml", units.get(1).getXcodemlOutput());
+
+    Files.write(manifest, Arrays.asList("a.xml"), StandardCharsets.UTF_8);
+    try {
+      TranslationBatch.fromManifest(manifest.toString());
+      fail();
+    } catch(IOException ignored) {
+    }
+
+    Files.delete(manifest);
+    Files.delete(dir);
+  }
+
+  @Test
+  public void inputsTest() {
+    List<TranslationBatch.Unit> units = TranslationBatch.fromInputs(
+        Arrays.asList("in/mod1.xml", "mod2"), "out", null).getUnits();
+    assertEquals(2, units.size());
+    assertEquals("in/mod1.xml", units.get(0).getInput());
+    assertEquals(new File("out", "mod1.f90").getPath(),
+        units.get(0).getFortranOutput());
+    assertNull(units.get(0).getXcodemlOutput());
+    assertEquals(new File("out", "mod2.f90").getPath(),
+        units.get(1).getFortranOutput());
+
+    units = TranslationBatch.fromInputs(Arrays.asList("mod1.xml"), "out",
+        "xml").getUnits();
+    assertEquals(new File("xml", "mod1.xml").getPath(),
+        units.get(0).getXcodemlOutput());
+  }
+
+  @Test
+  public void runTest() throws InterruptedException {
+    final int nbUnits = 16;
+    List<TranslationBatch.Unit> units = new ArrayList<>();
+    for(int i = 0; i < nbUnits; ++i) {
+      units.add(new TranslationBatch.Unit(String.valueOf(i), "out", null));
+    }
+    AtomicInteger translated = new AtomicInteger();
+    TranslationBatch batch = new TranslationBatch(units);
+
+    int status = batch.run(4, unit -> {
+      int columns = Integer.parseInt(unit.getInput());
+      Context context =
+          new Context(CompilerDirective.NONE, Target.CPU, null, columns);
+      Thread.sleep(10);
+      assertEquals(columns, context.getMaxColumns());
+      translated.incrementAndGet();
+      return columns == 3 ? 1 : 0;
+    });
+    assertEquals(1, status);
+    assertEquals(nbUnits, translated.get());
+
+    // Failure of a unit is reported and does not stop the batch.
+    translated.set(0);
+    status = batch.run(2, unit -> {
+      translated.incrementAndGet();
+      if(unit.getInput().equals("0")) {
+        throw new Exception("failure");
+      }
+      return 0;
+    });
+    assertEquals(1, status);
+    assertEquals(nbUnits, translated.get());
+  }
+}
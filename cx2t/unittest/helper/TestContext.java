@@ -0,0 +1,37 @@
+/*
+ * This file is released under terms of BSD license
+ * See LICENSE file for more information
+ */
+package helper;
+
+import claw.tatsu.common.CompilerDirective;
+import claw.tatsu.common.Context;
+import claw.tatsu.common.Target;
+
+/**
+ * Context used by the unit tests that need a translation context without
+ * loading a full configuration.
+ *
+ * @author clementval
+ */
+public class TestContext extends Context {
+
+  private static final int MAX_COLUMNS = 80;
+
+  /**
+   * Create a context without directive nor target.
+   */
+  public TestContext() {
+    this(CompilerDirective.NONE, Target.NONE);
+  }
+
+  /**
+   * Create a context for the given directive and target.
+   *
+   * @param directive Compiler directive.
+   * @param target    Target of the translation.
+   */
+  public TestContext(CompilerDirective directive, Target target) {
+    super(directive, target, null, MAX_COLUMNS);
+  }
+}
@@ -4,6 +4,7 @@
  */
 package helper;
 
+import claw.tatsu.common.Context;
 import claw.tatsu.xcodeml.xnode.Xname;
 import claw.tatsu.xcodeml.xnode.common.*;
 import claw.tatsu.xcodeml.xnode.fortran.FbasicType;
@@ -33,9 +34,14 @@ public class XmlHelper {
   }
 
   public static XcodeProgram getDummyXcodeProgram() {
+    return getDummyXcodeProgram(new TestContext());
+  }
+
+  public static XcodeProgram getDummyXcodeProgram(Context context) {
     File f = new File(TestConstant.TEST_DATA);
     assertTrue(f.exists());
-    XcodeProgram xcodeml = XcodeProgram.createFromFile(TestConstant.TEST_DATA);
+    XcodeProgram xcodeml =
+        XcodeProgram.createFromFile(TestConstant.TEST_DATA, context);
     assertNotNull(xcodeml);
     return xcodeml;
   }
@@ -17,6 +17,16 @@ set(CLAW_X2T_TATSU_JAR "${CLAW_X2T_JAR_INSTALL_PATH}/${CLAW_X2T_TATSU}.jar")
 set(CLAW_X2T_SHENRON_JAR "${CLAW_X2T_JAR_INSTALL_PATH}/${CLAW_X2T_SHENRON}.jar")
 set(CLAW_X2T_WANI_JAR "${CLAW_X2T_JAR_INSTALL_PATH}/${CLAW_X2T_WANI}.jar")
 
+# Ahead-of-time artifacts of the translator. Application class-data sharing
+# must be unlocked explicitly with Java 10 only.
+set(CLAW_X2T_CDS_NAME "claw-x2t.jsa")
+set(CLAW_X2T_NATIVE_NAME "claw-x2t")
+set(CLAW_X2T_CDS_ARCHIVE "${CLAW_X2T_JAR_INSTALL_PATH}/${CLAW_X2T_CDS_NAME}")
+set(CLAW_X2T_NATIVE "${CMAKE_INSTALL_PREFIX}/libexec/${CLAW_X2T_NATIVE_NAME}")
+if(Java_VERSION_MAJOR EQUAL 10)
+  set(CLAW_X2T_CDS_OPT "-XX:+UseAppCDS")
+endif()
+
 # Configurations files and paths
 set(CLAW_CONFIG_FILE "claw-default.xml")
 set(CLAW_CONFIG_XSD "claw_config.xsd")